@@ -575,7 +575,13 @@ export default function SharedContentSettings(
   const getScanSharedFoldersButton = () => {
     const haveFolder = sharedContents.find(sharedContent => sharedContent.type.startsWith('Folder'));
     return haveFolder ? (
-      <Tooltip label={i18n.get[sse.scanLibrary.running ? 'CancelScanningSharedFolders' : 'ScanAllSharedFolders']} {...defaultTooltipSettings}>
+      <Tooltip label={sse.scanLibrary.running && sse.scanLibrary.files !== undefined ?
+          i18n.get['CancelScanningSharedFolders'] + ' - ' + i18n.get['ScanLibraryProgress']
+            .replace('%s', String(sse.scanLibrary.folders))
+            .replace('%s', String(sse.scanLibrary.files))
+            .replace('%s', String(sse.scanLibrary.rate)) :
+          i18n.get[sse.scanLibrary.running ? 'CancelScanningSharedFolders' : 'ScanAllSharedFolders']
+        } {...defaultTooltipSettings}>
         <ActionIcon
           size="xl"
           disabled={!canModify || isLoading || !sse.scanLibrary.enabled || (!configuration.use_cache && !sse.scanLibrary.running)}
@@ -24,7 +24,7 @@ export const serverEventContext: Context<{
   reloadable: boolean;
   userConfiguration: any;
   setUserConfiguration: (config: any) => void;
-  scanLibrary: {enabled:boolean,running:boolean};
+  scanLibrary: {enabled:boolean,running:boolean,folders?:number,files?:number,rate?:number};
   hasRendererAction : boolean;
   getRendererAction : () => any;
   hasNewLogLine : boolean;
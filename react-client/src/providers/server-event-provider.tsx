@@ -35,7 +35,7 @@ export const ServerEventProvider = ({ children, ...props }: Props) =>{
   const [updateAccounts, setUpdateAccounts] = useState<boolean>(true);
   const [reloadable, setReloadable] = useState<boolean>(false);
   const [userConfiguration, setUserConfiguration] = useState(null);
-  const [scanLibrary, setScanLibrary] = useState<{enabled:boolean,running:boolean}>({enabled:true,running:false});
+  const [scanLibrary, setScanLibrary] = useState<{enabled:boolean,running:boolean,folders?:number,files?:number,rate?:number}>({enabled:true,running:false});
   const [hasRendererAction, setRendererAction] = useState(false);
   const [rendererActions] = useState([] as any[]);
   const [hasNewLogLine, setNewLogLine] = useState(false);
@@ -103,6 +103,9 @@ export const ServerEventProvider = ({ children, ...props }: Props) =>{
           case 'set_scanlibrary_status':
             setScanLibrary({'enabled':datas.enabled, 'running':datas.running});
             break;
+          case 'set_scanlibrary_progress':
+            setScanLibrary(scanLibrary => ({...scanLibrary, 'folders':datas.folders, 'files':datas.files, 'rate':datas.rate}));
+            break;
           case 'renderer_add':
           case 'renderer_delete':
           case 'renderer_update':
@@ -45,6 +45,7 @@ import net.pms.database.MediaDatabase;
 import net.pms.database.UserDatabase;
 import net.pms.dlna.CodeEnter;
 import net.pms.dlna.DLNAResource;
+import net.pms.dlna.DidlFragmentCache;
 import net.pms.dlna.DynamicPlaylist;
 import net.pms.dlna.GlobalIdRepo;
 import net.pms.dlna.Playlist;
@@ -732,6 +733,8 @@ public class PMS {
 	public void resetRenderersRoot() {
 		ConnectedRenderers.resetAllRenderers();
 		OldPlayerServer.resetRenderers();
+		// The configuration changed, the cached fragments may be out of date
+		DidlFragmentCache.clear();
 		DLNAResource.bumpSystemUpdateId();
 	}
 
@@ -243,6 +243,8 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_DATABASE_MEDIA_CACHE_SIZE_KB = "database_media_cache_size";
 	private static final String KEY_DATABASE_MEDIA_USE_CACHE_SOFT = "database_media_use_cache_soft";
 	private static final String KEY_DATABASE_MEDIA_USE_MEMORY_INDEXES = "database_media_use_memory_indexes";
+	private static final String KEY_DATABASE_MEDIA_WRITE_BATCH_SIZE = "database_media_write_batch_size";
+	private static final String KEY_DIDL_CACHE_SIZE = "didl_cache_size";
 	private static final String KEY_DISABLE_EXTERNAL_ENTITIES = "disable_external_entities";
 	private static final String KEY_DISABLE_FAKESIZE = "disable_fakesize";
 	private static final String KEY_DISABLE_SUBTITLES = "disable_subtitles";
@@ -288,6 +290,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_HIDE_EMPTY_FOLDERS = "hide_empty_folders";
 	private static final String KEY_HIDE_ENGINENAMES = "hide_enginenames";
 	private static final String KEY_HIDE_EXTENSIONS = "hide_extensions";
+	private static final String KEY_HLS_SEGMENT_CACHE_SIZE = "hls_segment_cache_size";
 	private static final String KEY_IGNORE_THE_WORD_A_AND_THE = "ignore_the_word_a_and_the";
 	private static final String KEY_IMAGE_THUMBNAILS_ENABLED = "image_thumbnails";
 	private static final String KEY_INFO_DB_RETRY = "infodb_retry";
@@ -297,6 +300,9 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_LANGUAGE = "language";
 	private static final String KEY_LIVE_SUBTITLES_KEEP = "live_subtitles_keep";
 	private static final String KEY_LIVE_SUBTITLES_LIMIT = "live_subtitles_limit";
+	private static final String KEY_LIBRARY_SCAN_THREADS = "library_scan_threads";
+	private static final String KEY_LIBRARY_PARSE_QUEUE_SIZE = "library_parse_queue_size";
+	private static final String KEY_LIBRARY_SCAN_THREADS_PER_DEVICE = "library_scan_threads_per_device";
 	private static final String KEY_LOG_SYSTEM_INFO = "log_system_info";
 	private static final String KEY_LOGGING_LOGFILE_NAME = "logging_logfile_name";
 	private static final String KEY_LOGGING_BUFFERED = "logging_buffered";
@@ -312,6 +318,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_MAX_AUDIO_BUFFER = "maximum_audio_buffer_size";
 	private static final String KEY_MAX_BITRATE = "maximum_bitrate";
 	private static final String KEY_MAX_MEMORY_BUFFER_SIZE = "maximum_video_buffer_size";
+	private static final String KEY_MEDIAINFO_HANDLES = "mediainfo_handles";
 	private static final String KEY_MENCODER_ASS = "mencoder_ass";
 	private static final String KEY_MENCODER_AC3_FIXED = "mencoder_ac3_fixed";
 	private static final String KEY_MENCODER_CODEC_SPECIFIC_SCRIPT = "mencoder_codec_specific_script";
@@ -358,6 +365,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_PROFILE_NAME = "name";
 	private static final String KEY_RENDERER_DEFAULT = "renderer_default";
 	private static final String KEY_RENDERER_FORCE_DEFAULT = "renderer_force_default";
+	private static final String KEY_RESOLVER_THREADS = "resolver_threads";
 	private static final String KEY_RESUME = "resume";
 	private static final String KEY_RESUME_BACK = "resume_back";
 	private static final String KEY_RESUME_KEEP_TIME = "resume_keep_time";
@@ -367,6 +375,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_SCAN_SHARED_FOLDERS_ON_STARTUP = "scan_shared_folders_on_startup";
 	private static final String KEY_SCRIPT_DIR = "script_dir";
 	private static final String KEY_SEARCH_FOLDER = "search_folder";
+	private static final String KEY_SEARCH_INDEX_MAX_FILES = "search_index_max_files";
 	private static final String KEY_SEARCH_IN_FOLDER = "search_in_folder";
 	private static final String KEY_SEARCH_RECURSE = "search_recurse"; // legacy option
 	private static final String KEY_SEARCH_RECURSE_DEPTH = "search_recurse_depth";
@@ -399,9 +408,14 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_SUBTITLES_CODEPAGE = "subtitles_codepage";
 	private static final String KEY_SUBTITLES_LANGUAGES = "subtitles_languages";
 	private static final String KEY_TEMP_FOLDER_PATH = "temp_directory";
+	private static final String KEY_THUMBNAIL_CACHE_DISK_SIZE = "thumbnail_cache_disk_size";
+	private static final String KEY_THUMBNAIL_CACHE_MEMORY_SIZE = "thumbnail_cache_memory_size";
 	private static final String KEY_THUMBNAIL_GENERATION_ENABLED = "generate_thumbnails";
 	private static final String KEY_THUMBNAIL_SEEK_POS = "thumbnail_seek_position";
+	private static final String KEY_THUMBNAIL_THREADS = "thumbnail_threads";
 	private static final String KEY_TRANSCODE_BLOCKS_MULTIPLE_CONNECTIONS = "transcode_block_multiple_connections";
+	private static final String KEY_TRANSCODE_BUFFER_MEMORY_LIMIT = "transcode_buffer_memory_limit";
+	private static final String KEY_TRANSCODE_BUFFER_SPILL_TO_DISK = "transcode_buffer_spill_to_disk";
 	private static final String KEY_TRANSCODE_FOLDER_NAME = "transcode_folder_name";
 	private static final String KEY_TRANSCODE_KEEP_FIRST_CONNECTION = "transcode_keep_first_connection";
 	private static final String KEY_TSMUXER_FORCEFPS = "tsmuxer_forcefps";
@@ -413,6 +427,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_USE_EMBEDDED_SUBTITLES_STYLE = "use_embedded_subtitles_style";
 	private static final String KEY_USE_IMDB_INFO = "use_imdb_info";
 	private static final String KEY_USE_MPLAYER_FOR_THUMBS = "use_mplayer_for_video_thumbs";
+	private static final String KEY_USE_SEARCH_INDEX = "use_search_index";
 	private static final String KEY_USE_SYMLINKS_TARGET_FILE = "use_symlinks_target_file";
 	private static final String KEY_UUID = "uuid";
 	private static final String KEY_VIDEOTRANSCODE_START_DELAY = "videotranscode_start_delay";
@@ -1752,6 +1767,66 @@ public class UmsConfiguration extends BaseConfiguration {
 		configuration.setProperty(KEY_THUMBNAIL_SEEK_POS, value);
 	}
 
+	/**
+	 * Returns the maximum size of the thumbnails transcoded for the renderers
+	 * that are kept in memory, in megabytes.
+	 *
+	 * @return The size of the thumbnail memory cache, 0 if disabled.
+	 */
+	public int getThumbnailCacheMemorySize() {
+		return Math.max(0, getInt(KEY_THUMBNAIL_CACHE_MEMORY_SIZE, 16));
+	}
+
+	/**
+	 * Sets the maximum size of the thumbnails transcoded for the renderers
+	 * that are kept in memory, in megabytes.
+	 *
+	 * @param value The size of the thumbnail memory cache, 0 to disable it.
+	 */
+	public void setThumbnailCacheMemorySize(int value) {
+		configuration.setProperty(KEY_THUMBNAIL_CACHE_MEMORY_SIZE, value);
+	}
+
+	/**
+	 * Returns the maximum size of the thumbnails transcoded for the renderers
+	 * that are stored on disk, in megabytes.
+	 *
+	 * @return The size of the thumbnail disk cache, 0 if disabled.
+	 */
+	public int getThumbnailCacheDiskSize() {
+		return Math.max(0, getInt(KEY_THUMBNAIL_CACHE_DISK_SIZE, 256));
+	}
+
+	/**
+	 * Sets the maximum size of the thumbnails transcoded for the renderers
+	 * that are stored on disk, in megabytes.
+	 *
+	 * @param value The size of the thumbnail disk cache, 0 to disable it.
+	 */
+	public void setThumbnailCacheDiskSize(int value) {
+		configuration.setProperty(KEY_THUMBNAIL_CACHE_DISK_SIZE, value);
+	}
+
+	/**
+	 * Returns the maximum number of thumbnails generated at the same time,
+	 * each running its own FFmpeg or MPlayer process.
+	 *
+	 * @return The number of thumbnail threads.
+	 */
+	public int getThumbnailThreads() {
+		int threads = getInt(KEY_THUMBNAIL_THREADS, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+		return Math.max(threads, 1);
+	}
+
+	/**
+	 * Sets the maximum number of thumbnails generated at the same time.
+	 *
+	 * @param value The number of thumbnail threads.
+	 */
+	public void setThumbnailThreads(int value) {
+		configuration.setProperty(KEY_THUMBNAIL_THREADS, value);
+	}
+
 	/**
 	 * Returns whether the user wants ASS/SSA subtitle support. Default is
 	 * true.
@@ -2798,6 +2873,69 @@ public class UmsConfiguration extends BaseConfiguration {
 		configuration.setProperty(KEY_TRANSCODE_BLOCKS_MULTIPLE_CONNECTIONS, value);
 	}
 
+	/**
+	 * Returns the maximum amount of heap memory in megabytes that the
+	 * transcoding buffers of all active streams may use together. Buffers
+	 * that do not fit are backed by a memory-mapped temporary file instead.
+	 * Default value is 0, which means 30% of the maximum heap size.
+	 *
+	 * @return The transcoding buffers memory limit in megabytes.
+	 */
+	public int getTranscodeBufferMemoryLimit() {
+		return Math.max(0, getInt(KEY_TRANSCODE_BUFFER_MEMORY_LIMIT, 0));
+	}
+
+	/**
+	 * Sets the maximum amount of heap memory in megabytes that the
+	 * transcoding buffers of all active streams may use together.
+	 *
+	 * @param value The transcoding buffers memory limit in megabytes, or 0
+	 *            to use 30% of the maximum heap size.
+	 */
+	public void setTranscodeBufferMemoryLimit(int value) {
+		configuration.setProperty(KEY_TRANSCODE_BUFFER_MEMORY_LIMIT, Math.max(0, value));
+	}
+
+	/**
+	 * Whether transcoding buffers should always be backed by a memory-mapped
+	 * temporary file instead of the heap. Default value is false.
+	 *
+	 * @return Whether transcoding buffers always spill to disk.
+	 */
+	public boolean isTranscodeBufferSpillToDisk() {
+		return getBoolean(KEY_TRANSCODE_BUFFER_SPILL_TO_DISK, false);
+	}
+
+	/**
+	 * Sets whether transcoding buffers should always be backed by a
+	 * memory-mapped temporary file instead of the heap.
+	 *
+	 * @param value Whether transcoding buffers always spill to disk.
+	 */
+	public void setTranscodeBufferSpillToDisk(boolean value) {
+		configuration.setProperty(KEY_TRANSCODE_BUFFER_SPILL_TO_DISK, value);
+	}
+
+	/**
+	 * Returns the maximum size of the HLS segments that are transcoded ahead
+	 * of the playhead and kept in the temporary folder, in megabytes.
+	 *
+	 * @return The size of the HLS segment cache, 0 if disabled.
+	 */
+	public int getHlsSegmentCacheSize() {
+		return Math.max(0, getInt(KEY_HLS_SEGMENT_CACHE_SIZE, 512));
+	}
+
+	/**
+	 * Sets the maximum size of the HLS segments that are transcoded ahead of
+	 * the playhead and kept in the temporary folder, in megabytes.
+	 *
+	 * @param value The size of the HLS segment cache, 0 to disable it.
+	 */
+	public void setHlsSegmentCacheSize(int value) {
+		configuration.setProperty(KEY_HLS_SEGMENT_CACHE_SIZE, value);
+	}
+
 	public boolean getTrancodeKeepFirstConnections() {
 		return getBoolean(KEY_TRANSCODE_KEEP_FIRST_CONNECTION, true);
 	}
@@ -3988,6 +4126,173 @@ public class UmsConfiguration extends BaseConfiguration {
 		this.configuration.setProperty(KEY_SCAN_SHARED_FOLDERS_ON_STARTUP, value);
 	}
 
+	/**
+	 * Returns the number of threads shared by all browse requests to resolve
+	 * the media they return.
+	 *
+	 * @return The number of resolver threads.
+	 */
+	public int getResolverThreads() {
+		int threads = getInt(KEY_RESOLVER_THREADS, Runtime.getRuntime().availableProcessors());
+		return Math.max(threads, 1);
+	}
+
+	/**
+	 * Sets the number of threads shared by all browse requests to resolve the
+	 * media they return.
+	 *
+	 * @param value The number of resolver threads.
+	 */
+	public void setResolverThreads(int value) {
+		configuration.setProperty(KEY_RESOLVER_THREADS, value);
+	}
+
+	/**
+	 * Returns the maximum number of DIDL-Lite fragments kept in memory to
+	 * answer browse requests without rendering the same items again.
+	 *
+	 * @return The number of cached DIDL-Lite fragments, 0 if disabled.
+	 */
+	public int getDidlCacheSize() {
+		return Math.max(0, getInt(KEY_DIDL_CACHE_SIZE, 5000));
+	}
+
+	/**
+	 * Sets the maximum number of DIDL-Lite fragments kept in memory to answer
+	 * browse requests without rendering the same items again.
+	 *
+	 * @param value The number of cached DIDL-Lite fragments, 0 to disable.
+	 */
+	public void setDidlCacheSize(int value) {
+		configuration.setProperty(KEY_DIDL_CACHE_SIZE, Math.max(0, value));
+	}
+
+	/**
+	 * Returns whether UPnP searches should be answered from the in-memory
+	 * search index of the media library instead of scanning the database.
+	 *
+	 * @return True if the search index should be used.
+	 */
+	public boolean isUseSearchIndex() {
+		return getBoolean(KEY_USE_SEARCH_INDEX, true);
+	}
+
+	/**
+	 * Sets whether UPnP searches should be answered from the in-memory
+	 * search index of the media library instead of scanning the database.
+	 *
+	 * @param value True if the search index should be used.
+	 */
+	public void setUseSearchIndex(boolean value) {
+		configuration.setProperty(KEY_USE_SEARCH_INDEX, value);
+	}
+
+	/**
+	 * Returns the most files of the media library for which the in-memory
+	 * search index is used, which bounds the memory of the index.
+	 *
+	 * @return The maximum number of files in the search index.
+	 */
+	public int getSearchIndexMaxFiles() {
+		return Math.max(0, getInt(KEY_SEARCH_INDEX_MAX_FILES, 1000000));
+	}
+
+	/**
+	 * Sets the most files of the media library for which the in-memory
+	 * search index is used.
+	 *
+	 * @param value The maximum number of files in the search index.
+	 */
+	public void setSearchIndexMaxFiles(int value) {
+		configuration.setProperty(KEY_SEARCH_INDEX_MAX_FILES, Math.max(0, value));
+	}
+
+	/**
+	 * Returns the maximum number of MediaInfo handles, which is the number of
+	 * files MediaInfo can parse at the same time.
+	 *
+	 * @return The maximum number of MediaInfo handles.
+	 */
+	public int getMediaInfoHandles() {
+		int handles = getInt(KEY_MEDIAINFO_HANDLES, Runtime.getRuntime().availableProcessors());
+		return Math.max(handles, 1);
+	}
+
+	/**
+	 * Sets the maximum number of MediaInfo handles, which is the number of
+	 * files MediaInfo can parse at the same time.
+	 *
+	 * @param value The maximum number of MediaInfo handles.
+	 */
+	public void setMediaInfoHandles(int value) {
+		configuration.setProperty(KEY_MEDIAINFO_HANDLES, value);
+	}
+
+	/**
+	 * Returns the maximum number of threads the library scanner uses to walk
+	 * folders and parse files concurrently.
+	 *
+	 * @return The number of library scanner threads.
+	 */
+	public int getLibraryScanThreads() {
+		int threads = getInt(KEY_LIBRARY_SCAN_THREADS, Runtime.getRuntime().availableProcessors());
+		return Math.max(threads, 1);
+	}
+
+	/**
+	 * Sets the maximum number of threads the library scanner uses to walk
+	 * folders and parse files concurrently.
+	 *
+	 * @param value The number of library scanner threads.
+	 */
+	public void setLibraryScanThreads(int value) {
+		configuration.setProperty(KEY_LIBRARY_SCAN_THREADS, value);
+	}
+
+	/**
+	 * Returns the maximum number of library scanner threads allowed to access
+	 * the same storage device at once. Spinning disks and network shares
+	 * usually perform worse when read by many threads at the same time.
+	 *
+	 * @return The number of library scanner threads per storage device.
+	 */
+	public int getLibraryScanThreadsPerDevice() {
+		int threads = getInt(KEY_LIBRARY_SCAN_THREADS_PER_DEVICE, 2);
+		return Math.max(threads, 1);
+	}
+
+	/**
+	 * Sets the maximum number of library scanner threads allowed to access the
+	 * same storage device at once.
+	 *
+	 * @param value The number of library scanner threads per storage device.
+	 */
+	public void setLibraryScanThreadsPerDevice(int value) {
+		configuration.setProperty(KEY_LIBRARY_SCAN_THREADS_PER_DEVICE, value);
+	}
+
+	/**
+	 * Returns the maximum number of changed files waiting to be parsed into
+	 * the media library. When the queue is full, the file watcher waits for
+	 * the parser to catch up.
+	 *
+	 * @return The size of the library parse queue.
+	 */
+	public int getLibraryParseQueueSize() {
+		int size = getInt(KEY_LIBRARY_PARSE_QUEUE_SIZE, 1000);
+		return Math.max(size, 1);
+	}
+
+	/**
+	 * Sets the maximum number of changed files waiting to be parsed into the
+	 * media library.
+	 *
+	 * @param value The size of the library parse queue.
+	 */
+	public void setLibraryParseQueueSize(int value) {
+		configuration.setProperty(KEY_LIBRARY_PARSE_QUEUE_SIZE, value);
+	}
+
 	/**
 	 * Whether to show the "Recently Played" folder on the renderer.
 	 *
@@ -4524,6 +4829,26 @@ public class UmsConfiguration extends BaseConfiguration {
 		return getBoolean(KEY_DATABASE_MEDIA_USE_CACHE_SOFT, false);
 	}
 
+	/**
+	 * Get the number of parsed files written to the Media database in a
+	 * single transaction.
+	 * @return the number of files per write batch, 0 to write each file as
+	 * soon as it is parsed
+	 */
+	public int getDatabaseMediaWriteBatchSize() {
+		return Math.max(0, getInt(KEY_DATABASE_MEDIA_WRITE_BATCH_SIZE, 100));
+	}
+
+	/**
+	 * Set the number of parsed files written to the Media database in a
+	 * single transaction.
+	 * @param value the number of files per write batch, 0 to write each file
+	 * as soon as it is parsed
+	 */
+	public void setDatabaseMediaWriteBatchSize(int value) {
+		configuration.setProperty(KEY_DATABASE_MEDIA_WRITE_BATCH_SIZE, Math.max(0, value));
+	}
+
 	public boolean isVlcUseHardwareAccel() {
 		return getBoolean(KEY_VLC_USE_HW_ACCELERATION, false);
 	}
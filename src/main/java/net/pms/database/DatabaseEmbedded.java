@@ -43,6 +43,10 @@ public class DatabaseEmbedded {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseEmbedded.class);
 	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
 	private static final Profiler PROFILER = new Profiler();
+
+	/** The number of prepared queries cached by each session */
+	private static final int QUERY_CACHE_SIZE = 64;
+
 	private static boolean collecting = false;
 
 	/**
@@ -78,6 +82,9 @@ public class DatabaseEmbedded {
 			url += ";DEFAULT_TABLE_TYPE=CACHED";
 		}
 
+		// Each session reuses the plans of its last parameterized queries
+		url += ";QUERY_CACHE_SIZE=" + QUERY_CACHE_SIZE;
+
 		if (CONFIGURATION.getDatabaseLogging()) {
 			url += ";TRACE_LEVEL_FILE=3";
 			LOGGER.info("Database logging is enabled");
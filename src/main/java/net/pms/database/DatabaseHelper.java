@@ -17,6 +17,9 @@
 package net.pms.database;
 
 import com.google.common.base.CharMatcher;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -34,6 +37,9 @@ import java.util.Set;
 import java.util.regex.Pattern;
 import net.pms.PMS;
 import net.pms.configuration.UmsConfiguration;
+import net.pms.dlna.DLNAThumbnail;
+import net.pms.image.ImageInfo;
+import net.pms.image.ImageInfoCodec;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -370,6 +376,116 @@ public abstract class DatabaseHelper {
 			ps.setNull(parameterIndex, Types.OTHER);
 		}
 	}
+
+	/**
+	 * Checks whether {@code bytes} is a Java serialization stream, which is how
+	 * {@link ImageInfo} and {@link DLNAThumbnail} instances were stored before
+	 * their compact binary encoding.
+	 *
+	 * @param bytes the bytes to check.
+	 * @return {@code true} if {@code bytes} starts with the Java serialization
+	 *         magic number, {@code false} otherwise.
+	 */
+	protected static boolean isJavaSerialized(byte[] bytes) {
+		return bytes != null && bytes.length > 1 && bytes[0] == (byte) 0xAC && bytes[1] == (byte) 0xED;
+	}
+
+	protected static Object deserialize(byte[] bytes) throws SQLException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		} catch (IOException | ClassNotFoundException e) {
+			throw new SQLException("Failed to deserialize object: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads an {@link ImageInfo} stored either with {@link ImageInfoCodec} or
+	 * with Java serialization.
+	 *
+	 * @param rs the {@link ResultSet} to read from.
+	 * @param columnLabel the column holding the {@link ImageInfo}.
+	 * @return The {@link ImageInfo} or {@code null}.
+	 * @throws SQLException If the column can't be read or decoded.
+	 */
+	protected static ImageInfo getImageInfo(ResultSet rs, String columnLabel) throws SQLException {
+		byte[] bytes = rs.getBytes(columnLabel);
+		if (bytes == null) {
+			return null;
+		}
+		if (isJavaSerialized(bytes)) {
+			Object object = deserialize(bytes);
+			if (object instanceof ImageInfo imageInfo) {
+				return imageInfo;
+			}
+			throw new SQLException("Column " + columnLabel + " doesn't hold an ImageInfo");
+		}
+		try {
+			return ImageInfoCodec.decode(bytes);
+		} catch (IOException e) {
+			throw new SQLException("Failed to decode ImageInfo: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads a {@link DLNAThumbnail} stored either with
+	 * {@link DLNAThumbnail#encode()} or with Java serialization.
+	 *
+	 * @param rs the {@link ResultSet} to read from.
+	 * @param columnLabel the column holding the {@link DLNAThumbnail}.
+	 * @return The {@link DLNAThumbnail} or {@code null}.
+	 * @throws SQLException If the column can't be read or decoded.
+	 */
+	protected static DLNAThumbnail getThumbnail(ResultSet rs, String columnLabel) throws SQLException {
+		byte[] bytes = rs.getBytes(columnLabel);
+		if (bytes == null) {
+			return null;
+		}
+		if (isJavaSerialized(bytes)) {
+			Object object = deserialize(bytes);
+			if (object instanceof DLNAThumbnail thumbnail) {
+				return thumbnail;
+			}
+			throw new SQLException("Column " + columnLabel + " doesn't hold a DLNAThumbnail");
+		}
+		try {
+			return DLNAThumbnail.decode(bytes);
+		} catch (IOException e) {
+			throw new SQLException("Failed to decode DLNAThumbnail: " + e.getMessage(), e);
+		}
+	}
+
+	protected static byte[] encode(ImageInfo imageInfo) throws SQLException {
+		try {
+			return ImageInfoCodec.encode(imageInfo);
+		} catch (IOException e) {
+			throw new SQLException("Failed to encode ImageInfo: " + e.getMessage(), e);
+		}
+	}
+
+	protected static byte[] encode(DLNAThumbnail thumbnail) throws SQLException {
+		try {
+			return thumbnail != null ? thumbnail.encode() : null;
+		} catch (IOException e) {
+			throw new SQLException("Failed to encode DLNAThumbnail: " + e.getMessage(), e);
+		}
+	}
+
+	protected static void updateEncoded(ResultSet rs, byte[] bytes, String columnLabel) throws SQLException {
+		if (bytes != null) {
+			rs.updateBytes(columnLabel, bytes);
+		} else {
+			rs.updateNull(columnLabel);
+		}
+	}
+
+	protected static void insertEncoded(PreparedStatement ps, byte[] bytes, int parameterIndex) throws SQLException {
+		if (bytes != null) {
+			ps.setBytes(parameterIndex, bytes);
+		} else {
+			ps.setNull(parameterIndex, Types.OTHER);
+		}
+	}
+
 	/**
 	 * Returns the VALUES {@link String} for the SQL request.
 	 * It fills the {@link String} with {@code " VALUES (?,?,?, ...)"}.<p>
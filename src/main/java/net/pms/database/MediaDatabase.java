@@ -52,6 +52,7 @@ public class MediaDatabase extends Database {
 	public final void onOpening(boolean force) {
 		try {
 			checkTables(force);
+			MediaDatabaseEncodingMigration.start();
 		} catch (SQLException se) {
 			LOGGER.error("Error checking tables: " + se.getMessage());
 			LOGGER.trace("", se);
@@ -98,6 +99,7 @@ public class MediaDatabase extends Database {
 
 				MediaTableTVSeries.checkTable(connection);
 				MediaTableFailedLookups.checkTable(connection);
+				MediaTableFileFingerprints.checkTable(connection);
 
 				// Video metadata tables
 				MediaTableVideoMetadataActors.checkTable(connection);
@@ -150,6 +152,7 @@ public class MediaDatabase extends Database {
 
 		dropTableAndConstraint(connection, MediaTableTVSeries.TABLE_NAME);
 		dropTableAndConstraint(connection, MediaTableFailedLookups.TABLE_NAME);
+		dropTableAndConstraint(connection, MediaTableFileFingerprints.TABLE_NAME);
 
 		// Video metadata tables
 		dropTableAndConstraint(connection, MediaTableVideoMetadataActors.TABLE_NAME);
@@ -166,6 +169,7 @@ public class MediaDatabase extends Database {
 
 		// Audio Metadata
 		dropTableAndConstraint(connection, MediaTableAudiotracks.TABLE_NAME);
+		MediaLibrarySearchIndex.invalidate();
 	}
 
 	/**
@@ -252,6 +256,7 @@ public class MediaDatabase extends Database {
 	 */
 	public static synchronized void shutdown() {
 		if (instance != null) {
+			MediaLibraryWriter.flush();
 			instance.close();
 		}
 	}
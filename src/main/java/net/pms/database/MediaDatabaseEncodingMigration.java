@@ -0,0 +1,159 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import net.pms.PMS;
+import net.pms.dlna.DLNAThumbnail;
+import net.pms.image.ImageInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rewrites the {@link ImageInfo} and {@link DLNAThumbnail} instances stored
+ * with Java serialization to their compact binary encoding.
+ * <p>
+ * Rows stored in the old format stay readable, so the migration runs in the
+ * background in small batches and gives way to browse requests between them.
+ */
+public final class MediaDatabaseEncodingMigration extends DatabaseHelper {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaDatabaseEncodingMigration.class);
+	private static final int BATCH_SIZE = 200;
+
+	private static Thread thread;
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private MediaDatabaseEncodingMigration() {
+	}
+
+	/**
+	 * Starts the migration in the background unless it's already running.
+	 */
+	public static synchronized void start() {
+		if (thread != null && thread.isAlive()) {
+			return;
+		}
+		thread = new Thread(MediaDatabaseEncodingMigration::run, "Database encoding migration");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	private static void run() {
+		long start = System.currentTimeMillis();
+		try {
+			int migrated = migrate(MediaTableFiles.TABLE_NAME, new String[] {"ID"}, "IMAGEINFO", false, false);
+			migrated += migrate(MediaTableThumbnails.TABLE_NAME, new String[] {"ID"}, "THUMBNAIL", true, true);
+			migrated += migrate(MediaTableChapters.TABLE_NAME, new String[] {"FILEID", "ID", "LANG"}, "THUMBNAIL", true, false);
+			if (migrated > 0) {
+				LOGGER.info("Migrated {} stored images to the compact encoding in {} ms", migrated, System.currentTimeMillis() - start);
+			}
+		} catch (SQLException e) {
+			LOGGER.warn("Migration of the stored images to the compact encoding failed: {}", e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Migrates one column in batches of rows, read in the order of the
+	 * primary key from where the previous batch ended, so that every row is
+	 * read once.
+	 *
+	 * @param table the table name.
+	 * @param keyColumns the primary key columns, needed to page through and
+	 *            update the rows.
+	 * @param column the column to migrate.
+	 * @param thumbnail whether the column holds {@link DLNAThumbnail}s rather
+	 *            than {@link ImageInfo}s.
+	 * @param deleteInvalid whether rows that can't be deserialized should be
+	 *            deleted rather than set to {@code NULL}.
+	 * @return The number of migrated rows.
+	 */
+	private static int migrate(String table, String[] keyColumns, String column, boolean thumbnail, boolean deleteInvalid) throws SQLException {
+		String keys = String.join(", ", keyColumns);
+		String select = "SELECT " + keys + ", " + column + " FROM " + table + " ";
+		String orderBy = "ORDER BY " + keys + " LIMIT " + BATCH_SIZE;
+		String firstSql = select + orderBy;
+		String nextSql = select + "WHERE (" + keys + ") > (" + "?, ".repeat(keyColumns.length - 1) + "?) " + orderBy;
+		Object[] lastKey = null;
+		int migrated = 0;
+		int batch;
+		do {
+			// Give way to browse requests
+			PMS.REALTIME_LOCK.lock();
+			PMS.REALTIME_LOCK.unlock();
+
+			batch = 0;
+			Connection connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection == null) {
+				return migrated;
+			}
+			try {
+				connection.setAutoCommit(false);
+				try (PreparedStatement statement = connection.prepareStatement(lastKey == null ? firstSql : nextSql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE)) {
+					if (lastKey != null) {
+						for (int i = 0; i < lastKey.length; i++) {
+							statement.setObject(i + 1, lastKey[i]);
+						}
+					}
+					try (ResultSet rs = statement.executeQuery()) {
+						while (rs.next()) {
+							batch++;
+							lastKey = new Object[keyColumns.length];
+							for (int i = 0; i < keyColumns.length; i++) {
+								lastKey[i] = rs.getObject(i + 1);
+							}
+							if (!isJavaSerialized(rs.getBytes(column))) {
+								continue;
+							}
+							byte[] encoded;
+							try {
+								encoded = thumbnail ? encode(getThumbnail(rs, column)) : encode(getImageInfo(rs, column));
+							} catch (SQLException e) {
+								LOGGER.debug("Discarding stored value in {}.{} that can't be migrated: {}", table, column, e.getMessage());
+								encoded = null;
+							}
+							if (encoded != null) {
+								rs.updateBytes(column, encoded);
+								rs.updateRow();
+							} else if (deleteInvalid) {
+								rs.deleteRow();
+							} else {
+								rs.updateNull(column);
+								rs.updateRow();
+							}
+							migrated++;
+						}
+					}
+				}
+				connection.commit();
+				connection.setAutoCommit(true);
+			} finally {
+				MediaDatabase.close(connection);
+			}
+		} while (batch == BATCH_SIZE);
+		if (migrated > 0) {
+			LOGGER.debug("Migrated {} values in {}.{} to the compact encoding", migrated, table, column);
+		}
+		return migrated;
+	}
+}
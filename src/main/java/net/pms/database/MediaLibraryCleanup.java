@@ -0,0 +1,444 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.pms.Messages;
+import net.pms.configuration.sharedcontent.SharedContentConfiguration;
+import net.pms.gui.GuiManager;
+import net.pms.util.BasicThreadFactory;
+import net.pms.util.PathPrefixTrie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes the files that are no longer on the hard drive, or no longer
+ * shared, from the media library, then the thumbnails, statuses and TV series
+ * that are no longer referenced.
+ * <p>
+ * The {@code FILES} table is read by pages of increasing ids. The files of a
+ * page are checked on several threads, since checking a file on a network
+ * share mostly waits, and the stale rows of the page are deleted at once.
+ * The id of the last checked row is stored in the {@code METADATA} table
+ * after each page, so a cleanup that was stopped, or interrupted by a
+ * shutdown, resumes where it was on the next run.
+ * <p>
+ * A row is only deleted if its modification time is still the one that was
+ * checked, so a row that a scan updated meanwhile is kept.
+ */
+public class MediaLibraryCleanup {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaLibraryCleanup.class);
+
+	/** The METADATA key of the id of the last checked row */
+	private static final String METADATA_LAST_FILE_ID = "CLEANUP_LAST_FILE_ID";
+
+	/** The number of rows checked and deleted together */
+	private static final int PAGE_SIZE = 1000;
+
+	/** The number of threads checking the files of a page */
+	private static final int CHECK_THREADS = 8;
+
+	/** How long {@link #stop()} waits for the cleanup to stop, in milliseconds */
+	private static final long STOP_TIMEOUT = 30000;
+
+	private static final String SQL_GET_PAGE = "SELECT " + MediaTableFiles.TABLE_COL_ID + ", " + MediaTableFiles.TABLE_COL_FILENAME + ", " + MediaTableFiles.TABLE_COL_MODIFIED + " " +
+		"FROM " + MediaTableFiles.TABLE_NAME + " WHERE " + MediaTableFiles.TABLE_COL_ID + " > ? ORDER BY " + MediaTableFiles.TABLE_COL_ID + " LIMIT " + PAGE_SIZE;
+	private static final String SQL_COUNT_FROM = "SELECT COUNT(*) FROM " + MediaTableFiles.TABLE_NAME + " WHERE " + MediaTableFiles.TABLE_COL_ID + " > ?";
+	private static final String SQL_GET_FOLDER = "SELECT " + MediaTableFiles.TABLE_COL_ID + ", " + MediaTableFiles.TABLE_COL_FILENAME + ", " + MediaTableFiles.TABLE_COL_MODIFIED + " " +
+		"FROM " + MediaTableFiles.TABLE_NAME + " WHERE " + MediaTableFiles.TABLE_COL_FILENAME + " LIKE ?";
+	private static final String SQL_DELETE_UNCHANGED = "DELETE FROM " + MediaTableFiles.TABLE_NAME + " WHERE " + MediaTableFiles.TABLE_COL_ID + " = ? AND " + MediaTableFiles.TABLE_COL_MODIFIED + " = ?";
+
+	private static final AtomicBoolean RUNNING = new AtomicBoolean();
+	private static volatile boolean stopped;
+
+	record Row(long id, String filename, long modified) {
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private MediaLibraryCleanup() {
+	}
+
+	/**
+	 * Starts the cleanup on a background thread. If it is already running,
+	 * a previous {@link #stop()} is cancelled.
+	 */
+	public static void start() {
+		stopped = false;
+		if (!RUNNING.compareAndSet(false, true)) {
+			return;
+		}
+		Thread thread = new Thread(() -> {
+			Connection connection = MediaDatabase.getConnectionIfAvailable();
+			try {
+				if (connection != null) {
+					cleanup(connection);
+				}
+			} finally {
+				MediaDatabase.close(connection);
+				finished();
+			}
+		}, "Media library cleanup");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * Runs the cleanup on the calling thread, unless it is already running.
+	 *
+	 * @param connection the db connection.
+	 */
+	public static void run(final Connection connection) {
+		stopped = false;
+		if (!RUNNING.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			cleanup(connection);
+		} finally {
+			finished();
+		}
+	}
+
+	private static void finished() {
+		synchronized (RUNNING) {
+			RUNNING.set(false);
+			RUNNING.notifyAll();
+		}
+	}
+
+	/**
+	 * Stops the running cleanup and waits until it has stopped, so that it
+	 * doesn't overlap a scan. The files of the current page that are not
+	 * checked yet are skipped, and the next run resumes from that page.
+	 */
+	public static void stop() {
+		stopped = true;
+		long deadline = System.currentTimeMillis() + STOP_TIMEOUT;
+		synchronized (RUNNING) {
+			while (RUNNING.get()) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					LOGGER.debug("Timed out waiting for the cleanup of the media library to stop");
+					return;
+				}
+				try {
+					RUNNING.wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return whether the cleanup is running.
+	 */
+	public static boolean isRunning() {
+		return RUNNING.get();
+	}
+
+	/**
+	 * Removes the files of a folder and its subfolders that are no longer on
+	 * the hard drive, on the calling thread, without checking the rest of the
+	 * media library. This is used when file events were lost in the folder.
+	 * The files that were only modified are kept, to be parsed again.
+	 *
+	 * @param connection the db connection.
+	 * @param folder the full path of the folder.
+	 * @return the number of removed files.
+	 */
+	public static int cleanupFolder(final Connection connection, String folder) {
+		String prefix = folder.endsWith(File.separator) ? folder : folder + File.separator;
+		int removed = 0;
+		try {
+			List<Row> missingRows = new ArrayList<>();
+			try (PreparedStatement ps = connection.prepareStatement(SQL_GET_FOLDER)) {
+				ps.setString(1, DatabaseHelper.sqlLikeEscape(prefix) + "%");
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						File file = new File(rs.getString(2));
+						if (file.lastModified() == 0 && !file.exists()) {
+							LOGGER.trace("Removing the file {} from our database because it is no longer on the hard drive", file);
+							missingRows.add(new Row(rs.getLong(1), rs.getString(2), rs.getTimestamp(3).getTime()));
+						}
+					}
+				}
+			}
+			if (!missingRows.isEmpty()) {
+				removed = delete(connection, missingRows);
+				MediaLibraryJournal.recordChangeToAll();
+				for (Row row : missingRows) {
+					MediaLibrarySearchIndex.recordChange(row.id());
+				}
+			}
+			LOGGER.debug("Finished the cleanup of {}, {} files were removed", folder, removed);
+		} catch (SQLException se) {
+			LOGGER.error("Error while cleaning up {} in the media library: {}", folder, se.getMessage());
+			LOGGER.trace("", se);
+		}
+		return removed;
+	}
+
+	private static void cleanup(final Connection connection) {
+		MediaLibraryWriter.flush();
+		PathPrefixTrie sharedFolders = new PathPrefixTrie(SharedContentConfiguration.getSharedFolders());
+		ExecutorService executor = Executors.newFixedThreadPool(CHECK_THREADS, new BasicThreadFactory("Media library cleanup %d", Thread.MIN_PRIORITY));
+		boolean finished = false;
+		int removed = 0;
+		try {
+			String value = MediaTableMetadata.getMetadataValue(connection, METADATA_LAST_FILE_ID);
+			long lastId = value == null ? 0 : Long.parseLong(value);
+			if (lastId > 0) {
+				LOGGER.debug("Resuming the cleanup of the media library after file id {}", lastId);
+			}
+			int count = count(connection, lastId);
+			int checked = 0;
+			int oldPercent = 0;
+			GuiManager.setStatusLine(Messages.getString("CleaningUpDatabase") + " 0%");
+			while (!stopped) {
+				List<Row> rows = getPage(connection, lastId);
+				if (rows.isEmpty()) {
+					finished = true;
+					break;
+				}
+				List<Row> staleRows = getStaleRows(rows, sharedFolders, executor);
+				if (!staleRows.isEmpty()) {
+					removed += delete(connection, staleRows);
+					MediaLibraryJournal.recordChangeToAll();
+				}
+				if (stopped) {
+					// Some files of the page may not have been checked
+					break;
+				}
+				lastId = rows.get(rows.size() - 1).id();
+				MediaTableMetadata.setOrUpdateMetadataValue(connection, METADATA_LAST_FILE_ID, Long.toString(lastId));
+
+				checked += rows.size();
+				int newPercent = count > 0 ? Math.min(100, checked * 100 / count) : 100;
+				if (newPercent > oldPercent) {
+					GuiManager.setStatusLine(Messages.getString("CleaningUpDatabase") + " " + newPercent + "%");
+					oldPercent = newPercent;
+				}
+			}
+
+			if (finished) {
+				cleanupOrphans(connection);
+				MediaTableMetadata.setOrUpdateMetadataValue(connection, METADATA_LAST_FILE_ID, "0");
+				LOGGER.debug("Finished the cleanup of the media library, {} files were removed", removed);
+			} else {
+				LOGGER.debug("Stopped the cleanup of the media library after file id {}, {} files were removed", lastId, removed);
+			}
+		} catch (SQLException se) {
+			LOGGER.error("Error while cleaning up the media library: {}", se.getMessage());
+			LOGGER.trace("", se);
+		} catch (InterruptedException e) {
+			LOGGER.debug("The cleanup of the media library was interrupted");
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+			if (removed > 0 || finished) {
+				MediaLibraryJournal.recordChangeToAll();
+				MediaLibrarySearchIndex.invalidate();
+			}
+			GuiManager.setStatusLine(null);
+		}
+	}
+
+	private static int count(final Connection connection, long lastId) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(SQL_COUNT_FROM)) {
+			ps.setLong(1, lastId);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() ? rs.getInt(1) : 0;
+			}
+		}
+	}
+
+	private static List<Row> getPage(final Connection connection, long lastId) throws SQLException {
+		List<Row> rows = new ArrayList<>(PAGE_SIZE);
+		try (PreparedStatement ps = connection.prepareStatement(SQL_GET_PAGE)) {
+			ps.setLong(1, lastId);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					rows.add(new Row(rs.getLong(1), rs.getString(2), rs.getTimestamp(3).getTime()));
+				}
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Checks the rows of a page, the files that are no longer shared first
+	 * since they don't need the hard drive, then the others in parallel.
+	 */
+	private static List<Row> getStaleRows(List<Row> rows, PathPrefixTrie sharedFolders, ExecutorService executor) throws InterruptedException {
+		List<Row> staleRows = new ArrayList<>();
+		List<Row> sharedRows = new ArrayList<>(rows.size());
+		List<Callable<Boolean>> checks = new ArrayList<>(rows.size());
+		for (Row row : rows) {
+			if (sharedFolders.containsPrefixOf(row.filename())) {
+				sharedRows.add(row);
+				checks.add(() -> isUnchanged(row));
+			} else {
+				LOGGER.trace("Removing the file {} from our database because it is no longer shared", row.filename());
+				staleRows.add(row);
+			}
+		}
+
+		List<Future<Boolean>> results = executor.invokeAll(checks);
+		for (int i = 0; i < results.size(); i++) {
+			Row row = sharedRows.get(i);
+			boolean unchanged;
+			try {
+				unchanged = results.get(i).get();
+			} catch (ExecutionException e) {
+				LOGGER.debug("Error while checking the file {}, keeping it: {}", row.filename(), e.getCause().getMessage());
+				unchanged = true;
+			}
+			if (!unchanged) {
+				LOGGER.trace("Removing the file {} from our database because it is no longer on the hard drive", row.filename());
+				staleRows.add(row);
+			}
+		}
+		return staleRows;
+	}
+
+	private static boolean isUnchanged(Row row) {
+		if (stopped) {
+			// Kept, and checked again by the next run
+			return true;
+		}
+		File file = new File(row.filename());
+		// lastModified() is 0 for a missing file, which saves the exists() call
+		long lastModified = file.lastModified();
+		return lastModified == row.modified() && (lastModified != 0 || file.exists());
+	}
+
+	/**
+	 * Deletes the rows whose modification time is still the checked one.
+	 *
+	 * @return the number of deleted rows.
+	 */
+	static int delete(final Connection connection, List<Row> rows) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(SQL_DELETE_UNCHANGED)) {
+			for (Row row : rows) {
+				ps.setLong(1, row.id());
+				ps.setTimestamp(2, new Timestamp(row.modified()));
+				ps.addBatch();
+			}
+			int deleted = 0;
+			for (int count : ps.executeBatch()) {
+				if (count > 0) {
+					deleted += count;
+				}
+			}
+			return deleted;
+		}
+	}
+
+	/**
+	 * Removes the thumbnails, statuses and TV series that are no longer
+	 * referenced by the FILES table.
+	 */
+	private static void cleanupOrphans(final Connection connection) throws SQLException {
+		/*
+		 * Cleanup of THUMBNAILS table
+		 *
+		 * Removes entries that are not referenced by any rows in the FILES table.
+		 */
+		try (
+			PreparedStatement ps = connection.prepareStatement(
+				"DELETE FROM " + MediaTableThumbnails.TABLE_NAME + " " +
+				"WHERE NOT EXISTS (" +
+					"SELECT " + MediaTableFiles.TABLE_COL_ID + " FROM " + MediaTableFiles.TABLE_NAME + " " +
+					"WHERE " + MediaTableFiles.TABLE_COL_THUMBID + " = " + MediaTableThumbnails.TABLE_COL_ID + " " +
+					"LIMIT 1" +
+				") AND NOT EXISTS (" +
+					"SELECT " + MediaTableTVSeries.TABLE_COL_ID + " FROM " + MediaTableTVSeries.TABLE_NAME + " " +
+					"WHERE " + MediaTableTVSeries.TABLE_COL_THUMBID + " = " + MediaTableThumbnails.TABLE_COL_ID + " " +
+					"LIMIT 1" +
+				");"
+		)) {
+			ps.execute();
+		}
+
+		/*
+		 * Cleanup of FILES_STATUS table
+		 *
+		 * Removes entries that are not referenced by any rows in the FILES table.
+		 */
+		try (
+			PreparedStatement ps = connection.prepareStatement(
+				"DELETE FROM " + MediaTableFilesStatus.TABLE_NAME + " " +
+				"WHERE NOT EXISTS (" +
+					"SELECT " + MediaTableFiles.TABLE_COL_ID + " FROM " + MediaTableFiles.TABLE_NAME + " " +
+					"WHERE " + MediaTableFiles.TABLE_COL_FILENAME + " = " + MediaTableFilesStatus.TABLE_COL_FILENAME +
+				");"
+		)) {
+			ps.execute();
+		}
+
+		/*
+		 * Cleanup of FILE_FINGERPRINTS table
+		 *
+		 * Removes entries that are not referenced by any rows in the FILES table.
+		 */
+		try (
+			PreparedStatement ps = connection.prepareStatement(
+				"DELETE FROM " + MediaTableFileFingerprints.TABLE_NAME + " " +
+				"WHERE NOT EXISTS (" +
+					"SELECT " + MediaTableFiles.TABLE_COL_ID + " FROM " + MediaTableFiles.TABLE_NAME + " " +
+					"WHERE " + MediaTableFiles.TABLE_COL_FILENAME + " = " + MediaTableFileFingerprints.TABLE_COL_FILENAME +
+				");"
+		)) {
+			ps.execute();
+		}
+
+		/*
+		 * Cleanup of TV_SERIES table
+		 *
+		 * Removes entries that are not referenced by any rows in the FILES table.
+		 */
+		try (
+			PreparedStatement ps = connection.prepareStatement(
+				"DELETE FROM " + MediaTableTVSeries.TABLE_NAME + " " +
+				"WHERE NOT EXISTS (" +
+					"SELECT " + MediaTableVideoMetadata.TABLE_COL_MOVIEORSHOWNAMESIMPLE + " FROM " + MediaTableVideoMetadata.TABLE_NAME + " " +
+					"WHERE " + MediaTableVideoMetadata.TABLE_COL_MOVIEORSHOWNAMESIMPLE + " = " + MediaTableTVSeries.TABLE_COL_SIMPLIFIEDTITLE + " " +
+					"LIMIT 1" +
+				");"
+		)) {
+			ps.execute();
+		}
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps a generation counter for each media library table. The counters are
+ * increased every time the table writers of this package change a table, so
+ * that the result of a query can be known to be unchanged without running
+ * it again.
+ * <p>
+ * Changes to the {@code FILES} table are also counted per media type, so
+ * that a query that only selects files of one type doesn't see changes to
+ * files of other types.
+ */
+public class MediaLibraryJournal {
+	private static final String TABLE_ITEM = "[A-Z_]+(?:\\s+(?:AS\\s+)?[A-Z_0-9]+)?";
+
+	/**
+	 * A {@code FROM} list, like {@code FROM FILES F, AUDIOTRACKS A}. The
+	 * alias may catch the next keyword, which doesn't matter as only the
+	 * first word of each item is used.
+	 */
+	private static final Pattern FROM_PATTERN = Pattern.compile(
+		"\\bFROM\\s+(" + TABLE_ITEM + "(?:\\s*,\\s*" + TABLE_ITEM + ")*)",
+		Pattern.CASE_INSENSITIVE
+	);
+	private static final Pattern JOIN_PATTERN = Pattern.compile("\\bJOIN\\s+([A-Z_]+)\\b", Pattern.CASE_INSENSITIVE);
+	private static final Pattern FORMAT_TYPE_PATTERN = Pattern.compile(
+		"\\bWHERE\\s+(?:" + MediaTableFiles.TABLE_NAME + "\\.)?FORMAT_TYPE\\s*=\\s*(\\d+)\\s*(?:AND\\b|ORDER\\b|LIMIT\\b|$)",
+		Pattern.CASE_INSENSITIVE
+	);
+	private static final Pattern OR_PATTERN = Pattern.compile("\\bOR\\b", Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * The tables whose writers record their changes. Queries that read any
+	 * other table are never considered unchanged.
+	 */
+	private static final Set<String> JOURNALED_TABLES = Set.of(
+		MediaTableAudiotracks.TABLE_NAME,
+		MediaTableFiles.TABLE_NAME,
+		MediaTableFilesStatus.TABLE_NAME,
+		MediaTableRegexpRules.TABLE_NAME,
+		MediaTableTVSeries.TABLE_NAME,
+		MediaTableVideoMetadata.TABLE_NAME,
+		MediaTableVideoMetadataActors.TABLE_NAME,
+		MediaTableVideoMetadataAwards.TABLE_NAME,
+		MediaTableVideoMetadataCountries.TABLE_NAME,
+		MediaTableVideoMetadataDirectors.TABLE_NAME,
+		MediaTableVideoMetadataGenres.TABLE_NAME,
+		MediaTableVideoMetadataIMDbRating.TABLE_NAME,
+		MediaTableVideoMetadataPosters.TABLE_NAME,
+		MediaTableVideoMetadataProduction.TABLE_NAME,
+		MediaTableVideoMetadataRated.TABLE_NAME,
+		MediaTableVideoMetadataRatings.TABLE_NAME,
+		MediaTableVideoMetadataReleased.TABLE_NAME
+	);
+	private static final Map<String, AtomicLong> TABLE_GENERATIONS = new ConcurrentHashMap<>();
+	private static final Map<Integer, AtomicLong> FILES_TYPE_GENERATIONS = new ConcurrentHashMap<>();
+
+	/** Changes to the {@code FILES} table of unknown media type */
+	private static final AtomicLong FILES_UNTYPED_GENERATION = new AtomicLong();
+
+	static {
+		for (String table : JOURNALED_TABLES) {
+			TABLE_GENERATIONS.put(table, new AtomicLong());
+		}
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private MediaLibraryJournal() {
+	}
+
+	/**
+	 * Records that rows of the given table were changed.
+	 *
+	 * @param table the name of the table.
+	 */
+	public static void recordChange(String table) {
+		AtomicLong generation = TABLE_GENERATIONS.get(table);
+		if (generation == null) {
+			return;
+		}
+		if (MediaTableFiles.TABLE_NAME.equals(table)) {
+			FILES_UNTYPED_GENERATION.incrementAndGet();
+		}
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * Records that rows of the {@code FILES} table with the given media type
+	 * were changed.
+	 *
+	 * @param formatType the media type of the changed files, as in
+	 *            {@link net.pms.formats.Format#getType()}.
+	 */
+	public static void recordFilesChange(int formatType) {
+		FILES_TYPE_GENERATIONS.computeIfAbsent(formatType, type -> new AtomicLong()).incrementAndGet();
+		TABLE_GENERATIONS.get(MediaTableFiles.TABLE_NAME).incrementAndGet();
+	}
+
+	/**
+	 * Records that rows of every table may have changed, e.g. after rows of
+	 * the {@code FILES} table were deleted, which cascades to the tables
+	 * referencing it.
+	 */
+	public static void recordChangeToAll() {
+		FILES_UNTYPED_GENERATION.incrementAndGet();
+		for (AtomicLong generation : TABLE_GENERATIONS.values()) {
+			generation.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Captures the generations of the tables read by the given query. The
+	 * snapshot must be taken before the query is run.
+	 *
+	 * @param sql the query.
+	 * @return The snapshot, or {@code null} if the query reads tables whose
+	 *         changes aren't recorded.
+	 */
+	public static Snapshot snapshot(String sql) {
+		if (sql == null) {
+			return null;
+		}
+
+		List<String> references = getTables(sql);
+		if (references == null || references.isEmpty()) {
+			return null;
+		}
+		List<String> tables = new ArrayList<>();
+		for (String table : references) {
+			if (!tables.contains(table)) {
+				tables.add(table);
+			}
+		}
+
+		/*
+		 * The media type only applies when the FILES table is read once, by
+		 * the query itself rather than by a subquery, and the condition is
+		 * outside of parentheses and not combined with an OR.
+		 */
+		int formatType = -1;
+		String topLevel = getTopLevel(sql);
+		List<String> topLevelTables = getTables(topLevel);
+		if (
+			references.indexOf(MediaTableFiles.TABLE_NAME) == references.lastIndexOf(MediaTableFiles.TABLE_NAME) &&
+			topLevelTables != null &&
+			topLevelTables.contains(MediaTableFiles.TABLE_NAME) &&
+			!OR_PATTERN.matcher(topLevel).find()
+		) {
+			Matcher matcher = FORMAT_TYPE_PATTERN.matcher(topLevel);
+			if (matcher.find()) {
+				formatType = Integer.parseInt(matcher.group(1));
+			}
+		}
+		return new Snapshot(tables.toArray(String[]::new), formatType);
+	}
+
+	/**
+	 * Lists the tables read by a query, in the {@code FROM} lists and the
+	 * joins of the query and its subqueries, as many times as they are read.
+	 *
+	 * @return The tables, or {@code null} if a table isn't journaled.
+	 */
+	private static List<String> getTables(String sql) {
+		List<String> tables = new ArrayList<>();
+		Matcher matcher = FROM_PATTERN.matcher(sql);
+		while (matcher.find()) {
+			for (String item : matcher.group(1).split(",")) {
+				tables.add(item.trim().split("\\s+")[0].toUpperCase(Locale.ROOT));
+			}
+		}
+		matcher = JOIN_PATTERN.matcher(sql);
+		while (matcher.find()) {
+			tables.add(matcher.group(1).toUpperCase(Locale.ROOT));
+		}
+		for (String table : tables) {
+			if (!JOURNALED_TABLES.contains(table)) {
+				return null;
+			}
+		}
+		return tables;
+	}
+
+	/**
+	 * Returns the query with everything inside parentheses, like the
+	 * subqueries, replaced by spaces.
+	 */
+	private static String getTopLevel(String sql) {
+		StringBuilder topLevel = new StringBuilder(sql.length());
+		int depth = 0;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				depth--;
+			} else if (depth == 0) {
+				topLevel.append(c);
+			} else {
+				topLevel.append(' ');
+			}
+		}
+		return topLevel.toString();
+	}
+
+	/**
+	 * The generations of the tables read by a query at a given time.
+	 */
+	public static class Snapshot {
+		private final String[] tables;
+		private final long[] generations;
+		private final int formatType;
+		private final long filesTypeGeneration;
+		private final long filesUntypedGeneration;
+
+		private Snapshot(String[] tables, int formatType) {
+			this.tables = tables;
+			this.formatType = formatType;
+			generations = new long[tables.length];
+			for (int i = 0; i < tables.length; i++) {
+				generations[i] = TABLE_GENERATIONS.get(tables[i]).get();
+			}
+			filesTypeGeneration = getFilesTypeGeneration(formatType);
+			filesUntypedGeneration = FILES_UNTYPED_GENERATION.get();
+		}
+
+		/**
+		 * @return Whether any table read by the query was changed since this
+		 *         snapshot was taken.
+		 */
+		public boolean isChanged() {
+			for (int i = 0; i < tables.length; i++) {
+				if (formatType > -1 && MediaTableFiles.TABLE_NAME.equals(tables[i])) {
+					if (
+						getFilesTypeGeneration(formatType) != filesTypeGeneration ||
+						FILES_UNTYPED_GENERATION.get() != filesUntypedGeneration
+					) {
+						return true;
+					}
+				} else if (TABLE_GENERATIONS.get(tables[i]).get() != generations[i]) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private static long getFilesTypeGeneration(int formatType) {
+			if (formatType < 0) {
+				return 0;
+			}
+			return FILES_TYPE_GENERATIONS.computeIfAbsent(formatType, type -> new AtomicLong()).get();
+		}
+	}
+}
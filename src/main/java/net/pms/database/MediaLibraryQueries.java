@@ -0,0 +1,395 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.concurrent.GuardedBy;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the media library queries as parameterized statements.
+ * <p>
+ * The query templates of the media library refer to the names of the folders
+ * they are browsed from as {@code '${n}'}, where {@code n} is 0 for the
+ * folder itself, 1 for its parent and so on. Instead of pasting the names
+ * into the SQL, templates are compiled once into SQL with {@code ?}
+ * placeholders, so that the database sees the same statement for every
+ * folder of the same view and can reuse its plan from the query cache of
+ * its session. Only the templates with placeholders are kept compiled, the
+ * queries that had the names pasted in are run as they are.
+ * <p>
+ * The statements are prepared on the pooled connection and closed with
+ * their result. The execution time and row count of every query are
+ * recorded, see {@link #getStatistics()}.
+ */
+public class MediaLibraryQueries {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaLibraryQueries.class);
+	private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("'\\$\\{(\\d+)\\}'");
+
+	/** The number of compiled templates kept, least recently used first out */
+	private static final int MAX_TEMPLATES = 500;
+
+	/** The number of distinct queries statistics are kept for */
+	private static final int MAX_STATISTICS = 500;
+
+	/** Queries slower than this are logged */
+	private static final long SLOW_QUERY_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+	/** The key of the statistics of the queries beyond {@link #MAX_STATISTICS} */
+	public static final String OTHER_QUERIES = "other";
+
+	@GuardedBy("TEMPLATES")
+	private static final Map<String, Template> TEMPLATES = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+			return size() > MAX_TEMPLATES;
+		}
+	};
+	private static final Map<String, QueryStatistics> STATISTICS = new ConcurrentHashMap<>();
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private MediaLibraryQueries() {
+	}
+
+	/**
+	 * Compiles a query template, replacing every {@code '${n}'} with a
+	 * {@code ?} placeholder. Only the templates with placeholders are kept
+	 * for the next time.
+	 *
+	 * @param template the query template.
+	 * @return the compiled template.
+	 */
+	static Template compile(String template) {
+		if (!template.contains("'${")) {
+			return new Template(template, new int[0]);
+		}
+		synchronized (TEMPLATES) {
+			Template compiled = TEMPLATES.get(template);
+			if (compiled != null) {
+				return compiled;
+			}
+		}
+		Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
+		StringBuilder sql = new StringBuilder(template.length());
+		List<Integer> parameters = new ArrayList<>();
+		while (matcher.find()) {
+			parameters.add(Integer.valueOf(matcher.group(1)));
+			matcher.appendReplacement(sql, "?");
+		}
+		matcher.appendTail(sql);
+		Template compiled = new Template(sql.toString(), parameters.stream().mapToInt(Integer::intValue).toArray());
+		if (!parameters.isEmpty()) {
+			synchronized (TEMPLATES) {
+				TEMPLATES.put(template, compiled);
+			}
+		}
+		return compiled;
+	}
+
+	/**
+	 * Runs a query template and returns the distinct strings of its first
+	 * column. Templates that don't start with {@code SELECT} or {@code WITH}
+	 * are conditions on the {@code FILES} table.
+	 *
+	 * @param connection the db connection.
+	 * @param template the query template.
+	 * @param names the names to use for {@code '${n}'}, from the folder to
+	 *            the root.
+	 * @return the strings, with {@link MediaTableFiles#NONAME} for blank
+	 *         ones, or {@code null} if the query failed.
+	 */
+	public static List<String> getStrings(final Connection connection, String template, List<String> names) {
+		Template compiled = compile(template);
+		String sql = isQuery(compiled.sql()) ? compiled.sql() : "SELECT FILENAME FROM " + MediaTableFiles.TABLE_NAME + " WHERE " + compiled.sql();
+		Set<String> set = new HashSet<>();
+		try (QueryResult result = executeQuery(connection, sql, compiled.bind(names))) {
+			while (result.next()) {
+				String str = result.getString(1);
+				if (StringUtils.isBlank(str)) {
+					set.add(MediaTableFiles.NONAME);
+				} else {
+					set.add(str);
+				}
+			}
+		} catch (SQLException se) {
+			LOGGER.error(null, se);
+			return null;
+		}
+		return new ArrayList<>(set);
+	}
+
+	/**
+	 * Runs a query template and returns the files that still exist unchanged
+	 * on disk. Templates that don't start with {@code SELECT} or {@code WITH}
+	 * are conditions on the {@code FILES} table.
+	 *
+	 * @param connection the db connection.
+	 * @param template the query template.
+	 * @param names the names to use for {@code '${n}'}, from the folder to
+	 *            the root.
+	 * @return the files, or {@code null} if the query failed.
+	 */
+	public static List<File> getFiles(final Connection connection, String template, List<String> names) {
+		Template compiled = compile(template);
+		String sql = isQuery(compiled.sql()) ? compiled.sql() : "SELECT FILENAME, MODIFIED FROM " + MediaTableFiles.TABLE_NAME + " WHERE " + compiled.sql();
+		List<File> list = new ArrayList<>();
+		try (QueryResult result = executeQuery(connection, sql, compiled.bind(names))) {
+			while (result.next()) {
+				String filename = result.getString("FILENAME");
+				long modified = result.getTimestamp("MODIFIED").getTime();
+				File file = new File(filename);
+				if (file.exists() && file.lastModified() == modified) {
+					list.add(file);
+				}
+			}
+		} catch (SQLException se) {
+			LOGGER.error(null, se);
+			return null;
+		}
+		return list;
+	}
+
+	/**
+	 * Runs a parameterized query.
+	 * <p>
+	 * <strong>The result must be closed after use</strong>, which closes its
+	 * statement and records the statistics of the query. Parsed files still
+	 * queued in {@link MediaLibraryWriter} are written first.
+	 *
+	 * @param connection the db connection.
+	 * @param sql the SQL with {@code ?} placeholders.
+	 * @param parameters the values of the placeholders.
+	 * @return the result.
+	 * @throws SQLException
+	 */
+	public static QueryResult executeQuery(final Connection connection, String sql, Object... parameters) throws SQLException {
+		MediaLibraryWriter.flush();
+		PreparedStatement ps = connection.prepareStatement(sql);
+		long start = System.nanoTime();
+		try {
+			for (int i = 0; i < parameters.length; i++) {
+				ps.setObject(i + 1, parameters[i]);
+			}
+			return new QueryResult(sql, ps, ps.executeQuery(), start);
+		} catch (SQLException e) {
+			close(ps);
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the statistics of the queries run so far, by SQL.
+	 *
+	 * @return a copy of the statistics.
+	 */
+	public static Map<String, QueryStatistics> getStatistics() {
+		return Collections.unmodifiableMap(new HashMap<>(STATISTICS));
+	}
+
+	/**
+	 * Forgets the compiled templates.
+	 */
+	public static void clear() {
+		synchronized (TEMPLATES) {
+			TEMPLATES.clear();
+		}
+	}
+
+	private static boolean isQuery(String sql) {
+		String lowerCaseSql = sql.toLowerCase();
+		return lowerCaseSql.startsWith("select") || lowerCaseSql.startsWith("with");
+	}
+
+	private static void close(PreparedStatement ps) {
+		if (ps != null) {
+			try {
+				ps.close();
+			} catch (SQLException e) {
+				LOGGER.trace("Error closing statement: {}", e.getMessage());
+			}
+		}
+	}
+
+	private static void record(String sql, long nanos, long rows) {
+		QueryStatistics statistics = STATISTICS.get(sql);
+		if (statistics == null) {
+			if (STATISTICS.size() >= MAX_STATISTICS) {
+				sql = OTHER_QUERIES;
+			}
+			statistics = STATISTICS.computeIfAbsent(sql, key -> new QueryStatistics());
+		}
+		statistics.record(nanos, rows);
+		if (nanos > SLOW_QUERY_NANOS) {
+			LOGGER.debug("Slow media library query ({} ms, {} rows): {}", TimeUnit.NANOSECONDS.toMillis(nanos), rows, sql);
+		}
+	}
+
+	/**
+	 * A query template compiled to SQL with {@code ?} placeholders.
+	 *
+	 * @param sql the SQL.
+	 * @param parameters the index of the name to bind to each placeholder.
+	 */
+	record Template(String sql, int[] parameters) {
+
+		/**
+		 * Gets the values of the placeholders. Names that don't exist
+		 * because the folder isn't deep enough are kept as they were
+		 * written, like they would be without parameters.
+		 */
+		Object[] bind(List<String> names) {
+			Object[] values = new Object[parameters.length];
+			for (int i = 0; i < parameters.length; i++) {
+				int index = parameters[i];
+				values[i] = index < names.size() ? names.get(index) : "${" + index + "}";
+			}
+			return values;
+		}
+	}
+
+	/**
+	 * The result of a query run with {@link #executeQuery}, counting the
+	 * rows read from it.
+	 */
+	public static class QueryResult implements AutoCloseable {
+		private final String sql;
+		private final PreparedStatement statement;
+		private final ResultSet resultSet;
+		private final long start;
+		private long rows;
+
+		private QueryResult(String sql, PreparedStatement statement, ResultSet resultSet, long start) {
+			this.sql = sql;
+			this.statement = statement;
+			this.resultSet = resultSet;
+			this.start = start;
+		}
+
+		public boolean next() throws SQLException {
+			if (resultSet.next()) {
+				rows++;
+				return true;
+			}
+			return false;
+		}
+
+		public String getString(int columnIndex) throws SQLException {
+			return resultSet.getString(columnIndex);
+		}
+
+		public String getString(String columnLabel) throws SQLException {
+			return resultSet.getString(columnLabel);
+		}
+
+		public int getInt(String columnLabel) throws SQLException {
+			return resultSet.getInt(columnLabel);
+		}
+
+		public Timestamp getTimestamp(String columnLabel) throws SQLException {
+			return resultSet.getTimestamp(columnLabel);
+		}
+
+		@Override
+		public void close() throws SQLException {
+			try {
+				resultSet.close();
+			} finally {
+				MediaLibraryQueries.close(statement);
+				record(sql, System.nanoTime() - start, rows);
+			}
+		}
+	}
+
+	/**
+	 * The execution statistics of one query. The time of a query runs from
+	 * its execution until its result is closed.
+	 */
+	public static class QueryStatistics {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final LongAdder rows = new LongAdder();
+
+		private void record(long nanos, long rowCount) {
+			count.increment();
+			totalNanos.add(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+			rows.add(rowCount);
+		}
+
+		/**
+		 * @return the number of times the query was run.
+		 */
+		public long getCount() {
+			return count.sum();
+		}
+
+		/**
+		 * @return the total time spent on the query in milliseconds.
+		 */
+		public long getTotalTime() {
+			return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum());
+		}
+
+		/**
+		 * @return the average time of the query in milliseconds.
+		 */
+		public double getAverageTime() {
+			long runs = count.sum();
+			return runs == 0 ? 0 : totalNanos.sum() / 1_000_000d / runs;
+		}
+
+		/**
+		 * @return the longest time of the query in milliseconds.
+		 */
+		public long getMaxTime() {
+			return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+		}
+
+		/**
+		 * @return the total number of rows read from the query.
+		 */
+		public long getRows() {
+			return rows.sum();
+		}
+	}
+}
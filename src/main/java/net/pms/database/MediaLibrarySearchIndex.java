@@ -0,0 +1,887 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.concurrent.GuardedBy;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.formats.Format;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory trigram index of the searchable text of the media library:
+ * song titles, artists, album artists, albums and genres of the audio tracks,
+ * and the file names of the other media.
+ * <p>
+ * Every distinct value of a field is indexed once by the trigrams of its
+ * lower case form, so a {@code contains} search only checks the values that
+ * have the rarest trigram of the search string instead of every row. The
+ * matches are ranked and paged in memory, and only the rows of the requested
+ * page are read from the database.
+ * <p>
+ * The index is built in the background on the first search. The files
+ * written by {@link MediaTableFiles#insertOrUpdateData} or deleted by
+ * {@link MediaTableFiles#deleteRowsInFilesTable} are recorded and updated
+ * before the next search, other changes rebuild the index. Until
+ * the index is ready, {@link #search} returns {@code null} and the caller
+ * should query the database.
+ * <p>
+ * The index is not used when the media library has more files than
+ * {@link UmsConfiguration#getSearchIndexMaxFiles}, to bound its memory.
+ */
+public class MediaLibrarySearchIndex {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaLibrarySearchIndex.class);
+
+	/** The number of recorded changes beyond which the index is rebuilt */
+	private static final int MAX_CHANGES = 10000;
+
+	/** The number of files read at once when updating the index */
+	private static final int UPDATE_BATCH_SIZE = 500;
+
+	private static final int RANK_CONTAINS = 0;
+	private static final int RANK_WORD = 1;
+	private static final int RANK_PREFIX = 2;
+	private static final int RANK_EXACT = 3;
+
+	private static final String SELECT_DOCUMENTS = "SELECT F.ID, F.FILENAME, F.FORMAT_TYPE, A.SONGNAME, A.ARTIST, A.ALBUMARTIST, A.ALBUM, A.GENRE " +
+		"FROM " + MediaTableFiles.TABLE_NAME + " AS F LEFT JOIN " + MediaTableAudiotracks.TABLE_NAME + " AS A ON F.ID = A.FILEID ";
+
+	private static final Set<Long> CHANGED_FILE_IDS = ConcurrentHashMap.newKeySet();
+	private static final AtomicBoolean BUILDING = new AtomicBoolean();
+
+	/**
+	 * Held while the recorded changes are taken and applied, so that a
+	 * search can't run on the index before the changes taken by another
+	 * thread are applied.
+	 */
+	private static final Object UPDATE_LOCK = new Object();
+	private static volatile Index index;
+	private static volatile boolean stale = true;
+
+	/** Whether the last build was stopped because the library is too big */
+	private static volatile boolean tooLarge;
+
+	/**
+	 * The searchable fields.
+	 */
+	public enum Field {
+		/** The song name of the audio tracks */
+		TITLE,
+		ARTIST,
+		ALBUMARTIST,
+		ALBUM,
+		GENRE,
+		/** The full path of the files that are not audio */
+		FILENAME
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private MediaLibrarySearchIndex() {
+	}
+
+	/**
+	 * Records that the row of a file or its audio tracks changed, or was
+	 * deleted, so that it is read again, or removed, before the next search.
+	 *
+	 * @param fileId the {@code FILES} row id.
+	 */
+	public static void recordChange(long fileId) {
+		if (isRecordingChanges()) {
+			CHANGED_FILE_IDS.add(fileId);
+		}
+	}
+
+	/**
+	 * @return whether the changes are recorded, that is whether there is an
+	 *         index or one is being built.
+	 */
+	public static boolean isRecordingChanges() {
+		return index != null || BUILDING.get();
+	}
+
+	/**
+	 * Marks the whole index as outdated, after changes to an unknown number
+	 * of files. It is rebuilt on the next search.
+	 */
+	public static void invalidate() {
+		stale = true;
+		tooLarge = false;
+	}
+
+	/**
+	 * Searches the media library.
+	 *
+	 * @param query the search condition.
+	 * @param sortKeys the fields to sort the results by, or an empty list to
+	 *            sort them by rank.
+	 * @param offset the index of the first result to return.
+	 * @param count the maximum number of results to return.
+	 * @return the result, or {@code null} if the index is not available and
+	 *         the database must be queried instead.
+	 */
+	public static Result search(Query query, List<SortKey> sortKeys, long offset, long count) {
+		if (!PMS.getConfiguration().isUseSearchIndex()) {
+			index = null;
+			return null;
+		}
+		if (tooLarge) {
+			return null;
+		}
+		MediaLibraryWriter.flush();
+		Index current = index;
+		if (current == null || stale || CHANGED_FILE_IDS.size() > MAX_CHANGES || current.isFragmented()) {
+			rebuildInBackground();
+			return null;
+		}
+		if (BUILDING.get()) {
+			// The changes recorded during the build belong to the new index
+			return null;
+		}
+		synchronized (UPDATE_LOCK) {
+			if (!CHANGED_FILE_IDS.isEmpty() && !applyChanges(current)) {
+				return null;
+			}
+		}
+		if (current.size() > PMS.getConfiguration().getSearchIndexMaxFiles()) {
+			setTooLarge();
+			return null;
+		}
+		return current.search(query, sortKeys, offset, count);
+	}
+
+	private static void setTooLarge() {
+		LOGGER.info(
+			"The media library has more than {} files, UPnP searches will query the database instead of the search index",
+			PMS.getConfiguration().getSearchIndexMaxFiles()
+		);
+		tooLarge = true;
+		index = null;
+	}
+
+	@GuardedBy("UPDATE_LOCK")
+	private static boolean applyChanges(Index current) {
+		List<Long> fileIds = new ArrayList<>();
+		Iterator<Long> iterator = CHANGED_FILE_IDS.iterator();
+		while (iterator.hasNext()) {
+			fileIds.add(iterator.next());
+			iterator.remove();
+		}
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection == null) {
+				stale = true;
+				return false;
+			}
+			current.update(connection, fileIds);
+			return true;
+		} catch (SQLException e) {
+			LOGGER.debug("Error updating the search index: {}", e.getMessage());
+			LOGGER.trace("", e);
+			stale = true;
+			return false;
+		} finally {
+			MediaDatabase.close(connection);
+		}
+	}
+
+	private static void rebuildInBackground() {
+		if (!BUILDING.compareAndSet(false, true)) {
+			return;
+		}
+		Thread thread = new Thread(() -> {
+			// Changes made while building are recorded again
+			synchronized (UPDATE_LOCK) {
+				stale = false;
+				CHANGED_FILE_IDS.clear();
+			}
+			Connection connection = null;
+			try {
+				connection = MediaDatabase.getConnectionIfAvailable();
+				if (connection == null) {
+					stale = true;
+					return;
+				}
+				long start = System.currentTimeMillis();
+				Index built = Index.load(connection, PMS.getConfiguration().getSearchIndexMaxFiles());
+				if (built == null) {
+					setTooLarge();
+					return;
+				}
+				index = built;
+				LOGGER.debug("Built the search index of {} files in {} ms", built.size(), System.currentTimeMillis() - start);
+			} catch (SQLException e) {
+				LOGGER.debug("Error building the search index: {}", e.getMessage());
+				LOGGER.trace("", e);
+				stale = true;
+			} finally {
+				MediaDatabase.close(connection);
+				BUILDING.set(false);
+			}
+		}, "Search index builder");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @param field the field.
+	 * @param text the lower case text.
+	 * @return the condition that a value of {@code field} contains
+	 *         {@code text}, ignoring case.
+	 */
+	public static Query contains(Field field, String text) {
+		return new Contains(field, text);
+	}
+
+	/**
+	 * @param field the field.
+	 * @param value the value.
+	 * @return the condition that a value of {@code field} equals
+	 *         {@code value}.
+	 */
+	public static Query equalTo(Field field, String value) {
+		return new EqualTo(field, value);
+	}
+
+	/**
+	 * @param formatType the integer constant from {@link Format}.
+	 * @return the condition that the file is of the given type.
+	 */
+	public static Query formatType(int formatType) {
+		return new FormatType(formatType);
+	}
+
+	public static Query and(Query left, Query right) {
+		return new And(left, right);
+	}
+
+	public static Query or(Query left, Query right) {
+		return new Or(left, right);
+	}
+
+	/**
+	 * A search condition.
+	 */
+	public abstract static class Query {
+
+		/**
+		 * @param index the index.
+		 * @param ranks the rank of the matching documents to update, or
+		 *            {@code null}.
+		 * @return the matching documents.
+		 */
+		abstract BitSet evaluate(Index index, int[] ranks);
+
+		/**
+		 * @param formatType the integer constant from {@link Format}.
+		 * @return whether only files of the given type can match.
+		 */
+		public boolean isRestrictedTo(int formatType) {
+			return false;
+		}
+
+		/**
+		 * @param field the field.
+		 * @return whether the condition reads the given field.
+		 */
+		public boolean uses(Field field) {
+			return false;
+		}
+	}
+
+	private static class Contains extends Query {
+		private final Field field;
+		private final String text;
+
+		Contains(Field field, String text) {
+			this.field = field;
+			this.text = text;
+		}
+
+		@Override
+		BitSet evaluate(Index index, int[] ranks) {
+			return index.contains(field, text, ranks);
+		}
+
+		@Override
+		public boolean uses(Field field) {
+			return this.field == field;
+		}
+	}
+
+	private static class EqualTo extends Query {
+		private final Field field;
+		private final String value;
+
+		EqualTo(Field field, String value) {
+			this.field = field;
+			this.value = value;
+		}
+
+		@Override
+		BitSet evaluate(Index index, int[] ranks) {
+			return index.equalTo(field, value);
+		}
+
+		@Override
+		public boolean uses(Field field) {
+			return this.field == field;
+		}
+	}
+
+	private static class FormatType extends Query {
+		private final int type;
+
+		FormatType(int type) {
+			this.type = type;
+		}
+
+		@Override
+		BitSet evaluate(Index index, int[] ranks) {
+			return index.formatType(type);
+		}
+
+		@Override
+		public boolean isRestrictedTo(int formatType) {
+			return type == formatType;
+		}
+	}
+
+	private static class And extends Query {
+		private final Query left;
+		private final Query right;
+
+		And(Query left, Query right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		BitSet evaluate(Index index, int[] ranks) {
+			BitSet result = left.evaluate(index, ranks);
+			result.and(right.evaluate(index, ranks));
+			return result;
+		}
+
+		@Override
+		public boolean isRestrictedTo(int formatType) {
+			return left.isRestrictedTo(formatType) || right.isRestrictedTo(formatType);
+		}
+
+		@Override
+		public boolean uses(Field field) {
+			return left.uses(field) || right.uses(field);
+		}
+	}
+
+	private static class Or extends Query {
+		private final Query left;
+		private final Query right;
+
+		Or(Query left, Query right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		BitSet evaluate(Index index, int[] ranks) {
+			BitSet result = left.evaluate(index, ranks);
+			result.or(right.evaluate(index, ranks));
+			return result;
+		}
+
+		@Override
+		public boolean isRestrictedTo(int formatType) {
+			return left.isRestrictedTo(formatType) && right.isRestrictedTo(formatType);
+		}
+
+		@Override
+		public boolean uses(Field field) {
+			return left.uses(field) || right.uses(field);
+		}
+	}
+
+	/**
+	 * A field to sort the results by.
+	 *
+	 * @param field the field.
+	 * @param ascending whether to sort in ascending order.
+	 */
+	public record SortKey(Field field, boolean ascending) {
+	}
+
+	/**
+	 * The requested page of a search.
+	 *
+	 * @param fileIds the {@code FILES} row ids of the page, in order.
+	 * @param totalMatches the number of files matching the search.
+	 */
+	public record Result(List<Long> fileIds, int totalMatches) {
+	}
+
+	/**
+	 * A growable list of ints.
+	 */
+	private static final class IntList {
+		private int[] elements = new int[2];
+		private int size;
+
+		void add(int value) {
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, size * 2);
+			}
+			elements[size++] = value;
+		}
+
+		int get(int i) {
+			return elements[i];
+		}
+
+		int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * The distinct values of one field, with the documents having each value
+	 * and the values having each trigram.
+	 */
+	private static final class Dictionary {
+		private final List<String> values = new ArrayList<>();
+		private final List<String> lowerCaseValues = new ArrayList<>();
+		private final Map<String, Integer> valueIds = new HashMap<>();
+		private final List<IntList> documents = new ArrayList<>();
+		private final Map<Long, IntList> trigrams = new HashMap<>();
+
+		int add(String value, int document) {
+			Integer valueId = valueIds.get(value);
+			if (valueId == null) {
+				valueId = values.size();
+				String lowerCaseValue = value.toLowerCase(Locale.ROOT);
+				values.add(value);
+				lowerCaseValues.add(lowerCaseValue.equals(value) ? value : lowerCaseValue);
+				valueIds.put(value, valueId);
+				documents.add(new IntList());
+				Set<Long> valueTrigrams = new LinkedHashSet<>();
+				for (int i = 0; i + 3 <= lowerCaseValue.length(); i++) {
+					valueTrigrams.add(trigram(lowerCaseValue, i));
+				}
+				for (Long trigram : valueTrigrams) {
+					trigrams.computeIfAbsent(trigram, key -> new IntList()).add(valueId);
+				}
+			}
+			documents.get(valueId).add(document);
+			return valueId;
+		}
+
+		/**
+		 * Calls the consumer with the id of every value containing the lower
+		 * case text.
+		 */
+		void forEachContaining(String text, ValueConsumer consumer) {
+			if (text.length() < 3) {
+				for (int valueId = 0; valueId < lowerCaseValues.size(); valueId++) {
+					if (lowerCaseValues.get(valueId).contains(text)) {
+						consumer.accept(valueId, lowerCaseValues.get(valueId));
+					}
+				}
+				return;
+			}
+			IntList candidates = null;
+			for (int i = 0; i + 3 <= text.length(); i++) {
+				IntList posting = trigrams.get(trigram(text, i));
+				if (posting == null) {
+					return;
+				}
+				if (candidates == null || posting.size() < candidates.size()) {
+					candidates = posting;
+				}
+			}
+			for (int i = 0; i < candidates.size(); i++) {
+				int valueId = candidates.get(i);
+				String lowerCaseValue = lowerCaseValues.get(valueId);
+				if (lowerCaseValue.contains(text)) {
+					consumer.accept(valueId, lowerCaseValue);
+				}
+			}
+		}
+
+		private static long trigram(String text, int i) {
+			return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+		}
+	}
+
+	@FunctionalInterface
+	private interface ValueConsumer {
+		void accept(int valueId, String lowerCaseValue);
+	}
+
+	/**
+	 * The documents of the index, one per {@code FILES} row.
+	 * <p>
+	 * Documents are never changed once added. An updated file gets a new
+	 * document and its old one is removed from {@link #alive}, so the
+	 * document lists of the dictionaries only have to be filtered.
+	 */
+	static final class Index {
+		private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		private final Dictionary[] dictionaries = new Dictionary[Field.values().length];
+		private final BitSet alive = new BitSet();
+
+		/** The value id of the first value of each field, by document */
+		private final int[][] firstValues = new int[Field.values().length][];
+
+		/** The documents added after loading, by file id */
+		private final Map<Long, Integer> updatedDocuments = new HashMap<>();
+		private long[] fileIds = new long[1024];
+		private int[] formatTypes = new int[1024];
+		private int size;
+
+		/** The documents loaded at once, which are sorted by file id */
+		private int loadedSize;
+		private boolean loaded;
+
+		private Index() {
+			for (int i = 0; i < dictionaries.length; i++) {
+				dictionaries[i] = new Dictionary();
+				firstValues[i] = new int[1024];
+			}
+		}
+
+		/**
+		 * Reads every file of the media library.
+		 *
+		 * @param connection the db connection.
+		 * @return the index.
+		 * @throws SQLException
+		 */
+		static Index load(Connection connection) throws SQLException {
+			return load(connection, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Reads every file of the media library, unless there are too many.
+		 *
+		 * @param connection the db connection.
+		 * @param maxFiles the most files to read.
+		 * @return the index, or {@code null} if the media library has more
+		 *         than {@code maxFiles} files.
+		 * @throws SQLException
+		 */
+		static Index load(Connection connection, int maxFiles) throws SQLException {
+			Index loaded = new Index();
+			try (
+				PreparedStatement ps = connection.prepareStatement(SELECT_DOCUMENTS + "ORDER BY F.ID");
+				ResultSet rs = ps.executeQuery()
+			) {
+				if (!loaded.addDocuments(rs, maxFiles)) {
+					return null;
+				}
+			}
+			loaded.loadedSize = loaded.size;
+			loaded.loaded = true;
+			return loaded;
+		}
+
+		/**
+		 * Reads the given files again, removing the ones that were deleted.
+		 *
+		 * @param connection the db connection.
+		 * @param changedFileIds the {@code FILES} row ids.
+		 * @throws SQLException
+		 */
+		void update(Connection connection, Collection<Long> changedFileIds) throws SQLException {
+			Long[] ids = changedFileIds.toArray(Long[]::new);
+			try (PreparedStatement ps = connection.prepareStatement(SELECT_DOCUMENTS + "WHERE F.ID = ANY(?) ORDER BY F.ID")) {
+				for (int from = 0; from < ids.length; from += UPDATE_BATCH_SIZE) {
+					Long[] batch = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + UPDATE_BATCH_SIZE));
+					ps.setObject(1, batch);
+					try (ResultSet rs = ps.executeQuery()) {
+						lock.writeLock().lock();
+						try {
+							for (Long id : batch) {
+								int document = getDocument(id);
+								if (document != -1) {
+									alive.clear(document);
+								}
+							}
+							addDocuments(rs, Integer.MAX_VALUE);
+						} finally {
+							lock.writeLock().unlock();
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * @return {@code false} if more than {@code maxFiles} documents would
+		 *         be added.
+		 */
+		private boolean addDocuments(ResultSet rs, int maxFiles) throws SQLException {
+			long currentId = -1;
+			int formatType = 0;
+			String filename = null;
+			List<Set<String>> values = new ArrayList<>();
+			for (int i = 0; i < Field.FILENAME.ordinal(); i++) {
+				values.add(new LinkedHashSet<>());
+			}
+			while (rs.next()) {
+				long id = rs.getLong(1);
+				if (id != currentId) {
+					if (currentId != -1) {
+						if (size == maxFiles) {
+							return false;
+						}
+						add(currentId, formatType, filename, values);
+					}
+					currentId = id;
+					filename = rs.getString(2);
+					formatType = rs.getInt(3);
+					values.forEach(Set::clear);
+				}
+				for (int i = 0; i < values.size(); i++) {
+					String value = rs.getString(4 + i);
+					if (value != null) {
+						values.get(i).add(value);
+					}
+				}
+			}
+			if (currentId != -1) {
+				if (size == maxFiles) {
+					return false;
+				}
+				add(currentId, formatType, filename, values);
+			}
+			return true;
+		}
+
+		/**
+		 * Adds a document.
+		 *
+		 * @param fileId the {@code FILES} row id.
+		 * @param formatType the integer constant from {@link Format}.
+		 * @param filename the full path of the file.
+		 * @param values the values of the audio track fields, in the order
+		 *            of {@link Field}.
+		 */
+		void add(long fileId, int formatType, String filename, List<? extends Collection<String>> values) {
+			int document = size++;
+			if (document == fileIds.length) {
+				int capacity = document * 2;
+				fileIds = Arrays.copyOf(fileIds, capacity);
+				formatTypes = Arrays.copyOf(formatTypes, capacity);
+				for (int i = 0; i < firstValues.length; i++) {
+					firstValues[i] = Arrays.copyOf(firstValues[i], capacity);
+				}
+			}
+			fileIds[document] = fileId;
+			formatTypes[document] = formatType;
+			for (int field = 0; field < values.size(); field++) {
+				firstValues[field][document] = -1;
+				for (String value : values.get(field)) {
+					int valueId = dictionaries[field].add(value, document);
+					if (firstValues[field][document] == -1) {
+						firstValues[field][document] = valueId;
+					}
+				}
+			}
+			int filenameField = Field.FILENAME.ordinal();
+			firstValues[filenameField][document] = -1;
+			if (formatType != Format.AUDIO && filename != null) {
+				firstValues[filenameField][document] = dictionaries[filenameField].add(filename, document);
+			}
+			alive.set(document);
+			if (loaded) {
+				updatedDocuments.put(fileId, document);
+			}
+		}
+
+		private int getDocument(long fileId) {
+			Integer updated = updatedDocuments.get(fileId);
+			if (updated != null) {
+				return alive.get(updated) ? updated : -1;
+			}
+			int document = Arrays.binarySearch(fileIds, 0, loadedSize, fileId);
+			return document >= 0 && alive.get(document) ? document : -1;
+		}
+
+		int size() {
+			return alive.cardinality();
+		}
+
+		/**
+		 * @return whether more than half of the documents were replaced.
+		 */
+		boolean isFragmented() {
+			return size > 1024 && alive.cardinality() < size / 2;
+		}
+
+		private BitSet contains(Field field, String text, int[] ranks) {
+			BitSet result = new BitSet(size);
+			Dictionary dictionary = dictionaries[field.ordinal()];
+			dictionary.forEachContaining(text, (valueId, lowerCaseValue) -> {
+				int rank = ranks == null ? 0 : getRank(lowerCaseValue, text);
+				IntList documents = dictionary.documents.get(valueId);
+				for (int i = 0; i < documents.size(); i++) {
+					int document = documents.get(i);
+					if (alive.get(document)) {
+						result.set(document);
+						if (ranks != null && rank > ranks[document]) {
+							ranks[document] = rank;
+						}
+					}
+				}
+			});
+			return result;
+		}
+
+		private BitSet equalTo(Field field, String value) {
+			BitSet result = new BitSet(size);
+			Dictionary dictionary = dictionaries[field.ordinal()];
+			Integer valueId = dictionary.valueIds.get(value);
+			if (valueId != null) {
+				IntList documents = dictionary.documents.get(valueId);
+				for (int i = 0; i < documents.size(); i++) {
+					result.set(documents.get(i));
+				}
+				result.and(alive);
+			}
+			return result;
+		}
+
+		private BitSet formatType(int type) {
+			BitSet result = new BitSet(size);
+			for (int document = alive.nextSetBit(0); document >= 0; document = alive.nextSetBit(document + 1)) {
+				if (formatTypes[document] == type) {
+					result.set(document);
+				}
+			}
+			return result;
+		}
+
+		private static int getRank(String lowerCaseValue, String text) {
+			if (lowerCaseValue.length() == text.length()) {
+				return RANK_EXACT;
+			}
+			int index = lowerCaseValue.indexOf(text);
+			if (index == 0) {
+				return RANK_PREFIX;
+			}
+			while (index > 0) {
+				if (!Character.isLetterOrDigit(lowerCaseValue.charAt(index - 1))) {
+					return RANK_WORD;
+				}
+				index = lowerCaseValue.indexOf(text, index + 1);
+			}
+			return RANK_CONTAINS;
+		}
+
+		/**
+		 * Runs a search.
+		 *
+		 * @param query the search condition.
+		 * @param sortKeys the fields to sort the results by, or an empty
+		 *            list to sort them by rank.
+		 * @param offset the index of the first result to return.
+		 * @param count the maximum number of results to return.
+		 * @return the result.
+		 */
+		Result search(Query query, List<SortKey> sortKeys, long offset, long count) {
+			lock.readLock().lock();
+			try {
+				int[] ranks = sortKeys.isEmpty() ? new int[size] : null;
+				BitSet matches = query.evaluate(this, ranks);
+				int totalMatches = matches.cardinality();
+				long end = Math.min(totalMatches, offset + count);
+				if (offset >= end) {
+					return new Result(List.of(), totalMatches);
+				}
+
+				// Keeps the first "end" documents, with the last one on top
+				Comparator<Integer> order = getOrder(sortKeys, ranks);
+				PriorityQueue<Integer> top = new PriorityQueue<>((int) end, order.reversed());
+				for (int document = matches.nextSetBit(0); document >= 0; document = matches.nextSetBit(document + 1)) {
+					if (top.size() < end) {
+						top.add(document);
+					} else if (order.compare(document, top.peek()) < 0) {
+						top.poll();
+						top.add(document);
+					}
+				}
+				Long[] page = new Long[(int) (end - offset)];
+				for (int i = top.size() - 1; i >= 0; i--) {
+					int document = top.poll();
+					if (i >= offset) {
+						page[(int) (i - offset)] = fileIds[document];
+					}
+				}
+				return new Result(List.of(page), totalMatches);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		private Comparator<Integer> getOrder(List<SortKey> sortKeys, int[] ranks) {
+			Comparator<Integer> order;
+			if (sortKeys.isEmpty()) {
+				order = Comparator.comparingInt((Integer document) -> ranks[document]).reversed();
+			} else {
+				order = null;
+				for (SortKey sortKey : sortKeys) {
+					Comparator<Integer> fieldOrder = Comparator.comparing(
+						document -> getFirstValue(sortKey.field(), document),
+						Comparator.nullsFirst(Comparator.<String>naturalOrder())
+					);
+					if (!sortKey.ascending()) {
+						fieldOrder = fieldOrder.reversed();
+					}
+					order = order == null ? fieldOrder : order.thenComparing(fieldOrder);
+				}
+			}
+			return order.thenComparingLong(document -> fileIds[document]);
+		}
+
+		private String getFirstValue(Field field, int document) {
+			int valueId = firstValues[field.ordinal()][document];
+			return valueId == -1 ? null : dictionaries[field.ordinal()].values.get(valueId);
+		}
+	}
+}
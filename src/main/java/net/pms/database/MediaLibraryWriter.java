@@ -0,0 +1,392 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import net.pms.PMS;
+import net.pms.dlna.DLNAMediaInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes parsed media information to the media library in batches.
+ * <p>
+ * During a scan every parsed file is queued here instead of being written
+ * on its own, and the queued files are written together with batched
+ * statements, in one transaction per
+ * {@link net.pms.configuration.UmsConfiguration#getDatabaseMediaWriteBatchSize()}
+ * files. Files that don't fill a batch are written after a short delay.
+ * <p>
+ * The batches are only written on the writer thread, with its own
+ * connection, so the scanning and browsing threads never need a second
+ * connection from the pool while they hold one. A copy of the media
+ * information is queued, so later changes to the parsed media don't reach
+ * a batch being written.
+ * <p>
+ * Queued files are visible to readers: looking up a queued file by its name
+ * with {@link MediaTableFiles} and running a library query with
+ * {@link MediaLibraryQueries} or {@link MediaLibrarySearchIndex} waits, for
+ * at most {@link #FLUSH_TIMEOUT_MS}, for the writer thread to write the queue
+ * first.
+ */
+public class MediaLibraryWriter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaLibraryWriter.class);
+
+	/** The delay after which queued files are written without a full batch */
+	private static final long FLUSH_DELAY_MS = 2000;
+
+	/** The delay after which a batch that couldn't be written is retried */
+	private static final long RETRY_DELAY_MS = 5000;
+
+	/** The longest time a reader or a scan waits for the writer thread */
+	private static final long FLUSH_TIMEOUT_MS = 10000;
+
+	/** The number of full batches that can be queued before the scan waits */
+	private static final int MAX_QUEUED_BATCHES = 4;
+
+	/** The queued files by name, guarded by itself */
+	private static final Map<String, Entry> QUEUE = new LinkedHashMap<>();
+
+	private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Media library writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/** Whether a write of the queue is already waiting on the writer thread */
+	private static final AtomicBoolean WRITE_REQUESTED = new AtomicBoolean();
+
+	private static final LongAdder WRITTEN_FILES = new LongAdder();
+	private static final LongAdder WRITE_TIME = new LongAdder();
+
+	/** The names of the files of the batch being written, guarded by QUEUE */
+	private static Set<String> writing = Collections.emptySet();
+
+	/** The writer thread */
+	private static volatile Thread writerThread;
+
+	/**
+	 * A parsed file waiting to be written.
+	 */
+	record Entry(String name, long modified, int type, DLNAMediaInfo media) {
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private MediaLibraryWriter() {
+	}
+
+	/**
+	 * @return whether parsed files should be queued with {@link #add} rather
+	 *         than written with {@link MediaTableFiles#insertOrUpdateData}.
+	 */
+	public static boolean isEnabled() {
+		return PMS.getConfiguration().getDatabaseMediaWriteBatchSize() > 1;
+	}
+
+	/**
+	 * Queues a copy of a parsed file to be written to the media library. A
+	 * file that is already queued is replaced.
+	 * <p>
+	 * When {@link #MAX_QUEUED_BATCHES} full batches are queued, this waits
+	 * for the writer thread to catch up.
+	 *
+	 * @param name the full path of the media.
+	 * @param modified the current {@code lastModified} value of the media file.
+	 * @param type the integer constant from {@link net.pms.formats.Format}
+	 *            indicating the type of media.
+	 * @param media the parsed information.
+	 */
+	public static void add(String name, long modified, int type, DLNAMediaInfo media) {
+		int batchSize = Math.max(1, PMS.getConfiguration().getDatabaseMediaWriteBatchSize());
+		Entry entry = new Entry(name, modified, type, copy(media));
+		int size;
+		synchronized (QUEUE) {
+			QUEUE.remove(name);
+			QUEUE.put(name, entry);
+			size = QUEUE.size();
+		}
+		if (size == 1) {
+			schedule(FLUSH_DELAY_MS);
+		} else if (size >= batchSize) {
+			requestWrite();
+		}
+		if (size >= batchSize * MAX_QUEUED_BATCHES && Thread.currentThread() != writerThread) {
+			long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MS;
+			synchronized (QUEUE) {
+				try {
+					long remaining;
+					while (QUEUE.size() >= batchSize * MAX_QUEUED_BATCHES && (remaining = deadline - System.currentTimeMillis()) > 0) {
+						QUEUE.wait(remaining);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes a queued file, when it is written by other means.
+	 *
+	 * @param name the full path of the media.
+	 */
+	public static void discard(String name) {
+		synchronized (QUEUE) {
+			QUEUE.remove(name);
+		}
+	}
+
+	/**
+	 * Waits for the queue to be written if the given file is queued or being
+	 * written, so that it can be read from the database.
+	 *
+	 * @param name the full path of the media.
+	 */
+	public static void flush(String name) {
+		synchronized (QUEUE) {
+			if (!QUEUE.containsKey(name) && !writing.contains(name)) {
+				return;
+			}
+		}
+		flush();
+	}
+
+	/**
+	 * Waits for the writer thread to write all queued files and the files
+	 * being written, so that they can be read from the database.
+	 * <p>
+	 * This waits at most {@link #FLUSH_TIMEOUT_MS}, so that a caller holding
+	 * a connection can't keep the writer thread from getting its own one.
+	 */
+	public static void flush() {
+		synchronized (QUEUE) {
+			if (QUEUE.isEmpty() && writing.isEmpty()) {
+				return;
+			}
+		}
+		if (Thread.currentThread() == writerThread) {
+			// Reading while writing a batch
+			return;
+		}
+
+		try {
+			Future<?> future = SCHEDULER.submit(MediaLibraryWriter::writeQueue);
+			future.get(FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			LOGGER.warn("Timed out after {} ms while waiting for parsed files to be written to the media library", FLUSH_TIMEOUT_MS);
+		} catch (ExecutionException | RejectedExecutionException e) {
+			LOGGER.warn("Error while waiting for parsed files to be written to the media library: {}", e.getMessage());
+			LOGGER.trace("", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Asks the writer thread to write the queue, unless it's already asked.
+	 */
+	private static void requestWrite() {
+		if (WRITE_REQUESTED.compareAndSet(false, true)) {
+			try {
+				SCHEDULER.execute(MediaLibraryWriter::writeQueue);
+			} catch (RejectedExecutionException e) {
+				WRITE_REQUESTED.set(false);
+				LOGGER.warn("The media library writer is stopped, parsed files will not be written");
+			}
+		}
+	}
+
+	private static void schedule(long delay) {
+		try {
+			SCHEDULER.schedule(MediaLibraryWriter::writeQueue, delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			LOGGER.warn("The media library writer is stopped, parsed files will not be written");
+		}
+	}
+
+	/**
+	 * Writes the queue in batches, on the writer thread.
+	 */
+	private static void writeQueue() {
+		writerThread = Thread.currentThread();
+		WRITE_REQUESTED.set(false);
+		int batchSize = Math.max(1, PMS.getConfiguration().getDatabaseMediaWriteBatchSize());
+		try {
+			while (true) {
+				List<Entry> batch = new ArrayList<>(batchSize);
+				synchronized (QUEUE) {
+					Set<String> names = new HashSet<>();
+					for (Iterator<Entry> iterator = QUEUE.values().iterator(); iterator.hasNext() && batch.size() < batchSize;) {
+						Entry entry = iterator.next();
+						iterator.remove();
+						batch.add(entry);
+						names.add(entry.name());
+					}
+					writing = names;
+					// Let the scans waiting for room go on
+					QUEUE.notifyAll();
+				}
+				if (batch.isEmpty()) {
+					break;
+				}
+				if (!write(batch)) {
+					requeue(batch);
+					break;
+				}
+			}
+		} finally {
+			synchronized (QUEUE) {
+				writing = Collections.emptySet();
+			}
+		}
+	}
+
+	/**
+	 * Puts back a batch that couldn't be written, ahead of the files queued
+	 * since, unless a newer copy of a file is queued, and retries it later.
+	 * If the media library is closed, the batch is dropped.
+	 */
+	private static void requeue(List<Entry> batch) {
+		if (!MediaDatabase.isAvailable()) {
+			LOGGER.warn("The media library is not available, {} parsed files were not written", batch.size());
+			return;
+		}
+
+		synchronized (QUEUE) {
+			Map<String, Entry> queued = new LinkedHashMap<>(QUEUE);
+			QUEUE.clear();
+			for (Entry entry : batch) {
+				if (!queued.containsKey(entry.name())) {
+					QUEUE.put(entry.name(), entry);
+				}
+			}
+			QUEUE.putAll(queued);
+		}
+		LOGGER.warn("Could not write {} parsed files to the media library, retrying in {} ms", batch.size(), RETRY_DELAY_MS);
+		schedule(RETRY_DELAY_MS);
+	}
+
+	private static DLNAMediaInfo copy(DLNAMediaInfo media) {
+		if (media == null) {
+			return null;
+		}
+		try {
+			return media.clone();
+		} catch (CloneNotSupportedException e) {
+			// DLNAMediaInfo is Cloneable
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return the number of files written since the start.
+	 */
+	public static long getWrittenFiles() {
+		return WRITTEN_FILES.sum();
+	}
+
+	/**
+	 * @return the average number of files written per second.
+	 */
+	public static long getFilesPerSecond() {
+		long time = WRITE_TIME.sum();
+		return time == 0 ? 0 : WRITTEN_FILES.sum() * TimeUnit.SECONDS.toNanos(1) / time;
+	}
+
+	/**
+	 * Writes a batch in one transaction. If the batch fails, its files are
+	 * written one by one so that a single bad file doesn't lose the others.
+	 *
+	 * @return {@code false} if the batch couldn't be written because the
+	 *         connection failed, {@code true} otherwise.
+	 */
+	private static boolean write(List<Entry> batch) {
+		Connection connection = MediaDatabase.getConnectionIfAvailable();
+		if (connection == null) {
+			return false;
+		}
+
+		long start = System.nanoTime();
+		int written = 0;
+		try {
+			connection.setAutoCommit(false);
+			try {
+				MediaTableFiles.insertOrUpdateData(connection, batch);
+				connection.commit();
+				written = batch.size();
+			} catch (SQLException e) {
+				connection.rollback();
+				LOGGER.debug("Error while writing {} parsed files to the media library, writing them one by one: {}", batch.size(), e.getMessage());
+				LOGGER.trace("", e);
+				for (Entry entry : batch) {
+					try {
+						MediaTableFiles.insertOrUpdateData(connection, List.of(entry));
+						connection.commit();
+						written++;
+					} catch (SQLException se) {
+						connection.rollback();
+						LOGGER.error("Database error while trying to add parsed information for \"{}\" to the cache: {}", entry.name(), se.getMessage());
+						LOGGER.trace("", se);
+					}
+				}
+			}
+			connection.setAutoCommit(true);
+		} catch (SQLException e) {
+			LOGGER.error("Error while writing parsed files to the media library: {}", e.getMessage());
+			LOGGER.trace("", e);
+			if (written == 0) {
+				return false;
+			}
+		} finally {
+			MediaDatabase.close(connection);
+		}
+
+		long time = System.nanoTime() - start;
+		WRITTEN_FILES.add(written);
+		WRITE_TIME.add(time);
+		if (LOGGER.isDebugEnabled() && written > 0) {
+			LOGGER.debug(
+				"Wrote {} parsed files to the media library in {} ms ({} files/s, {} files/s on average)",
+				written,
+				TimeUnit.NANOSECONDS.toMillis(time),
+				written * TimeUnit.SECONDS.toNanos(1) / Math.max(1, time),
+				getFilesPerSecond()
+			);
+		}
+		return true;
+	}
+}
@@ -381,5 +381,6 @@ public class MediaTableAudiotracks extends MediaTable {
 				}
 			}
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 }
@@ -137,7 +137,7 @@ public class MediaTableChapters extends MediaTable {
 						rs.updateString("TITLE", left(chapter.getTitle(), SIZE_MAX));
 						rs.updateDouble("START_TIME", chapter.getStart());
 						rs.updateDouble("END_TIME", chapter.getEnd());
-						rs.updateObject("THUMBNAIL", chapter.getThumbnail());
+						updateEncoded(rs, encode(chapter.getThumbnail()), "THUMBNAIL");
 						rs.updateRow();
 					} else {
 						insertStatement.clearParameters();
@@ -147,7 +147,7 @@ public class MediaTableChapters extends MediaTable {
 						insertStatement.setString(4, left(chapter.getTitle(), SIZE_MAX));
 						insertStatement.setDouble(5, chapter.getStart());
 						insertStatement.setDouble(6, chapter.getEnd());
-						insertStatement.setObject(7, chapter.getThumbnail());
+						insertEncoded(insertStatement, encode(chapter.getThumbnail()), 7);
 						insertStatement.executeUpdate();
 					}
 				}
@@ -0,0 +1,187 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the fingerprint of a file: its size, its modified time and its
+ * OpenSubtitles hash, so the hash is only computed once per version of the
+ * file. A stored hash is only returned while the size and modified time of
+ * the file are unchanged.
+ */
+public final class MediaTableFileFingerprints extends MediaTable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaTableFileFingerprints.class);
+	public static final String TABLE_NAME = "FILE_FINGERPRINTS";
+	public static final String TABLE_COL_FILENAME = TABLE_NAME + ".FILENAME";
+	public static final String TABLE_COL_MODIFIED = TABLE_NAME + ".MODIFIED";
+	public static final String TABLE_COL_SIZE = TABLE_NAME + ".SIZE";
+	public static final String TABLE_COL_OSDBHASH = TABLE_NAME + ".OSDBHASH";
+	private static final String SQL_GET_OSDBHASH = "SELECT " + TABLE_COL_OSDBHASH + " FROM " + TABLE_NAME + " WHERE " + TABLE_COL_FILENAME + " = ? AND " + TABLE_COL_MODIFIED + " = ? AND " + TABLE_COL_SIZE + " = ? LIMIT 1";
+	private static final String SQL_MERGE = "MERGE INTO " + TABLE_NAME + " (FILENAME, MODIFIED, SIZE, OSDBHASH) KEY (FILENAME) VALUES (?, ?, ?, ?)";
+
+	/**
+	 * The longest path stored. The fingerprints of longer paths aren't stored,
+	 * since truncated paths could be shared by several files.
+	 */
+	private static final int MAX_FILENAME_LENGTH = 1024;
+
+	/**
+	 * Table version must be increased every time a change is done to the table
+	 * definition. Table upgrade SQL must also be added to
+	 * {@link #upgradeTable(Connection, int)}
+	 */
+	private static final int TABLE_VERSION = 1;
+
+	/**
+	 * Checks and creates or upgrades the table as needed.
+	 *
+	 * @param connection the {@link Connection} to use
+	 *
+	 * @throws SQLException
+	 */
+	protected static void checkTable(final Connection connection) throws SQLException {
+		if (tableExists(connection, TABLE_NAME)) {
+			Integer version = MediaTableTablesVersions.getTableVersion(connection, TABLE_NAME);
+			if (version != null) {
+				if (version < TABLE_VERSION) {
+					upgradeTable(connection, version);
+				} else if (version > TABLE_VERSION) {
+					LOGGER.warn(LOG_TABLE_NEWER_VERSION_DELETEDB,
+						DATABASE_NAME,
+						TABLE_NAME,
+						DATABASE.getDatabaseFilename()
+					);
+				}
+			} else {
+				LOGGER.warn(LOG_TABLE_UNKNOWN_VERSION_RECREATE, DATABASE_NAME, TABLE_NAME);
+				dropTable(connection, TABLE_NAME);
+				createTable(connection);
+				MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+			}
+		} else {
+			createTable(connection);
+			MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+		}
+	}
+
+	/**
+	 * This method <strong>MUST</strong> be updated if the table definition are
+	 * altered. The changes for each version in the form of
+	 * <code>ALTER TABLE</code> must be implemented here.
+	 *
+	 * @param connection the {@link Connection} to use
+	 * @param currentVersion the version to upgrade <strong>from</strong>
+	 *
+	 * @throws SQLException
+	 */
+	private static void upgradeTable(final Connection connection, final int currentVersion) throws SQLException {
+		LOGGER.info(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, currentVersion, TABLE_VERSION);
+		for (int version = currentVersion; version < TABLE_VERSION; version++) {
+			LOGGER.trace(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, version, version + 1);
+			switch (version) {
+				default:
+					throw new IllegalStateException(
+						getMessage(LOG_UPGRADING_TABLE_MISSING, DATABASE_NAME, TABLE_NAME, version, TABLE_VERSION)
+					);
+			}
+		}
+
+		try {
+			MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+		} catch (SQLException e) {
+			LOGGER.error("Failed setting the table version of the {} for {}", TABLE_NAME, e.getMessage());
+			throw new SQLException(e);
+		}
+	}
+
+	private static void createTable(final Connection connection) throws SQLException {
+		LOGGER.debug(LOG_CREATING_TABLE, DATABASE_NAME, TABLE_NAME);
+		execute(connection,
+			"CREATE TABLE " + TABLE_NAME + "(" +
+				"FILENAME   VARCHAR(" + MAX_FILENAME_LENGTH + ")   PRIMARY KEY   , " +
+				"MODIFIED   TIMESTAMP       NOT NULL      , " +
+				"SIZE       BIGINT          NOT NULL      , " +
+				"OSDBHASH   VARCHAR(16)     NOT NULL        " +
+			")"
+		);
+	}
+
+	/**
+	 * Gets the stored OpenSubtitles hash of a file, if the file hasn't
+	 * changed since it was stored.
+	 *
+	 * @param connection the db connection
+	 * @param filename the full path of the file
+	 * @param modified the current {@code lastModified} value of the file
+	 * @param size the current size of the file
+	 * @return The stored hash, or {@code null}.
+	 */
+	public static String getOsdbHash(final Connection connection, final String filename, final long modified, final long size) {
+		if (filename.length() > MAX_FILENAME_LENGTH) {
+			return null;
+		}
+		try (PreparedStatement statement = connection.prepareStatement(SQL_GET_OSDBHASH)) {
+			statement.setString(1, filename);
+			statement.setTimestamp(2, new Timestamp(modified));
+			statement.setLong(3, size);
+			try (ResultSet rs = statement.executeQuery()) {
+				if (rs.next()) {
+					return rs.getString(1);
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "reading", TABLE_NAME, filename, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the fingerprint of a file, replacing the previous one. Nothing is
+	 * stored if the path is longer than {@value #MAX_FILENAME_LENGTH}
+	 * characters.
+	 *
+	 * @param connection the db connection
+	 * @param filename the full path of the file
+	 * @param modified the {@code lastModified} value of the file
+	 * @param size the size of the file
+	 * @param osdbHash the OpenSubtitles hash of the file
+	 */
+	public static void set(final Connection connection, final String filename, final long modified, final long size, final String osdbHash) {
+		if (filename.length() > MAX_FILENAME_LENGTH) {
+			LOGGER.trace("Not storing the fingerprint of \"{}\" because its path is too long", filename);
+			return;
+		}
+		try (PreparedStatement statement = connection.prepareStatement(SQL_MERGE)) {
+			statement.setString(1, filename);
+			statement.setTimestamp(2, new Timestamp(modified));
+			statement.setLong(3, size);
+			statement.setString(4, osdbHash);
+			statement.executeUpdate();
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing", TABLE_NAME, filename, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+}
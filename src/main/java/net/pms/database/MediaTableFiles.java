@@ -24,12 +24,11 @@ import java.io.IOException;
 import java.io.InvalidClassException;
 import java.sql.*;
 import java.util.ArrayList;
-import net.pms.Messages;
+import java.util.Collections;
+import java.util.HashMap;
 import net.pms.formats.Format;
 import net.pms.formats.v2.SubtitleType;
-import net.pms.gui.GuiManager;
 import net.pms.image.ImageFormat;
-import net.pms.image.ImageInfo;
 import net.pms.image.ImagesUtil.ScaleType;
 import net.pms.util.FileUtil;
 import net.pms.util.UnknownFormatException;
@@ -37,10 +36,8 @@ import net.pms.util.UriFileRetriever;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import net.pms.configuration.sharedcontent.SharedContentConfiguration;
+import java.util.Map;
 
 /**
  * This class provides methods for creating and maintaining the database where
@@ -66,6 +63,14 @@ public class MediaTableFiles extends MediaTable {
 	public static final String SQL_LEFT_JOIN_TABLE_THUMBNAILS = "LEFT JOIN " + MediaTableThumbnails.TABLE_NAME + " ON " + TABLE_COL_THUMBID + " = " + MediaTableThumbnails.TABLE_COL_ID + " ";
 	public static final String SQL_LEFT_JOIN_TABLE_VIDEO_METADATA = "LEFT JOIN " + MediaTableVideoMetadata.TABLE_NAME + " ON " + TABLE_COL_ID + " = " + MediaTableVideoMetadata.TABLE_COL_FILEID + " ";
 
+	private static final String FILES_COLUMNS = "FILENAME, MODIFIED, FORMAT_TYPE, DURATION, BITRATE, WIDTH, HEIGHT, MEDIA_SIZE, CODECV, " +
+		"FRAMERATE, ASPECTRATIODVD, ASPECTRATIOCONTAINER, ASPECTRATIOVIDEOTRACK, REFRAMES, AVCLEVEL, IMAGEINFO, " +
+		"CONTAINER, MUXINGMODE, FRAMERATEMODE, STEREOSCOPY, MATRIXCOEFFICIENTS, TITLECONTAINER, " +
+		"TITLEVIDEOTRACK, VIDEOTRACKCOUNT, IMAGECOUNT, BITDEPTH, PIXELASPECTRATIO, SCANTYPE, SCANORDER";
+	private static final String SQL_INSERT_FILE = "INSERT INTO " + TABLE_NAME + " (" + FILES_COLUMNS + ")" + createDefaultValueForInsertStatement(FILES_COLUMNS);
+	private static final String SQL_MERGE_FILE = "MERGE INTO " + TABLE_NAME + " (" + FILES_COLUMNS + ") KEY (FILENAME)" + createDefaultValueForInsertStatement(FILES_COLUMNS);
+	private static final String SQL_UPDATE_MODIFIED_FORMAT_TYPE = "UPDATE " + TABLE_NAME + " SET MODIFIED = ?, FORMAT_TYPE = ? WHERE " + TABLE_COL_ID + " = ?";
+	private static final String SQL_GET_ID_FORMAT_TYPE_FILENAMES = "SELECT " + TABLE_COL_ID + ", " + TABLE_COL_FILENAME + ", " + TABLE_COL_FORMAT_TYPE + " FROM " + TABLE_NAME + " WHERE " + TABLE_COL_FILENAME + " = ANY(?)";
 	private static final String SQL_GET_ID_FILENAME = "SELECT " + TABLE_COL_ID + " FROM " + TABLE_NAME + " WHERE " + TABLE_COL_FILENAME + " = ? LIMIT 1";
 	private static final String SQL_GET_ID_FILENAME_MODIFIED = "SELECT " + TABLE_COL_ID + " FROM " + TABLE_NAME + " WHERE " + TABLE_COL_FILENAME + " = ? AND " + TABLE_COL_MODIFIED + " = ? LIMIT 1";
 	private static final String SQL_GET_ALL_FILENAME_MODIFIED = "SELECT * FROM " + TABLE_NAME + " " + SQL_LEFT_JOIN_TABLE_THUMBNAILS + " WHERE " + TABLE_COL_FILENAME + " = ? AND " + TABLE_COL_MODIFIED + " = ? LIMIT 1";
@@ -112,6 +117,7 @@ public class MediaTableFiles extends MediaTable {
 	private static final int SIZE_MATRIX_COEFFICIENTS = 16;
 	private static final int SIZE_MUXINGMODE = 32;
 	private static final int SIZE_FRAMERATEMODE = 16;
+	private static final int MAX_NAMES_PER_QUERY = 500;
 
 	/*
 	 * Checks and creates or upgrades the table as needed.
@@ -465,6 +471,7 @@ public class MediaTableFiles extends MediaTable {
 	 * @return the file id if the data exists for this media, -1 otherwise.
 	 */
 	public static Long getFileId(final Connection connection, String filename, long modified) {
+		MediaLibraryWriter.flush(filename);
 		try {
 			try (PreparedStatement statement = connection.prepareStatement(SQL_GET_ID_FILENAME_MODIFIED)) {
 				statement.setString(1, filename);
@@ -490,6 +497,7 @@ public class MediaTableFiles extends MediaTable {
 	 * @return the file id if the data exists for this media, -1 otherwise.
 	 */
 	public static Long getFileId(final Connection connection, String filename) {
+		MediaLibraryWriter.flush(filename);
 		try {
 			try (PreparedStatement statement = connection.prepareStatement(SQL_GET_ID_FILENAME)) {
 				statement.setString(1, filename);
@@ -519,6 +527,7 @@ public class MediaTableFiles extends MediaTable {
 	 * @throws IOException if an IO error occurs during the operation.
 	 */
 	public static DLNAMediaInfo getData(final Connection connection, String name, long modified) throws IOException, SQLException {
+		MediaLibraryWriter.flush(name);
 		DLNAMediaInfo media = null;
 		List<String> externalFileReferencesToRemove = new ArrayList<>();
 		try {
@@ -549,8 +558,8 @@ public class MediaTableFiles extends MediaTable {
 						media.setAspectRatioVideoTrack(rs.getString("ASPECTRATIOVIDEOTRACK"));
 						media.setReferenceFrameCount(rs.getByte("REFRAMES"));
 						media.setAvcLevel(rs.getString("AVCLEVEL"));
-						media.setImageInfo((ImageInfo) rs.getObject("IMAGEINFO"));
-						media.setThumb((DLNAThumbnail) rs.getObject("THUMBNAIL"));
+						media.setImageInfo(getImageInfo(rs, "IMAGEINFO"));
+						media.setThumb(getThumbnail(rs, "THUMBNAIL"));
 						media.setContainer(rs.getString("CONTAINER"));
 						media.setMuxingMode(rs.getString("MUXINGMODE"));
 						media.setFrameRateMode(rs.getString("FRAMERATEMODE"));
@@ -629,7 +638,7 @@ public class MediaTableFiles extends MediaTable {
 								chapter.setTitle(elements.getString("TITLE"));
 								chapter.setStart(elements.getDouble("START_TIME"));
 								chapter.setEnd(elements.getDouble("END_TIME"));
-								chapter.setThumbnail((DLNAThumbnail) elements.getObject("THUMBNAIL"));
+								chapter.setThumbnail(getThumbnail(elements, "THUMBNAIL"));
 								LOGGER.trace("Adding chapter from the database for {}: {}", name, chapter.toString());
 								media.addChapter(chapter);
 							}
@@ -731,6 +740,9 @@ public class MediaTableFiles extends MediaTable {
 	 * information given in {@code media}. If it doesn't exist, a new will row
 	 * be created using the same information.
 	 *
+	 * Any write of the same file still waiting in {@link MediaLibraryWriter}
+	 * is discarded, since this one is more recent.
+	 *
 	 * @param connection the db connection
 	 * @param name the full path of the media.
 	 * @param modified the current {@code lastModified} value of the media file.
@@ -740,198 +752,218 @@ public class MediaTableFiles extends MediaTable {
 	 * @throws SQLException if an SQL error occurs during the operation.
 	 */
 	public static void insertOrUpdateData(final Connection connection, String name, long modified, int type, DLNAMediaInfo media) throws SQLException {
-		try {
-			long fileId = -1;
-			try (PreparedStatement ps = connection.prepareStatement("SELECT " +
-					"ID, FILENAME, MODIFIED, FORMAT_TYPE, DURATION, BITRATE, WIDTH, HEIGHT, MEDIA_SIZE, CODECV, FRAMERATE, " +
-					"ASPECTRATIODVD, ASPECTRATIOCONTAINER, ASPECTRATIOVIDEOTRACK, REFRAMES, AVCLEVEL, IMAGEINFO, " +
-					"CONTAINER, MUXINGMODE, FRAMERATEMODE, STEREOSCOPY, MATRIXCOEFFICIENTS, TITLECONTAINER, " +
-					"TITLEVIDEOTRACK, VIDEOTRACKCOUNT, IMAGECOUNT, BITDEPTH, PIXELASPECTRATIO, SCANTYPE, SCANORDER " +
-				"FROM " + TABLE_NAME + " " +
-				"WHERE " +
-					TABLE_COL_FILENAME + " = ? " +
-				"LIMIT 1",
-				ResultSet.TYPE_FORWARD_ONLY,
-				ResultSet.CONCUR_UPDATABLE
-			)) {
-				ps.setString(1, name);
-				try (ResultSet rs = ps.executeQuery()) {
-					if (rs.next()) {
-						fileId = rs.getLong("ID");
-						rs.updateTimestamp("MODIFIED", new Timestamp(modified));
-						rs.updateInt("FORMAT_TYPE", type);
-						if (media != null) {
-							if (media.getDuration() != null) {
-								rs.updateDouble("DURATION", media.getDurationInSeconds());
-							} else {
-								rs.updateNull("DURATION");
-							}
+		MediaLibraryWriter.discard(name);
+		if (media != null) {
+			insertOrUpdateData(connection, List.of(new MediaLibraryWriter.Entry(name, modified, type, media)));
+			return;
+		}
 
-							if (type != Format.IMAGE) {
-								if (media.getBitrate() == 0) {
-									LOGGER.debug("Could not parse the bitrate for: " + name);
-								}
-								rs.updateInt("BITRATE", media.getBitrate());
-							} else {
-								rs.updateInt("BITRATE", 0);
-							}
-							rs.updateInt("WIDTH", media.getWidth());
-							rs.updateInt("HEIGHT", media.getHeight());
-							rs.updateLong("MEDIA_SIZE", media.getSize());
-							rs.updateString("CODECV", StringUtils.left(media.getCodecV(), SIZE_CODECV));
-							rs.updateString("FRAMERATE", StringUtils.left(media.getFrameRate(), SIZE_FRAMERATE));
-							rs.updateString("ASPECTRATIODVD", StringUtils.left(media.getAspectRatioDvdIso(), SIZE_MAX));
-							rs.updateString("ASPECTRATIOCONTAINER", StringUtils.left(media.getAspectRatioContainer(), SIZE_MAX));
-							rs.updateString("ASPECTRATIOVIDEOTRACK", StringUtils.left(media.getAspectRatioVideoTrack(), SIZE_MAX));
-							rs.updateByte("REFRAMES", media.getReferenceFrameCount());
-							rs.updateString("AVCLEVEL", StringUtils.left(media.getAvcLevel(), SIZE_AVCLEVEL));
-							updateSerialized(rs, media.getImageInfo(), "IMAGEINFO");
-							if (media.getImageInfo() != null) {
-								rs.updateObject("IMAGEINFO", media.getImageInfo());
-							} else {
-								rs.updateNull("IMAGEINFO");
-							}
-							rs.updateString("CONTAINER", StringUtils.left(media.getContainer(), SIZE_CONTAINER));
-							rs.updateString("MUXINGMODE", StringUtils.left(media.getMuxingModeAudio(), SIZE_MUXINGMODE));
-							rs.updateString("FRAMERATEMODE", StringUtils.left(media.getFrameRateMode(), SIZE_FRAMERATEMODE));
-							rs.updateString("STEREOSCOPY", StringUtils.left(media.getStereoscopy(), SIZE_MAX));
-							rs.updateString("MATRIXCOEFFICIENTS", StringUtils.left(media.getMatrixCoefficients(), SIZE_MATRIX_COEFFICIENTS));
-							rs.updateString("TITLECONTAINER", StringUtils.left(media.getFileTitleFromMetadata(), SIZE_MAX));
-							rs.updateString("TITLEVIDEOTRACK", StringUtils.left(media.getVideoTrackTitleFromMetadata(), SIZE_MAX));
-							rs.updateInt("VIDEOTRACKCOUNT", media.getVideoTrackCount());
-							rs.updateInt("IMAGECOUNT", media.getImageCount());
-							rs.updateInt("BITDEPTH", media.getVideoBitDepth());
-							rs.updateString("PIXELASPECTRATIO", StringUtils.left(media.getPixelAspectRatio(), SIZE_MAX));
-							updateSerialized(rs, media.getScanType(), "SCANTYPE");
-							updateSerialized(rs, media.getScanOrder(), "SCANORDER");
-						}
-						rs.updateRow();
-					}
+		int previousType = type;
+		Long fileId = null;
+		try {
+			Map<String, Long> fileIds = new HashMap<>();
+			Map<String, Integer> previousTypes = new HashMap<>();
+			getFileIds(connection, List.of(name), fileIds, previousTypes);
+			fileId = fileIds.get(name);
+			if (fileId != null) {
+				previousType = previousTypes.get(name);
+				try (PreparedStatement ps = connection.prepareStatement(SQL_UPDATE_MODIFIED_FORMAT_TYPE)) {
+					ps.setTimestamp(1, new Timestamp(modified));
+					ps.setInt(2, type);
+					ps.setLong(3, fileId);
+					ps.executeUpdate();
 				}
+			} else {
+				try (PreparedStatement ps = connection.prepareStatement(SQL_INSERT_FILE)) {
+					setFileParameters(ps, name, modified, type, null);
+					ps.executeUpdate();
+				}
+			}
+		} catch (SQLException se) {
+			throw getInsertOrUpdateException(se, name);
+		} finally {
+			MediaLibraryJournal.recordFilesChange(type);
+			if (previousType != type) {
+				MediaLibraryJournal.recordFilesChange(previousType);
 			}
+			if (fileId != null) {
+				MediaLibrarySearchIndex.recordChange(fileId);
+			}
+		}
+	}
 
-			if (fileId < 0) {
-				// No fileId means it didn't exist
-				String columns = "FILENAME, MODIFIED, FORMAT_TYPE, DURATION, BITRATE, WIDTH, HEIGHT, MEDIA_SIZE, CODECV, " +
-					"FRAMERATE, ASPECTRATIODVD, ASPECTRATIOCONTAINER, ASPECTRATIOVIDEOTRACK, REFRAMES, AVCLEVEL, IMAGEINFO, " +
-					"CONTAINER, MUXINGMODE, FRAMERATEMODE, STEREOSCOPY, MATRIXCOEFFICIENTS, TITLECONTAINER, " +
-					"TITLEVIDEOTRACK, VIDEOTRACKCOUNT, IMAGECOUNT, BITDEPTH, PIXELASPECTRATIO, SCANTYPE, SCANORDER";
+	/**
+	 * Inserts or updates the database rows representing a batch of parsed
+	 * files. The rows of the {@code FILES} table are written with a single
+	 * batched {@code MERGE} statement, then the tracks, chapters and
+	 * thumbnails of every file are written on the same connection.
+	 *
+	 * The caller is responsible for the transaction.
+	 *
+	 * @param connection the db connection
+	 * @param entries the parsed files to write.
+	 * @throws SQLException if an SQL error occurs during the operation.
+	 */
+	static void insertOrUpdateData(final Connection connection, List<MediaLibraryWriter.Entry> entries) throws SQLException {
+		Map<String, Long> fileIds = new HashMap<>();
+		Map<String, Integer> previousTypes = new HashMap<>();
+		List<String> names = new ArrayList<>(entries.size());
+		for (MediaLibraryWriter.Entry entry : entries) {
+			names.add(entry.name());
+		}
+		try {
+			getFileIds(connection, names, fileIds, previousTypes);
+			try (PreparedStatement ps = connection.prepareStatement(SQL_MERGE_FILE)) {
+				for (MediaLibraryWriter.Entry entry : entries) {
+					setFileParameters(ps, entry.name(), entry.modified(), entry.type(), entry.media());
+					ps.addBatch();
+				}
+				ps.executeBatch();
+			}
+			names.removeAll(fileIds.keySet());
+			if (!names.isEmpty()) {
+				getFileIds(connection, names, fileIds, null);
+			}
+		} catch (SQLException se) {
+			throw getInsertOrUpdateException(se, entries.size() == 1 ? entries.get(0).name() : entries.size() + " files");
+		}
 
-				try (
-					PreparedStatement ps = connection.prepareStatement(
-						"INSERT INTO " + TABLE_NAME + " (" + columns + ")" +
-						createDefaultValueForInsertStatement(columns),
-						Statement.RETURN_GENERATED_KEYS
-					)
-				) {
-					int databaseColumnIterator = 0;
-
-					ps.setString(++databaseColumnIterator, name);
-					ps.setTimestamp(++databaseColumnIterator, new Timestamp(modified));
-					ps.setInt(++databaseColumnIterator, type);
-					if (media != null) {
-						if (media.getDuration() != null) {
-							ps.setDouble(++databaseColumnIterator, media.getDurationInSeconds());
-						} else {
-							ps.setNull(++databaseColumnIterator, Types.DOUBLE);
-						}
+		for (MediaLibraryWriter.Entry entry : entries) {
+			DLNAMediaInfo media = entry.media();
+			Long fileId = fileIds.get(entry.name());
+			try {
+				if (fileId != null) {
+					MediaTableVideoMetadata.insertOrUpdateVideoMetadata(connection, fileId, media, null);
+					MediaTableAudiotracks.insertOrUpdateAudioTracks(connection, fileId, media);
+					MediaTableSubtracks.insertOrUpdateSubtitleTracks(connection, fileId, media);
+					MediaTableChapters.insertOrUpdateChapters(connection, fileId, media);
+				}
+			} finally {
+				if (media.getThumb() != null) {
+					MediaTableThumbnails.setThumbnail(connection, media.getThumb(), entry.name(), -1, false);
+				}
+				int previousType = previousTypes.getOrDefault(entry.name(), entry.type());
+				MediaLibraryJournal.recordFilesChange(entry.type());
+				if (previousType != entry.type()) {
+					MediaLibraryJournal.recordFilesChange(previousType);
+				}
+				if (fileId != null) {
+					MediaLibrarySearchIndex.recordChange(fileId);
+				}
+			}
+		}
+	}
 
-						int databaseBitrate = 0;
-						if (type != Format.IMAGE) {
-							databaseBitrate = media.getBitrate();
-							if (databaseBitrate == 0) {
-								LOGGER.debug("Could not parse the bitrate for: " + name);
-							}
-						}
-						ps.setInt(++databaseColumnIterator, databaseBitrate);
-
-						ps.setInt(++databaseColumnIterator, media.getWidth());
-						ps.setInt(++databaseColumnIterator, media.getHeight());
-						ps.setLong(++databaseColumnIterator, media.getSize());
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getCodecV(), SIZE_CODECV));
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getFrameRate(), SIZE_FRAMERATE));
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getAspectRatioDvdIso(), SIZE_MAX));
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getAspectRatioContainer(), SIZE_MAX));
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getAspectRatioVideoTrack(), SIZE_MAX));
-						ps.setByte(++databaseColumnIterator, media.getReferenceFrameCount());
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getAvcLevel(), SIZE_AVCLEVEL));
-						if (media.getImageInfo() != null) {
-							ps.setObject(++databaseColumnIterator, media.getImageInfo());
-						} else {
-							ps.setNull(++databaseColumnIterator, Types.OTHER);
-						}
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getContainer(), SIZE_CONTAINER));
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getMuxingModeAudio(), SIZE_MUXINGMODE));
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getFrameRateMode(), SIZE_FRAMERATEMODE));
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getStereoscopy(), SIZE_MAX));
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getMatrixCoefficients(), SIZE_MATRIX_COEFFICIENTS));
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getFileTitleFromMetadata(), SIZE_MAX));
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getVideoTrackTitleFromMetadata(), SIZE_MAX));
-						ps.setInt(++databaseColumnIterator, media.getVideoTrackCount());
-						ps.setInt(++databaseColumnIterator, media.getImageCount());
-						ps.setInt(++databaseColumnIterator, media.getVideoBitDepth());
-						ps.setString(++databaseColumnIterator, StringUtils.left(media.getPixelAspectRatio(), SIZE_MAX));
-						insertSerialized(ps, media.getScanType(), ++databaseColumnIterator);
-						insertSerialized(ps, media.getScanOrder(), ++databaseColumnIterator);
-					} else {
-						ps.setString(++databaseColumnIterator, null);
-						ps.setInt(++databaseColumnIterator, 0);
-						ps.setInt(++databaseColumnIterator, 0);
-						ps.setInt(++databaseColumnIterator, 0);
-						ps.setLong(++databaseColumnIterator, 0);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setByte(++databaseColumnIterator, (byte) -1);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setNull(++databaseColumnIterator, Types.OTHER);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setInt(++databaseColumnIterator, 0);
-						ps.setInt(++databaseColumnIterator, 0);
-						ps.setInt(++databaseColumnIterator, 0);
-						ps.setNull(++databaseColumnIterator, Types.VARCHAR);
-						ps.setNull(++databaseColumnIterator, Types.OTHER);
-						ps.setNull(++databaseColumnIterator, Types.OTHER);
-					}
-					ps.executeUpdate();
-					try (ResultSet rs = ps.getGeneratedKeys()) {
-						if (rs.next()) {
-							fileId = rs.getLong(1);
+	/**
+	 * Looks up the ids, and optionally the format types, of the given files.
+	 * Files that are not in the database are left out of the maps.
+	 */
+	private static void getFileIds(final Connection connection, List<String> names, Map<String, Long> fileIds, Map<String, Integer> formatTypes) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(SQL_GET_ID_FORMAT_TYPE_FILENAMES)) {
+			for (int i = 0; i < names.size(); i += MAX_NAMES_PER_QUERY) {
+				ps.setObject(1, names.subList(i, Math.min(i + MAX_NAMES_PER_QUERY, names.size())).toArray(String[]::new));
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						fileIds.put(rs.getString(2), rs.getLong(1));
+						if (formatTypes != null) {
+							formatTypes.put(rs.getString(2), rs.getInt(3));
 						}
 					}
 				}
 			}
+		}
+	}
 
-			if (media != null && fileId > -1) {
-				MediaTableVideoMetadata.insertOrUpdateVideoMetadata(connection, fileId, media, null);
-				MediaTableAudiotracks.insertOrUpdateAudioTracks(connection, fileId, media);
-				MediaTableSubtracks.insertOrUpdateSubtitleTracks(connection, fileId, media);
-				MediaTableChapters.insertOrUpdateChapters(connection, fileId, media);
-			}
-		} catch (SQLException se) {
-			if (se.getErrorCode() == 23505) {
-				throw new SQLException(String.format(
-					"Duplicate key while adding \"%s\" to the cache: %s",
-					name,
-					se.getMessage()
-				), se);
+	/**
+	 * Binds the columns of {@link #FILES_COLUMNS} for the given file.
+	 */
+	private static void setFileParameters(PreparedStatement ps, String name, long modified, int type, DLNAMediaInfo media) throws SQLException {
+		int databaseColumnIterator = 0;
+
+		ps.setString(++databaseColumnIterator, name);
+		ps.setTimestamp(++databaseColumnIterator, new Timestamp(modified));
+		ps.setInt(++databaseColumnIterator, type);
+		if (media != null) {
+			if (media.getDuration() != null) {
+				ps.setDouble(++databaseColumnIterator, media.getDurationInSeconds());
+			} else {
+				ps.setNull(++databaseColumnIterator, Types.DOUBLE);
 			}
-			throw se;
-		} finally {
-			if (media != null && media.getThumb() != null) {
-				MediaTableThumbnails.setThumbnail(connection, media.getThumb(), name, -1, false);
+
+			int databaseBitrate = 0;
+			if (type != Format.IMAGE) {
+				databaseBitrate = media.getBitrate();
+				if (databaseBitrate == 0) {
+					LOGGER.debug("Could not parse the bitrate for: " + name);
+				}
 			}
+			ps.setInt(++databaseColumnIterator, databaseBitrate);
+
+			ps.setInt(++databaseColumnIterator, media.getWidth());
+			ps.setInt(++databaseColumnIterator, media.getHeight());
+			ps.setLong(++databaseColumnIterator, media.getSize());
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getCodecV(), SIZE_CODECV));
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getFrameRate(), SIZE_FRAMERATE));
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getAspectRatioDvdIso(), SIZE_MAX));
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getAspectRatioContainer(), SIZE_MAX));
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getAspectRatioVideoTrack(), SIZE_MAX));
+			ps.setByte(++databaseColumnIterator, media.getReferenceFrameCount());
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getAvcLevel(), SIZE_AVCLEVEL));
+			insertEncoded(ps, encode(media.getImageInfo()), ++databaseColumnIterator);
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getContainer(), SIZE_CONTAINER));
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getMuxingModeAudio(), SIZE_MUXINGMODE));
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getFrameRateMode(), SIZE_FRAMERATEMODE));
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getStereoscopy(), SIZE_MAX));
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getMatrixCoefficients(), SIZE_MATRIX_COEFFICIENTS));
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getFileTitleFromMetadata(), SIZE_MAX));
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getVideoTrackTitleFromMetadata(), SIZE_MAX));
+			ps.setInt(++databaseColumnIterator, media.getVideoTrackCount());
+			ps.setInt(++databaseColumnIterator, media.getImageCount());
+			ps.setInt(++databaseColumnIterator, media.getVideoBitDepth());
+			ps.setString(++databaseColumnIterator, StringUtils.left(media.getPixelAspectRatio(), SIZE_MAX));
+			insertSerialized(ps, media.getScanType(), ++databaseColumnIterator);
+			insertSerialized(ps, media.getScanOrder(), ++databaseColumnIterator);
+		} else {
+			ps.setString(++databaseColumnIterator, null);
+			ps.setInt(++databaseColumnIterator, 0);
+			ps.setInt(++databaseColumnIterator, 0);
+			ps.setInt(++databaseColumnIterator, 0);
+			ps.setLong(++databaseColumnIterator, 0);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setByte(++databaseColumnIterator, (byte) -1);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setNull(++databaseColumnIterator, Types.OTHER);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setInt(++databaseColumnIterator, 0);
+			ps.setInt(++databaseColumnIterator, 0);
+			ps.setInt(++databaseColumnIterator, 0);
+			ps.setNull(++databaseColumnIterator, Types.VARCHAR);
+			ps.setNull(++databaseColumnIterator, Types.OTHER);
+			ps.setNull(++databaseColumnIterator, Types.OTHER);
 		}
 	}
 
+	private static SQLException getInsertOrUpdateException(SQLException se, String name) {
+		if (se.getErrorCode() == 23505) {
+			return new SQLException(String.format(
+				"Duplicate key while adding \"%s\" to the cache: %s",
+				name,
+				se.getMessage()
+			), se);
+		}
+		return se;
+	}
+
 	/**
 	 * Removes a single media file from the database.
 	 *
@@ -1016,14 +1048,25 @@ public class MediaTableFiles extends MediaTable {
 		}
 
 		LOGGER.trace("Deleting rows from " + TABLE_NAME + " table where the filename is \"{}\"", filename);
+		String condition = " WHERE " + TABLE_COL_FILENAME + (useLike ? " LIKE " : " = ") + sqlQuote(filename);
 		try (Statement statement = connection.createStatement()) {
-			int rows;
-			if (useLike) {
-				rows = statement.executeUpdate("DELETE FROM " + TABLE_NAME + " WHERE " + TABLE_COL_FILENAME + " LIKE " + sqlQuote(filename));
-			} else {
-				rows = statement.executeUpdate("DELETE FROM " + TABLE_NAME + " WHERE " + TABLE_COL_FILENAME + " = " + sqlQuote(filename));
+			List<Long> fileIds = new ArrayList<>();
+			if (MediaLibrarySearchIndex.isRecordingChanges()) {
+				try (ResultSet rs = statement.executeQuery("SELECT " + TABLE_COL_ID + " FROM " + TABLE_NAME + condition)) {
+					while (rs.next()) {
+						fileIds.add(rs.getLong(1));
+					}
+				}
 			}
+			int rows = statement.executeUpdate("DELETE FROM " + TABLE_NAME + condition);
 			LOGGER.trace("Deleted {} rows from " + TABLE_NAME, rows);
+			if (rows > 0) {
+				// Deletions cascade to the tables referencing FILES
+				MediaLibraryJournal.recordChangeToAll();
+				for (Long fileId : fileIds) {
+					MediaLibrarySearchIndex.recordChange(fileId);
+				}
+			}
 		}
 	}
 
@@ -1055,6 +1098,9 @@ public class MediaTableFiles extends MediaTable {
 				rows = statement.executeUpdate("DELETE FROM " + tableName + " WHERE " + column + " = " + sqlQuote(condition));
 			}
 			LOGGER.trace("Deleted {} rows from " + tableName, rows);
+			if (rows > 0) {
+				MediaLibraryJournal.recordChange(tableName);
+			}
 		}
 	}
 
@@ -1076,172 +1122,22 @@ public class MediaTableFiles extends MediaTable {
 	}
 
 	public static List<String> getStrings(final Connection connection, String sql) {
-		List<String> list = new ArrayList<>();
-		Set<String> set = new HashSet<>();
-		try {
-			try (
-				PreparedStatement ps = connection.prepareStatement((sql.toLowerCase().startsWith("select") || sql.toLowerCase().startsWith("with")) ? sql : ("SELECT FILENAME FROM " + TABLE_NAME + " WHERE " + sql));
-				ResultSet rs = ps.executeQuery()
-			) {
-				while (rs.next()) {
-					String str = rs.getString(1);
-					if (StringUtils.isBlank(str)) {
-						set.add(NONAME);
-					} else {
-						set.add(str);
-					}
-				}
-			}
-		} catch (SQLException se) {
-			LOGGER.error(null, se);
-			return null;
-		}
-		list.addAll(set);
-		return list;
+		return MediaLibraryQueries.getStrings(connection, sql, Collections.emptyList());
 	}
 
-	public static synchronized void cleanup(final Connection connection) {
-		try {
-			/*
-			 * Cleanup of FILES table
-			 *
-			 * Removes entries that are not on the hard drive anymore, and
-			 * ones that are no longer shared.
-			 */
-			int dbCount = 0;
-			try (
-				PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM " + TABLE_NAME);
-				ResultSet rs = ps.executeQuery()) {
-				if (rs.next()) {
-					dbCount = rs.getInt(1);
-				}
-			}
-			GuiManager.setStatusLine(Messages.getString("CleaningUpDatabase") + " 0%");
-
-			if (dbCount > 0) {
-				try (
-					PreparedStatement ps = connection.prepareStatement("SELECT " + TABLE_COL_FILENAME + ", " + TABLE_COL_MODIFIED + ", " + TABLE_COL_ID + " FROM " + TABLE_NAME, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
-					ResultSet rs = ps.executeQuery()) {
-					List<File> sharedFolders = SharedContentConfiguration.getSharedFolders();
-					boolean isFileStillShared = false;
-					int oldpercent = 0;
-					int i = 0;
-					while (rs.next()) {
-						String filename = rs.getString("FILENAME");
-						long modified = rs.getTimestamp("MODIFIED").getTime();
-						File file = new File(filename);
-						if (!file.exists() || file.lastModified() != modified) {
-							LOGGER.trace("Removing the file {} from our database because it is no longer on the hard drive", filename);
-							rs.deleteRow();
-						} else {
-							// the file exists on the hard drive, but now check if we are still sharing it
-							for (File folder : sharedFolders) {
-								if (filename.contains(folder.getAbsolutePath())) {
-									isFileStillShared = true;
-									break;
-								}
-							}
-
-							if (!isFileStillShared) {
-								LOGGER.trace("Removing the file {} from our database because it is no longer shared", filename);
-								rs.deleteRow();
-							}
-						}
-
-						i++;
-						int newpercent = i * 100 / dbCount;
-						if (newpercent > oldpercent) {
-							GuiManager.setStatusLine(Messages.getString("CleaningUpDatabase") + newpercent + "%");
-							oldpercent = newpercent;
-						}
-					}
-				}
-				GuiManager.setStatusLine(null);
-			}
-
-			/*
-			 * Cleanup of THUMBNAILS table
-			 *
-			 * Removes entries that are not referenced by any rows in the FILES table.
-			 */
-			try (
-				PreparedStatement ps = connection.prepareStatement(
-					"DELETE FROM " + MediaTableThumbnails.TABLE_NAME + " " +
-					"WHERE NOT EXISTS (" +
-						"SELECT " + TABLE_COL_ID + " FROM " + TABLE_NAME + " " +
-						"WHERE " + TABLE_COL_THUMBID + " = " + MediaTableThumbnails.TABLE_COL_ID + " " +
-						"LIMIT 1" +
-					") AND NOT EXISTS (" +
-						"SELECT " + MediaTableTVSeries.TABLE_COL_ID + " FROM " + MediaTableTVSeries.TABLE_NAME + " " +
-						"WHERE " + MediaTableTVSeries.TABLE_COL_THUMBID + " = " + MediaTableThumbnails.TABLE_COL_ID + " " +
-						"LIMIT 1" +
-					");"
-			)) {
-				ps.execute();
-			}
-
-			/*
-			 * Cleanup of FILES_STATUS table
-			 *
-			 * Removes entries that are not referenced by any rows in the FILES table.
-			 */
-			try (
-				PreparedStatement ps = connection.prepareStatement(
-					"DELETE FROM " + MediaTableFilesStatus.TABLE_NAME + " " +
-					"WHERE NOT EXISTS (" +
-						"SELECT " + TABLE_COL_ID + " FROM " + TABLE_NAME + " " +
-						"WHERE " + TABLE_COL_FILENAME + " = " + MediaTableFilesStatus.TABLE_COL_FILENAME +
-					");"
-			)) {
-				ps.execute();
-			}
-
-			/*
-			 * Cleanup of TV_SERIES table
-			 *
-			 * Removes entries that are not referenced by any rows in the FILES table.
-			 */
-			try (
-				PreparedStatement ps = connection.prepareStatement(
-					"DELETE FROM " + MediaTableTVSeries.TABLE_NAME + " " +
-					"WHERE NOT EXISTS (" +
-						"SELECT " + MediaTableVideoMetadata.TABLE_COL_MOVIEORSHOWNAMESIMPLE + " FROM " + MediaTableVideoMetadata.TABLE_NAME + " " +
-						"WHERE " + MediaTableVideoMetadata.TABLE_COL_MOVIEORSHOWNAMESIMPLE + " = " + MediaTableTVSeries.TABLE_COL_SIMPLIFIEDTITLE + " " +
-						"LIMIT 1" +
-					");"
-			)) {
-				ps.execute();
-			}
-		} catch (SQLException se) {
-			LOGGER.error(null, se);
-		} finally {
-			GuiManager.setStatusLine(null);
-		}
+	/**
+	 * Removes the files that are no longer on the hard drive or shared, and
+	 * the data that is no longer referenced, on the calling thread.
+	 *
+	 * @param connection the db connection
+	 * @see MediaLibraryCleanup
+	 */
+	public static void cleanup(final Connection connection) {
+		MediaLibraryCleanup.run(connection);
 	}
 
 	public static List<File> getFiles(final Connection connection, String sql) {
-		List<File> list = new ArrayList<>();
-		try {
-			try (
-				PreparedStatement ps = connection.prepareStatement(
-					sql.toLowerCase().startsWith("select") || sql.toLowerCase().startsWith("with") ? sql : ("SELECT FILENAME, MODIFIED FROM " + TABLE_NAME + " WHERE " + sql)
-				);
-				ResultSet rs = ps.executeQuery();
-			) {
-				while (rs.next()) {
-					String filename = rs.getString("FILENAME");
-					long modified = rs.getTimestamp("MODIFIED").getTime();
-					File file = new File(filename);
-					if (file.exists() && file.lastModified() == modified) {
-						list.add(file);
-					}
-				}
-			}
-		} catch (SQLException se) {
-			LOGGER.error(null, se);
-			return null;
-		}
-		return list;
+		return MediaLibraryQueries.getFiles(connection, sql, Collections.emptyList());
 	}
 
 	/**
@@ -1270,7 +1166,7 @@ public class MediaTableFiles extends MediaTable {
 				ResultSet resultSet = statement.executeQuery(query)
 			) {
 				if (resultSet.next()) {
-					return (DLNAThumbnail) resultSet.getObject("THUMBNAIL");
+					return getThumbnail(resultSet, "THUMBNAIL");
 				}
 			}
 		} catch (SQLException e) {
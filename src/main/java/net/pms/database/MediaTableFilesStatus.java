@@ -298,6 +298,7 @@ public final class MediaTableFilesStatus extends MediaTable {
 			LOGGER.error(LOG_ERROR_WHILE_VAR_IN_FOR, DATABASE_NAME, "writing status", isFullyPlayed, TABLE_NAME, fullPathToFile, e.getMessage());
 			LOGGER.trace("", e);
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 
 	/**
@@ -346,6 +347,7 @@ public final class MediaTableFilesStatus extends MediaTable {
 			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing last played date", TABLE_NAME, fullPathToFile, e.getMessage());
 			LOGGER.trace("", e);
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 
 	/**
@@ -390,6 +392,7 @@ public final class MediaTableFilesStatus extends MediaTable {
 		} finally {
 			GuiManager.setStatusLine(null);
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 
 	/**
@@ -415,6 +418,7 @@ public final class MediaTableFilesStatus extends MediaTable {
 			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "removing entries", TABLE_NAME, filename, e.getMessage());
 			LOGGER.trace("", e);
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 
 	public static Boolean isFullyPlayed(final Connection connection, final String fullPathToFile) {
@@ -494,5 +498,6 @@ public final class MediaTableFilesStatus extends MediaTable {
 			LOGGER.error(LOG_ERROR_WHILE_VAR_IN_FOR, DATABASE_NAME, "writing bookmark", bookmark, TABLE_NAME, fullPathToFile, e.getMessage());
 			LOGGER.trace("", e);
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 }
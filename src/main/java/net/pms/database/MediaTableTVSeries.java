@@ -404,6 +404,7 @@ public final class MediaTableTVSeries extends MediaTable {
 								insertStatement.setString(31, APIUtils.getStringOrNull(tvSeries, "tagline"));
 							}
 							insertStatement.executeUpdate();
+							MediaLibraryJournal.recordChange(TABLE_NAME);
 
 							try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
 								if (generatedKeys.next()) {
@@ -534,7 +535,7 @@ public final class MediaTableTVSeries extends MediaTable {
 				if (resultSet.next()) {
 					thumbnailId = resultSet.getInt("THUMBID");
 					tvSeriesId = resultSet.getInt("ID");
-					return (DLNAThumbnail) resultSet.getObject("THUMBNAIL");
+					return getThumbnail(resultSet, "THUMBNAIL");
 				}
 			}
 		} catch (Exception e) {
@@ -827,6 +828,7 @@ public final class MediaTableTVSeries extends MediaTable {
 		} catch (SQLException e) {
 			LOGGER.error(LOG_ERROR_WHILE_VAR_IN, DATABASE_NAME, "inserting API data to TV series entry", simplifiedTitle, TABLE_NAME, e.getMessage());
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 
 	/**
@@ -846,6 +848,7 @@ public final class MediaTableTVSeries extends MediaTable {
 			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "removing entries", TABLE_NAME, imdbID, e.getMessage());
 			LOGGER.trace("", e);
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 
 	/**
@@ -865,6 +868,7 @@ public final class MediaTableTVSeries extends MediaTable {
 			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "removing entry", TABLE_NAME, id, e.getMessage());
 			LOGGER.trace("", e);
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 
 	public static Boolean isFullyPlayed(final Connection connection, final String title) {
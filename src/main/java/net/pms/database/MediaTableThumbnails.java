@@ -20,6 +20,8 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -54,6 +56,7 @@ public final class MediaTableThumbnails extends MediaTable {
 	private static final String SQL_GET_ID_MD5 = "SELECT " + TABLE_COL_ID + " FROM " + TABLE_NAME + " WHERE " + TABLE_COL_MD5 + " = ? LIMIT 1";
 	private static final String SQL_INSERT_ID_MD5 = "INSERT INTO " + TABLE_NAME + " (" + COL_THUMBNAIL + ", " + COL_MODIFIED + ", " + COL_MD5 + ") VALUES (?, ?, ?)";
 	private static final String SQL_DELETE_ID = "DELETE FROM " + TABLE_NAME + " WHERE " + TABLE_COL_ID + " = ?";
+	private static final String SQL_GET_AFTER_ID = "SELECT " + TABLE_COL_ID + ", " + TABLE_COL_THUMBNAIL + " FROM " + TABLE_NAME + " WHERE " + TABLE_COL_ID + " > ? ORDER BY " + TABLE_COL_ID + " LIMIT ?";
 
 	/**
 	 * Table version must be increased every time a change is done to the table
@@ -212,7 +215,7 @@ public final class MediaTableThumbnails extends MediaTable {
 					}
 
 					try (PreparedStatement insertStatement = connection.prepareStatement(SQL_INSERT_ID_MD5, Statement.RETURN_GENERATED_KEYS)) {
-						insertStatement.setObject(1, thumbnail);
+						insertStatement.setBytes(1, encode(thumbnail));
 						insertStatement.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
 						insertStatement.setString(3, md5Hash);
 						insertStatement.executeUpdate();
@@ -255,4 +258,36 @@ public final class MediaTableThumbnails extends MediaTable {
 			LOGGER.trace("", e);
 		}
 	}
+
+	/**
+	 * Gets the thumbnails following the given ID, in ID order, so all the
+	 * thumbnails can be read a page at a time.
+	 *
+	 * @param connection the db connection
+	 * @param afterId the ID to start after, 0 to start with the first one
+	 * @param limit the maximum number of thumbnails to return
+	 * @return The thumbnails by ID, empty when there are no more thumbnails.
+	 */
+	public static Map<Integer, DLNAThumbnail> getThumbnailsAfterId(final Connection connection, final int afterId, final int limit) {
+		Map<Integer, DLNAThumbnail> thumbnails = new LinkedHashMap<>();
+		try (PreparedStatement statement = connection.prepareStatement(SQL_GET_AFTER_ID)) {
+			statement.setInt(1, afterId);
+			statement.setInt(2, limit);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					int id = resultSet.getInt(COL_ID);
+					try {
+						thumbnails.put(id, getThumbnail(resultSet, COL_THUMBNAIL));
+					} catch (SQLException e) {
+						LOGGER.debug("Skipping unreadable thumbnail with ID {} in {}: {}", id, TABLE_NAME, e.getMessage());
+						thumbnails.put(id, null);
+					}
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "reading", TABLE_NAME, afterId, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return thumbnails;
+	}
 }
@@ -269,6 +269,7 @@ public class MediaTableVideoMetadata extends MediaTable {
 			}
 		}
 		connection.commit();
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 
 	/**
@@ -308,6 +309,7 @@ public class MediaTableVideoMetadata extends MediaTable {
 			}
 			insertOrUpdateVideoMetadata(connection, fileId, media, apiExtendedMetadata);
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 
 	public static DLNAMediaVideoMetadata getVideoMetadataByFileId(Connection connection, long fileId) {
@@ -492,6 +494,7 @@ public class MediaTableVideoMetadata extends MediaTable {
 			);
 			LOGGER.trace("", e);
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 
 	/**
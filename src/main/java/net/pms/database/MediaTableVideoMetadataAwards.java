@@ -182,6 +182,7 @@ public final class MediaTableVideoMetadataAwards extends MediaTable {
 			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing", TABLE_NAME, fileId, e.getMessage());
 			LOGGER.trace("", e);
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 
 	public static String getValueForFile(final Connection connection, final Long fileId) {
@@ -207,6 +207,7 @@ public final class MediaTableVideoMetadataRatings extends MediaTable {
 			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing", TABLE_NAME, fileId, e.getMessage());
 			LOGGER.trace("", e);
 		}
+		MediaLibraryJournal.recordChange(TABLE_NAME);
 	}
 
 	public static JsonArray getJsonArrayForFile(final Connection connection, final Long fileId) {
@@ -22,6 +22,7 @@ import java.io.*;
 import java.nio.file.Files;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.annotation.Nullable;
 import net.pms.PMS;
@@ -471,13 +472,8 @@ public class DLNAMediaInfo implements Cloneable {
 			parsing = true;
 		}
 		Runnable r = () -> {
-			try {
-				Thread.sleep(10000);
-				synchronized (ffmpegFailureLock) {
-					ffmpegFailure = true;
-				}
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
+			synchronized (ffmpegFailureLock) {
+				ffmpegFailure = true;
 			}
 
 			pw.stopProcess();
@@ -486,9 +482,9 @@ public class DLNAMediaInfo implements Cloneable {
 			}
 		};
 
-		Thread failsafe = new Thread(r, "FFmpeg Thumbnail Failsafe");
-		failsafe.start();
+		ScheduledFuture<?> failsafe = ThumbnailGenerator.scheduleFailsafe(r, 10000);
 		pw.runInSameThread();
+		failsafe.cancel(false);
 		synchronized (parsingLock) {
 			parsing = false;
 		}
@@ -539,17 +535,15 @@ public class DLNAMediaInfo implements Cloneable {
 			parsing = true;
 		}
 		Runnable r = () -> {
-			UMSUtils.sleep(3000);
-
 			pw.stopProcess();
 			synchronized (parsingLock) {
 				parsing = false;
 			}
 		};
 
-		Thread failsafe = new Thread(r, "MPlayer Thumbnail Failsafe");
-		failsafe.start();
+		ScheduledFuture<?> failsafe = ThumbnailGenerator.scheduleFailsafe(r, 3000);
 		pw.runInSameThread();
+		failsafe.cancel(false);
 		synchronized (parsingLock) {
 			parsing = false;
 		}
@@ -1891,7 +1885,7 @@ public class DLNAMediaInfo implements Cloneable {
 	}
 
 	@Override
-	protected DLNAMediaInfo clone() throws CloneNotSupportedException {
+	public DLNAMediaInfo clone() throws CloneNotSupportedException {
 		DLNAMediaInfo mediaCloned = (DLNAMediaInfo) super.clone();
 		mediaCloned.setAudioTracks(new ArrayList<>());
 		for (DLNAMediaAudio audio : audioTracks) {
@@ -1903,6 +1897,7 @@ public class DLNAMediaInfo implements Cloneable {
 			mediaCloned.addSubtitlesTrack((DLNAMediaSubtitle) sub.clone());
 		}
 
+		mediaCloned.setChapters(new ArrayList<>(chapters));
 		return mediaCloned;
 	}
 
@@ -37,14 +37,17 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.StringTokenizer;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import javax.annotation.concurrent.GuardedBy;
 import net.pms.Messages;
 import net.pms.PMS;
 import net.pms.configuration.FormatConfiguration;
@@ -52,6 +55,7 @@ import net.pms.configuration.RendererConfigurations;
 import net.pms.configuration.UmsConfiguration;
 import net.pms.configuration.UmsConfiguration.SubtitlesInfoLevel;
 import net.pms.database.MediaDatabase;
+import net.pms.database.MediaLibraryWriter;
 import net.pms.database.MediaTableFiles;
 import net.pms.database.MediaTableFilesStatus;
 import net.pms.database.MediaTableMetadata;
@@ -59,6 +63,7 @@ import net.pms.database.MediaTableTVSeries;
 import net.pms.database.MediaTableThumbnails;
 import net.pms.database.MediaTableVideoMetadata;
 import net.pms.dlna.DLNAImageProfile.HypotheticalResult;
+import net.pms.dlna.virtual.MediaLibraryFolder;
 import net.pms.dlna.virtual.TranscodeVirtualFolder;
 import net.pms.dlna.virtual.VirtualFolder;
 import net.pms.dlna.virtual.VirtualFolderDbId;
@@ -79,6 +84,7 @@ import net.pms.image.BufferedImageFilterChain;
 import net.pms.image.ImageFormat;
 import net.pms.image.ImageInfo;
 import net.pms.image.ImagesUtil;
+import net.pms.io.FileRangeInputStream;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.io.SizeLimitInputStream;
@@ -87,7 +93,6 @@ import net.pms.network.mediaserver.MediaServer;
 import net.pms.renderers.ConnectedRenderers;
 import net.pms.renderers.Renderer;
 import net.pms.util.APIUtils;
-import net.pms.util.BasicThreadFactory;
 import net.pms.util.DLNAList;
 import net.pms.util.Debouncer;
 import net.pms.util.FileUtil;
@@ -121,6 +126,12 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	private final Map<String, Integer> requestIdToRefcount = new HashMap<>();
 	private boolean resolved;
 	private static final int STOP_PLAYING_DELAY = 4000;
+
+	/**
+	 * How long to wait for the first bytes of a transcode, in milliseconds,
+	 * in addition to the start delay of the renderer.
+	 */
+	private static final int OUTPUT_TIMEOUT = 5000;
 	private static final Logger LOGGER = LoggerFactory.getLogger(DLNAResource.class);
 	private final SimpleDateFormat simpleDateFormatDate = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
 	private volatile ImageInfo thumbnailImageInfo = null;
@@ -143,6 +154,28 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 
 	private static final ReentrantReadWriteLock LOCK_SYSTEM_UPDATE_ID = new ReentrantReadWriteLock();
 
+	/**
+	 * The most containers listed in one ContainerUpdateIDs event, beyond that
+	 * only the SystemUpdateID tells the control points to refresh.
+	 */
+	private static final int MAX_EVENTED_CONTAINERS = 100;
+
+	/**
+	 * The containers changed since the last bump, by resource id.
+	 */
+	@GuardedBy("PENDING_CONTAINER_UPDATES")
+	private static final Map<String, DLNAResource> PENDING_CONTAINER_UPDATES = new LinkedHashMap<>();
+
+	private static final List<BiConsumer<Integer, String>> UPDATE_ID_LISTENERS = new CopyOnWriteArrayList<>();
+
+	private static volatile String containerUpdateIds = "";
+
+	/**
+	 * Whether the media library changed since the last bump, so that the
+	 * next bump looks for the media library containers that changed.
+	 */
+	private static final AtomicBoolean LIBRARY_CHANGED = new AtomicBoolean();
+
 	private int specificType;
 	private String id;
 	public static final RenderingHints THUMBNAIL_HINTS = new RenderingHints(RenderingHints.KEY_RENDERING,
@@ -171,6 +204,12 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	private boolean discovered = false;
 	private ProcessWrapper externalProcess;
 	private static int systemUpdateId = 0;
+
+	/**
+	 * The SystemUpdateID when this container last changed, or -1 until it is
+	 * first asked.
+	 */
+	private volatile int updateId = -1;
 	private boolean noName;
 	private int nametruncate;
 	private DLNAResource first;
@@ -959,6 +998,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	public void updateChild(DLNAResource child) {
 		DLNAResource found = children.contains(child) ? child : searchByName(child.getName());
 		if (found != null) {
+			DidlFragmentCache.invalidate(found.getResourceId());
 			if (child != found) {
 				// Replace
 				child.parent = this;
@@ -1055,12 +1095,21 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 * @return List of DLNAResource items.
 	 * @throws IOException
 	 */
-	public synchronized List<DLNAResource> getDLNAResources(String objectId, boolean children, int start, int count,
+	public List<DLNAResource> getDLNAResources(String objectId, boolean children, int start, int count,
 		Renderer renderer) throws IOException {
 		return getDLNAResources(objectId, children, start, count, renderer, null);
 	}
 
-	public synchronized List<DLNAResource> getDLNAResources(String objectId, boolean returnChildren, int start, int count,
+	public List<DLNAResource> getDLNAResources(String objectId, boolean returnChildren, int start, int count,
+		Renderer renderer, String searchStr) {
+		// The thumbnails of a browse are shown by the renderer
+		return ThumbnailGenerator.callWithPriority(
+			ThumbnailGenerator.Priority.VISIBLE,
+			() -> findDLNAResources(objectId, returnChildren, start, count, renderer, searchStr)
+		);
+	}
+
+	private List<DLNAResource> findDLNAResources(String objectId, boolean returnChildren, int start, int count,
 		Renderer renderer, String searchStr) {
 		ArrayList<DLNAResource> resources = new ArrayList<>();
 
@@ -1091,7 +1140,12 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 
 		if (dlna == null) {
 			// nothing in the cache do a traditional search
-			dlna = search(ids, renderer);
+			PMS.REALTIME_LOCK.lock();
+			try {
+				dlna = search(ids, renderer);
+			} finally {
+				PMS.REALTIME_LOCK.unlock();
+			}
 			// dlna = search(objectId, count, renderer, searchStr);
 		}
 
@@ -1105,46 +1159,48 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 
 			if (!returnChildren) {
 				resources.add(dlna);
-				dlna.refreshChildrenIfNeeded(searchStr);
-			} else {
-				dlna.discoverWithRenderer(renderer, count, true, searchStr);
-
-				if (count == 0) {
-					count = dlna.getChildren().size();
+				synchronized (dlna) {
+					dlna.refreshChildrenIfNeeded(searchStr);
 				}
-
-				if (count > 0) {
-					ArrayBlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(count);
-
-					int nParallelThreads = 3;
-					if (dlna instanceof DVDISOFile) {
-						// Some DVD drives die with 3 parallel threads
-						nParallelThreads = 1;
+			} else {
+				/*
+				 * Only the requested folder is locked, so browses of other
+				 * folders (or by other renderers) don't wait for this one.
+				 */
+				List<DLNAResource> prefetch = new ArrayList<>();
+				synchronized (dlna) {
+					dlna.discoverWithRenderer(renderer, count, true, searchStr);
+
+					if (count == 0) {
+						count = dlna.getChildren().size();
 					}
 
-					ThreadPoolExecutor tpe = new ThreadPoolExecutor(Math.min(count, nParallelThreads), count, 20, TimeUnit.SECONDS, queue,
-						new BasicThreadFactory("DLNAResource resolver thread %d-%d"));
-
-					if (shouldDoAudioTrackSorting(dlna)) {
-						sortChildrenWithAudioElements(dlna);
-					}
-					for (int i = start; i < start + count && i < dlna.getChildren().size(); i++) {
-						final DLNAResource child = dlna.getChildren().get(i);
-						if (child != null) {
-							tpe.execute(child);
-							resources.add(child);
-						} else {
-							LOGGER.warn("null child at index {} in {}", i, systemName);
+					if (count > 0) {
+						if (shouldDoAudioTrackSorting(dlna)) {
+							sortChildrenWithAudioElements(dlna);
+						}
+						for (int i = start; i < start + count && i < dlna.getChildren().size(); i++) {
+							final DLNAResource child = dlna.getChildren().get(i);
+							if (child != null) {
+								resources.add(child);
+							} else {
+								LOGGER.warn("null child at index {} in {}", i, systemName);
+							}
+						}
+						// The start of the next page is likely to be requested next
+						int prefetchEnd = start + count + Math.min(count, DLNAResourceResolver.MAX_PREFETCH);
+						for (int i = start + count; i < prefetchEnd && i < dlna.getChildren().size(); i++) {
+							final DLNAResource child = dlna.getChildren().get(i);
+							if (child != null) {
+								prefetch.add(child);
+							}
 						}
 					}
+				}
 
-					try {
-						tpe.shutdown();
-						tpe.awaitTermination(20, TimeUnit.SECONDS);
-					} catch (InterruptedException e) {
-						LOGGER.error("error while shutting down thread pool executor for " + systemName, e);
-					}
-
+				if (!resources.isEmpty()) {
+					// Some DVD drives die with parallel threads
+					DLNAResourceResolver.resolve(resources, prefetch, dlna instanceof DVDISOFile);
 					LOGGER.trace("End of analysis for " + systemName);
 				}
 			}
@@ -1247,7 +1303,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 */
 	protected void notifyRefresh() {
 		lastRefreshTime = System.currentTimeMillis();
-		DLNAResource.bumpSystemUpdateId();
+		bumpUpdateId();
 	}
 
 	protected final void discoverWithRenderer(Renderer renderer, int count, boolean forced, String searchStr) {
@@ -2158,8 +2214,13 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 * @return String representing the item. An example would start like this:
 	 *         {@code <container id="0$1" childCount="1" parentID="0" restricted
 	 *         ="1">}
+	 * @see DidlFragmentCache
 	 */
 	public final String getDidlString(Renderer renderer) {
+		return DidlFragmentCache.get(this, renderer, () -> buildDidlString(renderer));
+	}
+
+	private String buildDidlString(Renderer renderer) {
 		// Use device-specific configuration, if any
 		UmsConfiguration configurationSpecificToRenderer = PMS.getConfiguration(renderer);
 		StringBuilder sb = new StringBuilder();
@@ -3246,72 +3307,62 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 			}
 		}
 
-		if (System.currentTimeMillis() - lastStartSystemTime < 500) {
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
-				LOGGER.error(null, e);
-			}
-		}
-
 		// (Re)start transcoding process if necessary
+		long launchTime = System.nanoTime();
+		boolean launched = false;
 		if (externalProcess == null || externalProcess.isDestroyed() || hlsConfiguration != null) {
 			// First playback attempt => start new transcoding process
 			LOGGER.debug("Starting transcode/remux of " + getName() + " with media info: " + media);
 			lastStartSystemTime = System.currentTimeMillis();
 			externalProcess = engine.launchTranscode(this, media, params);
-			if (params.getWaitBeforeStart() > 0) {
-				LOGGER.trace("Sleeping for {} milliseconds", params.getWaitBeforeStart());
-				try {
-					Thread.sleep(params.getWaitBeforeStart());
-				} catch (InterruptedException e) {
-					LOGGER.error(null, e);
-				}
-
-				LOGGER.trace("Finished sleeping for " + params.getWaitBeforeStart() + " milliseconds");
-			}
+			launched = true;
 		} else if (params.getTimeSeek() > 0 && media != null && media.isMediaparsed() && media.getDurationInSeconds() > 0) {
 			// Time seek request => stop running transcode process and start a
 			// new one
 			LOGGER.debug("Requesting time seek: " + params.getTimeSeek() + " seconds");
 			params.setMinBufferSize(1);
-			Runnable r = () -> externalProcess.stopProcess();
+			ProcessWrapper oldExternalProcess = externalProcess;
+			Runnable r = oldExternalProcess::stopProcess;
 
 			new Thread(r, "External Process Stopper").start();
 			lastStartSystemTime = System.currentTimeMillis();
 			ProcessWrapper newExternalProcess = engine.launchTranscode(this, media, params);
-			try {
-				Thread.sleep(1000);
-			} catch (InterruptedException e) {
-				LOGGER.error(null, e);
-			}
-
 			if (newExternalProcess == null) {
 				LOGGER.trace("External process instance is null... sounds not good");
 			}
 
 			externalProcess = newExternalProcess;
+			launched = true;
 		}
 
 		if (externalProcess == null) {
 			return null;
 		}
 
-		InputStream is = null;
-		int timer = 0;
-		while (is == null && timer < 10) {
-			is = externalProcess.getInputStream(low);
-			timer++;
-			if (is == null) {
-				LOGGER.debug("External input stream instance is null... sounds not good, waiting 500ms");
-				try {
-					Thread.sleep(500);
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-				}
+		// Wait for the first bytes, or for the process to die, instead of a
+		// fixed delay. A reused process normally has output already and
+		// returns at once.
+		boolean ready;
+		try {
+			ready = externalProcess.waitForOutput(params.getWaitBeforeStart() + OUTPUT_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			ready = false;
+		}
+		if (launched) {
+			long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launchTime);
+			if (ready) {
+				engine.getSeekLatency().record(latency);
+				LOGGER.trace("First bytes from {} after {} ms", engine, latency);
+			} else {
+				LOGGER.debug("No output from {} after {} ms", engine, latency);
 			}
+		} else if (!ready) {
+			LOGGER.debug("No output from the running process of {}", getName());
 		}
 
+		InputStream is = externalProcess.getInputStream(low);
+
 		// fail fast: don't leave a process running indefinitely if it's
 		// not producing output after params.waitbeforestart milliseconds + 5
 		// seconds
@@ -3335,7 +3386,8 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 * limit to the maximum number of bytes to be read from the original input
 	 * stream. The number of bytes is determined by the high and low value
 	 * (bytes = high - low). If the high value is less than the low value, the
-	 * input stream is not wrapped and returned as is.
+	 * input stream is not wrapped and returned as is. A
+	 * {@link FileRangeInputStream} is limited in place instead of wrapped.
 	 *
 	 * @param input The input stream to wrap.
 	 * @param high The high value.
@@ -3345,6 +3397,12 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	public static InputStream wrap(InputStream input, long high, long low) {
 		if (input != null && high > low) {
 			long bytes = (high - (low < 0 ? 0 : low)) + 1;
+			if (input instanceof FileRangeInputStream fileRange) {
+				// Keep the file channel reachable for zero-copy transfers
+				LOGGER.trace("Limiting file range to " + bytes + " bytes");
+				fileRange.limit(bytes);
+				return input;
+			}
 			LOGGER.trace("Using size-limiting stream (" + bytes + " bytes)");
 			return new SizeLimitInputStream(input, bytes);
 		}
@@ -3384,6 +3442,7 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 	 * Called from Request/RequestV2 in response to thumbnail requests e.g. HEAD
 	 * /get/0$1$0$42$3/thumbnail0000%5BExample.mkv Calls
 	 * DLNAMediaInfo.generateThumbnail, which in turn calls DLNAMediaInfo.parse.
+	 * The thumbnail is generated by the {@link ThumbnailGenerator}.
 	 *
 	 * @param inputFile File to check or generate the thumbnail for.
 	 * @param renderer The renderer profile
@@ -3402,9 +3461,27 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 				}
 			}
 
-			media.generateThumbnail(inputFile, getFormat(), getType(), seekPosition, isResume(), renderer);
-			if (!isResume() && media.getThumb() != null && configurationSpecificToRenderer.getUseCache() && inputFile.getFile() != null) {
-				MediaTableThumbnails.setThumbnail(media.getThumb(), inputFile.getFile().getAbsolutePath(), -1);
+			final Double position = seekPosition;
+			final DLNAMediaInfo mediaForThumbnail = media;
+			/*
+			 * Other resources of the same file share its thumbnail, when
+			 * they are generated for the same renderer and the same kind of
+			 * position.
+			 */
+			Object key = this;
+			if (inputFile.getFile() != null) {
+				key = inputFile.getFile().getAbsolutePath() + "@" + position + "@" + isResume() + "@" +
+					(renderer != null ? renderer.getId() : "");
+			}
+			DLNAThumbnail thumbnail = ThumbnailGenerator.generate(key, () -> {
+				mediaForThumbnail.generateThumbnail(inputFile, getFormat(), getType(), position, isResume(), renderer);
+				if (!isResume() && mediaForThumbnail.getThumb() != null && configurationSpecificToRenderer.getUseCache() && inputFile.getFile() != null) {
+					MediaTableThumbnails.setThumbnail(mediaForThumbnail.getThumb(), inputFile.getFile().getAbsolutePath(), -1);
+				}
+				return mediaForThumbnail.getThumb();
+			});
+			if (!mediaForThumbnail.isThumbready()) {
+				mediaForThumbnail.setThumb(thumbnail);
 			}
 		}
 	}
@@ -4276,43 +4353,167 @@ public abstract class DLNAResource extends HTTPResource implements Cloneable, Ru
 
 	/**
 	 * Bumps the updated id for all resources. When any resources has been
-	 * changed this id should be bumped, debounced by 300ms
+	 * changed this id should be bumped, debounced by 300ms. When the changed
+	 * containers are known, use {@link #bumpUpdateId()} instead.
 	 */
 	public static void bumpSystemUpdateId() {
-		DEBOUNCER.debounce(Void.class, () -> {
-			LOCK_SYSTEM_UPDATE_ID.writeLock().lock();
-			Connection connection = null;
-			try {
-				if (PMS.getConfiguration().getUseCache()) {
-					connection = MediaDatabase.getConnectionIfAvailable();
-				}
-				// Get the current value from the database if we haven't yet since UMS was started
-				if (connection != null && !hasFetchedSystemUpdateIdFromDatabase) {
-					String systemUpdateIdFromDb = MediaTableMetadata.getMetadataValue(connection, METADATA_TABLE_KEY_SYSTEMUPDATEID);
-					try {
-						systemUpdateId = Integer.parseInt(systemUpdateIdFromDb);
-					} catch (NumberFormatException ex) {
-						LOGGER.debug("" + ex);
+		DEBOUNCER.debounce(Void.class, DLNAResource::updateIds, 300, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Bumps the update ids of the media library containers whose content may
+	 * have changed, once the parsed files are written, and the
+	 * SystemUpdateID.
+	 */
+	public static void bumpLibraryUpdateIds() {
+		LIBRARY_CHANGED.set(true);
+		bumpSystemUpdateId();
+	}
+
+	/**
+	 * Bumps the update id of this container and the SystemUpdateID. The
+	 * containers changed within 300ms are bumped together, persisted once and
+	 * evented in ContainerUpdateIDs, so the control points only refresh these
+	 * containers.
+	 */
+	public void bumpUpdateId() {
+		String resourceId = getResourceId();
+		if (resourceId != null) {
+			synchronized (PENDING_CONTAINER_UPDATES) {
+				PENDING_CONTAINER_UPDATES.put(resourceId, this);
+			}
+		}
+		bumpSystemUpdateId();
+	}
+
+	/**
+	 * Returns the update id of this container: the SystemUpdateID when it
+	 * last changed, or when it was first asked if it hasn't changed since UMS
+	 * was started.
+	 *
+	 * @return The container update id.
+	 */
+	public int getUpdateId() {
+		int result = updateId;
+		if (result == -1) {
+			result = getSystemUpdateId();
+			updateId = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the UpdateID of a Browse response, which is the update id of
+	 * the browsed container, or the SystemUpdateID for an item or a search.
+	 *
+	 * @param browsed the browsed resource, or {@code null} for a search.
+	 * @return The UpdateID.
+	 */
+	public static int getBrowseUpdateId(DLNAResource browsed) {
+		return browsed != null && browsed.isFolder() ? browsed.getUpdateId() : getSystemUpdateId();
+	}
+
+	/**
+	 * @return the ContainerUpdateIDs of the last bump, as comma separated
+	 *         container id and update id pairs.
+	 */
+	public static String getContainerUpdateIds() {
+		return containerUpdateIds;
+	}
+
+	/**
+	 * Adds a listener called after each bump with the new SystemUpdateID and
+	 * ContainerUpdateIDs.
+	 *
+	 * @param listener the listener.
+	 */
+	public static void addUpdateIdListener(BiConsumer<Integer, String> listener) {
+		UPDATE_ID_LISTENERS.add(listener);
+	}
+
+	/**
+	 * Removes a listener added by {@link #addUpdateIdListener}.
+	 *
+	 * @param listener the listener.
+	 */
+	public static void removeUpdateIdListener(BiConsumer<Integer, String> listener) {
+		UPDATE_ID_LISTENERS.remove(listener);
+	}
+
+	private static void updateIds() {
+		if (LIBRARY_CHANGED.getAndSet(false)) {
+			MediaLibraryWriter.flush();
+			for (MediaLibraryFolder folder : MediaLibraryFolder.getChangedFolders()) {
+				String resourceId = folder.getResourceId();
+				if (resourceId != null) {
+					synchronized (PENDING_CONTAINER_UPDATES) {
+						PENDING_CONTAINER_UPDATES.put(resourceId, folder);
 					}
-					hasFetchedSystemUpdateIdFromDatabase = true;
 				}
+			}
+		}
 
-				systemUpdateId++;
+		List<Map.Entry<String, DLNAResource>> containers;
+		synchronized (PENDING_CONTAINER_UPDATES) {
+			containers = new ArrayList<>();
+			for (Map.Entry<String, DLNAResource> entry : PENDING_CONTAINER_UPDATES.entrySet()) {
+				containers.add(Map.entry(entry.getKey(), entry.getValue()));
+			}
+			PENDING_CONTAINER_UPDATES.clear();
+		}
 
-				// if we exceeded the maximum value for a UI4, start again at 0
-				if (systemUpdateId > MAX_UI4_VALUE) {
-					systemUpdateId = 0;
+		int newSystemUpdateId;
+		LOCK_SYSTEM_UPDATE_ID.writeLock().lock();
+		Connection connection = null;
+		try {
+			if (PMS.getConfiguration().getUseCache()) {
+				connection = MediaDatabase.getConnectionIfAvailable();
+			}
+			// Get the current value from the database if we haven't yet since UMS was started
+			if (connection != null && !hasFetchedSystemUpdateIdFromDatabase) {
+				String systemUpdateIdFromDb = MediaTableMetadata.getMetadataValue(connection, METADATA_TABLE_KEY_SYSTEMUPDATEID);
+				try {
+					systemUpdateId = Integer.parseInt(systemUpdateIdFromDb);
+				} catch (NumberFormatException ex) {
+					LOGGER.debug("" + ex);
 				}
+				hasFetchedSystemUpdateIdFromDatabase = true;
+			}
+
+			systemUpdateId++;
+
+			// if we exceeded the maximum value for a UI4, start again at 0
+			if (systemUpdateId > MAX_UI4_VALUE) {
+				systemUpdateId = 0;
+			}
+			newSystemUpdateId = systemUpdateId;
+
+			// Persist the new value to the database
+			if (connection != null) {
+				MediaTableMetadata.setOrUpdateMetadataValue(connection, METADATA_TABLE_KEY_SYSTEMUPDATEID, Integer.toString(systemUpdateId));
+			}
+		} finally {
+			MediaDatabase.close(connection);
+			LOCK_SYSTEM_UPDATE_ID.writeLock().unlock();
+		}
 
-				// Persist the new value to the database
-				if (connection != null) {
-					MediaTableMetadata.setOrUpdateMetadataValue(connection, METADATA_TABLE_KEY_SYSTEMUPDATEID, Integer.toString(systemUpdateId));
+		StringBuilder ids = new StringBuilder();
+		for (Map.Entry<String, DLNAResource> container : containers) {
+			container.getValue().updateId = newSystemUpdateId;
+			if (containers.size() <= MAX_EVENTED_CONTAINERS) {
+				if (ids.length() > 0) {
+					ids.append(',');
 				}
-			} finally {
-				MediaDatabase.close(connection);
-				LOCK_SYSTEM_UPDATE_ID.writeLock().unlock();
+				ids.append(container.getKey()).append(',').append(newSystemUpdateId);
 			}
-		}, 300, TimeUnit.MILLISECONDS);
+		}
+		containerUpdateIds = ids.toString();
+		if (LOGGER.isTraceEnabled()) {
+			LOGGER.trace("SystemUpdateID is now {}, {} containers changed", newSystemUpdateId, containers.size());
+		}
+		for (BiConsumer<Integer, String> listener : UPDATE_ID_LISTENERS) {
+			listener.accept(newSystemUpdateId, containerUpdateIds);
+		}
 	}
 
 	/**
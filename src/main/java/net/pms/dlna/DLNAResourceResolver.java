@@ -0,0 +1,256 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.util.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide scheduler resolving the {@link DLNAResource}s returned by
+ * browse requests.
+ * <p>
+ * All browses share one bounded pool of resolver threads. Resources of the
+ * requested page are resolved before those of the following page, which is
+ * prefetched in the background. A resource is never resolved twice at the
+ * same time: concurrent requests for the same resource wait for the
+ * resolve already in progress.
+ * <p>
+ * At most {@link #MAX_QUEUED_TASKS} resolves wait for a thread. Beyond that
+ * the prefetches are dropped, and the resources of the requested page are
+ * resolved by the browsing thread itself.
+ */
+public class DLNAResourceResolver {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DLNAResourceResolver.class);
+
+	/** The maximum time to wait for the resources of a page to be resolved */
+	private static final long TIMEOUT = 20000;
+	private static final int PRIORITY_VISIBLE = 0;
+	private static final int PRIORITY_PREFETCH = 1;
+
+	/** The most resolves waiting for a thread */
+	private static final int MAX_QUEUED_TASKS = 256;
+
+	/** The most resources of the next page to prefetch */
+	static final int MAX_PREFETCH = 32;
+
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+	private static final Map<DLNAResource, ResolveTask> IN_FLIGHT = new ConcurrentHashMap<>();
+	private static final LongAdder SUBMITTED = new LongAdder();
+	private static final LongAdder DEDUPLICATED = new LongAdder();
+	private static final LongAdder TIMED_OUT = new LongAdder();
+	private static final LongAdder DROPPED = new LongAdder();
+	private static final ThreadPoolExecutor EXECUTOR;
+
+	static {
+		UmsConfiguration configuration = PMS.getConfiguration();
+		int threads = configuration != null ? configuration.getResolverThreads() : Runtime.getRuntime().availableProcessors();
+		EXECUTOR = new ThreadPoolExecutor(
+			threads,
+			threads,
+			30,
+			TimeUnit.SECONDS,
+			new BoundedPriorityQueue<>(MAX_QUEUED_TASKS),
+			new BasicThreadFactory("DLNAResource resolver thread %d-%d")
+		);
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private DLNAResourceResolver() {
+	}
+
+	/**
+	 * Resolves the given resources, blocking until they are all resolved or
+	 * a timeout is reached. The {@code prefetch} resources are queued with a
+	 * lower priority and not waited for.
+	 *
+	 * @param visible the resources to resolve now.
+	 * @param prefetch the resources likely to be requested next.
+	 * @param sequential if {@code true}, resolves {@code visible} in the
+	 *            calling thread one after the other (some DVD drives die
+	 *            with parallel reads).
+	 */
+	public static void resolve(List<DLNAResource> visible, List<DLNAResource> prefetch, boolean sequential) {
+		if (sequential) {
+			for (DLNAResource resource : visible) {
+				resource.run();
+			}
+			return;
+		}
+
+		List<ResolveTask> tasks = new ArrayList<>(visible.size());
+		for (DLNAResource resource : visible) {
+			tasks.add(submit(resource, PRIORITY_VISIBLE));
+		}
+		for (DLNAResource resource : prefetch) {
+			submit(resource, PRIORITY_PREFETCH);
+		}
+
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		for (ResolveTask task : tasks) {
+			// Don't stay idle while the pool is busy: run queued tasks here
+			task.run();
+			long remaining = deadline - System.currentTimeMillis();
+			try {
+				if (remaining <= 0 || !task.await(remaining)) {
+					TIMED_OUT.increment();
+					LOGGER.debug("Timed out while waiting for {} to be resolved", task.resource.getDisplayName());
+					return;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private static ResolveTask submit(DLNAResource resource, int priority) {
+		ResolveTask task = new ResolveTask(resource, priority);
+		ResolveTask existing = IN_FLIGHT.putIfAbsent(resource, task);
+		if (existing != null) {
+			DEDUPLICATED.increment();
+			return existing;
+		}
+		try {
+			EXECUTOR.execute(task);
+			SUBMITTED.increment();
+		} catch (RejectedExecutionException e) {
+			if (priority == PRIORITY_PREFETCH) {
+				IN_FLIGHT.remove(resource, task);
+				DROPPED.increment();
+			}
+			// A visible resource is resolved by the caller of resolve()
+		}
+		return task;
+	}
+
+	/**
+	 * @return the number of resolves submitted to the pool.
+	 */
+	public static long getSubmittedCount() {
+		return SUBMITTED.sum();
+	}
+
+	/**
+	 * @return the number of resolves that joined one already in progress.
+	 */
+	public static long getDeduplicatedCount() {
+		return DEDUPLICATED.sum();
+	}
+
+	/**
+	 * @return the number of pages which weren't resolved in time.
+	 */
+	public static long getTimedOutCount() {
+		return TIMED_OUT.sum();
+	}
+
+	/**
+	 * @return the number of prefetches dropped because the queue was full.
+	 */
+	public static long getDroppedCount() {
+		return DROPPED.sum();
+	}
+
+	/**
+	 * @return the number of resolves waiting for a free thread.
+	 */
+	public static int getQueueSize() {
+		return EXECUTOR.getQueue().size();
+	}
+
+	/**
+	 * A priority queue that refuses elements beyond a capacity, so the
+	 * executor rejects them instead of queueing them forever.
+	 */
+	static class BoundedPriorityQueue<E> extends PriorityBlockingQueue<E> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		BoundedPriorityQueue(int capacity) {
+			this.capacity = capacity;
+		}
+
+		@Override
+		public synchronized boolean offer(E e) {
+			return size() < capacity && super.offer(e);
+		}
+
+		@Override
+		public int remainingCapacity() {
+			return Math.max(0, capacity - size());
+		}
+	}
+
+	private static class ResolveTask implements Runnable, Comparable<ResolveTask> {
+		private final DLNAResource resource;
+		private final int priority;
+		private final long sequence = SEQUENCE.incrementAndGet();
+		private final AtomicBoolean started = new AtomicBoolean();
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		private ResolveTask(DLNAResource resource, int priority) {
+			this.resource = resource;
+			this.priority = priority;
+		}
+
+		@Override
+		public void run() {
+			if (!started.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				ThumbnailGenerator.runWithPriority(
+					priority == PRIORITY_VISIBLE ? ThumbnailGenerator.Priority.VISIBLE : ThumbnailGenerator.Priority.PREFETCH,
+					resource
+				);
+			} finally {
+				IN_FLIGHT.remove(resource, this);
+				done.countDown();
+			}
+		}
+
+		private boolean await(long timeout) throws InterruptedException {
+			return done.await(timeout, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public int compareTo(ResolveTask other) {
+			if (priority != other.priority) {
+				return Integer.compare(priority, other.priority);
+			}
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+}
@@ -18,14 +18,20 @@ package net.pms.dlna;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.drew.metadata.Metadata;
+import net.pms.dlna.protocolinfo.MimeType;
 import net.pms.image.Image;
 import net.pms.image.ImageFormat;
 import net.pms.image.ImageInfo;
+import net.pms.image.ImageInfoCodec;
 import net.pms.image.ImagesUtil;
 import net.pms.image.ImagesUtil.ScaleType;
 import net.pms.util.ParseException;
@@ -43,13 +49,21 @@ public class DLNAThumbnail extends DLNAImage {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(DLNAImage.class);
 	/*
-	 * Please note: This class is packed and stored in the database. Any changes
-	 * to the data structure (fields) will invalidate any instances already
-	 * stored, and will require a wipe of all rows with a stored instance. The
+	 * Please note: This class is packed and stored in the database using
+	 * encode(). Any changes to the data structure (fields) must be reflected
+	 * there and in decode(), and ENCODING_VERSION must be bumped. The
 	 * serialVersionUID value below should also be bumped.
 	 */
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * The first byte of a {@link DLNAThumbnail} encoded with
+	 * {@link #encode()}. It can't be confused with the first byte of a Java
+	 * serialization stream ({@code 0xAC}).
+	 */
+	public static final byte ENCODING_MAGIC = 'T';
+	private static final byte ENCODING_VERSION = 1;
+
 	/**
 	 * Creates a new {@link DLNAThumbnail} instance.
 	 *
@@ -461,6 +475,98 @@ public class DLNAThumbnail extends DLNAImage {
 		);
 	}
 
+	/**
+	 * Encodes this {@link DLNAThumbnail} in a compact binary form suitable for
+	 * storing in the database.
+	 *
+	 * @return The encoded bytes.
+	 * @throws IOException If the operation fails.
+	 * @see #decode(byte[])
+	 */
+	public byte[] encode() throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes != null ? bytes.length + 128 : 128);
+		try (DataOutputStream out = new DataOutputStream(buffer)) {
+			out.writeByte(ENCODING_MAGIC);
+			out.writeByte(ENCODING_VERSION);
+			out.writeInt(profile.toInt());
+			out.writeInt(profile.getH());
+			out.writeInt(profile.getV());
+			out.writeBoolean(profile.mimeType != null);
+			if (profile.mimeType != null) {
+				out.writeUTF(profile.mimeType.toString());
+			}
+			out.writeBoolean(imageInfo != null);
+			if (imageInfo != null) {
+				ImageInfoCodec.write(out, imageInfo);
+			}
+			out.writeInt(bytes != null ? bytes.length : -1);
+			if (bytes != null) {
+				out.write(bytes);
+			}
+		}
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Checks whether {@code bytes} holds a {@link DLNAThumbnail} encoded with
+	 * {@link #encode()}.
+	 *
+	 * @param bytes the bytes to check.
+	 * @return {@code true} if {@code bytes} starts with
+	 *         {@link #ENCODING_MAGIC}, {@code false} otherwise.
+	 */
+	public static boolean isEncoded(byte[] bytes) {
+		return bytes != null && bytes.length > 1 && bytes[0] == ENCODING_MAGIC;
+	}
+
+	/**
+	 * Decodes a {@link DLNAThumbnail} encoded with {@link #encode()}.
+	 *
+	 * @param encoded the encoded bytes.
+	 * @return The decoded {@link DLNAThumbnail} or {@code null} if
+	 *         {@code encoded} is {@code null}.
+	 * @throws IOException If {@code encoded} isn't a valid encoding.
+	 */
+	public static DLNAThumbnail decode(byte[] encoded) throws IOException {
+		if (encoded == null) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+			if (in.readByte() != ENCODING_MAGIC) {
+				throw new IOException("Data isn't an encoded DLNAThumbnail");
+			}
+			byte version = in.readByte();
+			if (version != ENCODING_VERSION) {
+				throw new IOException("Unsupported DLNAThumbnail encoding version " + version);
+			}
+			int profileInt = in.readInt();
+			int horizontal = in.readInt();
+			int vertical = in.readInt();
+			MimeType mimeType = null;
+			if (in.readBoolean()) {
+				try {
+					mimeType = MimeType.valueOf(in.readUTF());
+				} catch (ParseException e) {
+					throw new IOException("Invalid mime-type: " + e.getMessage(), e);
+				}
+			}
+			DLNAImageProfile profile = profileInt == DLNAImageProfile.JPEG_RES_H_V_INT && horizontal > 0 ?
+				DLNAImageProfile.createJPEG_RES_H_V(horizontal, vertical, mimeType) :
+				DLNAImageProfile.toDLNAImageProfile(profileInt, mimeType);
+			if (profile == null) {
+				throw new IOException("Unknown DLNAImageProfile " + profileInt);
+			}
+			ImageInfo imageInfo = in.readBoolean() ? ImageInfoCodec.read(in) : null;
+			int length = in.readInt();
+			byte[] bytes = null;
+			if (length >= 0) {
+				bytes = new byte[length];
+				in.readFully(bytes);
+			}
+			return new DLNAThumbnail(bytes, imageInfo, profile, false);
+		}
+	}
+
 	@Override
 	public DLNAThumbnail copy() {
 		try {
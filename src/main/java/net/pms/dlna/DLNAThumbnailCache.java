@@ -0,0 +1,582 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import javax.annotation.concurrent.GuardedBy;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.database.MediaDatabase;
+import net.pms.database.MediaTableThumbnails;
+import net.pms.image.BufferedImageFilter;
+import net.pms.image.BufferedImageFilterChain;
+import net.pms.image.ImagesUtil;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Two-tier cache of the thumbnails transcoded by
+ * {@link DLNAThumbnailInputStream#transcode}, so that a grid view doesn't
+ * decode and encode every thumbnail again each time it is shown.
+ * <p>
+ * Transcoded thumbnails are keyed by the MD5 of the source thumbnail, like in
+ * {@link MediaTableThumbnails}, and by the output variant: the
+ * {@link DLNAImageProfile}, the padding and the filters. The most recently
+ * used ones are kept in memory up to
+ * {@link UmsConfiguration#getThumbnailCacheMemorySize()}, and they are stored
+ * on disk up to {@link UmsConfiguration#getThumbnailCacheDiskSize()}, the
+ * least recently used files being deleted first.
+ * <p>
+ * After a library scan, {@link #warm()} transcodes the thumbnails of the
+ * library to the unfiltered variants requested since the start, in the
+ * background.
+ */
+public class DLNAThumbnailCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DLNAThumbnailCache.class);
+	private static final String EXTENSION = ".thumb";
+	private static final int MAX_VARIANTS = 8;
+	private static final int WARM_PAGE_SIZE = 100;
+	private static final long MEGABYTE = 1024L * 1024L;
+
+	private static final LongAdder MEMORY_HITS = new LongAdder();
+	private static final LongAdder DISK_HITS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+	private static final LongAdder BYTES_SAVED = new LongAdder();
+
+	@GuardedBy("MEMORY")
+	private static final LinkedHashMap<String, DLNAThumbnail> MEMORY = new LinkedHashMap<>(256, 0.75f, true);
+
+	@GuardedBy("MEMORY")
+	private static long memoryBytes;
+
+	/** The unfiltered variants requested by the renderers, to warm */
+	@GuardedBy("VARIANTS")
+	private static final Map<String, Variant> VARIANTS = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Variant> eldest) {
+			return size() > MAX_VARIANTS;
+		}
+	};
+
+	/** The size of the disk cache, or -1 until it has been measured */
+	private static final AtomicLong DISK_BYTES = new AtomicLong(-1);
+	private static final AtomicBoolean TRIMMING = new AtomicBoolean();
+	private static final AtomicBoolean WARMING = new AtomicBoolean();
+	private static volatile boolean warmingStopped;
+
+	private static volatile long maxMemoryBytes;
+	private static volatile long maxDiskBytes;
+	private static volatile Path folder;
+
+	static {
+		UmsConfiguration configuration = PMS.getConfiguration();
+		if (configuration != null) {
+			maxMemoryBytes = configuration.getThumbnailCacheMemorySize() * MEGABYTE;
+			maxDiskBytes = configuration.getThumbnailCacheDiskSize() * MEGABYTE;
+			folder = Paths.get(configuration.getDataFile("thumbnails"));
+		}
+	}
+
+	/**
+	 * An output variant of the thumbnails.
+	 */
+	private record Variant(DLNAImageProfile profile, boolean padToSize, String filters) {
+		private String getId() {
+			StringBuilder sb = new StringBuilder(profile.toString());
+			sb.append('_').append(profile.getH()).append('x').append(profile.getV());
+			if (padToSize) {
+				sb.append("_padded");
+			}
+			if (!filters.isEmpty()) {
+				sb.append('_').append(filters);
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private DLNAThumbnailCache() {
+	}
+
+	/**
+	 * Returns the thumbnail {@code source} transcoded to
+	 * {@code outputProfile}, from the cache if possible.
+	 *
+	 * @param source the thumbnail to transcode.
+	 * @param outputProfile the DLNA media profile to adhere to for the output.
+	 * @param padToSize Whether padding should be used if source aspect doesn't
+	 *            match target aspect.
+	 * @param filterChain a {@link BufferedImageFilterChain} to apply during the
+	 *            operation or {@code null}.
+	 * @return The transcoded thumbnail or {@code null}.
+	 * @throws IOException if the transcoding fails.
+	 */
+	static DLNAThumbnail transcode(
+		byte[] source,
+		DLNAImageProfile outputProfile,
+		boolean padToSize,
+		BufferedImageFilterChain filterChain
+	) throws IOException {
+		if (source == null || outputProfile == null || (maxMemoryBytes == 0 && maxDiskBytes == 0)) {
+			return transcodeImage(source, outputProfile, padToSize, filterChain);
+		}
+
+		Variant variant = new Variant(outputProfile, padToSize, getDescription(filterChain));
+		String variantId = variant.getId();
+		if (variant.filters().isEmpty()) {
+			synchronized (VARIANTS) {
+				VARIANTS.put(variantId, variant);
+			}
+		}
+		String key = getKey(DigestUtils.md5Hex(source), variantId);
+
+		DLNAThumbnail thumbnail = getFromMemory(key);
+		if (thumbnail != null) {
+			MEMORY_HITS.increment();
+			BYTES_SAVED.add(thumbnail.getSize());
+			return thumbnail;
+		}
+		thumbnail = readFromDisk(key);
+		if (thumbnail != null) {
+			DISK_HITS.increment();
+			BYTES_SAVED.add(thumbnail.getSize());
+			putInMemory(key, thumbnail);
+			return thumbnail;
+		}
+
+		MISSES.increment();
+		thumbnail = transcodeImage(source, outputProfile, padToSize, filterChain);
+		if (thumbnail != null) {
+			putInMemory(key, thumbnail);
+			writeToDisk(key, thumbnail);
+		}
+		return thumbnail;
+	}
+
+	/**
+	 * Starts transcoding the thumbnails of the library to the unfiltered
+	 * variants requested since the start on a background thread, skipping
+	 * those already on disk. If it is already running, a previous
+	 * {@link #stopWarming()} is cancelled.
+	 * <p>
+	 * Warming stops once the disk cache is at the size it is trimmed to, so
+	 * the warmed thumbnails never evict the ones that were requested.
+	 */
+	public static void warm() {
+		if (maxDiskBytes == 0) {
+			return;
+		}
+		List<Variant> variants;
+		synchronized (VARIANTS) {
+			variants = new ArrayList<>(VARIANTS.values());
+		}
+		if (variants.isEmpty()) {
+			return;
+		}
+		warmingStopped = false;
+		if (!WARMING.compareAndSet(false, true)) {
+			return;
+		}
+		Thread thread = new Thread(() -> {
+			try {
+				warm(variants);
+			} finally {
+				WARMING.set(false);
+			}
+		}, "Thumbnail cache warmer");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * Stops warming the cache after the current thumbnail.
+	 */
+	public static void stopWarming() {
+		warmingStopped = true;
+	}
+
+	/**
+	 * Removes all thumbnails from the memory cache.
+	 */
+	public static void clear() {
+		synchronized (MEMORY) {
+			MEMORY.clear();
+			memoryBytes = 0;
+		}
+	}
+
+	/**
+	 * Sets the maximum sizes of the cache, evicting the least recently used
+	 * thumbnails from memory if needed.
+	 *
+	 * @param memory the maximum size in memory in bytes, 0 to disable it.
+	 * @param disk the maximum size on disk in bytes, 0 to disable it.
+	 */
+	public static void setMaxSizes(long memory, long disk) {
+		maxDiskBytes = Math.max(0, disk);
+		synchronized (MEMORY) {
+			maxMemoryBytes = Math.max(0, memory);
+			evictFromMemory();
+		}
+	}
+
+	/**
+	 * Sets the folder of the disk cache.
+	 *
+	 * @param path the folder.
+	 */
+	static void setFolder(Path path) {
+		folder = path;
+		DISK_BYTES.set(-1);
+	}
+
+	/**
+	 * @return The number of thumbnails served from memory.
+	 */
+	public static long getMemoryHits() {
+		return MEMORY_HITS.sum();
+	}
+
+	/**
+	 * @return The number of thumbnails served from disk.
+	 */
+	public static long getDiskHits() {
+		return DISK_HITS.sum();
+	}
+
+	/**
+	 * @return The number of thumbnails that had to be transcoded.
+	 */
+	public static long getMisses() {
+		return MISSES.sum();
+	}
+
+	/**
+	 * @return The ratio of thumbnails served from the cache, between 0 and 1.
+	 */
+	public static double getHitRate() {
+		long hits = MEMORY_HITS.sum() + DISK_HITS.sum();
+		long total = hits + MISSES.sum();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * @return The size in bytes of the thumbnails served from the cache
+	 *         instead of being transcoded again.
+	 */
+	public static long getBytesSaved() {
+		return BYTES_SAVED.sum();
+	}
+
+	private static DLNAThumbnail transcodeImage(
+		byte[] source,
+		DLNAImageProfile outputProfile,
+		boolean padToSize,
+		BufferedImageFilterChain filterChain
+	) throws IOException {
+		return (DLNAThumbnail) ImagesUtil.transcodeImage(
+			source,
+			outputProfile,
+			true,
+			padToSize,
+			filterChain
+		);
+	}
+
+	private static String getDescription(BufferedImageFilterChain filterChain) {
+		if (filterChain == null || filterChain.isEmpty()) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (BufferedImageFilter filter : filterChain) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(filter.getDescription());
+		}
+		return sb.toString();
+	}
+
+	private static String getKey(String sourceMd5, String variantId) {
+		return sourceMd5 + "-" + DigestUtils.md5Hex(variantId);
+	}
+
+	private static Path getPath(String key) {
+		return folder.resolve(key.substring(0, 2)).resolve(key + EXTENSION);
+	}
+
+	private static DLNAThumbnail getFromMemory(String key) {
+		synchronized (MEMORY) {
+			return MEMORY.get(key);
+		}
+	}
+
+	private static void putInMemory(String key, DLNAThumbnail thumbnail) {
+		synchronized (MEMORY) {
+			if (maxMemoryBytes == 0) {
+				return;
+			}
+			DLNAThumbnail previous = MEMORY.put(key, thumbnail);
+			if (previous != null) {
+				memoryBytes -= previous.getSize();
+			}
+			memoryBytes += thumbnail.getSize();
+			evictFromMemory();
+		}
+	}
+
+	@GuardedBy("MEMORY")
+	private static void evictFromMemory() {
+		Iterator<DLNAThumbnail> iterator = MEMORY.values().iterator();
+		while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+			memoryBytes -= iterator.next().getSize();
+			iterator.remove();
+		}
+	}
+
+	private static DLNAThumbnail readFromDisk(String key) {
+		if (maxDiskBytes == 0 || folder == null) {
+			return null;
+		}
+		Path path = getPath(key);
+		try {
+			DLNAThumbnail thumbnail = DLNAThumbnail.decode(Files.readAllBytes(path));
+			// The modified time orders the files for the trimming
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+			return thumbnail;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			LOGGER.debug("Deleting unreadable cached thumbnail \"{}\": {}", path, e.getMessage());
+			try {
+				Files.deleteIfExists(path);
+			} catch (IOException e2) {
+				LOGGER.trace("", e2);
+			}
+			return null;
+		}
+	}
+
+	private static void writeToDisk(String key, DLNAThumbnail thumbnail) {
+		if (maxDiskBytes == 0 || folder == null) {
+			return;
+		}
+		Path path = getPath(key);
+		Path temporary = path.resolveSibling(key + "." + Thread.currentThread().getId() + ".tmp");
+		try {
+			byte[] bytes = thumbnail.encode();
+			Files.createDirectories(path.getParent());
+			Files.write(temporary, bytes);
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			long diskBytes = DISK_BYTES.get() < 0 ? -1 : DISK_BYTES.addAndGet(bytes.length);
+			if (diskBytes < 0 || diskBytes > maxDiskBytes) {
+				trim();
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Failed to store the transcoded thumbnail \"{}\": {}", path, e.getMessage());
+			LOGGER.trace("", e);
+			try {
+				Files.deleteIfExists(temporary);
+			} catch (IOException e2) {
+				LOGGER.trace("", e2);
+			}
+		}
+	}
+
+	/**
+	 * Measures the disk cache and deletes the least recently used files until
+	 * it is below 90% of its maximum size, on a background thread.
+	 */
+	private static void trim() {
+		if (!TRIMMING.compareAndSet(false, true)) {
+			return;
+		}
+		Thread thread = new Thread(() -> {
+			try {
+				trim(folder, maxDiskBytes);
+			} finally {
+				TRIMMING.set(false);
+			}
+		}, "Thumbnail cache trimmer");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	private record CachedFile(Path path, long lastModified, long size) {
+	}
+
+	private static void trim(Path path, long maxBytes) {
+		List<CachedFile> files = new ArrayList<>();
+		long total = 0;
+		try (Stream<Path> stream = Files.walk(path)) {
+			for (Iterator<Path> iterator = stream.iterator(); iterator.hasNext();) {
+				Path file = iterator.next();
+				if (!file.getFileName().toString().endsWith(EXTENSION)) {
+					continue;
+				}
+				try {
+					BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+					files.add(new CachedFile(file, attributes.lastModifiedTime().toMillis(), attributes.size()));
+					total += attributes.size();
+				} catch (IOException e) {
+					// Deleted meanwhile
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			LOGGER.debug("Failed to measure the thumbnail cache: {}", e.getMessage());
+			LOGGER.trace("", e);
+			return;
+		}
+
+		if (total > maxBytes) {
+			long target = maxBytes / 10 * 9;
+			int deleted = 0;
+			files.sort(Comparator.comparingLong(CachedFile::lastModified));
+			for (CachedFile file : files) {
+				if (total <= target) {
+					break;
+				}
+				try {
+					Files.deleteIfExists(file.path());
+					total -= file.size();
+					deleted++;
+				} catch (IOException e) {
+					LOGGER.trace("Failed to delete cached thumbnail \"{}\": {}", file.path(), e.getMessage());
+				}
+			}
+			LOGGER.debug("Deleted {} least recently used thumbnails from the thumbnail cache", deleted);
+		}
+		DISK_BYTES.set(total);
+	}
+
+	/**
+	 * Measures the disk cache if its size is unknown.
+	 */
+	static void measure() {
+		if (DISK_BYTES.get() < 0 && folder != null && TRIMMING.compareAndSet(false, true)) {
+			try {
+				trim(folder, maxDiskBytes);
+			} finally {
+				TRIMMING.set(false);
+			}
+		}
+	}
+
+	/**
+	 * @return whether the disk cache is at the size it is trimmed to, or its
+	 *         size is unknown.
+	 */
+	static boolean isDiskBudgetReached() {
+		long diskBytes = DISK_BYTES.get();
+		return diskBytes < 0 || diskBytes >= maxDiskBytes / 10 * 9;
+	}
+
+	/**
+	 * Warms the cache a page of thumbnails at a time. A connection is only
+	 * held while a page is read, not while its thumbnails are transcoded.
+	 */
+	private static void warm(List<Variant> variants) {
+		long start = System.nanoTime();
+		int lastId = 0;
+		int transcoded = 0;
+		measure();
+		boolean full = isDiskBudgetReached();
+		while (!warmingStopped && !full) {
+			Map<Integer, DLNAThumbnail> page;
+			Connection connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection == null) {
+				break;
+			}
+			try {
+				page = MediaTableThumbnails.getThumbnailsAfterId(connection, lastId, WARM_PAGE_SIZE);
+			} finally {
+				MediaDatabase.close(connection);
+			}
+			if (page.isEmpty()) {
+				break;
+			}
+			for (Map.Entry<Integer, DLNAThumbnail> entry : page.entrySet()) {
+				if (warmingStopped || full) {
+					break;
+				}
+				lastId = entry.getKey();
+				byte[] source = entry.getValue() != null ? entry.getValue().getBytes(false) : null;
+				if (source == null) {
+					continue;
+				}
+				String sourceMd5 = DigestUtils.md5Hex(source);
+				for (Variant variant : variants) {
+					if (warmingStopped || full) {
+						break;
+					}
+					String key = getKey(sourceMd5, variant.getId());
+					if (Files.exists(getPath(key))) {
+						continue;
+					}
+					// Yield to the renderers
+					PMS.REALTIME_LOCK.lock();
+					PMS.REALTIME_LOCK.unlock();
+					try {
+						DLNAThumbnail thumbnail = transcodeImage(source, variant.profile(), variant.padToSize(), null);
+						if (thumbnail != null) {
+							writeToDisk(key, thumbnail);
+							transcoded++;
+							full = isDiskBudgetReached();
+						}
+					} catch (IOException | RuntimeException e) {
+						LOGGER.debug("Failed to transcode thumbnail {} to {}: {}", lastId, variant.getId(), e.getMessage());
+						LOGGER.trace("", e);
+					}
+				}
+			}
+		}
+		LOGGER.debug(
+			"{} the thumbnail cache with {} thumbnails in {} ms, hit rate {}%, {} bytes saved",
+			warmingStopped ? "Stopped warming" : full ? "Filled" : "Warmed",
+			transcoded,
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+			Math.round(getHitRate() * 100),
+			getBytesSaved()
+		);
+	}
+}
@@ -25,7 +25,6 @@ import net.pms.image.BufferedImageFilterChain;
 import net.pms.image.ColorSpaceType;
 import net.pms.image.ImageFormat;
 import net.pms.image.ImageInfo;
-import net.pms.image.ImagesUtil;
 import net.pms.image.ImagesUtil.ScaleType;
 
 /**
@@ -192,7 +191,8 @@ public class DLNAThumbnailInputStream extends ByteArrayInputStream {
 	/**
 	 * Converts and scales a thumbnail according to the given
 	 * {@link DLNAImageProfile}. Preserves aspect ratio. Format support is
-	 * limited to that of {@link ImageIO}.
+	 * limited to that of {@link ImageIO}. The result is cached by
+	 * {@link DLNAThumbnailCache}.
 	 *
 	 * @param outputProfile the DLNA media profile to adhere to for the output.
 	 * @param padToSize Whether padding should be used if source aspect doesn't
@@ -208,11 +208,9 @@ public class DLNAThumbnailInputStream extends ByteArrayInputStream {
 		boolean padToSize,
 		BufferedImageFilterChain filterChain
 	) throws IOException {
-		DLNAThumbnail thumbnail;
-		thumbnail = (DLNAThumbnail) ImagesUtil.transcodeImage(
+		DLNAThumbnail thumbnail = DLNAThumbnailCache.transcode(
 			this.getBytes(false),
 			outputProfile,
-			true,
 			padToSize,
 			filterChain
 		);
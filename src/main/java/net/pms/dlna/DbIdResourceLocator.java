@@ -21,9 +21,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
@@ -31,6 +29,8 @@ import org.slf4j.LoggerFactory;
 import net.pms.Messages;
 import net.pms.PMS;
 import net.pms.database.MediaDatabase;
+import net.pms.database.MediaLibraryQueries;
+import net.pms.database.MediaLibraryQueries.QueryResult;
 import net.pms.database.MediaTableAudiotracks;
 import net.pms.database.MediaTableFiles;
 import net.pms.database.MediaTableMusicBrainzReleaseLike;
@@ -80,197 +80,186 @@ public class DbIdResourceLocator {
 		try {
 			connection = MediaDatabase.getConnectionIfAvailable();
 			if (connection != null) {
-				try (Statement statement = connection.createStatement()) {
-					String sql;
-					switch (typeAndIdent.type) {
-						case TYPE_AUDIO, TYPE_VIDEO, TYPE_IMAGE -> {
-							sql = String.format("SELECT " + MediaTableFiles.TABLE_COL_FILENAME + " FROM " + MediaTableFiles.TABLE_NAME + " WHERE " + MediaTableFiles.TABLE_COL_ID + " = %s", typeAndIdent.ident);
-							if (LOGGER.isTraceEnabled()) {
-								LOGGER.trace(String.format("SQL AUDIO/VIDEO/IMAGE : %s", sql));
-							}
-							try (ResultSet resultSet = statement.executeQuery(sql)) {
-								if (resultSet.next()) {
-									res = new RealFileDbId(new File(resultSet.getString("FILENAME")));
-									res.setDefaultRenderer(renderer);
-									res.resolve();
-								}
-							}
+				String sql;
+				switch (typeAndIdent.type) {
+					case TYPE_AUDIO, TYPE_VIDEO, TYPE_IMAGE -> {
+						sql = "SELECT " + MediaTableFiles.TABLE_COL_FILENAME + " FROM " + MediaTableFiles.TABLE_NAME + " WHERE " + MediaTableFiles.TABLE_COL_ID + " = ?";
+						if (LOGGER.isTraceEnabled()) {
+							LOGGER.trace(String.format("SQL AUDIO/VIDEO/IMAGE : %s [%s]", sql, typeAndIdent.ident));
 						}
-						case TYPE_PLAYLIST -> {
-							sql = String.format("SELECT " + MediaTableFiles.TABLE_COL_FILENAME + " FROM " + MediaTableFiles.TABLE_NAME + " WHERE " + MediaTableFiles.TABLE_COL_ID + " = %s", typeAndIdent.ident);
-							if (LOGGER.isTraceEnabled()) {
-								LOGGER.trace(String.format("SQL PLAYLIST : %s", sql));
-							}
-							try (ResultSet resultSet = statement.executeQuery(sql)) {
-								if (resultSet.next()) {
-									res = new PlaylistFolder(new File(resultSet.getString("FILENAME")));
-									res.setDefaultRenderer(renderer);
-									res.setId(String.format("$DBID$PLAYLIST$%s", typeAndIdent.ident));
-									res.resolve();
-									res.refreshChildren();
-								}
+						try (QueryResult resultSet = MediaLibraryQueries.executeQuery(connection, sql, typeAndIdent.ident)) {
+							if (resultSet.next()) {
+								res = new RealFileDbId(new File(resultSet.getString("FILENAME")));
+								res.setDefaultRenderer(renderer);
+								res.resolve();
 							}
 						}
-						case TYPE_ALBUM -> {
-							sql = String.format(
-									"SELECT " + MediaTableFiles.TABLE_COL_FILENAME + ", " + MediaTableFiles.TABLE_COL_ID + ", " + MediaTableFiles.TABLE_COL_MODIFIED + " FROM " + MediaTableFiles.TABLE_NAME + " LEFT OUTER JOIN " + MediaTableAudiotracks.TABLE_NAME + " ON " + MediaTableFiles.TABLE_COL_ID + " = " + MediaTableAudiotracks.TABLE_COL_FILEID + " " +
-											"WHERE ( " + MediaTableFiles.TABLE_COL_FORMAT_TYPE + " = 1  AND  " + MediaTableAudiotracks.TABLE_COL_ALBUM + " = '%s')",
-									typeAndIdent.ident);
-							if (LOGGER.isTraceEnabled()) {
-								LOGGER.trace(String.format("SQL AUDIO-ALBUM : %s", sql));
-							}
-							try (ResultSet resultSet = statement.executeQuery(sql)) {
-								res = new VirtualFolderDbId(typeAndIdent.ident,
-									new DbIdTypeAndIdent(DbIdMediaType.TYPE_ALBUM, typeAndIdent.ident), "");
+					}
+					case TYPE_PLAYLIST -> {
+						sql = "SELECT " + MediaTableFiles.TABLE_COL_FILENAME + " FROM " + MediaTableFiles.TABLE_NAME + " WHERE " + MediaTableFiles.TABLE_COL_ID + " = ?";
+						if (LOGGER.isTraceEnabled()) {
+							LOGGER.trace(String.format("SQL PLAYLIST : %s [%s]", sql, typeAndIdent.ident));
+						}
+						try (QueryResult resultSet = MediaLibraryQueries.executeQuery(connection, sql, typeAndIdent.ident)) {
+							if (resultSet.next()) {
+								res = new PlaylistFolder(new File(resultSet.getString("FILENAME")));
 								res.setDefaultRenderer(renderer);
-								while (resultSet.next()) {
-									DLNAResource item = new RealFileDbId(
-											new DbIdTypeAndIdent(DbIdMediaType.TYPE_AUDIO, resultSet.getString("ID")),
-											new File(resultSet.getString("FILENAME")));
-									item.resolve();
-									res.addChild(item);
-								}
+								res.setId(String.format("$DBID$PLAYLIST$%s", typeAndIdent.ident));
+								res.resolve();
+								res.refreshChildren();
 							}
 						}
-						case TYPE_MUSICBRAINZ_RECORDID -> {
-							sql = String.format(
-									"SELECT " + MediaTableFiles.TABLE_COL_FILENAME + ", " + MediaTableAudiotracks.TABLE_COL_MBID_TRACK + ", " + MediaTableFiles.TABLE_COL_ID + ", " + MediaTableAudiotracks.TABLE_COL_ALBUM + " FROM " + MediaTableFiles.TABLE_NAME + " LEFT OUTER JOIN " + MediaTableAudiotracks.TABLE_NAME + " ON " + MediaTableFiles.TABLE_COL_ID + " = " + MediaTableAudiotracks.TABLE_COL_FILEID + " " +
-											"WHERE ( " + MediaTableFiles.TABLE_COL_FORMAT_TYPE + " = 1 and " + MediaTableAudiotracks.TABLE_COL_MBID_RECORD + " = '%s' ) ORDER BY " + MediaTableAudiotracks.TABLE_COL_MBID_TRACK,
-									typeAndIdent.ident);
-							if (LOGGER.isTraceEnabled()) {
-								LOGGER.trace(String.format("SQL TYPE_MUSICBRAINZ_RECORDID : %s", sql));
-							}
-							try (ResultSet resultSet = statement.executeQuery(sql)) {
-								if (resultSet.next()) {
-									res = new VirtualFolderDbId(resultSet.getString("ALBUM"),
-										new DbIdTypeAndIdent(DbIdMediaType.TYPE_MUSICBRAINZ_RECORDID, typeAndIdent.ident), "");
-									res.setDefaultRenderer(renderer);
-									res.setFakeParentId(encodeDbid(new DbIdTypeAndIdent(DbIdMediaType.TYPE_MYMUSIC_ALBUM, Messages.getString("MyAlbums"))));
-									// Find "best track" logic should be optimized !!
-									String lastUuidTrack = "";
-									do {
-										String currentUuidTrack = resultSet.getString("MBID_TRACK");
-										if (!currentUuidTrack.equals(lastUuidTrack)) {
-											lastUuidTrack = currentUuidTrack;
-											DLNAResource item = new RealFileDbId(
-													new DbIdTypeAndIdent(DbIdMediaType.TYPE_AUDIO, resultSet.getString("ID")),
-													new File(resultSet.getString("FILENAME")));
-											item.resolve();
-											res.addChild(item);
-										}
-									} while (resultSet.next());
-								}
-							}
+					}
+					case TYPE_ALBUM -> {
+						sql = "SELECT " + MediaTableFiles.TABLE_COL_FILENAME + ", " + MediaTableFiles.TABLE_COL_ID + ", " + MediaTableFiles.TABLE_COL_MODIFIED + " FROM " + MediaTableFiles.TABLE_NAME + " LEFT OUTER JOIN " + MediaTableAudiotracks.TABLE_NAME + " ON " + MediaTableFiles.TABLE_COL_ID + " = " + MediaTableAudiotracks.TABLE_COL_FILEID + " " +
+								"WHERE ( " + MediaTableFiles.TABLE_COL_FORMAT_TYPE + " = 1  AND  " + MediaTableAudiotracks.TABLE_COL_ALBUM + " = ?)";
+						if (LOGGER.isTraceEnabled()) {
+							LOGGER.trace(String.format("SQL AUDIO-ALBUM : %s [%s]", sql, typeAndIdent.ident));
 						}
-						case TYPE_MYMUSIC_ALBUM -> {
-							sql = "SELECT " + MediaTableMusicBrainzReleaseLike.TABLE_COL_MBID_RELEASE + ", " + MediaTableAudiotracks.TABLE_COL_ALBUM + ", " + MediaTableAudiotracks.TABLE_COL_ARTIST + ", " + MediaTableAudiotracks.TABLE_COL_MEDIA_YEAR + " FROM " + MediaTableMusicBrainzReleaseLike.TABLE_NAME + " JOIN " + MediaTableAudiotracks.TABLE_NAME + " ON " + MediaTableMusicBrainzReleaseLike.TABLE_COL_MBID_RELEASE + " = " + MediaTableAudiotracks.TABLE_COL_MBID_RECORD + ";";
-							if (LOGGER.isTraceEnabled()) {
-								LOGGER.trace(String.format("SQL TYPE_MYMUSIC_ALBUM : %s", sql));
-							}
-							DoubleRecordFilter filter = new DoubleRecordFilter();
-							res = new VirtualFolderDbId(
-								Messages.getString("MyAlbums"),
-								new DbIdTypeAndIdent(DbIdMediaType.TYPE_MYMUSIC_ALBUM, Messages.getString("MyAlbums")),
-								"");
+						try (QueryResult resultSet = MediaLibraryQueries.executeQuery(connection, sql, typeAndIdent.ident)) {
+							res = new VirtualFolderDbId(typeAndIdent.ident,
+								new DbIdTypeAndIdent(DbIdMediaType.TYPE_ALBUM, typeAndIdent.ident), "");
 							res.setDefaultRenderer(renderer);
-							if (PMS.getConfiguration().displayAudioLikesInRootFolder()) {
-								res.setFakeParentId("0");
-							} else if (PMS.get().getLibrary().isEnabled()) {
-								res.setFakeParentId(PMS.get().getLibrary().getAudioFolder().getId());
-							} else {
-								LOGGER.debug("couldn't add 'My Music' folder because the media library is not initialized.");
-								return null;
+							while (resultSet.next()) {
+								DLNAResource item = new RealFileDbId(
+										new DbIdTypeAndIdent(DbIdMediaType.TYPE_AUDIO, resultSet.getString("ID")),
+										new File(resultSet.getString("FILENAME")));
+								item.resolve();
+								res.addChild(item);
 							}
-							try (ResultSet resultSet = statement.executeQuery(sql)) {
-								while (resultSet.next()) {
-									filter.addAlbum(new MusicBrainzAlbum(
-											resultSet.getString("MBID_RELEASE"),
-											resultSet.getString("ALBUM"),
-											resultSet.getString("ARTIST"),
-											resultSet.getInt("MEDIA_YEAR")));
-								}
-								for (MusicBrainzAlbum album : filter.getUniqueAlbumSet()) {
-									VirtualFolderDbId albumFolder = new VirtualFolderDbId(album.getAlbum(), new DbIdTypeAndIdent(
-											DbIdMediaType.TYPE_MUSICBRAINZ_RECORDID,
-											album.getMbReleaseid()), "");
-									appendAlbumInformation(album, albumFolder);
-									res.addChild(albumFolder);
-								}
+						}
+					}
+					case TYPE_MUSICBRAINZ_RECORDID -> {
+						sql = "SELECT " + MediaTableFiles.TABLE_COL_FILENAME + ", " + MediaTableAudiotracks.TABLE_COL_MBID_TRACK + ", " + MediaTableFiles.TABLE_COL_ID + ", " + MediaTableAudiotracks.TABLE_COL_ALBUM + " FROM " + MediaTableFiles.TABLE_NAME + " LEFT OUTER JOIN " + MediaTableAudiotracks.TABLE_NAME + " ON " + MediaTableFiles.TABLE_COL_ID + " = " + MediaTableAudiotracks.TABLE_COL_FILEID + " " +
+								"WHERE ( " + MediaTableFiles.TABLE_COL_FORMAT_TYPE + " = 1 and " + MediaTableAudiotracks.TABLE_COL_MBID_RECORD + " = ? ) ORDER BY " + MediaTableAudiotracks.TABLE_COL_MBID_TRACK;
+						if (LOGGER.isTraceEnabled()) {
+							LOGGER.trace(String.format("SQL TYPE_MUSICBRAINZ_RECORDID : %s [%s]", sql, typeAndIdent.ident));
+						}
+						try (QueryResult resultSet = MediaLibraryQueries.executeQuery(connection, sql, typeAndIdent.ident)) {
+							if (resultSet.next()) {
+								res = new VirtualFolderDbId(resultSet.getString("ALBUM"),
+									new DbIdTypeAndIdent(DbIdMediaType.TYPE_MUSICBRAINZ_RECORDID, typeAndIdent.ident), "");
+								res.setDefaultRenderer(renderer);
+								res.setFakeParentId(encodeDbid(new DbIdTypeAndIdent(DbIdMediaType.TYPE_MYMUSIC_ALBUM, Messages.getString("MyAlbums"))));
+								// Find "best track" logic should be optimized !!
+								String lastUuidTrack = "";
+								do {
+									String currentUuidTrack = resultSet.getString("MBID_TRACK");
+									if (!currentUuidTrack.equals(lastUuidTrack)) {
+										lastUuidTrack = currentUuidTrack;
+										DLNAResource item = new RealFileDbId(
+												new DbIdTypeAndIdent(DbIdMediaType.TYPE_AUDIO, resultSet.getString("ID")),
+												new File(resultSet.getString("FILENAME")));
+										item.resolve();
+										res.addChild(item);
+									}
+								} while (resultSet.next());
 							}
 						}
-						case TYPE_PERSON_ALL_FILES -> {
-							sql = String.format(
-									"SELECT " + MediaTableFiles.TABLE_COL_FILENAME + ", " + MediaTableFiles.TABLE_COL_ID + ", " + MediaTableFiles.TABLE_COL_MODIFIED + " FROM " + MediaTableFiles.TABLE_NAME + " LEFT OUTER JOIN " + MediaTableAudiotracks.TABLE_NAME + " ON " + MediaTableFiles.TABLE_COL_ID + " = " + MediaTableAudiotracks.TABLE_COL_FILEID + " " +
-											"WHERE (" + MediaTableAudiotracks.TABLE_COL_ALBUMARTIST + " = '%s' OR " + MediaTableAudiotracks.TABLE_COL_ARTIST + " = '%s')",
-									typeAndIdent.ident, typeAndIdent.ident);
-							if (LOGGER.isTraceEnabled()) {
-								LOGGER.trace(String.format("SQL PERSON : %s", sql));
+					}
+					case TYPE_MYMUSIC_ALBUM -> {
+						sql = "SELECT " + MediaTableMusicBrainzReleaseLike.TABLE_COL_MBID_RELEASE + ", " + MediaTableAudiotracks.TABLE_COL_ALBUM + ", " + MediaTableAudiotracks.TABLE_COL_ARTIST + ", " + MediaTableAudiotracks.TABLE_COL_MEDIA_YEAR + " FROM " + MediaTableMusicBrainzReleaseLike.TABLE_NAME + " JOIN " + MediaTableAudiotracks.TABLE_NAME + " ON " + MediaTableMusicBrainzReleaseLike.TABLE_COL_MBID_RELEASE + " = " + MediaTableAudiotracks.TABLE_COL_MBID_RECORD;
+						if (LOGGER.isTraceEnabled()) {
+							LOGGER.trace(String.format("SQL TYPE_MYMUSIC_ALBUM : %s", sql));
+						}
+						DoubleRecordFilter filter = new DoubleRecordFilter();
+						res = new VirtualFolderDbId(
+							Messages.getString("MyAlbums"),
+							new DbIdTypeAndIdent(DbIdMediaType.TYPE_MYMUSIC_ALBUM, Messages.getString("MyAlbums")),
+							"");
+						res.setDefaultRenderer(renderer);
+						if (PMS.getConfiguration().displayAudioLikesInRootFolder()) {
+							res.setFakeParentId("0");
+						} else if (PMS.get().getLibrary().isEnabled()) {
+							res.setFakeParentId(PMS.get().getLibrary().getAudioFolder().getId());
+						} else {
+							LOGGER.debug("couldn't add 'My Music' folder because the media library is not initialized.");
+							return null;
+						}
+						try (QueryResult resultSet = MediaLibraryQueries.executeQuery(connection, sql)) {
+							while (resultSet.next()) {
+								filter.addAlbum(new MusicBrainzAlbum(
+										resultSet.getString("MBID_RELEASE"),
+										resultSet.getString("ALBUM"),
+										resultSet.getString("ARTIST"),
+										resultSet.getInt("MEDIA_YEAR")));
 							}
-							try (ResultSet resultSet = statement.executeQuery(sql)) {
-								res = new VirtualFolderDbId(typeAndIdent.ident,
-									new DbIdTypeAndIdent(DbIdMediaType.TYPE_ALBUM, typeAndIdent.ident), "");
-								res.setDefaultRenderer(renderer);
-								while (resultSet.next()) {
-									DLNAResource item = new RealFileDbId(
-											new DbIdTypeAndIdent(DbIdMediaType.TYPE_AUDIO, resultSet.getString("ID")),
-											new File(resultSet.getString("FILENAME")));
-									item.resolve();
-									res.addChild(item);
-								}
+							for (MusicBrainzAlbum album : filter.getUniqueAlbumSet()) {
+								VirtualFolderDbId albumFolder = new VirtualFolderDbId(album.getAlbum(), new DbIdTypeAndIdent(
+										DbIdMediaType.TYPE_MUSICBRAINZ_RECORDID,
+										album.getMbReleaseid()), "");
+								appendAlbumInformation(album, albumFolder);
+								res.addChild(albumFolder);
 							}
-							res.setFakeParentId(encodeDbid(new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON, typeAndIdent.ident)));
 						}
-						case TYPE_PERSON -> {
-							res = new VirtualFolderDbId(typeAndIdent.ident, new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON, typeAndIdent.ident),
-								"");
-							res.setDefaultRenderer(renderer);
-							DLNAResource allFiles = new VirtualFolderDbId(Messages.getString("AllFiles"),
-									new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON_ALL_FILES, typeAndIdent.ident), "");
-							res.addChild(allFiles);
-							DLNAResource albums = new VirtualFolderDbId(Messages.getString("ByAlbum_lowercase"),
-									new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON_ALBUM, typeAndIdent.ident), "");
-							res.addChild(albums);
+					}
+					case TYPE_PERSON_ALL_FILES -> {
+						sql = "SELECT " + MediaTableFiles.TABLE_COL_FILENAME + ", " + MediaTableFiles.TABLE_COL_ID + ", " + MediaTableFiles.TABLE_COL_MODIFIED + " FROM " + MediaTableFiles.TABLE_NAME + " LEFT OUTER JOIN " + MediaTableAudiotracks.TABLE_NAME + " ON " + MediaTableFiles.TABLE_COL_ID + " = " + MediaTableAudiotracks.TABLE_COL_FILEID + " " +
+								"WHERE (" + MediaTableAudiotracks.TABLE_COL_ALBUMARTIST + " = ? OR " + MediaTableAudiotracks.TABLE_COL_ARTIST + " = ?)";
+						if (LOGGER.isTraceEnabled()) {
+							LOGGER.trace(String.format("SQL PERSON : %s [%s]", sql, typeAndIdent.ident));
 						}
-						case TYPE_PERSON_ALBUM -> {
-							sql = String.format("SELECT DISTINCT(" + MediaTableAudiotracks.TABLE_COL_ALBUM + ") FROM " + MediaTableAudiotracks.TABLE_NAME + " WHERE COALESCE(" + MediaTableAudiotracks.TABLE_COL_ALBUMARTIST + ", " + MediaTableAudiotracks.TABLE_COL_ARTIST + ") = '%s'",
-									typeAndIdent.ident);
-							res = new VirtualFolderDbId(
-									typeAndIdent.ident,
-									new DbIdTypeAndIdent(DbIdMediaType.TYPE_ALBUM, typeAndIdent.ident),
-									""
-							);
+						try (QueryResult resultSet = MediaLibraryQueries.executeQuery(connection, sql, typeAndIdent.ident, typeAndIdent.ident)) {
+							res = new VirtualFolderDbId(typeAndIdent.ident,
+								new DbIdTypeAndIdent(DbIdMediaType.TYPE_ALBUM, typeAndIdent.ident), "");
 							res.setDefaultRenderer(renderer);
-							try (ResultSet resultSet = statement.executeQuery(sql)) {
-								while (resultSet.next()) {
-									String album = resultSet.getString(1);
-									res.addChild(new VirtualFolderDbId(album, new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON_ALBUM_FILES,
-											typeAndIdent.ident + DbIdMediaType.SPLIT_CHARS + album), ""));
-								}
+							while (resultSet.next()) {
+								DLNAResource item = new RealFileDbId(
+										new DbIdTypeAndIdent(DbIdMediaType.TYPE_AUDIO, resultSet.getString("ID")),
+										new File(resultSet.getString("FILENAME")));
+								item.resolve();
+								res.addChild(item);
 							}
-							res.setFakeParentId(encodeDbid(new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON, typeAndIdent.ident)));
 						}
-						case TYPE_PERSON_ALBUM_FILES -> {
-							String[] identSplitted = typeAndIdent.ident.split(DbIdMediaType.SPLIT_CHARS);
-							sql = String.format(
-									"SELECT " + MediaTableFiles.TABLE_COL_FILENAME + ", " + MediaTableFiles.TABLE_COL_ID + ", " + MediaTableFiles.TABLE_COL_MODIFIED + " FROM " + MediaTableFiles.TABLE_NAME + " LEFT OUTER JOIN " + MediaTableAudiotracks.TABLE_NAME + " ON " + MediaTableFiles.TABLE_COL_ID + " = " + MediaTableAudiotracks.TABLE_COL_FILEID + " " +
-											"WHERE (" + MediaTableAudiotracks.TABLE_COL_ALBUM + " = '%s') AND (" + MediaTableAudiotracks.TABLE_COL_ALBUMARTIST + " = '%s' OR " + MediaTableAudiotracks.TABLE_COL_ARTIST + " = '%s')",
-									identSplitted[1], identSplitted[0], identSplitted[0]);
-							try (ResultSet resultSet = statement.executeQuery(sql)) {
-								res = new VirtualFolderDbId(identSplitted[1],
-									new DbIdTypeAndIdent(DbIdMediaType.TYPE_ALBUM, typeAndIdent.ident), "");
-								res.setDefaultRenderer(renderer);
-								while (resultSet.next()) {
-									DLNAResource item = new RealFileDbId(
-											new DbIdTypeAndIdent(DbIdMediaType.TYPE_AUDIO, resultSet.getString("ID")),
-											new File(resultSet.getString("FILENAME")));
-									item.resolve();
-									res.addChild(item);
-								}
+						res.setFakeParentId(encodeDbid(new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON, typeAndIdent.ident)));
+					}
+					case TYPE_PERSON -> {
+						res = new VirtualFolderDbId(typeAndIdent.ident, new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON, typeAndIdent.ident),
+							"");
+						res.setDefaultRenderer(renderer);
+						DLNAResource allFiles = new VirtualFolderDbId(Messages.getString("AllFiles"),
+								new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON_ALL_FILES, typeAndIdent.ident), "");
+						res.addChild(allFiles);
+						DLNAResource albums = new VirtualFolderDbId(Messages.getString("ByAlbum_lowercase"),
+								new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON_ALBUM, typeAndIdent.ident), "");
+						res.addChild(albums);
+					}
+					case TYPE_PERSON_ALBUM -> {
+						sql = "SELECT DISTINCT(" + MediaTableAudiotracks.TABLE_COL_ALBUM + ") FROM " + MediaTableAudiotracks.TABLE_NAME + " WHERE COALESCE(" + MediaTableAudiotracks.TABLE_COL_ALBUMARTIST + ", " + MediaTableAudiotracks.TABLE_COL_ARTIST + ") = ?";
+						res = new VirtualFolderDbId(
+								typeAndIdent.ident,
+								new DbIdTypeAndIdent(DbIdMediaType.TYPE_ALBUM, typeAndIdent.ident),
+								""
+						);
+						res.setDefaultRenderer(renderer);
+						try (QueryResult resultSet = MediaLibraryQueries.executeQuery(connection, sql, typeAndIdent.ident)) {
+							while (resultSet.next()) {
+								String album = resultSet.getString(1);
+								res.addChild(new VirtualFolderDbId(album, new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON_ALBUM_FILES,
+										typeAndIdent.ident + DbIdMediaType.SPLIT_CHARS + album), ""));
+							}
+						}
+						res.setFakeParentId(encodeDbid(new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON, typeAndIdent.ident)));
+					}
+					case TYPE_PERSON_ALBUM_FILES -> {
+						String[] identSplitted = typeAndIdent.ident.split(DbIdMediaType.SPLIT_CHARS);
+						sql = "SELECT " + MediaTableFiles.TABLE_COL_FILENAME + ", " + MediaTableFiles.TABLE_COL_ID + ", " + MediaTableFiles.TABLE_COL_MODIFIED + " FROM " + MediaTableFiles.TABLE_NAME + " LEFT OUTER JOIN " + MediaTableAudiotracks.TABLE_NAME + " ON " + MediaTableFiles.TABLE_COL_ID + " = " + MediaTableAudiotracks.TABLE_COL_FILEID + " " +
+								"WHERE (" + MediaTableAudiotracks.TABLE_COL_ALBUM + " = ?) AND (" + MediaTableAudiotracks.TABLE_COL_ALBUMARTIST + " = ? OR " + MediaTableAudiotracks.TABLE_COL_ARTIST + " = ?)";
+						try (QueryResult resultSet = MediaLibraryQueries.executeQuery(connection, sql, identSplitted[1], identSplitted[0], identSplitted[0])) {
+							res = new VirtualFolderDbId(identSplitted[1],
+								new DbIdTypeAndIdent(DbIdMediaType.TYPE_ALBUM, typeAndIdent.ident), "");
+							res.setDefaultRenderer(renderer);
+							while (resultSet.next()) {
+								DLNAResource item = new RealFileDbId(
+										new DbIdTypeAndIdent(DbIdMediaType.TYPE_AUDIO, resultSet.getString("ID")),
+										new File(resultSet.getString("FILENAME")));
+								item.resolve();
+								res.addChild(item);
 							}
-							res.setFakeParentId(encodeDbid(new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON_ALBUM, identSplitted[0])));
 						}
-						default -> throw new RuntimeException("Unknown Type");
+						res.setFakeParentId(encodeDbid(new DbIdTypeAndIdent(DbIdMediaType.TYPE_PERSON_ALBUM, identSplitted[0])));
 					}
+					default -> throw new RuntimeException("Unknown Type");
 				}
 			} else {
 				LOGGER.error("database not available !");
@@ -0,0 +1,279 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.annotation.concurrent.GuardedBy;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.renderers.Renderer;
+
+/**
+ * Bounded, process-wide cache of the DIDL-Lite fragments returned by
+ * {@link DLNAResource#getDidlString(Renderer)}.
+ * <p>
+ * Fragments are keyed by resource id, by the update id of the container of
+ * the resource, and by the configuration of the renderer, so renderers
+ * sharing a configuration share the fragments, and a change to a container
+ * only invalidates the fragments of its children. The playback state, child
+ * count, media, engine and subtitles of the resource are also recorded with
+ * each fragment: a fragment is only reused while they are unchanged, since
+ * they may change without the container being bumped.
+ * <p>
+ * The fragments don't keep their resources from being garbage collected, and
+ * are indexed by resource id so that {@link #invalidate(String)} doesn't scan
+ * the cache.
+ */
+public class DidlFragmentCache {
+	private static final LongAdder HITS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+	private static final LongAdder SAVED_NANOS = new LongAdder();
+	private static final Map<Key, Entry> CACHE = new LinkedHashMap<>(256, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			if (size() > maxSize) {
+				unindex(eldest.getKey());
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/** The keys of the cached fragments by resource id */
+	@GuardedBy("CACHE")
+	private static final Map<String, List<Key>> KEYS = new HashMap<>();
+
+	private static int maxSize;
+
+	static {
+		UmsConfiguration configuration = PMS.getConfiguration();
+		maxSize = configuration != null ? configuration.getDidlCacheSize() : 0;
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private DidlFragmentCache() {
+	}
+
+	/**
+	 * Returns the cached DIDL-Lite fragment of {@code resource} for
+	 * {@code renderer}, rendering and caching it with {@code builder} if it
+	 * isn't cached or is out of date.
+	 *
+	 * @param resource the resource to describe.
+	 * @param renderer the renderer the fragment is for.
+	 * @param builder renders the fragment.
+	 * @return The DIDL-Lite fragment.
+	 */
+	static String get(DLNAResource resource, Renderer renderer, Supplier<String> builder) {
+		String resourceId = resource.getResourceId();
+		if (maxSize == 0 || resourceId == null || renderer == null) {
+			return builder.get();
+		}
+
+		DLNAResource container = resource.getParent() != null ? resource.getParent() : resource;
+		Key key = new Key(resourceId, container.getUpdateId(), renderer.getFile(), PMS.getConfiguration(renderer));
+		State state = new State(resource);
+		Entry entry;
+		synchronized (CACHE) {
+			entry = CACHE.get(key);
+		}
+		if (entry != null && entry.resource.get() == resource && entry.state.equals(state)) {
+			HITS.increment();
+			SAVED_NANOS.add(entry.buildNanos);
+			return entry.didl;
+		}
+
+		MISSES.increment();
+		long start = System.nanoTime();
+		String didl = builder.get();
+		entry = new Entry(new WeakReference<>(resource), state, didl, System.nanoTime() - start);
+		synchronized (CACHE) {
+			if (CACHE.put(key, entry) == null) {
+				List<Key> keys = KEYS.computeIfAbsent(resourceId, id -> new ArrayList<>(1));
+				// The fragments of an older update id of the container won't be asked again
+				for (Key previous : keys) {
+					if (previous.containerUpdateId != key.containerUpdateId) {
+						CACHE.remove(previous);
+					}
+				}
+				keys.removeIf(previous -> previous.containerUpdateId != key.containerUpdateId);
+				keys.add(key);
+			}
+		}
+		return didl;
+	}
+
+	/**
+	 * Removes the fragments of the resource with the given id for all
+	 * renderers.
+	 *
+	 * @param resourceId the id of the resource.
+	 */
+	public static void invalidate(String resourceId) {
+		if (resourceId == null) {
+			return;
+		}
+		synchronized (CACHE) {
+			List<Key> keys = KEYS.remove(resourceId);
+			if (keys != null) {
+				for (Key key : keys) {
+					CACHE.remove(key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all fragments.
+	 */
+	public static void clear() {
+		synchronized (CACHE) {
+			CACHE.clear();
+			KEYS.clear();
+		}
+	}
+
+	/**
+	 * Sets the maximum number of cached fragments, evicting the least
+	 * recently used ones if needed.
+	 *
+	 * @param size the maximum number of fragments, 0 to disable the cache.
+	 */
+	public static void setMaxSize(int size) {
+		synchronized (CACHE) {
+			maxSize = Math.max(0, size);
+			if (CACHE.size() > maxSize) {
+				CACHE.clear();
+				KEYS.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return The number of cached fragments.
+	 */
+	public static int size() {
+		synchronized (CACHE) {
+			return CACHE.size();
+		}
+	}
+
+	/**
+	 * @return The number of fragments served from the cache.
+	 */
+	public static long getHits() {
+		return HITS.sum();
+	}
+
+	/**
+	 * @return The number of fragments that had to be rendered.
+	 */
+	public static long getMisses() {
+		return MISSES.sum();
+	}
+
+	/**
+	 * @return The ratio of fragments served from the cache, between 0 and 1.
+	 */
+	public static double getHitRate() {
+		long hits = HITS.sum();
+		long total = hits + MISSES.sum();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * @return The time it would have taken to render the fragments served from
+	 *         the cache, in milliseconds.
+	 */
+	public static long getTimeSaved() {
+		return SAVED_NANOS.sum() / 1000000;
+	}
+
+	/**
+	 * Removes an evicted key from the index. The caller must hold the lock
+	 * of {@link #CACHE}.
+	 */
+	private static void unindex(Key key) {
+		List<Key> keys = KEYS.get(key.resourceId);
+		if (keys != null) {
+			keys.remove(key);
+			if (keys.isEmpty()) {
+				KEYS.remove(key.resourceId);
+			}
+		}
+	}
+
+	/**
+	 * The key of a fragment. The renderer is represented by its
+	 * configuration: its profile or device file, and its UMS configuration.
+	 */
+	private record Key(String resourceId, int containerUpdateId, File rendererFile, UmsConfiguration configuration) {
+	}
+
+	private record Entry(WeakReference<DLNAResource> resource, State state, String didl, long buildNanos) {
+	}
+
+	/**
+	 * The state of a resource that changes its DIDL-Lite without its
+	 * container being bumped. Objects are compared by identity, as none of
+	 * them override {@code equals}, and only their identity hash codes are
+	 * kept so that the cache doesn't keep them from being garbage collected.
+	 */
+	private record State(
+		String parentId,
+		boolean discovered,
+		int childCount,
+		int media,
+		boolean mediaParsed,
+		int playbackCount,
+		String lastPlaybackTime,
+		int resume,
+		long resumeOffset,
+		int engine,
+		int subtitle,
+		long lastModified
+	) {
+		private State(DLNAResource resource) {
+			this(
+				resource.getParentId(),
+				resource.isDiscovered(),
+				resource.childrenNumber(),
+				System.identityHashCode(resource.getMedia()),
+				resource.getMedia() != null && resource.getMedia().isMediaparsed(),
+				resource.getMedia() != null ? resource.getMedia().getPlaybackCount() : 0,
+				resource.getMedia() != null ? resource.getMedia().getLastPlaybackTime() : null,
+				System.identityHashCode(resource.getResume()),
+				resource.getResume() != null ? resource.getResume().getTimeOffset() : 0,
+				System.identityHashCode(resource.getEngine()),
+				System.identityHashCode(resource.getMediaSubtitle()),
+				resource.getLastModified()
+			);
+		}
+	}
+}
@@ -16,49 +16,109 @@
  */
 package net.pms.dlna;
 
-import java.lang.ref.SoftReference;
 import java.lang.ref.ReferenceQueue;
-import java.util.ArrayList;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Maps the global ids to the {@link DLNAResource}s they were given to.
+ * <p>
+ * Ids are handed out sequentially, so they are stored in fixed size segments
+ * indexed by the id itself: lookups, additions and deletions are O(1) and
+ * never shift any data. Lookups and deletions don't lock, and a segment is
+ * released as soon as all of its ids have been handed out and deleted, so the
+ * memory used follows the number of live ids rather than the highest id.
+ */
 public class GlobalIdRepo {
 	private static final Logger LOGGER = LoggerFactory.getLogger(GlobalIdRepo.class);
 
+	private static final int SEGMENT_SHIFT = 12;
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	/**
+	 * The number of locks serializing the additions, a power of 2.
+	 */
+	private static final int ADD_LOCKS = 64;
+
 	// Global ids start at 1, since id 0 is reserved as a pseudonym for 'renderer root'
-	private int curGlobalId = 1;
-	private int deletionsCount = 0;
-	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-	private final ArrayList<ID> ids = new ArrayList<>();
+	private final AtomicInteger curGlobalId = new AtomicInteger(1);
+	private final AtomicInteger liveIds = new AtomicInteger();
+	private final LongAdder deletionsCount = new LongAdder();
+	private final LongAdder releasedSegmentsCount = new LongAdder();
+	private final ConcurrentHashMap<Integer, Segment> segments = new ConcurrentHashMap<>();
+	private final Object[] addLocks = new Object[ADD_LOCKS];
 
 	public GlobalIdRepo() {
+		for (int i = 0; i < ADD_LOCKS; i++) {
+			addLocks[i] = new Object();
+		}
 		startIdCleanup();
 	}
 
 	public void add(DLNAResource dlnaResource) {
-		lock.writeLock().lock();
-		try {
+		boolean added = false;
+		// The check and the new id must be atomic, or adding a resource twice at once gives it two ids
+		synchronized (getAddLock(dlnaResource)) {
 			if (dlnaResource.getId() == null || get(dlnaResource.getId()) != dlnaResource) {
-				ids.add(new ID(dlnaResource, curGlobalId++));
-				DLNAResource.bumpSystemUpdateId();
+				int id = curGlobalId.getAndIncrement();
+				ID item = new ID(dlnaResource, id);
+				segments.computeIfAbsent(id >>> SEGMENT_SHIFT, k -> new Segment()).items.set(id & SEGMENT_MASK, item);
+				liveIds.incrementAndGet();
+				added = true;
 			}
-		} finally {
-			lock.writeLock().unlock();
+		}
+		if (added) {
+			bumpUpdateId(dlnaResource.getParent());
 		}
 	}
 
-	private void delete(int index) {
-		lock.writeLock().lock();
-		try {
-			if (index > -1 && index < ids.size()) {
-				ids.remove(index);
-				DLNAResource.bumpSystemUpdateId();
-				deletionsCount++;
+	/**
+	 * Returns the lock serializing the additions of a resource. The locks are
+	 * shared by resources, rather than using the monitor of the resource
+	 * itself, which is held for long by
+	 * {@link DLNAResource#getInputStream}.
+	 */
+	private Object getAddLock(DLNAResource dlnaResource) {
+		return addLocks[System.identityHashCode(dlnaResource) & (ADD_LOCKS - 1)];
+	}
+
+	private void delete(SoftDLNARef ref) {
+		int id = ref.id;
+		int segmentIndex = id >>> SEGMENT_SHIFT;
+		Segment segment = segments.get(segmentIndex);
+		if (segment == null || segment.items.getAndSet(id & SEGMENT_MASK, null) == null) {
+			LOGGER.debug("GlobalIdRepo: id not found: {}", id);
+			return;
+		}
+		liveIds.decrementAndGet();
+		deletionsCount.increment();
+		if (ref.parent == null) {
+			DLNAResource.bumpSystemUpdateId();
+		} else {
+			// When the parent is gone too, its own deletion bumps its parent
+			DLNAResource parent = ref.parent.get();
+			if (parent != null) {
+				parent.bumpUpdateId();
 			}
-		} finally {
-			lock.writeLock().unlock();
+		}
+
+		/*
+		 * Ids are never handed out twice, so once every id of a segment has
+		 * been handed out and deleted, nothing will use the segment again.
+		 * Id 0 is reserved, so the first segment holds one id less.
+		 */
+		int capacity = segmentIndex == 0 ? SEGMENT_SIZE - 1 : SEGMENT_SIZE;
+		if (segment.deleted.incrementAndGet() == capacity) {
+			segments.remove(segmentIndex, segment);
+			releasedSegmentsCount.increment();
 		}
 	}
 
@@ -76,18 +136,13 @@ public class GlobalIdRepo {
 	}
 
 	private ID getItem(int id) {
-		lock.readLock().lock();
-		try {
-			if (id > 0) {
-				int index = indexOf(id);
-				if (index > -1) {
-					return ids.get(index);
-				}
+		if (id > 0) {
+			Segment segment = segments.get(id >>> SEGMENT_SHIFT);
+			if (segment != null) {
+				return segment.items.get(id & SEGMENT_MASK);
 			}
-			return null;
-		} finally {
-			lock.readLock().unlock();
 		}
+		return null;
 	}
 
 	public boolean exists(String id) {
@@ -97,15 +152,22 @@ public class GlobalIdRepo {
 	public void replace(DLNAResource a, DLNAResource b) {
 		ID item = getItem(parseIndex(a.getId()));
 		if (item != null) {
-			synchronized (lock) {
-				lock.writeLock().lock();
-				try {
-					item.setRef(b);
-					DLNAResource.bumpSystemUpdateId();
-				} finally {
-					lock.writeLock().unlock();
-				}
+			synchronized (item) {
+				item.setRef(b);
 			}
+			bumpUpdateId(a.getParent());
+		}
+	}
+
+	/**
+	 * Bumps the update id of the container holding a changed resource, or the
+	 * SystemUpdateID when the container is unknown.
+	 */
+	private static void bumpUpdateId(DLNAResource container) {
+		if (container != null) {
+			container.bumpUpdateId();
+		} else {
+			DLNAResource.bumpSystemUpdateId();
 		}
 	}
 
@@ -116,18 +178,41 @@ public class GlobalIdRepo {
 	// in the case of items that are just being moved).
 
 	public void setScope(DLNAResource dlnaResource, boolean scope) {
-		lock.writeLock().lock();
-		try {
-			ID item = getItem(parseIndex(dlnaResource.getId()));
-			if (item != null) {
-				LOGGER.debug("GlobalIdRepo: marking id {} {} scope", item.id, scope ? "in" : "out of");
-				item.scope = scope;
-			}
-		} finally {
-			lock.writeLock().unlock();
+		ID item = getItem(parseIndex(dlnaResource.getId()));
+		if (item != null) {
+			LOGGER.debug("GlobalIdRepo: marking id {} {} scope", item.id, scope ? "in" : "out of");
+			item.scope = scope;
 		}
 	}
 
+	/**
+	 * @return The number of ids currently mapped to a resource.
+	 */
+	public int getLiveIdsCount() {
+		return liveIds.get();
+	}
+
+	/**
+	 * @return The number of ids deleted since startup.
+	 */
+	public long getDeletionsCount() {
+		return deletionsCount.sum();
+	}
+
+	/**
+	 * @return The number of segments currently allocated.
+	 */
+	public int getSegmentsCount() {
+		return segments.size();
+	}
+
+	/**
+	 * @return The number of segments released since startup.
+	 */
+	public long getReleasedSegmentsCount() {
+		return releasedSegmentsCount.sum();
+	}
+
 	private static int parseIndex(String id) {
 		try {
 			// Id strings may have optional tags beginning with $ appended, e.g. '1234$Temp'
@@ -137,48 +222,24 @@ public class GlobalIdRepo {
 		}
 	}
 
-	private int indexOf(int id) {
-		lock.readLock().lock();
-		try {
-			if (id > 0 && id < curGlobalId) {
-				// We're in sequence by definition, so binary search is quickest
-
-				// Exclude any areas where the id can't possibly be
-				int ceil = ids.size() - 1;
-				int top = id - 1; // id 0 is reserved, so index is id-1 at most
-				int hi = top < ceil ? top : ceil;
-				int floor = hi - deletionsCount;
-				int lo = floor > 0 ? floor : 0;
-
-				while (lo <= hi) {
-					int mid = lo + (hi - lo) / 2;
-					int idm = ids.get(mid).id;
-					if (id < idm) {
-						hi = mid - 1;
-					} else if (id > idm) {
-						lo = mid + 1;
-					} else {
-						return mid;
-					}
-				}
-			}
-		} finally {
-			lock.readLock().unlock();
-		}
-		LOGGER.debug("GlobalIdRepo: id not found: {}", id);
-		return -1;
-	}
-
 	// id cleanup
 
 	private ReferenceQueue<DLNAResource> idCleanupQueue;
 
 	private class SoftDLNARef extends SoftReference<DLNAResource> {
-		int id;
+		volatile int id;
+
+		/**
+		 * The container to bump once the resource is collected. It is weakly
+		 * referenced, since the container holds the resource.
+		 */
+		final WeakReference<DLNAResource> parent;
 
 		SoftDLNARef(DLNAResource dlnaResource, int id) {
 			super(dlnaResource, idCleanupQueue);
 			this.id = id;
+			DLNAResource container = dlnaResource.getParent();
+			parent = container != null ? new WeakReference<>(container) : null;
 		}
 
 		void cancel() {
@@ -190,27 +251,34 @@ public class GlobalIdRepo {
 
 	private void startIdCleanup() {
 		idCleanupQueue = new ReferenceQueue<>();
-		new Thread(() -> {
+		Thread cleanup = new Thread(() -> {
 			while (true) {
 				try {
 					// Once an underlying DLNAResource is ready for garbage
 					// collection, its weak reference will pop out here
 					SoftDLNARef ref = (SoftDLNARef) idCleanupQueue.remove();
 					if (ref.id > 0) {
-						// Delete the associated id from our repo list
+						// Delete the associated id from our repo
 						LOGGER.debug("deleting invalid id {}", ref.id);
-						delete(indexOf(ref.id));
+						delete(ref);
 					}
 				} catch (InterruptedException e) {
 				}
 			}
-		}, "GlobalId cleanup").start();
+		}, "GlobalId cleanup");
+		cleanup.setDaemon(true);
+		cleanup.start();
+	}
+
+	private static class Segment {
+		final AtomicReferenceArray<ID> items = new AtomicReferenceArray<>(SEGMENT_SIZE);
+		final AtomicInteger deleted = new AtomicInteger();
 	}
 
 	private class ID {
-		int id;
-		boolean scope;
-		SoftDLNARef dlnaRef;
+		final int id;
+		volatile boolean scope;
+		volatile SoftDLNARef dlnaRef;
 
 		private ID(DLNAResource dlnaResource, int id) {
 			this.id = id;
@@ -0,0 +1,362 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.concurrent.GuardedBy;
+import net.pms.PMS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parses the files changed on the hard drive into the media library, one at
+ * a time, on a background thread.
+ * <p>
+ * The queue holds at most
+ * {@link net.pms.configuration.UmsConfiguration#getLibraryParseQueueSize()}
+ * files. A file that is already queued is not queued twice, and
+ * {@link #add} waits while the queue is full, so a burst of file events
+ * slows down the file watcher instead of filling the memory. Files are
+ * parsed by {@link Priority}, then in the order they were queued.
+ * <p>
+ * A folder can be queued with {@link #addFolder}. It is crawled by the parser
+ * thread, which parses its files as it finds them, so the file watcher
+ * doesn't walk the folder itself.
+ * <p>
+ * The parser waits on {@link PMS#REALTIME_LOCK} like the library scanner, and
+ * asks Java to collect the garbage once the queue is empty rather than after
+ * every file.
+ */
+public class LibraryParseQueue {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LibraryParseQueue.class);
+
+	/**
+	 * The priority of a queued file.
+	 */
+	public enum Priority {
+		/** A file that was changed on its own */
+		HIGH,
+		/** A file found by crawling a folder */
+		LOW
+	}
+
+	private static final Object LOCK = new Object();
+
+	@GuardedBy("LOCK")
+	private static final PriorityQueue<Entry> QUEUE = new PriorityQueue<>();
+
+	/** The queued files by path */
+	@GuardedBy("LOCK")
+	private static final Map<String, Entry> ENTRIES = new HashMap<>();
+
+	@GuardedBy("LOCK")
+	private static Thread parser;
+
+	@GuardedBy("LOCK")
+	private static long sequence;
+
+	private static final LongAdder PARSED_FILES = new LongAdder();
+
+	/**
+	 * A queued file, or a folder to crawl if {@code folder} is {@code true}.
+	 */
+	private record Entry(File file, boolean folder, Priority priority, long sequence, long queued) implements Comparable<Entry> {
+		@Override
+		public int compareTo(Entry other) {
+			int result = priority.compareTo(other.priority);
+			return result != 0 ? result : Long.compare(sequence, other.sequence);
+		}
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private LibraryParseQueue() {
+	}
+
+	/**
+	 * Queues a file to be parsed into the media library, waiting while the
+	 * queue is full. A file that is already queued keeps its place, unless
+	 * the new priority is higher. Folders to crawl are always of
+	 * {@link Priority#LOW}.
+	 *
+	 * @param file the file to parse.
+	 * @param priority the priority of the file.
+	 * @throws InterruptedException if the thread is interrupted while
+	 *             waiting.
+	 */
+	public static void add(File file, Priority priority) throws InterruptedException {
+		add(file, false, priority);
+	}
+
+	/**
+	 * Queues a folder and its subfolders to be crawled, and their files
+	 * parsed into the media library, after the files that were changed on
+	 * their own. Waits while the queue is full.
+	 *
+	 * @param folder the folder to crawl.
+	 * @throws InterruptedException if the thread is interrupted while
+	 *             waiting.
+	 */
+	public static void addFolder(File folder) throws InterruptedException {
+		add(folder, true, Priority.LOW);
+	}
+
+	private static void add(File file, boolean folder, Priority priority) throws InterruptedException {
+		String path = file.getAbsolutePath();
+		int capacity = PMS.getConfiguration().getLibraryParseQueueSize();
+		synchronized (LOCK) {
+			Entry queued = ENTRIES.get(path);
+			if (queued != null) {
+				// A folder to crawl stays out of the HIGH lane, see crawl
+				if (!queued.folder() && !folder && priority.compareTo(queued.priority()) < 0) {
+					QUEUE.remove(queued);
+					put(path, new Entry(queued.file(), queued.folder(), priority, queued.sequence(), queued.queued()));
+				}
+				return;
+			}
+			while (ENTRIES.size() >= capacity) {
+				LOGGER.trace("The library parse queue is full, waiting to add {}", path);
+				LOCK.wait();
+			}
+			put(path, new Entry(file, folder, priority, sequence++, System.currentTimeMillis()));
+			if (parser == null) {
+				parser = new Thread(() -> ThumbnailGenerator.runWithPriority(ThumbnailGenerator.Priority.BACKGROUND, LibraryParseQueue::parse), "Library parser");
+				parser.setDaemon(true);
+				parser.setPriority(Thread.MIN_PRIORITY);
+				parser.start();
+			}
+			LOCK.notifyAll();
+		}
+	}
+
+	/**
+	 * Removes a file from the queue, when it was deleted.
+	 *
+	 * @param filename the full path of the file.
+	 */
+	public static void remove(String filename) {
+		synchronized (LOCK) {
+			Entry queued = ENTRIES.remove(filename);
+			if (queued != null) {
+				QUEUE.remove(queued);
+				LOCK.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Removes the files of a folder and its subfolders from the queue, when
+	 * it was deleted.
+	 *
+	 * @param folder the full path of the folder.
+	 */
+	public static void removeFolder(String folder) {
+		String prefix = folder.endsWith(File.separator) ? folder : folder + File.separator;
+		synchronized (LOCK) {
+			boolean removed = false;
+			for (Iterator<Entry> iterator = QUEUE.iterator(); iterator.hasNext();) {
+				Entry entry = iterator.next();
+				String path = entry.file().getAbsolutePath();
+				if (path.startsWith(prefix) || path.equals(folder)) {
+					iterator.remove();
+					ENTRIES.remove(path);
+					removed = true;
+				}
+			}
+			if (removed) {
+				LOCK.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of files waiting to be parsed.
+	 */
+	public static int getQueueSize() {
+		synchronized (LOCK) {
+			return ENTRIES.size();
+		}
+	}
+
+	/**
+	 * @return the time in milliseconds since the oldest queued file has been
+	 *         waiting, or 0 if the queue is empty.
+	 */
+	public static long getLag() {
+		synchronized (LOCK) {
+			long oldest = Long.MAX_VALUE;
+			for (Entry entry : ENTRIES.values()) {
+				oldest = Math.min(oldest, entry.queued());
+			}
+			return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+		}
+	}
+
+	/**
+	 * @return the number of files parsed since the start.
+	 */
+	public static long getParsedFiles() {
+		return PARSED_FILES.sum();
+	}
+
+	private static void put(String path, Entry entry) {
+		ENTRIES.put(path, entry);
+		QUEUE.add(entry);
+	}
+
+	/**
+	 * Takes the next entry of the queue.
+	 *
+	 * @param highOnly whether to only take the files of {@link Priority#HIGH}.
+	 * @return the entry, or {@code null} if there is none.
+	 */
+	private static Entry poll(boolean highOnly) {
+		synchronized (LOCK) {
+			Entry entry = QUEUE.peek();
+			if (entry == null || (highOnly && entry.priority() != Priority.HIGH)) {
+				return null;
+			}
+			QUEUE.poll();
+			ENTRIES.remove(entry.file().getAbsolutePath());
+			LOCK.notifyAll();
+			if (LOGGER.isTraceEnabled()) {
+				LOGGER.trace(
+					"Parsing {} after {} ms in the library parse queue, {} files left",
+					entry.file(),
+					System.currentTimeMillis() - entry.queued(),
+					ENTRIES.size()
+				);
+			}
+			return entry;
+		}
+	}
+
+	private static void parse() {
+		boolean added = false;
+		int[] parsed = {0};
+		long start = System.nanoTime();
+		while (true) {
+			Entry entry = poll(false);
+			if (entry == null) {
+				if (parsed[0] > 0) {
+					LOGGER.debug(
+						"Parsed {} changed files into the media library in {} ms",
+						parsed[0],
+						TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+					);
+				}
+				if (added) {
+					/*
+					 * Parsing holds onto the files until the garbage
+					 * collector runs, see RootFolder.parseFileForDatabase.
+					 * This is done out of the lock, so adding files doesn't
+					 * wait for it.
+					 */
+					System.gc();
+					System.runFinalization();
+					added = false;
+				}
+				parsed[0] = 0;
+				synchronized (LOCK) {
+					try {
+						while (QUEUE.isEmpty()) {
+							LOCK.wait();
+						}
+					} catch (InterruptedException e) {
+						parser = null;
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+				start = System.nanoTime();
+				continue;
+			}
+
+			if (entry.folder()) {
+				added |= crawl(entry.file(), parsed);
+			} else {
+				added |= parseFile(entry.file());
+				parsed[0]++;
+			}
+		}
+	}
+
+	private static boolean parseFile(File file) {
+		PMS.REALTIME_LOCK.lock();
+		PMS.REALTIME_LOCK.unlock();
+		PARSED_FILES.increment();
+		try {
+			return RootFolder.parseFile(file);
+		} catch (RuntimeException e) {
+			LOGGER.error("Error while parsing {} into the media library: {}", file, e.getMessage());
+			LOGGER.trace("", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Parses the files of a folder and its subfolders as they are found.
+	 * The files that are changed on their own meanwhile are parsed first.
+	 *
+	 * @return whether a file was added to the media library.
+	 */
+	private static boolean crawl(File folder, int[] parsed) {
+		LOGGER.trace("Crawling {}", folder);
+		boolean[] added = {false};
+		try {
+			Files.walkFileTree(folder.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+					if (attrs.isRegularFile() && VirtualFile.isPotentialMediaFile(path.toString())) {
+						LOGGER.trace("File {} found in {}", path.getFileName(), folder);
+						added[0] |= parseFile(path.toFile());
+						parsed[0]++;
+					}
+					for (Entry entry = poll(true); entry != null; entry = poll(true)) {
+						added[0] |= parseFile(entry.file());
+						parsed[0]++;
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path path, IOException e) {
+					LOGGER.trace("Could not crawl {}: {}", path, e.getMessage());
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			LOGGER.debug("Error while crawling {}: {}", folder, e.getMessage());
+		}
+		return added[0];
+	}
+}
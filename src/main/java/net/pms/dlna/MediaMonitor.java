@@ -393,6 +393,8 @@ public class MediaMonitor extends VirtualFolder {
 		Connection connection = null;
 		try {
 			FULLY_PLAYED_ENTRIES.put(fullPathToFile, isFullyPlayed);
+			// The fully played mark is part of the title
+			DidlFragmentCache.clear();
 			connection = MediaDatabase.getConnectionIfAvailable();
 			if (connection != null) {
 				MediaTableFilesStatus.setFullyPlayed(connection, fullPathToFile, isFullyPlayed);
@@ -0,0 +1,439 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import javax.annotation.concurrent.GuardedBy;
+import net.pms.Messages;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.database.MediaDatabase;
+import net.pms.database.MediaTableFiles;
+import net.pms.formats.Format;
+import net.pms.formats.ISO;
+import net.pms.gui.GuiManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Walks a {@link DLNAResource} tree with a work-stealing
+ * {@link ForkJoinPool}, so that sibling folders are discovered and the media
+ * files inside a folder are parsed concurrently. The pool is shared by all
+ * the scans.
+ * <p>
+ * Live requests keep their priority: every task waits on
+ * {@link PMS#REALTIME_LOCK} before touching the disk. The number of tasks
+ * reading from the same storage device at once is limited by
+ * {@link UmsConfiguration#getLibraryScanThreadsPerDevice()}. Both waits are
+ * {@link ForkJoinPool.ManagedBlocker}s, so the pool keeps its parallelism
+ * while its workers are blocked.
+ * <p>
+ * The children of a resource are changed while holding its monitor, like
+ * the browse requests do.
+ */
+public class ParallelFolderScanner {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelFolderScanner.class);
+
+	/** The minimum interval in milliseconds between two progress reports */
+	private static final long PROGRESS_INTERVAL = 1000;
+	private static final Object UNKNOWN_DEVICE = new Object();
+
+	private static final ForkJoinPool.ForkJoinWorkerThreadFactory THREAD_FACTORY = pool -> {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		thread.setName("Library Scanner worker " + thread.getPoolIndex());
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	};
+
+	private static final Object POOL_LOCK = new Object();
+	@GuardedBy("POOL_LOCK")
+	private static ForkJoinPool pool;
+
+	private final BooleanSupplier running;
+	private final int threads;
+	private final int threadsPerDevice;
+	private final Map<Object, Semaphore> devicePermits = new ConcurrentHashMap<>();
+	private final AtomicLong foldersScanned = new AtomicLong();
+	private final AtomicLong filesParsed = new AtomicLong();
+	private final AtomicLong lastProgress = new AtomicLong();
+	private long startTime;
+
+	/**
+	 * Creates a new scanner.
+	 *
+	 * @param configuration the configuration holding the parallelism settings.
+	 * @param running tells whether the scan should go on; checked before each
+	 *            folder and file.
+	 */
+	public ParallelFolderScanner(UmsConfiguration configuration, BooleanSupplier running) {
+		this(configuration.getLibraryScanThreads(), configuration.getLibraryScanThreadsPerDevice(), running);
+	}
+
+	ParallelFolderScanner(int threads, int threadsPerDevice, BooleanSupplier running) {
+		this.running = running;
+		this.threads = threads;
+		this.threadsPerDevice = threadsPerDevice;
+	}
+
+	/**
+	 * Scans the given resource and all its scannable descendants, blocking
+	 * until the scan is completed or stopped.
+	 *
+	 * @param resource the resource to scan.
+	 */
+	public void scan(DLNAResource resource) {
+		startTime = System.currentTimeMillis();
+		getPool(threads).invoke(new FolderTask(resource, null));
+		long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+		LOGGER.debug(
+			"Scanned {} folders and parsed {} files of \"{}\" in {} ms ({} files/s) using {} threads",
+			foldersScanned.get(),
+			filesParsed.get(),
+			resource.getName(),
+			elapsed,
+			filesParsed.get() * 1000 / elapsed,
+			threads
+		);
+	}
+
+	/**
+	 * Returns the shared pool, replacing it if the number of threads was
+	 * changed since it was created.
+	 *
+	 * @param threads the number of threads of the pool.
+	 * @return The pool.
+	 */
+	private static ForkJoinPool getPool(int threads) {
+		synchronized (POOL_LOCK) {
+			if (pool == null || pool.getParallelism() != threads) {
+				/*
+				 * A running scan finishes on the old pool, whose idle
+				 * workers then time out.
+				 */
+				pool = new ForkJoinPool(threads, THREAD_FACTORY, null, false);
+			}
+			return pool;
+		}
+	}
+
+	/**
+	 * @return the number of folders scanned so far.
+	 */
+	public long getFoldersScanned() {
+		return foldersScanned.get();
+	}
+
+	/**
+	 * @return the number of files parsed so far.
+	 */
+	public long getFilesParsed() {
+		return filesParsed.get();
+	}
+
+	/**
+	 * @return the number of files parsed per second since the scan started.
+	 */
+	public long getFilesPerSecond() {
+		long elapsed = System.currentTimeMillis() - startTime;
+		return elapsed > 0 ? filesParsed.get() * 1000 / elapsed : 0;
+	}
+
+	private boolean isRunning() {
+		return running.getAsBoolean();
+	}
+
+	/**
+	 * Waits until the realtime lock is released, so that browse requests
+	 * always come first.
+	 *
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	private static void waitForRealtimeLock() throws InterruptedException {
+		ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+			@Override
+			public boolean block() {
+				PMS.REALTIME_LOCK.lock();
+				PMS.REALTIME_LOCK.unlock();
+				return true;
+			}
+
+			@Override
+			public boolean isReleasable() {
+				return !PMS.REALTIME_LOCK.isLocked();
+			}
+		});
+	}
+
+	/**
+	 * Takes a permit to read from a storage device, waiting for one if needed.
+	 *
+	 * @param permits the permits of the device.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	private static void acquire(Semaphore permits) throws InterruptedException {
+		ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+			private boolean acquired;
+
+			@Override
+			public boolean block() throws InterruptedException {
+				if (!acquired) {
+					permits.acquire();
+					acquired = true;
+				}
+				return true;
+			}
+
+			@Override
+			public boolean isReleasable() {
+				if (!acquired) {
+					acquired = permits.tryAcquire();
+				}
+				return acquired;
+			}
+		});
+	}
+
+	private Semaphore getDevicePermits(Object device) {
+		return devicePermits.computeIfAbsent(device != null ? device : UNKNOWN_DEVICE, key -> new Semaphore(threadsPerDevice));
+	}
+
+	private static Object getDevice(DLNAResource resource) {
+		if (resource instanceof RealFile realFile && realFile.getFile() != null) {
+			try {
+				return Files.getFileStore(realFile.getFile().toPath());
+			} catch (IOException | SecurityException e) {
+				LOGGER.trace("Could not determine the storage device of \"{}\": {}", realFile.getFile(), e.getMessage());
+				return UNKNOWN_DEVICE;
+			}
+		}
+		return null;
+	}
+
+	private void reportProgress() {
+		long now = System.currentTimeMillis();
+		long last = lastProgress.get();
+		if (now - last >= PROGRESS_INTERVAL && lastProgress.compareAndSet(last, now)) {
+			GuiManager.setScanLibraryProgress(foldersScanned.get(), filesParsed.get(), getFilesPerSecond());
+		}
+	}
+
+	/**
+	 * Scans all the children of a resource in parallel.
+	 */
+	private class FolderTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final transient DLNAResource resource;
+		private final transient Object device;
+
+		private FolderTask(DLNAResource resource, Object device) {
+			this.resource = resource;
+			this.device = device;
+		}
+
+		@Override
+		protected void compute() {
+			if (!isRunning()) {
+				return;
+			}
+			List<DLNAResource> children;
+			synchronized (resource) {
+				children = new ArrayList<>(resource.getChildren());
+			}
+			List<ChildTask> tasks = new ArrayList<>();
+			for (DLNAResource child : children) {
+				if (child.allowScan()) {
+					tasks.add(new ChildTask(resource, child, device));
+				}
+			}
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Discovers one folder and then scans its own children.
+	 */
+	private class ChildTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final transient DLNAResource parent;
+		private final transient DLNAResource child;
+		private final transient Object device;
+
+		private ChildTask(DLNAResource parent, DLNAResource child, Object device) {
+			this.parent = parent;
+			this.child = child;
+			this.device = device;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				waitForRealtimeLock();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (!isRunning()) {
+				return;
+			}
+
+			child.setDefaultRenderer(parent.getDefaultRenderer());
+			Object childDevice = device != null ? device : getDevice(child);
+
+			// Display and log which folder is being scanned
+			if (child instanceof RealFile realFile) {
+				LOGGER.debug("Scanning folder: " + child.getName());
+				GuiManager.setStatusLine(Messages.getString("ScanningFolder") + " " + child.getName());
+				if (!child.isDiscovered()) {
+					parseFiles(realFile, childDevice);
+				}
+			}
+
+			Semaphore permits = getDevicePermits(childDevice);
+			try {
+				acquire(permits);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			boolean hasChildren;
+			try {
+				synchronized (child) {
+					if (child.isDiscovered()) {
+						child.refreshChildren();
+					} else {
+						if (child instanceof DVDISOFile || child instanceof DVDISOTitle) { // ugly hack
+							child.syncResolve();
+						}
+						child.discoverChildren();
+						child.analyzeChildren(-1, false);
+						child.setDiscovered(true);
+					}
+					hasChildren = !child.getChildren().isEmpty();
+				}
+			} finally {
+				permits.release();
+			}
+			foldersScanned.incrementAndGet();
+			reportProgress();
+
+			if (hasChildren && isRunning()) {
+				new FolderTask(child, childDevice).invoke();
+				synchronized (child) {
+					child.getChildren().clear();
+				}
+			}
+		}
+
+		/**
+		 * Parses the media files of a folder in parallel before it is
+		 * discovered. The parsed information goes to the database, where
+		 * the (sequential) discovery of the folder will find it.
+		 */
+		private void parseFiles(RealFile folder, Object device) {
+			if (!folder.isAddToMediaLibrary() || folder.getFile() == null) {
+				return;
+			}
+			File[] files = folder.getFile().listFiles((File file) -> file.isFile() && !file.isHidden() && VirtualFile.isPotentialMediaFile(file.getName()));
+			if (files == null || files.length < 2) {
+				return;
+			}
+			List<ParseTask> tasks = new ArrayList<>(files.length);
+			for (File file : files) {
+				tasks.add(new ParseTask(folder, file, device));
+			}
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Parses a single media file into the database.
+	 */
+	private class ParseTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final transient RealFile folder;
+		private final transient File file;
+		private final transient Object device;
+
+		private ParseTask(RealFile folder, File file, Object device) {
+			this.folder = folder;
+			this.file = file;
+			this.device = device;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				waitForRealtimeLock();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (!isRunning()) {
+				return;
+			}
+
+			RealFile realFile = new RealFile(file);
+			realFile.setParent(folder);
+			realFile.resolveFormat();
+			Format format = realFile.getFormat();
+			if (format == null || format instanceof ISO || !(format.isAudio() || format.isVideo() || format.isImage()) || isParsed()) {
+				return;
+			}
+
+			Semaphore permits = getDevicePermits(device);
+			try {
+				acquire(permits);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			try {
+				ThumbnailGenerator.runWithPriority(ThumbnailGenerator.Priority.BACKGROUND, realFile::syncResolve);
+				filesParsed.incrementAndGet();
+			} catch (RuntimeException e) {
+				LOGGER.debug("Error while parsing \"{}\" during library scan: {}", file.getAbsolutePath(), e.getMessage());
+				LOGGER.trace("", e);
+			} finally {
+				permits.release();
+			}
+			reportProgress();
+		}
+
+		private boolean isParsed() {
+			Connection connection = null;
+			try {
+				connection = MediaDatabase.getConnectionIfAvailable();
+				return connection == null || MediaTableFiles.isDataExists(connection, file.getAbsolutePath(), file.lastModified());
+			} finally {
+				MediaDatabase.close(connection);
+			}
+		}
+	}
+}
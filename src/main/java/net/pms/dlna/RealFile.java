@@ -20,7 +20,6 @@ import com.sun.jna.Platform;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
@@ -28,10 +27,12 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Set;
 import net.pms.database.MediaDatabase;
+import net.pms.database.MediaLibraryWriter;
 import net.pms.database.MediaTableCoverArtArchive;
 import net.pms.database.MediaTableFiles;
 import net.pms.formats.Format;
 import net.pms.formats.FormatFactory;
+import net.pms.io.FileRangeInputStream;
 import net.pms.platform.PlatformUtils;
 import net.pms.util.FileUtil;
 import net.pms.util.ProcessUtil;
@@ -145,9 +146,9 @@ public class RealFile extends VirtualFile {
 	@Override
 	public InputStream getInputStream() {
 		try {
-			return new FileInputStream(getFile());
-		} catch (FileNotFoundException e) {
-			LOGGER.debug("File not found: {}", getFile().getAbsolutePath());
+			return new FileRangeInputStream(getFile());
+		} catch (IOException e) {
+			LOGGER.debug("Cannot open file \"{}\": {}", getFile().getAbsolutePath(), e.toString());
 		}
 
 		return null;
@@ -283,7 +284,11 @@ public class RealFile extends VirtualFile {
 							if (getMedia() != null && getMedia().isVideo()) {
 								registerExternalSubtitles(false);
 							}
-							MediaTableFiles.insertOrUpdateData(connection, fileName, file.lastModified(), getType(), getMedia());
+							if (MediaLibraryWriter.isEnabled()) {
+								MediaLibraryWriter.add(fileName, file.lastModified(), getType(), getMedia());
+							} else {
+								MediaTableFiles.insertOrUpdateData(connection, fileName, file.lastModified(), getType(), getMedia());
+							}
 						} catch (SQLException e) {
 							LOGGER.error(
 								"Database error while trying to add parsed information for \"{}\" to the cache: {}",
@@ -45,6 +45,7 @@ import net.pms.configuration.sharedcontent.StreamContent;
 import net.pms.configuration.sharedcontent.StreamVideoContent;
 import net.pms.configuration.sharedcontent.VirtualFolderContent;
 import net.pms.database.MediaDatabase;
+import net.pms.database.MediaLibraryCleanup;
 import net.pms.database.MediaTableFiles;
 import net.pms.dlna.virtual.MediaLibrary;
 import net.pms.dlna.virtual.VirtualFolder;
@@ -69,7 +70,7 @@ import xmlwise.XmlParseException;
 
 public class RootFolder extends DLNAResource {
 	private static final Logger LOGGER = LoggerFactory.getLogger(RootFolder.class);
-	private boolean running;
+	private volatile boolean running;
 	private FolderLimit lim;
 	private MediaMonitor mon;
 
@@ -251,6 +252,9 @@ public class RootFolder extends DLNAResource {
 		}
 		running = true;
 		GuiManager.setScanLibraryStatus(true, true);
+		// The cleanup and the thumbnail cache warming resume after the scan
+		MediaLibraryCleanup.stop();
+		DLNAThumbnailCache.stopWarming();
 
 		if (!isDiscovered()) {
 			discoverChildren(false);
@@ -266,7 +270,8 @@ public class RootFolder extends DLNAResource {
 					scan(this);
 					// Running might have been set false during scan
 					if (running) {
-						MediaTableFiles.cleanup(connection);
+						MediaLibraryCleanup.start();
+						DLNAThumbnailCache.warm();
 					}
 				}
 			} finally {
@@ -286,46 +291,15 @@ public class RootFolder extends DLNAResource {
 		}
 	}
 
+	/**
+	 * Scans the given resource and its descendants using a
+	 * {@link ParallelFolderScanner}, blocking until done or stopped.
+	 *
+	 * @param resource the resource to scan.
+	 */
 	public void scan(DLNAResource resource) {
 		if (running) {
-			for (DLNAResource child : resource.getChildren()) {
-				// wait until the realtime lock is released before starting
-				PMS.REALTIME_LOCK.lock();
-				PMS.REALTIME_LOCK.unlock();
-
-				if (running && child.allowScan()) {
-					child.setDefaultRenderer(resource.getDefaultRenderer());
-
-					// Display and log which folder is being scanned
-					String childName = child.getName();
-					if (child instanceof RealFile) {
-						LOGGER.debug("Scanning folder: " + childName);
-						GuiManager.setStatusLine(Messages.getString("ScanningFolder") + " " + childName);
-					}
-
-					if (child.isDiscovered()) {
-						child.refreshChildren();
-					} else {
-						if (child instanceof DVDISOFile || child instanceof DVDISOTitle) { // ugly hack
-							child.syncResolve();
-						}
-						child.discoverChildren();
-						child.analyzeChildren(-1, false);
-						child.setDiscovered(true);
-					}
-
-					int count = child.getChildren().size();
-
-					if (count == 0) {
-						continue;
-					}
-
-					scan(child);
-					child.getChildren().clear();
-				} else if (!running) {
-					break;
-				}
-			}
+			new ParallelFolderScanner(configuration, () -> running).scan(resource);
 		} else {
 			GuiManager.setStatusLine(null);
 		}
@@ -1228,59 +1202,111 @@ public class RootFolder extends DLNAResource {
 	 * deleted on the hard drive.
 	 */
 	public static final FileWatcher.Listener LIBRARY_RESCANNER = (String filename, String event, FileWatcher.Watch watch, boolean isDir) -> {
-		if (("ENTRY_DELETE".equals(event) || "ENTRY_CREATE".equals(event) || "ENTRY_MODIFY".equals(event)) && PMS.getConfiguration().getUseCache()) {
+		if (("ENTRY_DELETE".equals(event) || "ENTRY_CREATE".equals(event) || "ENTRY_MODIFY".equals(event) || "OVERFLOW".equals(event)) && PMS.getConfiguration().getUseCache()) {
+			File file = new File(filename);
+			if ("OVERFLOW".equals(event)) {
+				/**
+				 * Some events were lost, so parse what may have been created or
+				 * modified in this folder, and remove what was deleted from it.
+				 */
+				LOGGER.debug("File events were lost in {}, rescanning it", filename);
+				queueFolder(file);
+				Connection connection = MediaDatabase.getConnectionIfAvailable();
+				try {
+					if (connection != null && MediaLibraryCleanup.cleanupFolder(connection, filename) > 0) {
+						for (VirtualFile folder : VirtualFile.getDiscoveredFolders(file)) {
+							folder.bumpUpdateId();
+						}
+						bumpLibraryUpdateIds();
+					}
+				} finally {
+					MediaDatabase.close(connection);
+				}
+				return;
+			}
+
+			/**
+			 * If a new directory is created with files, the listener may not
+			 * give us information about those new files, as it wasn't listening
+			 * when they were created, so make sure we parse them.
+			 *
+			 * Files are queued without a connection, since queueing waits
+			 * while the queue is full.
+			 */
+			if (!"ENTRY_DELETE".equals(event)) {
+				if (isDir) {
+					if ("ENTRY_CREATE".equals(event)) {
+						LOGGER.trace("Folder {} was created on the hard drive", filename);
+						queueFolder(file);
+						bumpUpdateIds(file);
+					}
+				} else {
+					LOGGER.trace("File {} was created on the hard drive", filename);
+					parseFileForDatabase(file);
+				}
+				return;
+			}
+
 			Connection connection = null;
 			try {
 				connection = MediaDatabase.getConnectionIfAvailable();
 				if (connection != null) {
-					/**
-					 * If a new directory is created with files, the listener may not
-					 * give us information about those new files, as it wasn't listening
-					 * when they were created, so make sure we parse them.
-					 */
 					if (isDir) {
-						if ("ENTRY_CREATE".equals(event)) {
-							LOGGER.trace("Folder {} was created on the hard drive", filename);
-							File[] files = new File(filename).listFiles();
-							if (files != null) {
-								LOGGER.trace("Crawling {}", filename);
-								for (File file : files) {
-									if (file.isFile()) {
-										LOGGER.trace("File {} found in {}", file.getName(), filename);
-										parseFileForDatabase(file);
-									}
-								}
-							} else {
-								LOGGER.trace("Folder {} is empty", filename);
-							}
-						} else if ("ENTRY_DELETE".equals(event)) {
-							LOGGER.trace("Folder {} was deleted or moved on the hard drive, removing all files within it from the database", filename);
-							MediaTableFiles.removeMediaEntriesInFolder(connection, filename);
-							bumpSystemUpdateId();
-						}
+						LOGGER.trace("Folder {} was deleted or moved on the hard drive, removing all files within it from the database", filename);
+						LibraryParseQueue.removeFolder(filename);
+						MediaTableFiles.removeMediaEntriesInFolder(connection, filename);
 					} else {
-						if ("ENTRY_DELETE".equals(event)) {
-							LOGGER.trace("File {} was deleted or moved on the hard drive, removing it from the database", filename);
-							MediaTableFiles.removeMediaEntry(connection, filename, true);
-							bumpSystemUpdateId();
-						} else {
-							LOGGER.trace("File {} was created on the hard drive", filename);
-							File file = new File(filename);
-							parseFileForDatabase(file);
-						}
+						LOGGER.trace("File {} was deleted or moved on the hard drive, removing it from the database", filename);
+						LibraryParseQueue.remove(filename);
+						MediaTableFiles.removeMediaEntry(connection, filename, true);
 					}
 				}
 			} finally {
 				MediaDatabase.close(connection);
 			}
+			bumpUpdateIds(file);
 		}
 	};
 
 	/**
-	 * Parses a file so it gets parsed and added to the database
+	 * Bumps the update ids of the containers showing a changed file or folder:
+	 * the discovered folders of its directory, for all the renderers, and the
+	 * media library folders whose content may have changed. Renderers then
+	 * only browse these containers again.
+	 *
+	 * @param file the changed file or folder.
+	 */
+	static void bumpUpdateIds(File file) {
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory != null) {
+			for (VirtualFile folder : VirtualFile.getDiscoveredFolders(directory)) {
+				folder.bumpUpdateId();
+			}
+		}
+		bumpLibraryUpdateIds();
+	}
+
+	/**
+	 * Queues a folder and its subfolders to be crawled by the library parser,
+	 * and their files parsed into the database, after the files that were
+	 * changed on their own.
+	 *
+	 * @param folder the folder to crawl
+	 */
+	private static void queueFolder(File folder) {
+		try {
+			LibraryParseQueue.addFolder(folder);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Queues a file so it gets parsed and added to the database
 	 * along the way.
 	 *
 	 * @param file the file to parse
+	 * @see LibraryParseQueue
 	 */
 	public static final void parseFileForDatabase(File file) {
 		if (!VirtualFile.isPotentialMediaFile(file.getAbsolutePath())) {
@@ -1288,14 +1314,34 @@ public class RootFolder extends DLNAResource {
 			return;
 		}
 
+		try {
+			LibraryParseQueue.add(file, LibraryParseQueue.Priority.HIGH);
+		} catch (InterruptedException e) {
+			LOGGER.debug("Not parsing {} because the thread was interrupted", file.getName());
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Parses a file so it gets added to the database along the way.
+	 *
+	 * @param file the file to parse
+	 * @return whether the file was added to the database
+	 */
+	static boolean parseFile(File file) {
+		if (!VirtualFile.isPotentialMediaFile(file.getAbsolutePath())) {
+			LOGGER.trace("Not parsing file that can't be media");
+			return false;
+		}
+
 		if (!file.exists()) {
 			LOGGER.trace("Not parsing file that no longer exists");
-			return;
+			return false;
 		}
 
 		if (FileUtil.isLocked(file)) {
 			LOGGER.debug("File will not be parsed because it is open in another process");
-			return;
+			return false;
 		}
 
 		// TODO: Can this use UnattachedFolder and add instead?
@@ -1307,7 +1353,7 @@ public class RootFolder extends DLNAResource {
 
 		if (rf.isValid()) {
 			LOGGER.info("New file {} was detected and added to the Media Library", file.getName());
-			bumpSystemUpdateId();
+			bumpUpdateIds(file);
 
 			/*
 			 * Something about this process causes Java to hold onto the
@@ -1316,14 +1362,12 @@ public class RootFolder extends DLNAResource {
 			 * Some sources say it is a symptom of the nio namespace itself
 			 * and the fix is to use older syntax, and others say other things,
 			 * but until we have a real fix for it we ask Java to collect the
-			 * garbage. It might not do it, but usually it does, which is better
-			 * than what we had before.
+			 * garbage. LibraryParseQueue does it once the queue is empty.
 			 */
-			System.gc();
-			System.runFinalization();
-		} else {
-			LOGGER.trace("File {} was not recognized as valid media so was not added to the database", file.getName());
+			return true;
 		}
+		LOGGER.trace("File {} was not recognized as valid media so was not added to the database", file.getName());
+		return false;
 	}
 
 	/**
@@ -0,0 +1,338 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.annotation.concurrent.GuardedBy;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.util.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide scheduler generating the thumbnails of the media, each of
+ * them running an FFmpeg or MPlayer process.
+ * <p>
+ * All thumbnails are generated by one bounded pool of
+ * {@link UmsConfiguration#getThumbnailThreads()} threads. The thumbnails of
+ * the items shown by a renderer are generated before those prefetched by
+ * the browse resolver, which are generated before those of the library
+ * scan. The priority is that of the calling thread, see
+ * {@link #runWithPriority}, and {@link Priority#BACKGROUND} unless the
+ * thread answers a renderer. A thumbnail is never generated twice at the same
+ * time: concurrent requests for the same file wait for the generation
+ * already in progress. A thumbnail nobody waits for anymore, because the
+ * browse was abandoned, is removed from the queue.
+ */
+public class ThumbnailGenerator {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailGenerator.class);
+
+	/** The maximum time to wait for a thumbnail to be generated */
+	private static final long TIMEOUT = 30000;
+
+	/**
+	 * The priority of a thumbnail.
+	 */
+	public enum Priority {
+		/** A thumbnail shown by a renderer */
+		VISIBLE,
+		/** A thumbnail of the page likely to be browsed next */
+		PREFETCH,
+		/** A thumbnail generated by the library scan */
+		BACKGROUND
+	}
+
+	private static final ThreadLocal<Priority> PRIORITY = ThreadLocal.withInitial(() -> Priority.BACKGROUND);
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+
+	@GuardedBy("IN_FLIGHT")
+	private static final Map<Object, Task> IN_FLIGHT = new HashMap<>();
+
+	private static final LongAdder SUBMITTED = new LongAdder();
+	private static final LongAdder DEDUPLICATED = new LongAdder();
+	private static final LongAdder CANCELLED = new LongAdder();
+	private static final LongAdder TIMED_OUT = new LongAdder();
+	private static final LongAdder GENERATED = new LongAdder();
+	private static final LongAdder QUEUED_NANOS = new LongAdder();
+	private static final LongAdder GENERATION_NANOS = new LongAdder();
+	private static final ThreadPoolExecutor EXECUTOR;
+	private static final ScheduledExecutorService FAILSAFE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Thumbnail Failsafe");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	static {
+		UmsConfiguration configuration = PMS.getConfiguration();
+		int threads = configuration != null ? configuration.getThumbnailThreads() : 1;
+		EXECUTOR = new ThreadPoolExecutor(
+			threads,
+			threads,
+			30,
+			TimeUnit.SECONDS,
+			new PriorityBlockingQueue<>(),
+			new BasicThreadFactory("Thumbnail generator thread %d-%d", Thread.MIN_PRIORITY)
+		);
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private ThumbnailGenerator() {
+	}
+
+	/**
+	 * Runs {@code runnable} in the calling thread, generating the thumbnails
+	 * it needs with the given priority.
+	 *
+	 * @param priority the priority of the thumbnails.
+	 * @param runnable the work needing the thumbnails.
+	 */
+	public static void runWithPriority(Priority priority, Runnable runnable) {
+		callWithPriority(priority, () -> {
+			runnable.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Calls {@code supplier} in the calling thread, generating the thumbnails
+	 * it needs with the given priority.
+	 *
+	 * @param <T> the type of the result.
+	 * @param priority the priority of the thumbnails.
+	 * @param supplier the work needing the thumbnails.
+	 * @return The result of {@code supplier}.
+	 */
+	public static <T> T callWithPriority(Priority priority, Supplier<T> supplier) {
+		Priority previous = PRIORITY.get();
+		PRIORITY.set(priority);
+		try {
+			return supplier.get();
+		} finally {
+			PRIORITY.set(previous);
+		}
+	}
+
+	/**
+	 * Generates a thumbnail on the thumbnail pool with the priority of the
+	 * calling thread, blocking until it is generated or a timeout is
+	 * reached. If a thumbnail with the same key is already being generated,
+	 * waits for it instead.
+	 *
+	 * @param key identifies the file and the position of the thumbnail.
+	 * @param generator generates the thumbnail.
+	 * @return The generated thumbnail, or {@code null} if none could be
+	 *         generated in time.
+	 */
+	public static DLNAThumbnail generate(Object key, Supplier<DLNAThumbnail> generator) {
+		Priority priority = PRIORITY.get();
+		Task task;
+		synchronized (IN_FLIGHT) {
+			task = IN_FLIGHT.get(key);
+			if (task == null) {
+				task = new Task(key, generator, priority);
+				IN_FLIGHT.put(key, task);
+				SUBMITTED.increment();
+				EXECUTOR.execute(task);
+			} else {
+				DEDUPLICATED.increment();
+				if (priority.compareTo(task.priority) < 0 && EXECUTOR.remove(task)) {
+					// Move it up the queue
+					task.priority = priority;
+					EXECUTOR.execute(task);
+				}
+			}
+			task.waiters++;
+		}
+
+		try {
+			if (task.done.await(TIMEOUT, TimeUnit.MILLISECONDS)) {
+				return task.thumbnail;
+			}
+			TIMED_OUT.increment();
+			LOGGER.debug("Timed out while waiting for the thumbnail of {}", key);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		abandon(task);
+		return null;
+	}
+
+	/**
+	 * Schedules the failsafe of a thumbnail process, which stops it if it
+	 * takes too long. The returned future must be cancelled when the process
+	 * ends.
+	 *
+	 * @param failsafe stops the process.
+	 * @param delay the maximum duration of the process in milliseconds.
+	 * @return The {@link ScheduledFuture} of the failsafe.
+	 */
+	static ScheduledFuture<?> scheduleFailsafe(Runnable failsafe, long delay) {
+		return FAILSAFE.schedule(failsafe, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private static void abandon(Task task) {
+		synchronized (IN_FLIGHT) {
+			task.waiters--;
+			if (task.waiters == 0 && task.started.compareAndSet(false, true)) {
+				EXECUTOR.remove(task);
+				IN_FLIGHT.remove(task.key, task);
+				task.done.countDown();
+				CANCELLED.increment();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of thumbnails submitted to the pool.
+	 */
+	public static long getSubmittedCount() {
+		return SUBMITTED.sum();
+	}
+
+	/**
+	 * @return the number of requests that joined a generation in progress.
+	 */
+	public static long getDeduplicatedCount() {
+		return DEDUPLICATED.sum();
+	}
+
+	/**
+	 * @return the number of thumbnails removed from the queue because
+	 *         nobody waited for them anymore.
+	 */
+	public static long getCancelledCount() {
+		return CANCELLED.sum();
+	}
+
+	/**
+	 * @return the number of requests which didn't get their thumbnail in
+	 *         time.
+	 */
+	public static long getTimedOutCount() {
+		return TIMED_OUT.sum();
+	}
+
+	/**
+	 * @return the number of thumbnails waiting for a free thread.
+	 */
+	public static int getQueueSize() {
+		return EXECUTOR.getQueue().size();
+	}
+
+	/**
+	 * @return the number of threads generating thumbnails.
+	 */
+	static int getThreads() {
+		return EXECUTOR.getMaximumPoolSize();
+	}
+
+	/**
+	 * @return the number of thumbnails being generated.
+	 */
+	public static int getActiveCount() {
+		return EXECUTOR.getActiveCount();
+	}
+
+	/**
+	 * @return the average time in milliseconds a thumbnail waited for a
+	 *         free thread.
+	 */
+	public static double getAverageQueueTime() {
+		long generated = GENERATED.sum();
+		return generated == 0 ? 0 : QUEUED_NANOS.sum() / 1000000d / generated;
+	}
+
+	/**
+	 * @return the average time in milliseconds it took to generate a
+	 *         thumbnail.
+	 */
+	public static double getAverageGenerationTime() {
+		long generated = GENERATED.sum();
+		return generated == 0 ? 0 : GENERATION_NANOS.sum() / 1000000d / generated;
+	}
+
+	private static class Task implements Runnable, Comparable<Task> {
+		private final Object key;
+		private final Supplier<DLNAThumbnail> generator;
+		private final long sequence = SEQUENCE.incrementAndGet();
+		private final long queued = System.nanoTime();
+		private final AtomicBoolean started = new AtomicBoolean();
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		/** Only changed while out of the queue */
+		@GuardedBy("IN_FLIGHT")
+		private volatile Priority priority;
+
+		@GuardedBy("IN_FLIGHT")
+		private int waiters;
+
+		private volatile DLNAThumbnail thumbnail;
+
+		private Task(Object key, Supplier<DLNAThumbnail> generator, Priority priority) {
+			this.key = key;
+			this.generator = generator;
+			this.priority = priority;
+		}
+
+		@Override
+		public void run() {
+			if (!started.compareAndSet(false, true)) {
+				return;
+			}
+			long start = System.nanoTime();
+			try {
+				thumbnail = generator.get();
+			} catch (RuntimeException e) {
+				LOGGER.debug("Error while generating the thumbnail of {}: {}", key, e.getMessage());
+				LOGGER.trace("", e);
+			} finally {
+				long end = System.nanoTime();
+				QUEUED_NANOS.add(start - queued);
+				GENERATION_NANOS.add(end - start);
+				GENERATED.increment();
+				synchronized (IN_FLIGHT) {
+					IN_FLIGHT.remove(key, this);
+				}
+				done.countDown();
+			}
+		}
+
+		@Override
+		public int compareTo(Task other) {
+			if (priority != other.priority) {
+				return priority.compareTo(other.priority);
+			}
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+}
@@ -19,12 +19,14 @@ package net.pms.dlna;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.Map.Entry;
+import javax.annotation.concurrent.GuardedBy;
 import net.pms.configuration.sharedcontent.VirtualFolderContent;
 import net.pms.formats.Format;
 import net.pms.formats.FormatFactory;
@@ -50,6 +52,21 @@ public class VirtualFile extends DLNAResource {
 	 */
 	public static final Set<String> EXTENSIONS_DENYLIST = Set.of("!qB", "!ut", "1", "dmg", "exe");
 
+	/**
+	 * The number of registrations between two removals of the collected
+	 * folders from {@link #DISCOVERED_FOLDERS}.
+	 */
+	private static final int PRUNE_INTERVAL = 1024;
+
+	/**
+	 * The discovered folders, by the absolute path of their directories, to
+	 * find the containers showing a changed file.
+	 */
+	@GuardedBy("DISCOVERED_FOLDERS")
+	private static final Map<String, List<WeakReference<VirtualFile>>> DISCOVERED_FOLDERS = new HashMap<>();
+	@GuardedBy("DISCOVERED_FOLDERS")
+	private static int registrations;
+
 	private final String forcedName;
 	private final List<File> files;
 	private final List<VirtualFolderContent> virtualFolders;
@@ -268,6 +285,7 @@ public class VirtualFile extends DLNAResource {
 		} else {
 			return;
 		}
+		registerDiscovered();
 
 		int sm = configuration.getSortMethod(getPath());
 
@@ -395,6 +413,61 @@ public class VirtualFile extends DLNAResource {
 		analyzeChildren(-1, isAddGlobally);
 	}
 
+	/**
+	 * Registers this folder as showing the content of its directories.
+	 */
+	private void registerDiscovered() {
+		synchronized (DISCOVERED_FOLDERS) {
+			for (File file : getFiles()) {
+				if (file != null && file.isDirectory()) {
+					List<WeakReference<VirtualFile>> folders = DISCOVERED_FOLDERS.computeIfAbsent(file.getAbsolutePath(), path -> new ArrayList<>());
+					if (folders.stream().noneMatch(folder -> folder.get() == this)) {
+						folders.add(new WeakReference<>(this));
+					}
+				}
+			}
+			if (++registrations % PRUNE_INTERVAL == 0) {
+				Iterator<List<WeakReference<VirtualFile>>> iterator = DISCOVERED_FOLDERS.values().iterator();
+				while (iterator.hasNext()) {
+					List<WeakReference<VirtualFile>> folders = iterator.next();
+					folders.removeIf(folder -> folder.get() == null);
+					if (folders.isEmpty()) {
+						iterator.remove();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the discovered folders showing the content of a directory, for
+	 * all the renderers.
+	 *
+	 * @param directory the directory.
+	 * @return The folders.
+	 */
+	public static List<VirtualFile> getDiscoveredFolders(File directory) {
+		List<VirtualFile> result = new ArrayList<>();
+		synchronized (DISCOVERED_FOLDERS) {
+			List<WeakReference<VirtualFile>> folders = DISCOVERED_FOLDERS.get(directory.getAbsolutePath());
+			if (folders != null) {
+				Iterator<WeakReference<VirtualFile>> iterator = folders.iterator();
+				while (iterator.hasNext()) {
+					VirtualFile folder = iterator.next().get();
+					if (folder == null) {
+						iterator.remove();
+					} else if (folder.isDiscovered()) {
+						result.add(folder);
+					}
+				}
+				if (folders.isEmpty()) {
+					DISCOVERED_FOLDERS.remove(directory.getAbsolutePath());
+				}
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * @return the potentialCover
 	 * @since 1.50
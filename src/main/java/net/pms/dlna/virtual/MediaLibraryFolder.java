@@ -21,10 +21,16 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javax.annotation.concurrent.GuardedBy;
 import net.pms.Messages;
 import net.pms.PMS;
 import net.pms.database.MediaDatabase;
+import net.pms.database.MediaLibraryJournal;
+import net.pms.database.MediaLibraryQueries;
 import net.pms.database.MediaTableFiles;
 import net.pms.database.MediaTableFilesStatus;
 import net.pms.database.MediaTableTVSeries;
@@ -85,8 +91,16 @@ public class MediaLibraryFolder extends VirtualFolder {
 	private String displayNameOverride;
 	private List<String> populatedVirtualFoldersListFromDb;
 	private List<String> populatedFilesListFromDb;
+	private volatile MediaLibraryJournal.Snapshot populatedSnapshot;
 	private static final Logger LOGGER = LoggerFactory.getLogger(MediaLibraryFolder.class);
 
+	/**
+	 * The folders populated from the database, to find those whose content
+	 * may have changed, see {@link #getChangedFolders()}.
+	 */
+	@GuardedBy("POPULATED_FOLDERS")
+	private static final Set<MediaLibraryFolder> POPULATED_FOLDERS = Collections.newSetFromMap(new WeakHashMap<>());
+
 	public MediaLibraryFolder(String name, String sql, int expectedOutput) {
 		this(name, new String[]{sql}, new int[]{expectedOutput}, null, false, false);
 	}
@@ -138,20 +152,53 @@ public class MediaLibraryFolder extends VirtualFolder {
 	}
 
 	private String transformName(String name) {
+		return getQueryName(name).replace("'", "''"); // issue 448
+	}
+
+	private static String getQueryName(String name) {
 		if (name.equals(MediaTableFiles.NONAME)) {
-			name = "";
+			return "";
 		}
-		name = name.replace("'", "''"); // issue 448
 		return name;
 	}
 
+	/**
+	 * @return the values of the {@code '${n}'} placeholders of the SQL
+	 *         templates, from this folder to the root.
+	 */
+	private List<String> getQueryNames() {
+		List<String> names = new ArrayList<>();
+		DLNAResource resource = this;
+		names.add(getQueryName(getName()));
+		while (resource.getParent() != null) {
+			resource = resource.getParent();
+			names.add(getQueryName(resource.getName()));
+		}
+		return names;
+	}
+
+	private List<String> getStrings(Connection connection, String sql) {
+		return MediaLibraryQueries.getStrings(connection, sql, getQueryNames());
+	}
+
+	private List<File> getFiles(Connection connection, String sql) {
+		return MediaLibraryQueries.getFiles(connection, sql, getQueryNames());
+	}
+
 	/**
 	 * Whether the contents of this virtual folder should be refreshed.
+	 * <p>
+	 * The SQL query is only run again if the tables it reads were changed
+	 * since it was last run.
 	 *
 	 * @return true if the old cached SQL result matches the new one.
 	 */
 	@Override
 	public boolean isRefreshNeeded() {
+		if (populatedSnapshot != null && !populatedSnapshot.isChanged()) {
+			return false;
+		}
+
 		Connection connection = null;
 		try {
 			connection = MediaDatabase.getConnectionIfAvailable();
@@ -159,7 +206,7 @@ public class MediaLibraryFolder extends VirtualFolder {
 				String sql = sqls[0];
 				int expectedOutput = expectedOutputs[0];
 				if (sql != null) {
-					sql = transformSQL(sql);
+					MediaLibraryJournal.Snapshot snapshot = MediaLibraryJournal.snapshot(sql);
 
 					if (
 						expectedOutput == EPISODES ||
@@ -172,9 +219,9 @@ public class MediaLibraryFolder extends VirtualFolder {
 						expectedOutput == ISOS_WITH_FILTERS ||
 						expectedOutput == PLAYLISTS
 					) {
-						return !UMSUtils.isListsEqual(populatedFilesListFromDb, MediaTableFiles.getStrings(connection, sql));
+						return !isUnchanged(populatedFilesListFromDb, getStrings(connection, sql), snapshot);
 					} else if (isTextOutputExpected(expectedOutput)) {
-						return !UMSUtils.isListsEqual(populatedVirtualFoldersListFromDb, MediaTableFiles.getStrings(connection, sql));
+						return !isUnchanged(populatedVirtualFoldersListFromDb, getStrings(connection, sql), snapshot);
 					}
 				}
 			} else {
@@ -187,6 +234,19 @@ public class MediaLibraryFolder extends VirtualFolder {
 		return true;
 	}
 
+	/**
+	 * Whether the new result of the SQL query matches the old one, in which
+	 * case the query doesn't need to be run again until the tables it reads
+	 * change.
+	 */
+	private boolean isUnchanged(List<String> populatedList, List<String> newList, MediaLibraryJournal.Snapshot snapshot) {
+		if (UMSUtils.isListsEqual(populatedList, newList)) {
+			populatedSnapshot = snapshot;
+			return true;
+		}
+		return false;
+	}
+
 	private static List<String> getTVSeriesQueries(String tableName, String columnName) {
 		List<String> queries = new ArrayList<>();
 		queries.add("SELECT " + columnName + " FROM " + tableName + " WHERE " + MediaTableTVSeries.CHILD_ID + " IS NOT NULL ORDER BY " + columnName + " ASC");
@@ -266,17 +326,24 @@ public class MediaLibraryFolder extends VirtualFolder {
 					firstSql = sqls[0];
 					expectedOutput = expectedOutputs[0];
 					if (firstSql != null) {
+						// Taken before the queries, so that concurrent changes trigger a refresh
+						populatedSnapshot = MediaLibraryJournal.snapshot(firstSql);
+						synchronized (POPULATED_FOLDERS) {
+							POPULATED_FOLDERS.add(this);
+						}
+						// The template is run with parameters, the names are only pasted into the queries of the subfolders
+						String query = firstSql;
 						firstSql = transformSQL(firstSql);
 						switch (expectedOutput) {
 							case FILES, FILES_NOSORT, PLAYLISTS, ISOS, EPISODES_WITHIN_SEASON -> {
-								firstSql = firstSql.replaceAll(SELECT_DISTINCT_TVSEASON, "SELECT * " + FROM_FILES_VIDEOMETA);
-								filesListFromDb = MediaTableFiles.getFiles(connection, firstSql);
-								populatedFilesListFromDb = MediaTableFiles.getStrings(connection, firstSql);
+								query = query.replaceAll(SELECT_DISTINCT_TVSEASON, "SELECT * " + FROM_FILES_VIDEOMETA);
+								filesListFromDb = getFiles(connection, query);
+								populatedFilesListFromDb = getStrings(connection, query);
 							}
 							case FILES_NOSORT_DEDUPED -> {
 								populatedFilesListFromDb = new ArrayList<>();
 								filesListFromDb = new ArrayList<>();
-								for (File item : MediaTableFiles.getFiles(connection, firstSql)) {
+								for (File item : getFiles(connection, query)) {
 									if (!populatedFilesListFromDb.contains(item.getAbsolutePath())) {
 										filesListFromDb.add(item);
 										populatedFilesListFromDb.add(item.getAbsolutePath());
@@ -284,37 +351,37 @@ public class MediaLibraryFolder extends VirtualFolder {
 								}
 							}
 							case EPISODES -> {
-								filesListFromDb = MediaTableFiles.getFiles(connection, firstSql);
-								populatedFilesListFromDb = MediaTableFiles.getStrings(connection, firstSql);
+								filesListFromDb = getFiles(connection, query);
+								populatedFilesListFromDb = getStrings(connection, query);
 
 								// Build the season filter folders
 								String orderByString = "ORDER BY ";
-								int indexAfterFromInFirstQuery = firstSql.indexOf(FROM_FILES) + FROM_FILES.length();
-								int indexAtJointure = firstSql.indexOf(MediaTableFiles.SQL_LEFT_JOIN_TABLE_VIDEO_METADATA);
+								int indexAfterFromInFirstQuery = query.indexOf(FROM_FILES) + FROM_FILES.length();
+								int indexAtJointure = query.indexOf(MediaTableFiles.SQL_LEFT_JOIN_TABLE_VIDEO_METADATA);
 								if (indexAtJointure > 0) {
 									indexAfterFromInFirstQuery = indexAtJointure + MediaTableFiles.SQL_LEFT_JOIN_TABLE_VIDEO_METADATA.length();
 								}
 								String orderBySection = "ORDER BY " + MediaTableVideoMetadata.TABLE_COL_TVSEASON;
 
-								seasonsQuery.append(firstSql);
+								seasonsQuery.append(query);
 								seasonsQuery.replace(0, indexAfterFromInFirstQuery, SELECT_DISTINCT_TVSEASON);
 
 								int indexBeforeOrderByInFirstQuery = seasonsQuery.indexOf(orderByString);
 								seasonsQuery.replace(indexBeforeOrderByInFirstQuery, seasonsQuery.length(), orderBySection);
-								virtualFoldersListFromDb = MediaTableFiles.getStrings(connection, seasonsQuery.toString());
+								virtualFoldersListFromDb = getStrings(connection, seasonsQuery.toString());
 								populatedVirtualFoldersListFromDb = virtualFoldersListFromDb;
 							}
 							case TEXTS, TEXTS_NOSORT, SEASONS, TVSERIES, TVSERIES_NOSORT, MOVIE_FOLDERS -> {
-								virtualFoldersListFromDb = MediaTableFiles.getStrings(connection, firstSql);
+								virtualFoldersListFromDb = getStrings(connection, query);
 								populatedVirtualFoldersListFromDb = virtualFoldersListFromDb;
 							}
 							case FILES_WITH_FILTERS, ISOS_WITH_FILTERS, TEXTS_NOSORT_WITH_FILTERS, TEXTS_WITH_FILTERS, TVSERIES_WITH_FILTERS -> {
 								if (expectedOutput == TEXTS_NOSORT_WITH_FILTERS || expectedOutput == TEXTS_WITH_FILTERS || expectedOutput == TVSERIES_WITH_FILTERS) {
-									virtualFoldersListFromDb = MediaTableFiles.getStrings(connection, firstSql);
+									virtualFoldersListFromDb = getStrings(connection, query);
 									populatedVirtualFoldersListFromDb = virtualFoldersListFromDb;
 								} else if (expectedOutput == FILES_WITH_FILTERS || expectedOutput == ISOS_WITH_FILTERS) {
-									filesListFromDb = MediaTableFiles.getFiles(connection, firstSql);
-									populatedFilesListFromDb = MediaTableFiles.getStrings(connection, firstSql);
+									filesListFromDb = getFiles(connection, query);
+									populatedFilesListFromDb = getStrings(connection, query);
 								}
 
 								if (!firstSql.toLowerCase().startsWith("select")) {
@@ -692,8 +759,27 @@ public class MediaLibraryFolder extends VirtualFolder {
 		}
 
 		if (isDiscovered()) {
-			bumpSystemUpdateId();
+			bumpUpdateId();
+		}
+	}
+
+	/**
+	 * Gets the discovered folders whose query reads tables that were changed
+	 * since they were populated, or whose changes aren't recorded.
+	 *
+	 * @return The folders that may have changed.
+	 */
+	public static List<MediaLibraryFolder> getChangedFolders() {
+		List<MediaLibraryFolder> changed = new ArrayList<>();
+		synchronized (POPULATED_FOLDERS) {
+			for (MediaLibraryFolder folder : POPULATED_FOLDERS) {
+				MediaLibraryJournal.Snapshot snapshot = folder.populatedSnapshot;
+				if (folder.isDiscovered() && (snapshot == null || snapshot.isChanged())) {
+					changed.add(folder);
+				}
+			}
 		}
+		return changed;
 	}
 
 	/**
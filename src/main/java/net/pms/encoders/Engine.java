@@ -47,6 +47,7 @@ import net.pms.util.ExecutableInfo.ExecutableInfoBuilder;
 import net.pms.util.ExternalProgramInfo;
 import net.pms.util.FilePermissions;
 import net.pms.util.FilePermissions.FileFlag;
+import net.pms.util.LatencyHistogram;
 import net.pms.util.ProgramExecutableType;
 import net.pms.util.ProgramExecutableType.DefaultExecutableType;
 import net.pms.util.Version;
@@ -121,6 +122,12 @@ public abstract class Engine {
 	@GuardedBy("enabledLock")
 	protected boolean enabled = false;
 
+	/**
+	 * The time between the launch of a transcode, at the start of a playback
+	 * or after a seek, and its first bytes of output.
+	 */
+	private final LatencyHistogram seekLatency = new LatencyHistogram();
+
 	/**
 	 * Abstract constructor that sets the final {@code programInfo} variable.
 	 */
@@ -742,6 +749,17 @@ public abstract class Engine {
 		return false;
 	}
 
+	/**
+	 * Returns the histogram of the time between the launch of a transcode by
+	 * this {@link Engine}, at the start of a playback or after a seek, and
+	 * its first bytes of output.
+	 *
+	 * @return The seek-to-first-byte latency histogram.
+	 */
+	public LatencyHistogram getSeekLatency() {
+		return seekLatency;
+	}
+
 	public abstract ProcessWrapper launchTranscode(
 		DLNAResource dlna,
 		DLNAMediaInfo media,
@@ -1135,13 +1135,6 @@ public class FFMpegVideo extends Engine {
 			 */
 			mkfifoProcess.runInSameThread();
 			pw.attachProcess(mkfifoProcess); // Clean up the mkfifo process when the transcode ends
-
-			// Give the mkfifo process a little time
-			try {
-				Thread.sleep(300);
-			} catch (InterruptedException e) {
-				LOGGER.error("Thread interrupted while waiting for named pipe to be created", e);
-			}
 		} else {
 			pipe = PlatformUtils.INSTANCE.getPipeProcess(System.currentTimeMillis() + "tsmuxerout.ts");
 
@@ -1287,15 +1280,8 @@ public class FFMpegVideo extends Engine {
 			ffAudio.runInNewThread();
 		}
 
-		// Launch the transcode command...
+		// Launch the transcode command, the caller waits for its output
 		pw.runInNewThread();
-		// ...and wait briefly to allow it to start
-		try {
-			Thread.sleep(200);
-		} catch (InterruptedException e) {
-			LOGGER.error("Thread interrupted while waiting for transcode to start", e.getMessage());
-			LOGGER.trace("", e);
-		}
 		configuration = prev;
 		return pw;
 	}
@@ -1315,6 +1301,113 @@ public class FFMpegVideo extends Engine {
 		boolean needVideo = hlsConfiguration.video.resolutionWidth > -1;
 		boolean needAudio = hlsConfiguration.audioStream > -1;
 		boolean needSubtitle = hlsConfiguration.subtitle > -1;
+
+		List<String> cmdList = getHlsTranscodeCommand(dlna, media, params);
+
+		cmdList.add("-f");
+		if (needSubtitle && !needAudio && !needVideo) {
+			cmdList.add("webvtt");
+		} else {
+			cmdList.add("mpegts");
+			cmdList.add("-skip_estimate_duration_from_pts");
+			cmdList.add("1");
+			cmdList.add("-use_wallclock_as_timestamps");
+			cmdList.add("1");
+			//transcodeOptions.add("-mpegts_flags");
+			//transcodeOptions.add("latm");
+			cmdList.add("-movflags");
+			cmdList.add("frag_keyframe"); //frag_keyframe
+		}
+
+		ProcessWrapperImpl pw = runTranscodeProcess(params, cmdList);
+
+		configuration = prev;
+		return pw;
+	}
+
+	/**
+	 * Launches FFmpeg to transcode a window of HLS segments, starting at
+	 * {@code params.getTimeSeek()} and stopping at {@code params.getTimeEnd()},
+	 * into {@code folder}. The segments are cut every
+	 * {@link HlsHelper#DEFAULT_TARGETDURATION} seconds of the media, numbered
+	 * from {@code firstSegment}, and each finished segment is listed on the
+	 * standard error as {@code <number>.ts,<start>,<end>}.
+	 *
+	 * @param dlna the resource to transcode.
+	 * @param media the media of the resource.
+	 * @param params the HLS output parameters.
+	 * @param folder the folder to write the segments to.
+	 * @param firstSegment the number of the first segment.
+	 * @param segmentListConsumer the consumer of the standard error.
+	 * @return The process, not yet started.
+	 */
+	public synchronized ProcessWrapperImpl launchHlsSegmenter(
+		DLNAResource dlna,
+		DLNAMediaInfo media,
+		OutputParams params,
+		File folder,
+		int firstSegment,
+		OutputConsumer segmentListConsumer
+	) {
+		// Use device-specific conf
+		UmsConfiguration prev = configuration;
+		configuration = params.getMediaRenderer().getUmsConfiguration();
+		boolean needVideo = params.getHlsConfiguration().video.resolutionWidth > -1;
+
+		List<String> cmdList = getHlsTranscodeCommand(dlna, media, params);
+
+		// Cut at the same times as a single segment transcode would
+		cmdList.add("-start_at_zero");
+		StringBuilder segmentTimes = new StringBuilder();
+		int segments = (int) Math.round((params.getTimeEnd() - params.getTimeSeek()) / HlsHelper.DEFAULT_TARGETDURATION);
+		for (int i = 1; i < segments; i++) {
+			if (i > 1) {
+				segmentTimes.append(',');
+			}
+			segmentTimes.append(String.format(Locale.ENGLISH, "%.3f", (firstSegment + i) * HlsHelper.DEFAULT_TARGETDURATION));
+		}
+		if (needVideo && segmentTimes.length() > 0) {
+			cmdList.add("-force_key_frames");
+			cmdList.add(segmentTimes.toString());
+		}
+		cmdList.add("-f");
+		cmdList.add("segment");
+		cmdList.add("-segment_format");
+		cmdList.add("mpegts");
+		if (segmentTimes.length() > 0) {
+			cmdList.add("-segment_times");
+			cmdList.add(segmentTimes.toString());
+		}
+		cmdList.add("-segment_start_number");
+		cmdList.add(String.valueOf(firstSegment));
+		cmdList.add("-segment_list");
+		cmdList.add("pipe:2");
+		cmdList.add("-segment_list_type");
+		cmdList.add("csv");
+		cmdList.add(new File(folder, "%d.ts").getAbsolutePath());
+
+		params.setLog(true);
+		ProcessWrapperImpl pw = new ProcessWrapperImpl(cmdList.toArray(String[]::new), params);
+		pw.setStderrConsumer(segmentListConsumer);
+
+		configuration = prev;
+		return pw;
+	}
+
+	/**
+	 * Builds the FFmpeg command line of an HLS transcode, up to the output
+	 * format. The caller must have set {@link #configuration} to the renderer
+	 * configuration.
+	 */
+	private List<String> getHlsTranscodeCommand(
+		DLNAResource dlna,
+		DLNAMediaInfo media,
+		OutputParams params
+	) {
+		HlsHelper.HlsConfiguration hlsConfiguration = params.getHlsConfiguration();
+		boolean needVideo = hlsConfiguration.video.resolutionWidth > -1;
+		boolean needAudio = hlsConfiguration.audioStream > -1;
+		boolean needSubtitle = hlsConfiguration.subtitle > -1;
 		String filename = dlna.getFileName();
 
 		// Build the command line
@@ -1471,26 +1564,7 @@ public class FFMpegVideo extends Engine {
 
 		// Encoder threads
 		setEncodingThreads(cmdList, configuration);
-
-		cmdList.add("-f");
-		if (needSubtitle && !needAudio && !needVideo) {
-			cmdList.add("webvtt");
-		} else {
-			cmdList.add("mpegts");
-			cmdList.add("-skip_estimate_duration_from_pts");
-			cmdList.add("1");
-			cmdList.add("-use_wallclock_as_timestamps");
-			cmdList.add("1");
-			//transcodeOptions.add("-mpegts_flags");
-			//transcodeOptions.add("latm");
-			cmdList.add("-movflags");
-			cmdList.add("frag_keyframe"); //frag_keyframe
-		}
-
-		ProcessWrapperImpl pw = runTranscodeProcess(params, cmdList);
-
-		configuration = prev;
-		return pw;
+		return cmdList;
 	}
 
 	public static void setLogLevel(List<String> cmdList, UmsConfiguration configuration) {
@@ -1620,21 +1694,8 @@ public class FFMpegVideo extends Engine {
 		ProcessWrapperImpl pw = new ProcessWrapperImpl(cmdArray, params);
 		pw.attachProcess(mkfifoProcess); // Clean up the mkfifo process when the transcode ends
 
-		// Give the mkfifo process a little time
-		try {
-			Thread.sleep(300);
-		} catch (InterruptedException e) {
-			LOGGER.error("Thread interrupted while waiting for named pipe to be created", e);
-		}
-
-		// Launch the transcode command...
+		// Launch the transcode command, the caller waits for its output
 		pw.runInNewThread();
-		// ...and wait briefly to allow it to start
-		try {
-			Thread.sleep(200);
-		} catch (InterruptedException e) {
-			LOGGER.error("Thread interrupted while waiting for transcode to start", e);
-		}
 		return pw;
 	}
 
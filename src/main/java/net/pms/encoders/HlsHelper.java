@@ -308,22 +308,32 @@ public class HlsHelper {
 	}
 
 	public static TimeRange getTimeRange(String url) {
-		if (!url.contains("/")) {
+		int position = getSegmentIndex(url);
+		if (position < 0) {
 			return null;
 		}
+		double askedStart =  Double.valueOf(position) * HlsHelper.DEFAULT_TARGETDURATION;
+		return new TimeRange(askedStart, askedStart + HlsHelper.DEFAULT_TARGETDURATION);
+	}
+
+	/**
+	 * @param url the segment URL.
+	 * @return The segment number, or -1 if the URL is not a segment URL.
+	 */
+	public static int getSegmentIndex(String url) {
+		if (!url.contains("/")) {
+			return -1;
+		}
 		String positionStr = url.substring(url.lastIndexOf("/") + 1);
 		if (!positionStr.contains(".")) {
-			return null;
+			return -1;
 		}
 		positionStr = positionStr.substring(0, positionStr.indexOf("."));
-		int position;
 		try {
-			position = Integer.parseInt(positionStr);
+			return Integer.parseInt(positionStr);
 		} catch (NumberFormatException es) {
-			return null;
+			return -1;
 		}
-		double askedStart =  Double.valueOf(position) * HlsHelper.DEFAULT_TARGETDURATION;
-		return new TimeRange(askedStart, askedStart + HlsHelper.DEFAULT_TARGETDURATION);
 	}
 
 	public static InputStream getInputStream(String url, DLNAResource resource, Renderer renderer) throws IOException {
@@ -336,6 +346,9 @@ public class HlsHelper {
 		HlsHelper.HlsConfiguration hlsConfiguration = getByKey(rendition);
 		Range timeRange = HlsHelper.getTimeRange(url);
 		if (hlsConfiguration != null && timeRange != null) {
+			if (HlsSegmenter.isSupported(resource, hlsConfiguration)) {
+				return HlsSegmenter.getSegment(resource, renderer, rendition, hlsConfiguration, getSegmentIndex(url));
+			}
 			return resource.getInputStream(timeRange, renderer, hlsConfiguration);
 		}
 		return null;
@@ -0,0 +1,594 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.encoders;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.concurrent.GuardedBy;
+import net.pms.PMS;
+import net.pms.dlna.DLNAResource;
+import net.pms.io.IPushOutput;
+import net.pms.io.OutputParams;
+import net.pms.io.OutputTextLogger;
+import net.pms.io.ProcessWrapperImpl;
+import net.pms.renderers.Renderer;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transcodes the HLS segments of a resource rendition with one FFmpeg process
+ * that runs ahead of the playhead, instead of one FFmpeg process per segment.
+ * <p>
+ * Each run transcodes a window of {@link #LOOK_AHEAD} segments into the
+ * temporary folder. A segment that is already transcoded is served from
+ * there, a segment that the current run will soon reach is waited for, and
+ * any other segment is a seek that restarts FFmpeg at that segment. The next
+ * window is started once the playhead is less than half a window away from
+ * the last transcoded segment.
+ * <p>
+ * The segments of all resources together are limited to
+ * {@link net.pms.configuration.UmsConfiguration#getHlsSegmentCacheSize()}
+ * megabytes, the least recently used segments are deleted first. The memory
+ * cache of the segments is the file system cache of the operating system.
+ * <p>
+ * There is a segmenter per resource, rendition and renderer, since the
+ * transcode depends on the renderer configuration. A segmenter that gets no
+ * request for {@link #IDLE_TIMEOUT} milliseconds, once the playback stopped,
+ * is stopped and its segments are deleted.
+ */
+public class HlsSegmenter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(HlsSegmenter.class);
+
+	/** The number of segments transcoded by each FFmpeg run */
+	private static final int LOOK_AHEAD = 20;
+
+	/**
+	 * How many segments past the last transcoded segment are waited for
+	 * rather than treated as a seek.
+	 */
+	private static final int SEEK_DISTANCE = 3;
+
+	/** How long to wait for a segment, in milliseconds */
+	private static final long TIMEOUT = 30000;
+
+	/**
+	 * How long a segmenter is kept without a segment request, in
+	 * milliseconds. It must be longer than {@link #TIMEOUT}.
+	 */
+	private static final long IDLE_TIMEOUT = 120000;
+
+	/** A line of the segment list, as {@code <number>.ts,<start>,<end>} */
+	private static final Pattern SEGMENT_LIST_ENTRY = Pattern.compile("^(\\d+)\\.ts,[\\d.]+,[\\d.]+$");
+
+	@GuardedBy("SEGMENTERS")
+	private static final Map<String, HlsSegmenter> SEGMENTERS = new HashMap<>();
+
+	private static final ScheduledExecutorService CLEANER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "HLS segment cleaner");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static final AtomicInteger RUN_COUNTER = new AtomicInteger();
+
+	/** Orders the segment accesses, for the least recently used eviction */
+	private static final AtomicLong ACCESS_COUNTER = new AtomicLong();
+	private static final AtomicLong CACHED_BYTES = new AtomicLong();
+	private static final LongAdder HITS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+	private static final LongAdder RUNS = new LongAdder();
+
+	private static File folder;
+
+	private final String key;
+	private final DLNAResource resource;
+	private final Renderer renderer;
+	private final HlsHelper.HlsConfiguration hlsConfiguration;
+	private final int segmentCount;
+
+	/** The transcoded segments by number */
+	@GuardedBy("this")
+	private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+	@GuardedBy("this")
+	private Run run;
+
+	/** Whether the segmenter was removed, after it was idle */
+	@GuardedBy("this")
+	private boolean closed;
+
+	/** The time of the last segment request */
+	@GuardedBy("SEGMENTERS")
+	private long lastRequest = System.currentTimeMillis();
+
+	private static class Segment {
+		private final File file;
+		private final long size;
+		private long lastAccess;
+
+		private Segment(File file, long size) {
+			this.file = file;
+			this.size = size;
+			this.lastAccess = ACCESS_COUNTER.incrementAndGet();
+		}
+	}
+
+	/**
+	 * One FFmpeg process, transcoding the segments from {@code first} to
+	 * {@code end} (excluded) into its own folder, so a stopped process that
+	 * is still exiting never writes over the segments of the next one.
+	 */
+	private static class Run {
+		private final int end;
+		private final File folder;
+		private ProcessWrapperImpl process;
+		private int next;
+		private boolean finished;
+
+		private Run(int first, int end, File folder) {
+			this.end = end;
+			this.folder = folder;
+			this.next = first;
+		}
+	}
+
+	HlsSegmenter(String key, DLNAResource resource, Renderer renderer, HlsHelper.HlsConfiguration hlsConfiguration, int segmentCount) {
+		this.key = key;
+		this.resource = resource;
+		this.renderer = renderer;
+		this.hlsConfiguration = hlsConfiguration;
+		this.segmentCount = segmentCount;
+	}
+
+	/**
+	 * Returns whether the segments of a rendition can be transcoded by a
+	 * segmenter. Subtitle renditions and streamed resources are transcoded
+	 * one segment at a time.
+	 *
+	 * @param resource the resource.
+	 * @param hlsConfiguration the rendition.
+	 * @return {@code true} if {@link #getSegment} can be used.
+	 */
+	public static boolean isSupported(DLNAResource resource, HlsHelper.HlsConfiguration hlsConfiguration) {
+		return PMS.getConfiguration().getHlsSegmentCacheSize() > 0 &&
+			!hlsConfiguration.isSubtitle() &&
+			resource.getEngine() instanceof FFMpegVideo &&
+			!(resource instanceof IPushOutput) &&
+			resource.getMedia() != null &&
+			resource.getMedia().getDurationInSeconds() > 0;
+	}
+
+	/**
+	 * Gets a segment of a rendition, waiting for it to be transcoded if
+	 * needed.
+	 *
+	 * @param resource the resource.
+	 * @param renderer the renderer.
+	 * @param rendition the rendition name, as used in the HLS URLs.
+	 * @param hlsConfiguration the rendition.
+	 * @param index the segment number.
+	 * @return The segment, or {@code null} if it couldn't be transcoded.
+	 * @throws IOException
+	 */
+	public static InputStream getSegment(
+		DLNAResource resource,
+		Renderer renderer,
+		String rendition,
+		HlsHelper.HlsConfiguration hlsConfiguration,
+		int index
+	) throws IOException {
+		String key = resource.getResourceId() + "/" + rendition + "/" + renderer.getId();
+		HlsSegmenter segmenter;
+		synchronized (SEGMENTERS) {
+			if (folder == null) {
+				folder = new File(PMS.getConfiguration().getTempFolder(), "hls");
+				// Left over by a previous run
+				FileUtils.deleteQuietly(folder);
+				CLEANER.scheduleWithFixedDelay(() -> removeIdle(System.currentTimeMillis()), IDLE_TIMEOUT, IDLE_TIMEOUT / 4, TimeUnit.MILLISECONDS);
+			}
+			segmenter = SEGMENTERS.get(key);
+			if (segmenter == null) {
+				int segmentCount = (int) Math.ceil(resource.getMedia().getDurationInSeconds() / HlsHelper.DEFAULT_TARGETDURATION);
+				segmenter = new HlsSegmenter(key, resource, renderer, hlsConfiguration, segmentCount);
+				SEGMENTERS.put(key, segmenter);
+			}
+			segmenter.lastRequest = System.currentTimeMillis();
+		}
+		return segmenter.get(index);
+	}
+
+	/**
+	 * Adds a segmenter, as {@link #getSegment} does.
+	 *
+	 * @param segmenter the segmenter.
+	 */
+	static void register(HlsSegmenter segmenter) {
+		synchronized (SEGMENTERS) {
+			SEGMENTERS.put(segmenter.key, segmenter);
+		}
+	}
+
+	/**
+	 * Parses a line of the segment list written by FFmpeg.
+	 *
+	 * @param line the line.
+	 * @return The number of the finished segment, or -1 if the line is not a
+	 *         segment list entry.
+	 */
+	static int parseSegmentListEntry(String line) {
+		Matcher matcher = SEGMENT_LIST_ENTRY.matcher(line.trim());
+		if (!matcher.matches()) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(matcher.group(1));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns whether a segment that isn't transcoded is a seek, which
+	 * restarts FFmpeg, rather than a segment the running FFmpeg will soon
+	 * reach.
+	 *
+	 * @param next the next segment of the running FFmpeg.
+	 * @param end the segment where the running FFmpeg stops, excluded.
+	 * @param index the requested segment.
+	 * @return {@code true} if FFmpeg must be restarted at {@code index}.
+	 */
+	static boolean isSeek(int next, int end, int index) {
+		return index < next || index >= end || index > next + SEEK_DISTANCE;
+	}
+
+	/**
+	 * Returns the segment where the next window starts, when the playhead
+	 * gets close to the last transcoded segment.
+	 *
+	 * @param index the segment being played.
+	 * @param segmentCount the number of segments.
+	 * @param cached whether a segment is already transcoded.
+	 * @return The first segment to transcode, or -1 if it is not time yet.
+	 */
+	static int getLookAheadStart(int index, int segmentCount, IntPredicate cached) {
+		int next = index + 1;
+		while (next < segmentCount && cached.test(next)) {
+			next++;
+		}
+		return next < segmentCount && next - index <= LOOK_AHEAD / 2 ? next : -1;
+	}
+
+	/**
+	 * @return the number of segments served from the cache.
+	 */
+	public static long getHits() {
+		return HITS.sum();
+	}
+
+	/**
+	 * @return the number of segments that had to be waited for.
+	 */
+	public static long getMisses() {
+		return MISSES.sum();
+	}
+
+	/**
+	 * @return the number of FFmpeg processes started, one per window and per
+	 *         seek.
+	 */
+	public static long getRuns() {
+		return RUNS.sum();
+	}
+
+	/**
+	 * @return the size in bytes of the cached segments.
+	 */
+	public static long getCachedBytes() {
+		return CACHED_BYTES.get();
+	}
+
+	/**
+	 * @return the number of resource renditions being segmented.
+	 */
+	public static int getSegmenters() {
+		synchronized (SEGMENTERS) {
+			return SEGMENTERS.size();
+		}
+	}
+
+	private synchronized InputStream get(int index) throws IOException {
+		if (closed || index < 0 || index >= segmentCount) {
+			return null;
+		}
+
+		InputStream segment = open(index);
+		if (segment != null) {
+			HITS.increment();
+			lookAhead(index);
+			return segment;
+		}
+
+		MISSES.increment();
+		if (run == null || run.finished || isSeek(run.next, run.end, index)) {
+			start(index);
+		}
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while ((segment = open(index)) == null) {
+			// A seek of another request may have moved the run away
+			if (closed || run == null || run.finished || index < run.next || index >= run.end) {
+				LOGGER.debug("HLS segment {} of {} was not transcoded", index, key);
+				return null;
+			}
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				LOGGER.debug("Timed out waiting for HLS segment {} of {}", index, key);
+				return null;
+			}
+			try {
+				wait(remaining);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+		lookAhead(index);
+		return segment;
+	}
+
+	@GuardedBy("this")
+	private InputStream open(int index) {
+		Segment segment = segments.get(index);
+		if (segment == null) {
+			return null;
+		}
+		try {
+			InputStream inputStream = new FileInputStream(segment.file);
+			segment.lastAccess = ACCESS_COUNTER.incrementAndGet();
+			return inputStream;
+		} catch (FileNotFoundException e) {
+			segments.remove(index);
+			CACHED_BYTES.addAndGet(-segment.size);
+			return null;
+		}
+	}
+
+	/**
+	 * Starts the next window when the playhead gets close to the last
+	 * transcoded segment.
+	 */
+	@GuardedBy("this")
+	private void lookAhead(int index) {
+		if (run != null && !run.finished) {
+			return;
+		}
+		int next = getLookAheadStart(index, segmentCount, segments::containsKey);
+		if (next != -1) {
+			start(next);
+		}
+	}
+
+	@GuardedBy("this")
+	private void start(int first) {
+		stop();
+
+		// Stop at the next segment that is already transcoded
+		Integer cached = segments.higherKey(first);
+		int end = Math.min(segmentCount, first + LOOK_AHEAD);
+		if (cached != null && cached < end) {
+			end = cached;
+		}
+
+		File runFolder = new File(folder, "run" + RUN_COUNTER.incrementAndGet());
+		if (!runFolder.mkdirs()) {
+			LOGGER.debug("Could not create the HLS segment folder \"{}\"", runFolder);
+			return;
+		}
+		Run newRun = new Run(first, end, runFolder);
+
+		OutputParams params = new OutputParams(PMS.getConfiguration(renderer));
+		params.setAid(resource.getMediaAudio());
+		params.setSid(resource.getMediaSubtitle());
+		params.setMediaRenderer(renderer);
+		params.setHlsConfiguration(hlsConfiguration);
+		params.setTimeSeek(first * HlsHelper.DEFAULT_TARGETDURATION);
+		params.setTimeEnd(end * HlsHelper.DEFAULT_TARGETDURATION);
+
+		OutputTextLogger segmentList = new OutputTextLogger(null) {
+			@Override
+			public boolean filter(String line) {
+				int index = parseSegmentListEntry(line);
+				if (index != -1) {
+					completed(newRun, index);
+				}
+				return true;
+			}
+		};
+		segmentList.setFiltered(true);
+		FFMpegVideo engine = (FFMpegVideo) resource.getEngine();
+		newRun.process = engine.launchHlsSegmenter(resource, resource.getMedia(), params, runFolder, first, segmentList);
+		run = newRun;
+		RUNS.increment();
+		notifyAll();
+		LOGGER.debug("Transcoding HLS segments {} to {} of {}", first, end - 1, key);
+
+		Thread thread = new Thread(() -> {
+			newRun.process.runInSameThread();
+			finished(newRun);
+		}, "HLS segmenter " + key);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@GuardedBy("this")
+	private void stop() {
+		if (run != null && !run.finished) {
+			LOGGER.debug("Stopping the transcode of HLS segments {} to {} of {}", run.next, run.end - 1, key);
+			run.process.stopProcess();
+			run.finished = true;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Adds a transcoded segment.
+	 *
+	 * @param index the segment number.
+	 * @param file the segment file.
+	 */
+	synchronized void add(int index, File file) {
+		long size = file.length();
+		if (size > 0) {
+			Segment previous = segments.put(index, new Segment(file, size));
+			CACHED_BYTES.addAndGet(size);
+			if (previous != null) {
+				CACHED_BYTES.addAndGet(-previous.size);
+				if (!previous.file.equals(file)) {
+					FileUtils.deleteQuietly(previous.file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param index the segment number.
+	 * @return whether the segment is transcoded.
+	 */
+	synchronized boolean isCached(int index) {
+		return segments.containsKey(index);
+	}
+
+	/**
+	 * Stops FFmpeg and deletes the segments.
+	 */
+	private synchronized void close() {
+		stop();
+		closed = true;
+		for (Segment segment : segments.values()) {
+			CACHED_BYTES.addAndGet(-segment.size);
+			FileUtils.deleteQuietly(segment.file);
+			String[] files = segment.file.getParentFile().list();
+			if (files != null && files.length == 0) {
+				FileUtils.deleteQuietly(segment.file.getParentFile());
+			}
+		}
+		segments.clear();
+		notifyAll();
+	}
+
+	/**
+	 * Called by the segment list consumer when FFmpeg has finished writing a
+	 * segment.
+	 */
+	private void completed(Run completedRun, int index) {
+		File file = new File(completedRun.folder, index + ".ts");
+		synchronized (this) {
+			if (closed) {
+				FileUtils.deleteQuietly(file);
+				return;
+			}
+			add(index, file);
+			completedRun.next = Math.max(completedRun.next, index + 1);
+			notifyAll();
+		}
+		evict(PMS.getConfiguration().getHlsSegmentCacheSize() * 1024L * 1024L);
+	}
+
+	private void finished(Run finishedRun) {
+		synchronized (this) {
+			finishedRun.finished = true;
+			notifyAll();
+		}
+		String[] files = finishedRun.folder.list();
+		if (files != null && files.length == 0) {
+			FileUtils.deleteQuietly(finishedRun.folder);
+		}
+	}
+
+	/**
+	 * Deletes the least recently used segments until the cache fits its
+	 * size.
+	 *
+	 * @param maxBytes the size of the cache in bytes.
+	 */
+	static void evict(long maxBytes) {
+		while (CACHED_BYTES.get() > maxBytes) {
+			HlsSegmenter owner = null;
+			int oldestIndex = -1;
+			long oldestAccess = Long.MAX_VALUE;
+			synchronized (SEGMENTERS) {
+				for (HlsSegmenter segmenter : SEGMENTERS.values()) {
+					synchronized (segmenter) {
+						for (Map.Entry<Integer, Segment> entry : segmenter.segments.entrySet()) {
+							if (entry.getValue().lastAccess < oldestAccess) {
+								oldestAccess = entry.getValue().lastAccess;
+								oldestIndex = entry.getKey();
+								owner = segmenter;
+							}
+						}
+					}
+				}
+				if (owner == null) {
+					return;
+				}
+				synchronized (owner) {
+					Segment segment = owner.segments.remove(oldestIndex);
+					if (segment != null) {
+						CACHED_BYTES.addAndGet(-segment.size);
+						FileUtils.deleteQuietly(segment.file);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops the segmenters that got no request for {@link #IDLE_TIMEOUT}
+	 * milliseconds and deletes their segments.
+	 *
+	 * @param now the current time in milliseconds.
+	 */
+	static void removeIdle(long now) {
+		synchronized (SEGMENTERS) {
+			Iterator<HlsSegmenter> iterator = SEGMENTERS.values().iterator();
+			while (iterator.hasNext()) {
+				HlsSegmenter segmenter = iterator.next();
+				if (now - segmenter.lastRequest > IDLE_TIMEOUT) {
+					LOGGER.debug("Removing the idle HLS segmenter of {}", segmenter.key);
+					iterator.remove();
+					segmenter.close();
+				}
+			}
+		}
+	}
+}
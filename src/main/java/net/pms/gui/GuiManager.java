@@ -220,6 +220,15 @@ public class GuiManager {
 		}
 	}
 
+	public static void setScanLibraryProgress(long folders, long files, long filesPerSecond) {
+		if (swingFrame != null) {
+			swingFrame.setScanLibraryProgress(folders, files, filesPerSecond);
+		}
+		if (webGui != null) {
+			webGui.setScanLibraryProgress(folders, files, filesPerSecond);
+		}
+	}
+
 	public static void enableWebUiButton() {
 		if (swingFrame != null) {
 			swingFrame.enableWebUiButton();
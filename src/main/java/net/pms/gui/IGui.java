@@ -32,6 +32,7 @@ public interface IGui {
 	public void serverReady();
 	public void updateServerStatus();
 	public void setScanLibraryStatus(boolean enabled, boolean running);
+	public void setScanLibraryProgress(long folders, long files, long filesPerSecond);
 	public void enableWebUiButton();
 	public void showErrorMessage(String message, String title);
 	public void setConfigurationChanged(String key);
@@ -50,9 +50,9 @@ public abstract class ImageInfo implements Serializable {
 	private static final long serialVersionUID = 4247040093720562338L;
 
 	/*
-	 * Please note: This class is packed and stored in the database. Any changes
-	 * to the data structure (fields) will invalidate any instances already
-	 * stored.
+	 * Please note: This class is packed and stored in the database by
+	 * ImageInfoCodec. Any changes to the data structure (fields) must be
+	 * reflected there, and its VERSION must be bumped.
 	 */
 	private static final Logger LOGGER = LoggerFactory.getLogger(ImageInfo.class);
 	/**
@@ -0,0 +1,473 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.image;
+
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import net.pms.image.BMPInfo.CompressionType;
+import net.pms.image.ExifInfo.ExifColorSpace;
+import net.pms.image.ExifInfo.ExifCompression;
+import net.pms.image.ExifInfo.PhotometricInterpretation;
+import net.pms.image.PNGInfo.InterlaceMethod;
+import net.pms.image.PSDInfo.ColorMode;
+import com.drew.imaging.png.PngColorType;
+import com.drew.metadata.jpeg.JpegComponent;
+
+/**
+ * A compact, versioned binary encoding of {@link ImageInfo} instances used to
+ * store them in the database instead of Java serialization.
+ * <p>
+ * The encoding starts with {@link #MAGIC} and a version byte, followed by the
+ * {@link ImageInfo} subclass and its fields. Enums are stored by name so that
+ * reordering their constants doesn't invalidate stored instances, but adding,
+ * removing or changing fields requires a new version.
+ */
+public final class ImageInfoCodec {
+
+	/**
+	 * The first byte of an encoded {@link ImageInfo}. It can't be confused
+	 * with the first byte of a Java serialization stream ({@code 0xAC}).
+	 */
+	public static final byte MAGIC = 'I';
+
+	/** The current encoding version */
+	public static final byte VERSION = 1;
+
+	private static final byte TYPE_BMP = 1;
+	private static final byte TYPE_CUR = 2;
+	private static final byte TYPE_GIF = 3;
+	private static final byte TYPE_GENERIC = 4;
+	private static final byte TYPE_ICO = 5;
+	private static final byte TYPE_JPEG = 6;
+	private static final byte TYPE_PCX = 7;
+	private static final byte TYPE_PNG = 8;
+	private static final byte TYPE_PSD = 9;
+	private static final byte TYPE_RAW = 10;
+	private static final byte TYPE_TIFF = 11;
+	private static final byte TYPE_WEBP = 12;
+
+	private static final byte COLOR_SPACE_NONE = 0;
+	private static final byte COLOR_SPACE_STANDARD = 1;
+	private static final byte COLOR_SPACE_ICC = 2;
+	private static final int[] STANDARD_COLOR_SPACES = {
+		ColorSpace.CS_sRGB,
+		ColorSpace.CS_LINEAR_RGB,
+		ColorSpace.CS_CIEXYZ,
+		ColorSpace.CS_PYCC,
+		ColorSpace.CS_GRAY
+	};
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private ImageInfoCodec() {
+	}
+
+	/**
+	 * Checks whether {@code bytes} holds an {@link ImageInfo} encoded by this
+	 * codec.
+	 *
+	 * @param bytes the bytes to check.
+	 * @return {@code true} if {@code bytes} starts with {@link #MAGIC},
+	 *         {@code false} otherwise.
+	 */
+	public static boolean isEncoded(byte[] bytes) {
+		return bytes != null && bytes.length > 1 && bytes[0] == MAGIC;
+	}
+
+	/**
+	 * Encodes an {@link ImageInfo} instance.
+	 *
+	 * @param imageInfo the {@link ImageInfo} to encode.
+	 * @return The encoded bytes or {@code null} if {@code imageInfo} is
+	 *         {@code null}.
+	 * @throws IOException If {@code imageInfo} is of an unknown type.
+	 */
+	public static byte[] encode(ImageInfo imageInfo) throws IOException {
+		if (imageInfo == null) {
+			return null;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			write(out, imageInfo);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes an {@link ImageInfo} instance encoded with
+	 * {@link #encode(ImageInfo)}.
+	 *
+	 * @param bytes the encoded bytes.
+	 * @return The decoded {@link ImageInfo} or {@code null} if {@code bytes}
+	 *         is {@code null}.
+	 * @throws IOException If {@code bytes} isn't a valid encoding.
+	 */
+	public static ImageInfo decode(byte[] bytes) throws IOException {
+		if (bytes == null) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			return read(in);
+		}
+	}
+
+	/**
+	 * Writes the encoding of an {@link ImageInfo} instance to a stream.
+	 *
+	 * @param out the {@link DataOutputStream} to write to.
+	 * @param imageInfo the {@link ImageInfo} to encode.
+	 * @throws IOException If an error occurs during the operation or if
+	 *             {@code imageInfo} is of an unknown type.
+	 */
+	public static void write(DataOutputStream out, ImageInfo imageInfo) throws IOException {
+		out.writeByte(MAGIC);
+		out.writeByte(VERSION);
+		out.writeByte(getType(imageInfo));
+		out.writeInt(imageInfo.width);
+		out.writeInt(imageInfo.height);
+		writeEnum(out, imageInfo.format);
+		out.writeLong(imageInfo.size);
+		out.writeInt(imageInfo.bitDepth);
+		out.writeInt(imageInfo.numComponents);
+		writeColorSpace(out, imageInfo.colorSpace);
+		writeEnum(out, imageInfo.colorSpaceType);
+		out.writeBoolean(imageInfo.imageIOSupport);
+
+		if (imageInfo instanceof ExifInfo exifInfo) {
+			writeEnum(out, exifInfo.photometricInterpretation);
+			writeEnum(out, exifInfo.exifOrientation);
+			writeEnum(out, exifInfo.originalExifOrientation);
+			writeInteger(out, exifInfo.exifVersion);
+			writeEnum(out, exifInfo.exifCompression);
+			writeEnum(out, exifInfo.exifColorSpace);
+			writeBoolean(out, exifInfo.hasExifThumbnail);
+		}
+		if (imageInfo instanceof JPEGInfo jpegInfo) {
+			writeInteger(out, jpegInfo.jfifVersion);
+			writeEnum(out, jpegInfo.compressionType);
+			writeComponents(out, jpegInfo.components);
+			writeBoolean(out, jpegInfo.isTypicalHuffman);
+			if (jpegInfo.chromaSubsampling == null) {
+				out.writeBoolean(false);
+			} else {
+				out.writeBoolean(true);
+				out.writeDouble(jpegInfo.chromaSubsampling.getJ());
+				out.writeDouble(jpegInfo.chromaSubsampling.getA());
+				out.writeDouble(jpegInfo.chromaSubsampling.getB());
+			}
+		} else if (imageInfo instanceof BMPInfo bmpInfo) {
+			writeEnum(out, bmpInfo.compressionType);
+		} else if (imageInfo instanceof GIFInfo gifInfo) {
+			writeString(out, gifInfo.formatVersion);
+			out.writeBoolean(gifInfo.hasTransparency);
+		} else if (imageInfo instanceof PNGInfo pngInfo) {
+			out.writeInt(pngInfo.colorType);
+			writeEnum(out, pngInfo.interlaceMethod);
+			out.writeBoolean(pngInfo.hasTransparencyChunk);
+			out.writeBoolean(pngInfo.isModifiedBitDepth);
+		} else if (imageInfo instanceof PSDInfo psdInfo) {
+			writeEnum(out, psdInfo.colorMode);
+			writeInteger(out, psdInfo.channelCount);
+		}
+	}
+
+	/**
+	 * Reads an {@link ImageInfo} instance written with
+	 * {@link #write(DataOutputStream, ImageInfo)} from a stream.
+	 *
+	 * @param in the {@link DataInputStream} to read from.
+	 * @return The decoded {@link ImageInfo}.
+	 * @throws IOException If an error occurs during the operation or if the
+	 *             data isn't a valid encoding.
+	 */
+	public static ImageInfo read(DataInputStream in) throws IOException {
+		if (in.readByte() != MAGIC) {
+			throw new IOException("Data isn't an encoded ImageInfo");
+		}
+		byte version = in.readByte();
+		if (version != VERSION) {
+			throw new IOException("Unsupported ImageInfo encoding version " + version);
+		}
+		byte type = in.readByte();
+		int width = in.readInt();
+		int height = in.readInt();
+		ImageFormat format = readEnum(in, ImageFormat.class);
+		long size = in.readLong();
+		int bitDepth = in.readInt();
+		int numComponents = in.readInt();
+		ColorSpace colorSpace = readColorSpace(in);
+		ColorSpaceType colorSpaceType = readEnum(in, ColorSpaceType.class);
+		boolean imageIOSupport = in.readBoolean();
+
+		switch (type) {
+			case TYPE_JPEG, TYPE_RAW, TYPE_TIFF -> {
+				PhotometricInterpretation photometricInterpretation = readEnum(in, PhotometricInterpretation.class);
+				ExifOrientation exifOrientation = readEnum(in, ExifOrientation.class);
+				ExifOrientation originalExifOrientation = readEnum(in, ExifOrientation.class);
+				Integer exifVersion = readInteger(in);
+				ExifCompression exifCompression = readEnum(in, ExifCompression.class);
+				ExifColorSpace exifColorSpace = readEnum(in, ExifColorSpace.class);
+				Boolean hasExifThumbnail = readBoolean(in);
+				if (type == TYPE_RAW) {
+					return new RAWInfo(
+						width, height, format, size, bitDepth, numComponents, colorSpace, colorSpaceType, imageIOSupport,
+						photometricInterpretation, exifOrientation, originalExifOrientation, exifVersion, exifCompression,
+						exifColorSpace, hasExifThumbnail
+					);
+				}
+				if (type == TYPE_TIFF) {
+					return new TIFFInfo(
+						width, height, format, size, bitDepth, numComponents, colorSpace, colorSpaceType, imageIOSupport,
+						photometricInterpretation, exifOrientation, originalExifOrientation, exifVersion, exifCompression,
+						exifColorSpace, hasExifThumbnail
+					);
+				}
+				Integer jfifVersion = readInteger(in);
+				JPEGInfo.CompressionType compressionType = readEnum(in, JPEGInfo.CompressionType.class);
+				Map<Integer, JpegComponent> components = readComponents(in);
+				Boolean isTypicalHuffman = readBoolean(in);
+				JPEGSubsamplingNotation chromaSubsampling = in.readBoolean() ?
+					new JPEGSubsamplingNotation(in.readDouble(), in.readDouble(), in.readDouble()) :
+					null;
+				return new JPEGInfo(
+					width, height, format, size, bitDepth, numComponents, colorSpace, colorSpaceType, imageIOSupport,
+					photometricInterpretation, exifOrientation, originalExifOrientation, exifVersion, exifCompression,
+					jfifVersion, exifColorSpace, compressionType, components, hasExifThumbnail, isTypicalHuffman,
+					chromaSubsampling
+				);
+			}
+			case TYPE_BMP -> {
+				return new BMPInfo(
+					width, height, format, size, bitDepth, numComponents, colorSpace, colorSpaceType, imageIOSupport,
+					readEnum(in, CompressionType.class)
+				);
+			}
+			case TYPE_CUR -> {
+				return new CURInfo(width, height, format, size, bitDepth, numComponents, colorSpace, colorSpaceType, imageIOSupport);
+			}
+			case TYPE_GIF -> {
+				String formatVersion = readString(in);
+				boolean hasTransparency = in.readBoolean();
+				return new GIFInfo(
+					width, height, format, size, bitDepth, numComponents, colorSpace, colorSpaceType, imageIOSupport,
+					formatVersion, hasTransparency
+				);
+			}
+			case TYPE_GENERIC -> {
+				return new GenericImageInfo(width, height, format, size, bitDepth, numComponents, colorSpace, colorSpaceType, imageIOSupport);
+			}
+			case TYPE_ICO -> {
+				return new ICOInfo(width, height, format, size, bitDepth, numComponents, colorSpace, colorSpaceType, imageIOSupport);
+			}
+			case TYPE_PCX -> {
+				return new PCXInfo(width, height, format, size, bitDepth, numComponents, colorSpace, colorSpaceType, imageIOSupport);
+			}
+			case TYPE_PNG -> {
+				int colorTypeValue = in.readInt();
+				PngColorType colorType = PngColorType.fromNumericValue(colorTypeValue);
+				if (colorType == null) {
+					throw new IOException("Unknown PNG color type " + colorTypeValue);
+				}
+				InterlaceMethod interlaceMethod = readEnum(in, InterlaceMethod.class);
+				boolean hasTransparencyChunk = in.readBoolean();
+				boolean isModifiedBitDepth = in.readBoolean();
+				return new PNGInfo(
+					width, height, format, size, bitDepth, numComponents, colorSpace, colorSpaceType, imageIOSupport,
+					colorType, interlaceMethod, hasTransparencyChunk, isModifiedBitDepth
+				);
+			}
+			case TYPE_PSD -> {
+				ColorMode colorMode = readEnum(in, ColorMode.class);
+				Integer channelCount = readInteger(in);
+				return new PSDInfo(
+					width, height, format, size, bitDepth, numComponents, colorSpace, colorSpaceType, imageIOSupport,
+					colorMode, channelCount
+				);
+			}
+			case TYPE_WEBP -> {
+				return new WebPInfo(width, height, format, size, bitDepth, numComponents, colorSpace, colorSpaceType, imageIOSupport);
+			}
+			default -> throw new IOException("Unknown ImageInfo type " + type);
+		}
+	}
+
+	private static byte getType(ImageInfo imageInfo) throws IOException {
+		if (imageInfo instanceof BMPInfo) {
+			return TYPE_BMP;
+		} else if (imageInfo instanceof CURInfo) {
+			return TYPE_CUR;
+		} else if (imageInfo instanceof GIFInfo) {
+			return TYPE_GIF;
+		} else if (imageInfo instanceof GenericImageInfo) {
+			return TYPE_GENERIC;
+		} else if (imageInfo instanceof ICOInfo) {
+			return TYPE_ICO;
+		} else if (imageInfo instanceof JPEGInfo) {
+			return TYPE_JPEG;
+		} else if (imageInfo instanceof PCXInfo) {
+			return TYPE_PCX;
+		} else if (imageInfo instanceof PNGInfo) {
+			return TYPE_PNG;
+		} else if (imageInfo instanceof PSDInfo) {
+			return TYPE_PSD;
+		} else if (imageInfo instanceof RAWInfo) {
+			return TYPE_RAW;
+		} else if (imageInfo instanceof TIFFInfo) {
+			return TYPE_TIFF;
+		} else if (imageInfo instanceof WebPInfo) {
+			return TYPE_WEBP;
+		}
+		throw new IOException("Unknown ImageInfo type " + imageInfo.getClass().getName());
+	}
+
+	private static void writeColorSpace(DataOutputStream out, ColorSpace colorSpace) throws IOException {
+		if (colorSpace != null) {
+			for (int standardColorSpace : STANDARD_COLOR_SPACES) {
+				if (colorSpace == ColorSpace.getInstance(standardColorSpace)) {
+					out.writeByte(COLOR_SPACE_STANDARD);
+					out.writeInt(standardColorSpace);
+					return;
+				}
+			}
+			if (colorSpace instanceof ICC_ColorSpace iccColorSpace) {
+				byte[] profile = iccColorSpace.getProfile().getData();
+				out.writeByte(COLOR_SPACE_ICC);
+				out.writeInt(profile.length);
+				out.write(profile);
+				return;
+			}
+		}
+		// Color spaces that aren't ICC based can't be stored, colorSpaceType is kept
+		out.writeByte(COLOR_SPACE_NONE);
+	}
+
+	private static ColorSpace readColorSpace(DataInputStream in) throws IOException {
+		byte kind = in.readByte();
+		switch (kind) {
+			case COLOR_SPACE_NONE -> {
+				return null;
+			}
+			case COLOR_SPACE_STANDARD -> {
+				try {
+					return ColorSpace.getInstance(in.readInt());
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Invalid color space: " + e.getMessage(), e);
+				}
+			}
+			case COLOR_SPACE_ICC -> {
+				byte[] profile = new byte[in.readInt()];
+				in.readFully(profile);
+				try {
+					return new ICC_ColorSpace(ICC_Profile.getInstance(profile));
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Invalid ICC profile: " + e.getMessage(), e);
+				}
+			}
+			default -> throw new IOException("Unknown color space kind " + kind);
+		}
+	}
+
+	private static void writeComponents(DataOutputStream out, Map<Integer, JpegComponent> components) throws IOException {
+		if (components == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(components.size());
+		for (Entry<Integer, JpegComponent> entry : components.entrySet()) {
+			out.writeInt(entry.getKey());
+			JpegComponent component = entry.getValue();
+			if (component == null) {
+				out.writeBoolean(false);
+			} else {
+				out.writeBoolean(true);
+				out.writeInt(component.getComponentId());
+				out.writeInt(component.getHorizontalSamplingFactor() << 4 | component.getVerticalSamplingFactor());
+				out.writeInt(component.getQuantizationTableNumber());
+			}
+		}
+	}
+
+	private static Map<Integer, JpegComponent> readComponents(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		if (count < 0) {
+			return null;
+		}
+		Map<Integer, JpegComponent> components = new HashMap<>(Math.max(count, 4));
+		for (int i = 0; i < count; i++) {
+			int key = in.readInt();
+			components.put(key, in.readBoolean() ? new JpegComponent(in.readInt(), in.readInt(), in.readInt()) : null);
+		}
+		return components;
+	}
+
+	private static void writeEnum(DataOutputStream out, Enum<?> value) throws IOException {
+		writeString(out, value == null ? null : value.name());
+	}
+
+	private static <E extends Enum<E>> E readEnum(DataInputStream in, Class<E> enumClass) throws IOException {
+		String name = readString(in);
+		if (name == null) {
+			return null;
+		}
+		try {
+			return Enum.valueOf(enumClass, name);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Unknown " + enumClass.getSimpleName() + " value \"" + name + "\"", e);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeInt(value);
+		}
+	}
+
+	private static Integer readInteger(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readInt() : null;
+	}
+
+	private static void writeBoolean(DataOutputStream out, Boolean value) throws IOException {
+		out.writeByte(value == null ? -1 : value ? 1 : 0);
+	}
+
+	private static Boolean readBoolean(DataInputStream in) throws IOException {
+		byte value = in.readByte();
+		return value < 0 ? null : value != 0;
+	}
+}
@@ -145,8 +145,8 @@ public class JPEGInfo extends ExifInfo {
 		ExifColorSpace exifColorSpace,
 		CompressionType compressionType,
 		Map<Integer, JpegComponent> components,
-		boolean hasExifThumbnail,
-		boolean isTypicalHuffman,
+		Boolean hasExifThumbnail,
+		Boolean isTypicalHuffman,
 		JPEGSubsamplingNotation chromaSubsampling
 	) {
 		super(
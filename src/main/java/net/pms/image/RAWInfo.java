@@ -109,7 +109,7 @@ public class RAWInfo extends ExifInfo {
 		Integer exifVersion,
 		ExifCompression exifCompression,
 		ExifColorSpace exifColorSpace,
-		boolean hasExifThumbnail
+		Boolean hasExifThumbnail
 	) {
 		super(
 			width,
@@ -109,7 +109,7 @@ public class TIFFInfo extends ExifInfo {
 		Integer exifVersion,
 		ExifCompression exifCompression,
 		ExifColorSpace exifColorSpace,
-		boolean hasExifThumbnail
+		Boolean hasExifThumbnail
 	) {
 		super(
 			width,
@@ -50,4 +50,17 @@ public interface BufferedOutputFile {
 	public abstract void detachInputStream();
 
 	public abstract void write(byte[] byteArray) throws IOException;
+
+	/**
+	 * Waits until the first bytes are written or the end of the stream is
+	 * reached, whichever comes first.
+	 *
+	 * @param timeout the maximum time to wait in milliseconds.
+	 * @return {@code true} if bytes were written.
+	 * @throws InterruptedException if the thread is interrupted while
+	 *             waiting.
+	 */
+	public default boolean waitForFirstBytes(long timeout) throws InterruptedException {
+		return getWriteCount() > 0;
+	}
 }
@@ -20,12 +20,22 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Locale;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import net.pms.PMS;
 import net.pms.configuration.UmsConfiguration;
 import net.pms.gui.GuiManager;
@@ -41,6 +51,12 @@ import org.slf4j.LoggerFactory;
  * misleading, as there is typically no file involved in the process at all.
  * Instead, the buffer is typically used to hold data piped by a transcoding
  * process in one thread until a request for data comes in from another thread.
+ * <p>
+ * Buffers are kept on the heap while the buffers of all active streams fit in
+ * {@link UmsConfiguration#getTranscodeBufferMemoryLimit()}. Beyond that, or
+ * when {@link UmsConfiguration#isTranscodeBufferSpillToDisk()} is set, they
+ * are backed by a memory-mapped temporary file that the operating system can
+ * page out to disk.
  *
  * @see ProcessWrapperImpl
  * @see net.pms.network.Request Request
@@ -64,8 +80,26 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	private static final int MARGIN_MEDIUM = 2000000;
 	private static final int MARGIN_SMALL = 600000;
 	private static final int CHECK_INTERVAL = 500;
+
+	/**
+	 * The maximum time in milliseconds a read waits for the transcoding
+	 * process to write enough data.
+	 */
+	private static final int MAX_READ_WAIT = 7500;
 	private static final int CHECK_END_OF_PROCESS = 2500; // must be superior to CHECK_INTERVAL
 
+	/**
+	 * The heap memory in bytes used by the buffers of all active streams.
+	 */
+	private static final AtomicLong HEAP_MEMORY_USED = new AtomicLong();
+	private static final AtomicInteger MAPPED_BUFFERS = new AtomicInteger();
+
+	/**
+	 * Releases the accounting of the buffers that are garbage collected
+	 * without being {@link #reset()}, like a buffer replaced by another one.
+	 */
+	private static final Cleaner CLEANER = Cleaner.create();
+
 	private final UmsConfiguration configuration;
 	private final Renderer renderer;
 	private final int minMemorySize;
@@ -80,9 +114,17 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	private final FileOutputStream debugOutput = null;
 
 	private int bufferOverflowWarning;
-	private boolean eof;
-	private long writeCount;
-	private byte[] buffer;
+	private volatile boolean eof;
+	private volatile long writeCount;
+	private volatile ByteBuffer buffer;
+	private final boolean spillToDisk;
+	private final long heapMemoryLimit;
+
+	/**
+	 * The memory used by this buffer, accounted for in
+	 * {@link #HEAP_MEMORY_USED} and {@link #MAPPED_BUFFERS}.
+	 */
+	private final Accounting accounting = new Accounting();
 	private ArrayList<WaitBufferedInputStream> inputStreams;
 	private ProcessWrapper attachedThread;
 	private Timer timer;
@@ -90,88 +132,178 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	private long packetpos = 0;
 
 	/**
-	 * Try to increase the size of a memory buffer, while retaining its
-	 * contents. The provided new size is considered to be a request, it is
-	 * scaled down when an OutOfMemory error occurs. There is no guarantee
-	 * about the exact length of the returned byte array, only that it is
-	 * greater than or equal to the original buffer size. When null is
+	 * Monitor notified when data is written or the end of the stream is
+	 * reached, so that waiting readers resume immediately.
+	 */
+	private final Object dataMonitor = new Object();
+	private volatile int waitingReaders;
+
+	private final long creationTime = System.nanoTime();
+	private volatile long firstByteTime = -1;
+	private final LongAdder stallCount = new LongAdder();
+	private final LongAdder stallTime = new LongAdder();
+
+	/**
+	 * Try to increase the size of the buffer, while retaining its contents.
+	 * The provided new size is considered to be a request. The buffer is
+	 * allocated on the heap as long as the heap memory used by the buffers of
+	 * all active streams stays within the configured limit. Otherwise, or when
+	 * an OutOfMemory error occurs, it is replaced by a buffer of
+	 * {@link #maxMemorySize} bytes backed by a memory-mapped temporary file,
+	 * so the operating system can page older data out to disk. If that fails
+	 * too, a heap buffer of 30% of the maximum heap size is tried. There is no
+	 * guarantee about the exact capacity of the returned buffer, only that it
+	 * is greater than or equal to the original buffer size. When null is
 	 * passed as an argument, a fresh buffer will be allocated. Copying one
-	 * byte array to another is a costly operation, both in memory usage and
+	 * buffer to another is a costly operation, both in memory usage and
 	 * performance. It is best to avoid using this method.
 	 *
-	 * @param buffer The byte array to resize, null is allowed.
+	 * @param buffer The buffer to resize, null is allowed.
 	 * @param newSize The requested final size. Should be greater than the
 	 * original size or the original buffer will be returned.
-	 * @return The resized byte array.
+	 * @return The resized buffer, or null if no buffer could be allocated.
 	 */
-	private byte[] growBuffer(byte[] buffer, int newSize) {
-		byte[] copy;
-
-		if (buffer == null) {
-			// Temporary empty array to avoid null tests in the code below
-			buffer = new byte[0];
-		}
-
-		if (newSize <= buffer.length) {
+	private ByteBuffer growBuffer(ByteBuffer buffer, int newSize) {
+		int size = buffer == null ? 0 : buffer.capacity();
+		if (newSize <= size) {
 			// Cannot shrink the original
 			return buffer;
 		}
 
-		try {
-			// Try to allocate the requested new size
-			copy = new byte[newSize];
-		} catch (OutOfMemoryError e) {
-			if (buffer.length == 0) {
-				LOGGER.trace("Cannot initialize buffer to " + FORMATTER.format(newSize) + " bytes.");
-			} else {
-				LOGGER.debug("Cannot grow buffer size from " + FORMATTER.format(buffer.length) + " bytes to " + FORMATTER.format(newSize) + " bytes.");
-				LOGGER.debug("Error given: " + e);
+		ByteBuffer copy = null;
+		if (!spillToDisk) {
+			copy = allocateHeapBuffer(newSize, false);
+		}
 
-			}
+		if (copy == null) {
+			copy = allocateMappedBuffer();
+		}
 
+		if (copy == null) {
 			// Could not allocate the requested new size, use 30% of free memory instead.
 			// Rationale behind using 30%: multiple threads are running at the same time,
 			// we do not want one thread's memory usage to suffocate the others.
 			// Using maxMemory() to ignore the initial Java heap space size that freeMemory()
 			// takes into account.
 			// See http://javarevisited.blogspot.com/2011/05/java-heap-space-memory-size-jvm.html
-			long realisticSize = Runtime.getRuntime().maxMemory() * 3 / 10;
+			long realisticSize = Math.min(Runtime.getRuntime().maxMemory() * 3 / 10, Integer.MAX_VALUE);
 
-			if (realisticSize < buffer.length) {
+			if (realisticSize < size) {
 				// A copy would be smaller in size, shrinking instead of growing the buffer.
 				// Better to return the original and retain its size.
 				return buffer;
-			} else {
-				try {
-					// Try to allocate the realistic alternative size
-					copy = new byte[(int) realisticSize];
-				} catch (OutOfMemoryError e2) {
-					LOGGER.debug("Cannot grow buffer size from " + FORMATTER.format(buffer.length) + " bytes to " + FORMATTER.format(realisticSize) + " bytes either.");
-					LOGGER.trace("freeMemory: " + FORMATTER.format(Runtime.getRuntime().freeMemory()));
-					LOGGER.trace("totalMemory: " + FORMATTER.format(Runtime.getRuntime().totalMemory()));
-					LOGGER.trace("maxMemory: " + FORMATTER.format(Runtime.getRuntime().maxMemory()));
-					LOGGER.debug("Error given: " + e2);
-
-					// Cannot allocate memory, no other option than to return the original.
-					return buffer;
-				}
+			}
+
+			// Try to allocate the realistic alternative size
+			copy = allocateHeapBuffer((int) realisticSize, true);
+			if (copy == null) {
+				LOGGER.trace("freeMemory: " + FORMATTER.format(Runtime.getRuntime().freeMemory()));
+				LOGGER.trace("totalMemory: " + FORMATTER.format(Runtime.getRuntime().totalMemory()));
+				LOGGER.trace("maxMemory: " + FORMATTER.format(Runtime.getRuntime().maxMemory()));
+
+				// Cannot allocate memory, no other option than to return the original.
+				return buffer;
 			}
 		}
 
-		if (buffer.length == 0) {
-			LOGGER.trace("Successfully initialized buffer to " + FORMATTER.format(copy.length) + " bytes.");
+		if (copy.isDirect()) {
+			// Switched to a memory-mapped buffer, the heap buffer is released
+			accounting.releaseHeapMemory();
+		}
+
+		if (buffer == null) {
+			LOGGER.trace("Successfully initialized buffer to " + FORMATTER.format(copy.capacity()) + " bytes.");
 		} else {
-			try {
-				System.arraycopy(buffer, 0, copy, 0, buffer.length);
-				LOGGER.trace("Successfully grown buffer from " + FORMATTER.format(buffer.length) + " bytes to " + FORMATTER.format(copy.length) + " bytes.");
-			} catch (NullPointerException npe) {
-				LOGGER.trace("Cannot grow buffer size, error copying buffer contents.");
-			}
+			copy.put(0, buffer, 0, size);
+			LOGGER.trace("Successfully grown buffer from " + FORMATTER.format(size) + " bytes to " + FORMATTER.format(copy.capacity()) + " bytes.");
 		}
 
 		return copy;
 	}
 
+	/**
+	 * Allocates a heap buffer of the given size to replace the current one,
+	 * accounting for its memory in {@link #HEAP_MEMORY_USED}.
+	 *
+	 * @param size The size of the buffer in bytes.
+	 * @param ignoreLimit Whether to allocate the buffer even if the memory
+	 *            limit would be exceeded.
+	 * @return The buffer, or null if the limit would be exceeded or the
+	 *         memory could not be allocated.
+	 */
+	private ByteBuffer allocateHeapBuffer(int size, boolean ignoreLimit) {
+		long extra = size - accounting.getHeapMemory();
+		long used;
+		do {
+			used = HEAP_MEMORY_USED.get();
+			if (!ignoreLimit && used + extra > heapMemoryLimit) {
+				LOGGER.debug(
+					"Cannot allocate " + FORMATTER.format(size) + " bytes buffer on the heap, the transcode buffers already use " +
+					FORMATTER.format(used) + " of " + FORMATTER.format(heapMemoryLimit) + " bytes."
+				);
+				return null;
+			}
+		} while (!HEAP_MEMORY_USED.compareAndSet(used, used + extra));
+
+		try {
+			ByteBuffer result = ByteBuffer.allocate(size);
+			accounting.setHeapMemory(size);
+			return result;
+		} catch (OutOfMemoryError e) {
+			HEAP_MEMORY_USED.addAndGet(-extra);
+			LOGGER.debug("Cannot allocate " + FORMATTER.format(size) + " bytes buffer on the heap.");
+			LOGGER.debug("Error given: " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Allocates a buffer of {@link #maxMemorySize} bytes backed by a
+	 * memory-mapped temporary file. The file is deleted as soon as it is
+	 * mapped, or once it is unmapped on Windows, so its disk space is
+	 * released when the buffer is garbage collected.
+	 *
+	 * @return The buffer, or null if it could not be created.
+	 */
+	private ByteBuffer allocateMappedBuffer() {
+		Path file = null;
+		try {
+			file = Files.createTempFile(configuration.getTempFolder().toPath(), "buffer-", ".tmp");
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+				MappedByteBuffer result = channel.map(FileChannel.MapMode.READ_WRITE, 0, maxMemorySize);
+				accounting.setMapped();
+				LOGGER.debug("Using a " + FORMATTER.format(maxMemorySize) + " bytes buffer backed by \"" + file + "\"");
+				return result;
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Cannot create a memory-mapped buffer: " + e);
+			if (file != null) {
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException e2) {
+					LOGGER.trace("Cannot delete \"" + file + "\": " + e2);
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * @return The heap memory in bytes used by the transcode buffers of all
+	 *         active streams.
+	 */
+	public static long getHeapMemoryUsed() {
+		return HEAP_MEMORY_USED.get();
+	}
+
+	/**
+	 * @return The number of active transcode buffers backed by a
+	 *         memory-mapped temporary file.
+	 */
+	public static int getMappedBuffersCount() {
+		return MAPPED_BUFFERS.get();
+	}
+
 	/**
 	 * Constructor to create a memory buffer based on settings that are
 	 * passed on. Will also start up a timer task to display buffer size and
@@ -205,6 +337,10 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		this.shiftScr = params.isShiftSscr();
 		this.hidebuffer = params.isHideBuffer();
 		this.cleanup = params.isCleanup();
+		this.spillToDisk = configuration.isTranscodeBufferSpillToDisk();
+		int memoryLimit = configuration.getTranscodeBufferMemoryLimit();
+		this.heapMemoryLimit = memoryLimit > 0 ? memoryLimit * 1048576L : Runtime.getRuntime().maxMemory() * 3 / 10;
+		CLEANER.register(this, accounting);
 
 		if (maxMemorySize > INITIAL_BUFFER_SIZE) {
 			// Try to limit memory usage a bit.
@@ -214,7 +350,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			buffer = growBuffer(null, maxMemorySize);
 		}
 
-		if (buffer.length == 0) {
+		if (buffer == null) {
 			// Cannot transcode without a buffer
 			LOGGER.info("FATAL ERROR: OutOfMemory / dumping stats");
 			LOGGER.trace("freeMemory: " + Runtime.getRuntime().freeMemory());
@@ -230,6 +366,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	public void close() throws IOException {
 		LOGGER.trace("EOF");
 		eof = true;
+		signalReaders();
 		if (cleanup) {
 			detachInputStream();
 		}
@@ -317,19 +454,20 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		if (buffer != null) {
 			int mb = (int) (writeCount % maxMemorySize);
 
-			if (mb >= buffer.length - (len - off)) {
-				if (buffer.length == INITIAL_BUFFER_SIZE) {
+			if (mb >= buffer.capacity() - (len - off)) {
+				if (buffer.capacity() == INITIAL_BUFFER_SIZE) {
 					// Initial buffer size was not big enough, try to increase it
 					buffer = growBuffer(buffer, maxMemorySize);
 				}
 
-				// FIXME: This smells like 2x System.arraycopy()!
+				// Split the data around the end of the buffer
 				int s = (len - off);
-				for (int i = 0; i < s; i++) {
-					buffer[modulo(mb + i, buffer.length)] = b[off + i];
-				}
+				int start = modulo(mb, buffer.capacity());
+				int first = Math.min(s, buffer.capacity() - start);
+				buffer.put(start, b, off, first);
+				buffer.put(0, b, off + first, s - first);
 			} else {
-				System.arraycopy(b, off, buffer, mb, (len - off));
+				buffer.put(mb, b, off, (len - off));
 				if ((len - off) > 0) {
 					buffered = true;
 				}
@@ -350,24 +488,24 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 				while (packetpos + packetLength < writeCount && buffer != null) {
 					int packetposMB = (int) (packetpos % maxMemorySize);
 					int streamPos = 0;
-					if (buffer[modulo(packetposMB, buffer.length)] == 71) { // TS
+					if (buffer.get(modulo(packetposMB, buffer.capacity())) == 71) { // TS
 						packetLength = 188;
 						streamPos = 4;
 
 						// adaptation field
-						if ((buffer[modulo(packetposMB + 3, buffer.length)] & 0x20) == 0x20) {
-							streamPos += 1 + ((buffer[modulo(packetposMB + 4, buffer.length)] + 256) % 256);
+						if ((buffer.get(modulo(packetposMB + 3, buffer.capacity())) & 0x20) == 0x20) {
+							streamPos += 1 + ((buffer.get(modulo(packetposMB + 4, buffer.capacity())) + 256) % 256);
 						}
 
 						if (streamPos == 188) {
 							streamPos = -1;
 						}
 
-					} else if (buffer[modulo(packetposMB + 3, buffer.length)] == -70) { // BA
+					} else if (buffer.get(modulo(packetposMB + 3, buffer.capacity())) == -70) { // BA
 						packetLength = 14;
 						streamPos = -1;
 					} else {
-						packetLength = 6 + ((buffer[modulo(packetposMB + 4, buffer.length)] + 256) % 256) * 256 + ((buffer[modulo(packetposMB + 5, buffer.length)] + 256) % 256);
+						packetLength = 6 + ((buffer.get(modulo(packetposMB + 4, buffer.capacity())) + 256) % 256) * 256 + ((buffer.get(modulo(packetposMB + 5, buffer.capacity())) + 256) % 256);
 					}
 					if (streamPos != -1) {
 						mb = packetposMB + streamPos + 18;
@@ -379,6 +517,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 					packetpos += packetLength;
 				}
 			}
+			signalReaders();
 		}
 	}
 
@@ -409,7 +548,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		}
 		int mb = (int) (writeCount++ % maxMemorySize);
 		if (buffer != null) {
-			buffer[mb] = (byte) b;
+			buffer.put(mb, (byte) b);
 			buffered = true;
 			if (writeCount == INITIAL_BUFFER_SIZE) {
 				buffer = growBuffer(buffer, maxMemorySize);
@@ -423,37 +562,151 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			if (timeseek > 0 && writeCount > 10) {
 				shiftSCRByTimeSeek(mb, (int) timeseek);
 			}
+			signalReaders();
+		}
+	}
+
+	/**
+	 * Wakes up the readers waiting for data, if any.
+	 */
+	private void signalReaders() {
+		if (waitingReaders > 0) {
+			synchronized (dataMonitor) {
+				dataMonitor.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Waits until more than {@code minBufferSize} bytes are available after
+	 * {@code readCount}, the end of the stream is reached or
+	 * {@link #MAX_READ_WAIT} has elapsed.
+	 *
+	 * @param readCount the position of the reader.
+	 * @param minBufferSize the number of bytes that must be available.
+	 */
+	private void waitForData(long readCount, int minBufferSize) {
+		if (writeCount - readCount > minBufferSize || eof) {
+			return;
+		}
+
+		LOGGER.trace("Suspend Read: readCount=" + readCount + " / writeCount=" + writeCount);
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(MAX_READ_WAIT);
+		synchronized (dataMonitor) {
+			waitingReaders++;
+			try {
+				long remaining;
+				while (
+					writeCount - readCount <= minBufferSize &&
+					!eof &&
+					buffer != null &&
+					(remaining = deadline - System.nanoTime()) > 0
+				) {
+					dataMonitor.wait(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				waitingReaders--;
+			}
+		}
+
+		long waited = System.nanoTime() - start;
+		if (firstByteTime != -1) {
+			// Waiting for the first bytes is accounted for by the time to first byte
+			stallCount.increment();
+			stallTime.add(waited);
+		}
+		LOGGER.trace(
+			"Resume Read: readCount=" + readCount + " / writeCount=" + writeCount +
+			" after " + TimeUnit.NANOSECONDS.toMillis(waited) + " ms"
+		);
+	}
+
+	@Override
+	public boolean waitForFirstBytes(long timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		synchronized (dataMonitor) {
+			waitingReaders++;
+			try {
+				long remaining;
+				while (
+					writeCount == 0 &&
+					!eof &&
+					buffer != null &&
+					(remaining = deadline - System.nanoTime()) > 0
+				) {
+					dataMonitor.wait(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+				}
+			} finally {
+				waitingReaders--;
+			}
+		}
+		return writeCount > 0;
+	}
+
+	private void firstByteRead() {
+		if (firstByteTime == -1) {
+			firstByteTime = System.nanoTime();
+			LOGGER.trace("Time to first byte: " + getTimeToFirstByte() + " ms");
 		}
 	}
 
+	/**
+	 * @return The time in milliseconds between the creation of this buffer
+	 *         and the first byte read from it, or {@code -1} if nothing has
+	 *         been read yet.
+	 */
+	public long getTimeToFirstByte() {
+		long time = firstByteTime;
+		return time == -1 ? -1 : TimeUnit.NANOSECONDS.toMillis(time - creationTime);
+	}
+
+	/**
+	 * @return The number of times a reader had to wait for the transcoding
+	 *         process after the first byte was read.
+	 */
+	public long getStallCount() {
+		return stallCount.sum();
+	}
+
+	/**
+	 * @return The total time in milliseconds readers waited for the
+	 *         transcoding process after the first byte was read.
+	 */
+	public long getStallTime() {
+		return TimeUnit.NANOSECONDS.toMillis(stallTime.sum());
+	}
+
 	// Ditlew - Modify SCR
 	private void shiftSCRByTimeSeek(int bufferIndex, int offsetSec) {
-		int m9 = modulo(bufferIndex - 9, buffer.length);
-		int m8 = modulo(bufferIndex - 8, buffer.length);
-		int m7 = modulo(bufferIndex - 7, buffer.length);
-		int m6 = modulo(bufferIndex - 6, buffer.length);
-		int m5 = modulo(bufferIndex - 5, buffer.length);
-		int m4 = modulo(bufferIndex - 4, buffer.length);
-		int m3 = modulo(bufferIndex - 3, buffer.length);
-		int m2 = modulo(bufferIndex - 2, buffer.length);
-		int m1 = modulo(bufferIndex - 1, buffer.length);
-		int m0 = modulo(bufferIndex, buffer.length);
+		int m9 = modulo(bufferIndex - 9, buffer.capacity());
+		int m8 = modulo(bufferIndex - 8, buffer.capacity());
+		int m7 = modulo(bufferIndex - 7, buffer.capacity());
+		int m6 = modulo(bufferIndex - 6, buffer.capacity());
+		int m5 = modulo(bufferIndex - 5, buffer.capacity());
+		int m4 = modulo(bufferIndex - 4, buffer.capacity());
+		int m3 = modulo(bufferIndex - 3, buffer.capacity());
+		int m2 = modulo(bufferIndex - 2, buffer.capacity());
+		int m1 = modulo(bufferIndex - 1, buffer.capacity());
+		int m0 = modulo(bufferIndex, buffer.capacity());
 
 		// SCR
-		if (buffer[m9] == 0 &&
-			buffer[m8] == 0 &&
-			buffer[m7] == 1 &&
-			buffer[m6] == -70 && // 0xBA - Java/PMS wants -70
+		if (buffer.get(m9) == 0 &&
+			buffer.get(m8) == 0 &&
+			buffer.get(m7) == 1 &&
+			buffer.get(m6) == -70 && // 0xBA - Java/PMS wants -70
 			// control bits
-			((buffer[m5] & 128) != 128) &&
-			((buffer[m5] & 64) == 64) &&
-			((buffer[m5] & 4) == 4) &&
-			((buffer[m3] & 4) == 4) &&
-			((buffer[m1] & 4) == 4) &&
-			((buffer[m0] & 1) == 1)) {
-			long scr3230 = ((buffer[m5] & 56) >> 3);
-			long scr2915 = ((buffer[m5] & 3) << 13) + (buffer[m4] << 5) + ((buffer[m3] & 248) >> 3);
-			long scr1400 = ((buffer[m3] & 3) << 13) + (buffer[m2] << 5) + ((buffer[m1] & 248) >> 3);
+			((buffer.get(m5) & 128) != 128) &&
+			((buffer.get(m5) & 64) == 64) &&
+			((buffer.get(m5) & 4) == 4) &&
+			((buffer.get(m3) & 4) == 4) &&
+			((buffer.get(m1) & 4) == 4) &&
+			((buffer.get(m0) & 1) == 1)) {
+			long scr3230 = ((buffer.get(m5) & 56) >> 3);
+			long scr2915 = ((buffer.get(m5) & 3) << 13) + (buffer.get(m4) << 5) + ((buffer.get(m3) & 248) >> 3);
+			long scr1400 = ((buffer.get(m3) & 3) << 13) + (buffer.get(m2) << 5) + ((buffer.get(m1) & 248) >> 3);
 
 			long scr = (scr3230 << 30) + (scr2915 << 15) + scr1400;
 			long scrNew = scr + (90000L * offsetSec);
@@ -463,17 +716,17 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			long scr1400New = (scrNew & 32767L);             // 000000000000000000111111111111111
 
 			// scr_32_30_new
-			buffer[m5] = (byte) ((buffer[m5] & 199) + ((scr3230New << 3) & 56)); // 11000111
+			buffer.put(m5, (byte) ((buffer.get(m5) & 199) + ((scr3230New << 3) & 56))); // 11000111
 
 			// scr_29_15_new
-			buffer[m5] = (byte) ((buffer[m5] & 252) + ((scr2915New >> 13) & 3)); // 00000011
-			buffer[m4] = (byte) (scr2915New >> 5);                               // 11111111
-			buffer[m3] = (byte) ((buffer[m3] & 7) + ((scr2915New << 3) & 248));  // 11111000
+			buffer.put(m5, (byte) ((buffer.get(m5) & 252) + ((scr2915New >> 13) & 3))); // 00000011
+			buffer.put(m4, (byte) (scr2915New >> 5));                               // 11111111
+			buffer.put(m3, (byte) ((buffer.get(m3) & 7) + ((scr2915New << 3) & 248)));  // 11111000
 
 			// scr_14_00_new
-			buffer[m3] = (byte) ((buffer[m3] & 252) + ((scr1400New >> 13) & 3)); // 00000011
-			buffer[m2] = (byte) (scr1400New >> 5);                               // 11111111
-			buffer[m1] = (byte) ((buffer[m1] & 7) + ((scr1400New << 3) & 248));  // 11111000
+			buffer.put(m3, (byte) ((buffer.get(m3) & 252) + ((scr1400New >> 13) & 3))); // 00000011
+			buffer.put(m2, (byte) (scr1400New >> 5));                               // 11111111
+			buffer.put(m1, (byte) ((buffer.get(m1) & 7) + ((scr1400New << 3) & 248)));  // 11111000
 
 			// Debug
 			//LOGGER.trace("Ditlew - SCR "+scr+" ("+(int)(scr/90000)+") -> "+scr_new+" ("+(int)(scr_new/90000)+")  "+offset_sec+" secs");
@@ -483,31 +736,31 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	// Ditlew - Modify GOP
 	@SuppressWarnings("unused")
 	private void shiftGOPByTimeSeek(int bufferIndex, int offsetSec) {
-		int m7 = modulo(bufferIndex - 7, buffer.length);
-		int m6 = modulo(bufferIndex - 6, buffer.length);
-		int m5 = modulo(bufferIndex - 5, buffer.length);
-		int m4 = modulo(bufferIndex - 4, buffer.length);
-		int m3 = modulo(bufferIndex - 3, buffer.length);
-		int m2 = modulo(bufferIndex - 2, buffer.length);
-		int m1 = modulo(bufferIndex - 1, buffer.length);
-		int m0 = modulo(bufferIndex, buffer.length);
+		int m7 = modulo(bufferIndex - 7, buffer.capacity());
+		int m6 = modulo(bufferIndex - 6, buffer.capacity());
+		int m5 = modulo(bufferIndex - 5, buffer.capacity());
+		int m4 = modulo(bufferIndex - 4, buffer.capacity());
+		int m3 = modulo(bufferIndex - 3, buffer.capacity());
+		int m2 = modulo(bufferIndex - 2, buffer.capacity());
+		int m1 = modulo(bufferIndex - 1, buffer.capacity());
+		int m0 = modulo(bufferIndex, buffer.capacity());
 
 		// check if valid gop
-		if (buffer[m7] == 0 &&
-			buffer[m6] == 0 &&
-			buffer[m5] == 1 &&
-			buffer[m4] == -72 && // 0xB8 - Java/PMS wants -72
+		if (buffer.get(m7) == 0 &&
+			buffer.get(m6) == 0 &&
+			buffer.get(m5) == 1 &&
+			buffer.get(m4) == -72 && // 0xB8 - Java/PMS wants -72
 			// control bits
-			((buffer[m2] & 0x08) == 0x08) &&
-			((buffer[m0] & 31) == 0) &&
+			((buffer.get(m2) & 0x08) == 0x08) &&
+			((buffer.get(m0) & 31) == 0) &&
 			// of interest
-			((buffer[m3] & 128) != 128) && // not drop frm
-			((buffer[m0] & 16) != 16) // not broken
+			((buffer.get(m3) & 128) != 128) && // not drop frm
+			((buffer.get(m0) & 16) != 16) // not broken
 			) {
 			// org timecode
-			byte h = (byte) ((buffer[m3] & 124) >> 2);
-			byte m = (byte) (((buffer[m3] & 3) << 4) + ((buffer[m2] & 240) >> 4));
-			byte s = (byte) (((buffer[m2] & 7) << 3) + ((buffer[m1] & 224) >> 5));
+			byte h = (byte) ((buffer.get(m3) & 124) >> 2);
+			byte m = (byte) (((buffer.get(m3) & 3) << 4) + ((buffer.get(m2) & 240) >> 4));
+			byte s = (byte) (((buffer.get(m2) & 7) << 3) + ((buffer.get(m1) & 224) >> 5));
 
 			// updated offset
 			int offset = s + m * 60 + h * 60 + offsetSec;
@@ -519,13 +772,13 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 			// update gop
 			// h - ok
-			buffer[m3] = (byte) ((buffer[m3] & 131) + (newh << 2)); // 10000011
+			buffer.put(m3, (byte) ((buffer.get(m3) & 131) + (newh << 2))); // 10000011
 			// m - ok
-			buffer[m3] = (byte) ((buffer[m3] & 252) + (newm >> 4)); // 11111100
-			buffer[m2] = (byte) ((buffer[m2] & 15) + (newm << 4)); // 00001111
+			buffer.put(m3, (byte) ((buffer.get(m3) & 252) + (newm >> 4))); // 11111100
+			buffer.put(m2, (byte) ((buffer.get(m2) & 15) + (newm << 4))); // 00001111
 			// s - ok
-			buffer[m2] = (byte) ((buffer[m2] & 248) + (news >> 3)); // 11111000
-			buffer[m1] = (byte) ((buffer[m1] & 31) + (news << 5)); // 00011111
+			buffer.put(m2, (byte) ((buffer.get(m2) & 248) + (news >> 3))); // 11111000
+			buffer.put(m1, (byte) ((buffer.get(m1) & 31) + (news << 5))); // 00011111
 
 			// Debug
 			//LOGGER.trace("Ditlew - GOP "+h+":"+m+":"+s+" -> "+_h+":"+_m+":"+_s+"  "+offset_sec+" secs");
@@ -541,26 +794,26 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		boolean bb = (
 				!mod &&
 				(
-					buffer[mb - 10] == -67 || buffer[mb - 10] == -64
+					buffer.get(mb - 10) == -67 || buffer.get(mb - 10) == -64
 				) &&
-				buffer[mb - 11] == 1 &&
-				buffer[mb - 12] == 0 &&
-				buffer[mb - 13] == 0 &&
-				(buffer[mb - 6] & 128) == 128
+				buffer.get(mb - 11) == 1 &&
+				buffer.get(mb - 12) == 0 &&
+				buffer.get(mb - 13) == 0 &&
+				(buffer.get(mb - 6) & 128) == 128
 			) ||
 			(
 				mod &&
 				(
-					buffer[modulo(mb - 10, buffer.length)] == -67 ||
-					buffer[modulo(mb - 10, buffer.length)] == -64
+					buffer.get(modulo(mb - 10, buffer.capacity())) == -67 ||
+					buffer.get(modulo(mb - 10, buffer.capacity())) == -64
 				) &&
-				buffer[modulo(mb - 11, buffer.length)] == 1 &&
-				buffer[modulo(mb - 12, buffer.length)] == 0 &&
-				buffer[modulo(mb - 13, buffer.length)] == 0 &&
-				(buffer[modulo(mb - 6, buffer.length)] & 128) == 128
+				buffer.get(modulo(mb - 11, buffer.capacity())) == 1 &&
+				buffer.get(modulo(mb - 12, buffer.capacity())) == 0 &&
+				buffer.get(modulo(mb - 13, buffer.capacity())) == 0 &&
+				(buffer.get(modulo(mb - 6, buffer.capacity())) & 128) == 128
 			);
 		if (bb) {
-			int pts = (((((buffer[modulo(mb - 3, buffer.length)] & 0xff) << 8) + (buffer[modulo(mb - 2, buffer.length)] & 0xff)) >> 1) << 15) + ((((buffer[modulo(mb - 1, buffer.length)] & 0xff) << 8) + (buffer[modulo(mb, buffer.length)] & 0xff)) >> 1);
+			int pts = (((((buffer.get(modulo(mb - 3, buffer.capacity())) & 0xff) << 8) + (buffer.get(modulo(mb - 2, buffer.capacity())) & 0xff)) >> 1) << 15) + ((((buffer.get(modulo(mb - 1, buffer.capacity())) & 0xff) << 8) + (buffer.get(modulo(mb, buffer.capacity())) & 0xff)) >> 1);
 			pts += (int) (timeseek * 90000);
 
 			setTS(pts, mb, mod);
@@ -571,26 +824,26 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 	private boolean shiftVideo(int mb, boolean mod) {
 		boolean bb = (!mod &&
-			(buffer[mb - 15] == -32 || buffer[mb - 15] == -3) &&
-			buffer[mb - 16] == 1 &&
-			buffer[mb - 17] == 0 &&
-			buffer[mb - 18] == 0 &&
-			(buffer[mb - 11] & 128) == 128 &&
-			(buffer[mb - 9] & 32) == 32) || (mod &&
-			(buffer[modulo(mb - 15, buffer.length)] == -32 || buffer[modulo(mb - 15, buffer.length)] == -3) &&
-			buffer[modulo(mb - 16, buffer.length)] == 1 &&
-			buffer[modulo(mb - 17, buffer.length)] == 0 &&
-			buffer[modulo(mb - 18, buffer.length)] == 0 &&
-			(buffer[modulo(mb - 11, buffer.length)] & 128) == 128 &&
-			(buffer[modulo(mb - 9, buffer.length)] & 32) == 32);
+			(buffer.get(mb - 15) == -32 || buffer.get(mb - 15) == -3) &&
+			buffer.get(mb - 16) == 1 &&
+			buffer.get(mb - 17) == 0 &&
+			buffer.get(mb - 18) == 0 &&
+			(buffer.get(mb - 11) & 128) == 128 &&
+			(buffer.get(mb - 9) & 32) == 32) || (mod &&
+			(buffer.get(modulo(mb - 15, buffer.capacity())) == -32 || buffer.get(modulo(mb - 15, buffer.capacity())) == -3) &&
+			buffer.get(modulo(mb - 16, buffer.capacity())) == 1 &&
+			buffer.get(modulo(mb - 17, buffer.capacity())) == 0 &&
+			buffer.get(modulo(mb - 18, buffer.capacity())) == 0 &&
+			(buffer.get(modulo(mb - 11, buffer.capacity())) & 128) == 128 &&
+			(buffer.get(modulo(mb - 9, buffer.capacity())) & 32) == 32);
 
 		if (bb) { // check EO or FD (tsMuxeR)
 			int pts = getTS(mb - 5, mod);
 			int dts = 0;
-			boolean dtsPresent = (buffer[modulo(mb - 11, buffer.length)] & 64) == 64;
+			boolean dtsPresent = (buffer.get(modulo(mb - 11, buffer.capacity())) & 64) == 64;
 			if (dtsPresent) {
-				if ((buffer[modulo(mb - 4, buffer.length)] & 15) == 15) {
-					dts = (((((255 - (buffer[modulo(mb - 3, buffer.length)] & 0xff)) << 8) + (255 - (buffer[modulo(mb - 2, buffer.length)] & 0xff))) >> 1) << 15) + ((((255 - (buffer[modulo(mb - 1, buffer.length)] & 0xff)) << 8) + (255 - (buffer[modulo(mb, buffer.length)] & 0xff))) >> 1);
+				if ((buffer.get(modulo(mb - 4, buffer.capacity())) & 15) == 15) {
+					dts = (((((255 - (buffer.get(modulo(mb - 3, buffer.capacity())) & 0xff)) << 8) + (255 - (buffer.get(modulo(mb - 2, buffer.capacity())) & 0xff))) >> 1) << 15) + ((((255 - (buffer.get(modulo(mb - 1, buffer.capacity())) & 0xff)) << 8) + (255 - (buffer.get(modulo(mb, buffer.capacity())) & 0xff))) >> 1);
 					dts = -dts;
 				} else {
 					dts = getTS(mb, mod);
@@ -606,7 +859,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			setTS(pts, mb - 5, mod);
 			if (dtsPresent) {
 				if (dts < 0) {
-					buffer[modulo(mb - 4, buffer.length)] = 17;
+					buffer.put(modulo(mb - 4, buffer.capacity()), (byte) 17);
 				}
 				dts += ts;
 				setTS(dts, mb, mod);
@@ -622,14 +875,14 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		int m1 = mb - 1;
 		int m0 = mb;
 		if (modulo) {
-			m3 = modulo(m3, buffer.length);
-			m2 = modulo(m2, buffer.length);
-			m1 = modulo(m1, buffer.length);
-			m0 = modulo(m0, buffer.length);
+			m3 = modulo(m3, buffer.capacity());
+			m2 = modulo(m2, buffer.capacity());
+			m1 = modulo(m1, buffer.capacity());
+			m0 = modulo(m0, buffer.capacity());
 		}
 
-		return (((((buffer[m3] & 0xff) << 8) + (buffer[m2] & 0xff)) >> 1) << 15) +
-			((((buffer[m1] & 0xff) << 8) + (buffer[m0] & 0xff)) >> 1);
+		return (((((buffer.get(m3) & 0xff) << 8) + (buffer.get(m2) & 0xff)) >> 1) << 15) +
+			((((buffer.get(m1) & 0xff) << 8) + (buffer.get(m0) & 0xff)) >> 1);
 	}
 
 	private void setTS(int ts, int mb, boolean modulo) {
@@ -638,19 +891,19 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		int m1 = mb - 1;
 		int m0 = mb;
 		if (modulo) {
-			m3 = modulo(m3, buffer.length);
-			m2 = modulo(m2, buffer.length);
-			m1 = modulo(m1, buffer.length);
-			m0 = modulo(m0, buffer.length);
+			m3 = modulo(m3, buffer.capacity());
+			m2 = modulo(m2, buffer.capacity());
+			m1 = modulo(m1, buffer.capacity());
+			m0 = modulo(m0, buffer.capacity());
 		}
 		int ptsLow = ts & 32767;
 		int ptsHigh = (ts >> 15) & 32767;
 		int ptsLeftLow = 1 + (ptsLow << 1);
 		int ptsLeftHigh = 1 + (ptsHigh << 1);
-		buffer[m3] = (byte) ((ptsLeftHigh & 65280) >> 8);
-		buffer[m2] = (byte) (ptsLeftHigh & 255);
-		buffer[m1] = (byte) ((ptsLeftLow & 65280) >> 8);
-		buffer[m0] = (byte) (ptsLeftLow & 255);
+		buffer.put(m3, (byte) ((ptsLeftHigh & 65280) >> 8));
+		buffer.put(m2, (byte) (ptsLeftHigh & 255));
+		buffer.put(m1, (byte) ((ptsLeftLow & 65280) >> 8));
+		buffer.put(m0, (byte) (ptsLeftLow & 255));
 	}
 
 	@Override
@@ -668,32 +921,19 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			return -1;
 		}
 
-		int c = 0;
-		int minBufferS = firstRead ? minMemorySize : secondReadMinSize;
-		while (writeCount - readCount <= minBufferS && !eof && c < 15) {
-			if (c == 0) {
-				LOGGER.trace("Suspend Read: readCount=" + readCount + " / writeCount=" + writeCount);
-			}
-
-			c++;
-
-			UMSUtils.sleep(CHECK_INTERVAL);
-		}
+		waitForData(readCount, firstRead ? minMemorySize : secondReadMinSize);
 
 		if (attachedThread != null) {
 			attachedThread.setReadyToStop(false);
 		}
 
-		if (c > 0) {
-			LOGGER.trace("Resume Read: readCount=" + readCount + " / writeCount=" + writeCount);
-		}
-
+		ByteBuffer buffer = this.buffer;
 		if (buffer == null || !buffered) {
 			return -1;
 		}
 
 		int mb = (int) (readCount % maxMemorySize);
-		int endOF = buffer.length;
+		int endOF = buffer.capacity();
 		int cut = 0;
 
 		if (eof && (writeCount - readCount) < len) {
@@ -707,19 +947,25 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		if (mb >= endOF - len) {
 			length = endOF - mb - cut;
 			try {
-				System.arraycopy(buffer, mb, buf, off, length);
-			} catch (ArrayIndexOutOfBoundsException e) {
+				buffer.get(mb, buf, off, length);
+			} catch (IndexOutOfBoundsException e) {
 				LOGGER.trace("Something went wrong with the buffer, error: " + e);
-				LOGGER.trace("buffer: " + Arrays.toString(buffer));
+				LOGGER.trace("buffer capacity: " + buffer.capacity());
 				LOGGER.trace("mb: " + mb);
-				LOGGER.trace("buf: " + Arrays.toString(buf));
+				LOGGER.trace("buf length: " + buf.length);
 				LOGGER.trace("off: " + off);
 				LOGGER.trace("endOF - mb - cut: " + length);
 			}
+			if (length > 0) {
+				firstByteRead();
+			}
 			return length;
 		} else {
 			length = len - cut;
-			System.arraycopy(buffer, mb, buf, off, length);
+			buffer.get(mb, buf, off, length);
+			if (length > 0) {
+				firstByteRead();
+			}
 			return length;
 		}
 	}
@@ -740,34 +986,22 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			return -1;
 		}
 
-		int c = 0;
-		int minBufferS = firstRead ? minMemorySize : secondReadMinSize;
-
-		while (writeCount - readCount <= minBufferS && !eof && c < 15) {
-			if (c == 0) {
-				LOGGER.trace("Suspend Read: readCount=" + readCount + " / writeCount=" + writeCount);
-			}
-
-			c++;
-
-			UMSUtils.sleep(CHECK_INTERVAL);
-		}
+		waitForData(readCount, firstRead ? minMemorySize : secondReadMinSize);
 
 		if (attachedThread != null) {
 			attachedThread.setReadyToStop(false);
 		}
 
-		if (c > 0) {
-			LOGGER.trace("Resume Read: readCount=" + readCount + " / writeCount=" + writeCount);
-		}
-
+		ByteBuffer buffer = this.buffer;
 		if (buffer == null || !buffered) {
 			return -1;
 		}
 
 		try {
-			return 0xff & buffer[(int) (readCount % maxMemorySize)];
-		} catch (ArrayIndexOutOfBoundsException e) {
+			int b = 0xff & buffer.get((int) (readCount % maxMemorySize));
+			firstByteRead();
+			return b;
+		} catch (IndexOutOfBoundsException e) {
 			LOGGER.info("Buffer read ArrayIndexOutOfBoundsException error:");
 			LOGGER.info("readCount: \"" + readCount + "\"");
 			LOGGER.info("maxMemorySize: \"" + maxMemorySize + "\"");
@@ -865,7 +1099,18 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			buffer = null;
 		}
 
+		// The mapping and its file are released when the buffer is garbage collected
+		accounting.run();
+
 		buffered = false;
+		signalReaders();
+
+		if (LOGGER.isDebugEnabled() && firstByteTime != -1) {
+			LOGGER.debug(
+				"Buffer statistics: time to first byte " + getTimeToFirstByte() + " ms, " +
+				getStallCount() + " stalls totalling " + getStallTime() + " ms"
+			);
+		}
 
 		if (renderer != null) {
 			renderer.setBuffer(0);
@@ -874,4 +1119,48 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			GuiManager.updateBuffer();
 		}
 	}
+
+	/**
+	 * The memory accounted for by one buffer. It must not reference the
+	 * buffer, so that {@link #CLEANER} can release it once the buffer is
+	 * garbage collected.
+	 */
+	private static class Accounting implements Runnable {
+		private long heapMemory;
+		private boolean mapped;
+
+		private synchronized long getHeapMemory() {
+			return heapMemory;
+		}
+
+		private synchronized void setHeapMemory(long heapMemory) {
+			this.heapMemory = heapMemory;
+		}
+
+		private synchronized void releaseHeapMemory() {
+			if (heapMemory > 0) {
+				HEAP_MEMORY_USED.addAndGet(-heapMemory);
+				heapMemory = 0;
+			}
+		}
+
+		private synchronized void setMapped() {
+			if (!mapped) {
+				mapped = true;
+				MAPPED_BUFFERS.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Releases the accounted memory, once.
+		 */
+		@Override
+		public synchronized void run() {
+			releaseHeapMemory();
+			if (mapped) {
+				MAPPED_BUFFERS.decrementAndGet();
+				mapped = false;
+			}
+		}
+	}
 }
@@ -0,0 +1,144 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An {@link InputStream} over a range of a file, backed by a
+ * {@link FileChannel}. It can be read like any other stream, but the HTTP
+ * servers can also send the remaining range straight from its channel, which
+ * avoids copying the file through the heap.
+ * <p>
+ * The range starts at the beginning of the file and ends at the end of the
+ * file, it is narrowed with {@link #skip(long)} and {@link #limit(long)}.
+ */
+public class FileRangeInputStream extends InputStream {
+	private final FileChannel channel;
+	private long position;
+	private long end = Long.MAX_VALUE;
+	private long mark;
+
+	/**
+	 * Opens a stream over the whole file.
+	 *
+	 * @param file the file to read.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	public FileRangeInputStream(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+	}
+
+	/**
+	 * Limits the range to the given number of bytes from the current
+	 * position.
+	 *
+	 * @param count the maximum number of bytes left to read.
+	 */
+	public void limit(long count) {
+		end = Math.min(end, position + Math.max(count, 0));
+	}
+
+	/**
+	 * @return The channel of the file. Its position is not used by this
+	 *         stream.
+	 */
+	public FileChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * @return The position in the file of the next byte to read.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return The number of bytes left in the range.
+	 * @throws IOException If the size of the file cannot be read.
+	 */
+	public long getRemaining() throws IOException {
+		return Math.max(Math.min(end, channel.size()) - position, 0);
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == 1 ? b[0] & 0xff : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+
+		long remaining = getRemaining();
+		if (remaining == 0) {
+			return -1;
+		}
+
+		int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+		if (read > 0) {
+			position += read;
+		}
+
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		if (n <= 0) {
+			return 0;
+		}
+
+		long skipped = Math.min(n, getRemaining());
+		position += skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (int) Math.min(getRemaining(), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+		mark = position;
+	}
+
+	@Override
+	public synchronized void reset() {
+		position = mark;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -64,4 +64,18 @@ public interface ProcessWrapper {
 	public boolean isReadyToStop();
 
 	public void setReadyToStop(boolean nullable);
+
+	/**
+	 * Waits until the process has written its first bytes of output or has
+	 * ended, whichever comes first.
+	 *
+	 * @param timeout the maximum time to wait in milliseconds.
+	 * @return {@code true} if output is available, {@code false} if the
+	 *         process ended without output or the timeout elapsed.
+	 * @throws InterruptedException if the thread is interrupted while
+	 *             waiting.
+	 */
+	public default boolean waitForOutput(long timeout) throws InterruptedException {
+		return !isDestroyed();
+	}
 }
@@ -25,6 +25,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import net.pms.encoders.AviDemuxerInputStream;
 import net.pms.util.ProcessUtil;
@@ -53,6 +55,12 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 	private volatile boolean success;
 	private final boolean useByteArrayStdConsumer;
 
+	/**
+	 * Counted down once the output buffer is set up or the process has
+	 * ended, see {@link #waitForOutput}.
+	 */
+	private final CountDownLatch outputReady = new CountDownLatch(1);
+
 	@Override
 	public String toString() {
 		return super.getName();
@@ -230,6 +238,7 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 				stdoutConsumer.setName(getName() + "-1");
 				stdoutConsumer.start();
 			}
+			outputReady.countDown();
 
 			if (params.getStdIn() != null) {
 				params.getStdIn().push(process.getOutputStream());
@@ -291,6 +300,7 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 				}
 			}
 			CURRENT_PROCESSES.remove(process);
+			outputReady.countDown();
 		}
 	}
 
@@ -389,6 +399,22 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 		}
 	}
 
+	@Override
+	public boolean waitForOutput(long timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		if (!outputReady.await(timeout, TimeUnit.MILLISECONDS)) {
+			return false;
+		}
+		BufferedOutputFile buffer = bo;
+		if (buffer == null && stdoutConsumer != null) {
+			buffer = stdoutConsumer.getBuffer();
+		}
+		if (buffer == null) {
+			return !destroyed;
+		}
+		return buffer.waitForFirstBytes(Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+	}
+
 	@Override
 	public boolean isDestroyed() {
 		return destroyed;
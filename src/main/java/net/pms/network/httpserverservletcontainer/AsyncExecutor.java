@@ -0,0 +1,168 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network.httpserverservletcontainer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The executors shared by the asynchronous servlet requests and the server
+ * sent events, instead of a new thread for every request.
+ * <p>
+ * Short tasks run on a pool of at most {@link #MAX_THREADS} daemon threads,
+ * where at most {@link #MAX_QUEUED_TASKS} more tasks can wait. Long-running
+ * tasks, like the media streams, run on their own threads with
+ * {@link #executeStream}, at most {@link #MAX_STREAMS} at a time, so they
+ * can't starve the short tasks. Beyond these limits the tasks are rejected
+ * rather than queued forever.
+ */
+public class AsyncExecutor {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncExecutor.class);
+
+	/**
+	 * The most threads for the short tasks.
+	 */
+	private static final int MAX_THREADS = 64;
+
+	/**
+	 * The most short tasks waiting for a thread.
+	 */
+	private static final int MAX_QUEUED_TASKS = 256;
+
+	/**
+	 * The most long-running tasks.
+	 */
+	private static final int MAX_STREAMS = 256;
+
+	private static final ThreadPoolExecutor EXECUTOR = createExecutor(
+		MAX_THREADS,
+		MAX_THREADS,
+		new ArrayBlockingQueue<>(MAX_QUEUED_TASKS),
+		"servlet-async-"
+	);
+	private static final ThreadPoolExecutor STREAM_EXECUTOR = createExecutor(
+		0,
+		MAX_STREAMS,
+		new SynchronousQueue<>(),
+		"servlet-stream-"
+	);
+	private static final AtomicInteger ACTIVE_TASKS = new AtomicInteger();
+	private static final AtomicInteger ACTIVE_STREAMS = new AtomicInteger();
+	private static final LongAdder TASKS = new LongAdder();
+	private static final LongAdder REJECTED_TASKS = new LongAdder();
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private AsyncExecutor() {
+	}
+
+	/**
+	 * Runs a short task on the shared pool.
+	 *
+	 * @param task the task to run.
+	 * @throws RejectedExecutionException If the pool and its queue are full.
+	 */
+	public static void execute(Runnable task) {
+		execute(EXECUTOR, ACTIVE_TASKS, task);
+	}
+
+	/**
+	 * Runs a long-running task, like sending a media stream, on its own
+	 * thread.
+	 *
+	 * @param task the task to run.
+	 * @throws RejectedExecutionException If {@link #MAX_STREAMS} tasks are
+	 *             already running.
+	 */
+	public static void executeStream(Runnable task) {
+		execute(STREAM_EXECUTOR, ACTIVE_STREAMS, task);
+	}
+
+	/**
+	 * @return the number of short tasks running.
+	 */
+	public static int getActiveTasks() {
+		return ACTIVE_TASKS.get();
+	}
+
+	/**
+	 * @return the number of long-running tasks running.
+	 */
+	public static int getActiveStreams() {
+		return ACTIVE_STREAMS.get();
+	}
+
+	/**
+	 * @return the number of tasks run since the start.
+	 */
+	public static long getTasks() {
+		return TASKS.sum();
+	}
+
+	/**
+	 * @return the number of tasks rejected since the start, because the
+	 *         executors were saturated.
+	 */
+	public static long getRejectedTasks() {
+		return REJECTED_TASKS.sum();
+	}
+
+	private static void execute(ThreadPoolExecutor executor, AtomicInteger active, Runnable task) {
+		try {
+			executor.execute(() -> {
+				active.incrementAndGet();
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					LOGGER.error("Unexpected error in an asynchronous task: {}", e.getMessage());
+					LOGGER.trace("", e);
+				} finally {
+					active.decrementAndGet();
+				}
+			});
+			TASKS.increment();
+		} catch (RejectedExecutionException e) {
+			REJECTED_TASKS.increment();
+			LOGGER.warn("Too many asynchronous tasks, rejecting a task");
+			throw e;
+		}
+	}
+
+	private static ThreadPoolExecutor createExecutor(int coreThreads, int maxThreads, BlockingQueue<Runnable> queue, String name) {
+		AtomicInteger counter = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, name + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(coreThreads, maxThreads, 60, TimeUnit.SECONDS, queue, threadFactory);
+		if (coreThreads > 0) {
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+}
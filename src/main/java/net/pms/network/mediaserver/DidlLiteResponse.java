@@ -0,0 +1,176 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network.mediaserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import net.pms.dlna.DLNAResource;
+import net.pms.renderers.Renderer;
+
+/**
+ * A Browse or Search SOAP response whose DIDL-Lite items are generated while
+ * the response is written, a chunk at a time, instead of being built in
+ * memory as a whole first.
+ * <p>
+ * The chunks are built in a per-thread buffer. Instances are not thread-safe.
+ */
+public class DidlLiteResponse {
+	private static final String CRLF = "\r\n";
+
+	/**
+	 * The number of items above which the response should be sent with
+	 * chunked transfer encoding rather than with a known length.
+	 */
+	private static final int STREAMING_THRESHOLD = 100;
+
+	/**
+	 * The approximate size in characters of a chunk.
+	 */
+	private static final int CHUNK_SIZE = 32 * 1024;
+
+	private static final ThreadLocal<StringBuilder> CHUNK_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(2 * CHUNK_SIZE));
+	private static final ThreadLocal<CharsetEncoder> ENCODER = ThreadLocal.withInitial(StandardCharsets.UTF_8::newEncoder);
+
+	private final boolean search;
+	private final List<DLNAResource> items;
+	private final Renderer renderer;
+	private final int totalMatches;
+	private final int updateId;
+
+	/**
+	 * The index of the next item to write, -1 before the header was written
+	 * and {@code items.size() + 1} after the footer was written.
+	 */
+	private int next = -1;
+
+	/**
+	 * Creates a new response.
+	 *
+	 * @param search whether this responds to a Search request rather than a
+	 *            Browse request.
+	 * @param items the items to return, their DIDL-Lite is generated when
+	 *            the response is written.
+	 * @param renderer the renderer to generate the DIDL-Lite for.
+	 * @param totalMatches the value of the {@code TotalMatches} element.
+	 * @param updateId the value of the {@code UpdateID} element.
+	 */
+	public DidlLiteResponse(boolean search, List<DLNAResource> items, Renderer renderer, int totalMatches, int updateId) {
+		this.search = search;
+		this.items = items;
+		this.renderer = renderer;
+		this.totalMatches = totalMatches;
+		this.updateId = updateId;
+	}
+
+	/**
+	 * @return The value of the {@code NumberReturned} element.
+	 */
+	public int getNumberReturned() {
+		return items.size();
+	}
+
+	/**
+	 * @return Whether the response is large enough to be sent with chunked
+	 *         transfer encoding, when the client supports it.
+	 */
+	public boolean isStreamable() {
+		return items.size() > STREAMING_THRESHOLD;
+	}
+
+	/**
+	 * Generates the next chunk of the response.
+	 *
+	 * @return The UTF-8 encoded chunk, or {@code null} when the whole
+	 *         response was generated.
+	 * @throws CharacterCodingException If the chunk cannot be encoded.
+	 */
+	public ByteBuffer nextChunk() throws CharacterCodingException {
+		if (next > items.size()) {
+			return null;
+		}
+
+		StringBuilder chunk = CHUNK_BUFFER.get();
+		chunk.setLength(0);
+		if (next == -1) {
+			chunk.append(HTTPXMLHelper.XML_HEADER).append(CRLF);
+			chunk.append(HTTPXMLHelper.SOAP_ENCODING_HEADER).append(CRLF);
+			chunk.append(search ? HTTPXMLHelper.SEARCHRESPONSE_HEADER : HTTPXMLHelper.BROWSERESPONSE_HEADER);
+			chunk.append(CRLF);
+			chunk.append(HTTPXMLHelper.RESULT_HEADER);
+			chunk.append(HTTPXMLHelper.DIDL_HEADER);
+			next = 0;
+		}
+
+		while (next < items.size() && chunk.length() < CHUNK_SIZE) {
+			chunk.append(items.get(next++).getDidlString(renderer));
+		}
+
+		if (next == items.size()) {
+			chunk.append(HTTPXMLHelper.DIDL_FOOTER);
+			chunk.append(HTTPXMLHelper.RESULT_FOOTER);
+			chunk.append(CRLF);
+			chunk.append("<NumberReturned>").append(getNumberReturned()).append("</NumberReturned>");
+			chunk.append(CRLF);
+			chunk.append("<TotalMatches>").append(totalMatches).append("</TotalMatches>");
+			chunk.append(CRLF);
+			chunk.append("<UpdateID>").append(updateId).append("</UpdateID>");
+			chunk.append(CRLF);
+			chunk.append(search ? HTTPXMLHelper.SEARCHRESPONSE_FOOTER : HTTPXMLHelper.BROWSERESPONSE_FOOTER);
+			chunk.append(CRLF);
+			chunk.append(HTTPXMLHelper.SOAP_ENCODING_FOOTER).append(CRLF);
+			next++;
+		}
+
+		ByteBuffer result = ENCODER.get().encode(CharBuffer.wrap(chunk));
+		if (chunk.capacity() > 4 * CHUNK_SIZE) {
+			// Don't keep the buffer of an unusually large item around
+			CHUNK_BUFFER.remove();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Writes the rest of the response to the given stream.
+	 *
+	 * @param out the stream to write to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		ByteBuffer chunk;
+		while ((chunk = nextChunk()) != null) {
+			out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+		}
+	}
+
+	/**
+	 * @return The rest of the response as a byte array.
+	 * @throws IOException If the response cannot be encoded.
+	 */
+	public byte[] toByteArray() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeTo(out);
+		return out.toByteArray();
+	}
+}
@@ -22,18 +22,25 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.pms.database.MediaDatabase;
+import net.pms.database.MediaLibraryQueries;
+import net.pms.database.MediaLibraryQueries.QueryResult;
+import net.pms.database.MediaLibrarySearchIndex;
 import net.pms.dlna.DLNAResource;
 import net.pms.dlna.DbIdMediaType;
 import net.pms.dlna.DbIdResourceLocator;
 import net.pms.dlna.DbIdTypeAndIdent;
 import net.pms.dlna.RealFileDbId;
+import net.pms.dlna.ThumbnailGenerator;
 import net.pms.dlna.api.MusicBrainzAlbum;
 import net.pms.dlna.virtual.VirtualFolderDbId;
 import net.pms.formats.Format;
@@ -98,18 +105,32 @@ public class SearchRequestHandler {
 		StringBuilder dlnaItems = new StringBuilder();
 		DbIdMediaType requestType = getRequestType(requestMessage.getSearchCriteria());
 
-		int totalMatches = getDLNAResourceCountFromSQL(convertToCountSql(requestMessage.getSearchCriteria(), requestType));
+		int totalMatches;
+		List<DLNAResource> resources;
+		MediaLibrarySearchIndex.Result indexResult = searchIndex(
+			requestMessage.getSearchCriteria(),
+			getIndexSortKeys(requestMessage.getSortCriteria(), requestType),
+			requestMessage.getStartingIndex(),
+			requestMessage.getRequestedCount(),
+			requestType
+		);
+		if (indexResult != null) {
+			totalMatches = indexResult.totalMatches();
+			resources = getDLNAResourceFromIndex(indexResult.fileIds(), requestType);
+		} else {
+			totalMatches = getDLNAResourceCountFromSQL(convertToCountSql(requestMessage.getSearchCriteria(), requestType));
+			resources = getDLNAResourceFromSQL(convertToFilesSql(requestMessage, requestType), requestType);
+		}
 
 		VirtualFolderDbId folder = new VirtualFolderDbId("Search Result", new DbIdTypeAndIdent(requestType, ""), "");
-		String sqlFiles = convertToFilesSql(requestMessage, requestType);
-		for (DLNAResource resource : getDLNAResourceFromSQL(sqlFiles, requestType)) {
+		for (DLNAResource resource : resources) {
 			folder.addChild(resource);
 		}
 
 		folder.discoverChildren();
 		for (DLNAResource uf : folder.getChildren()) {
 			numberReturned++;
-			uf.resolve();
+			ThumbnailGenerator.runWithPriority(ThumbnailGenerator.Priority.VISIBLE, uf::resolve);
 			uf.setFakeParentId("0");
 			dlnaItems.append(uf.getDidlString(renderer));
 		}
@@ -132,18 +153,32 @@ public class SearchRequestHandler {
 		StringBuilder dlnaItems = new StringBuilder();
 		DbIdMediaType requestType = getRequestType(searchCriteria);
 
-		int totalMatches = getDLNAResourceCountFromSQL(convertToCountSql(searchCriteria, requestType));
+		int totalMatches;
+		List<DLNAResource> resources;
+		MediaLibrarySearchIndex.Result indexResult = searchIndex(
+			searchCriteria,
+			getIndexSortKeys(orderBy, requestType),
+			startingIndex,
+			requestedCount,
+			requestType
+		);
+		if (indexResult != null) {
+			totalMatches = indexResult.totalMatches();
+			resources = getDLNAResourceFromIndex(indexResult.fileIds(), requestType);
+		} else {
+			totalMatches = getDLNAResourceCountFromSQL(convertToCountSql(searchCriteria, requestType));
+			resources = getDLNAResourceFromSQL(convertToFilesSql(searchCriteria, startingIndex, requestedCount, orderBy, requestType), requestType);
+		}
 
 		VirtualFolderDbId folder = new VirtualFolderDbId("Search Result", new DbIdTypeAndIdent(requestType, ""), "");
-		String sqlFiles = convertToFilesSql(searchCriteria, startingIndex, requestedCount, orderBy, requestType);
-		for (DLNAResource resource : getDLNAResourceFromSQL(sqlFiles, requestType)) {
+		for (DLNAResource resource : resources) {
 			folder.addChild(resource);
 		}
 
 		folder.discoverChildren();
 		for (DLNAResource uf : folder.getChildren()) {
 			numberReturned++;
-			uf.resolve();
+			ThumbnailGenerator.runWithPriority(ThumbnailGenerator.Priority.VISIBLE, uf::resolve);
 			uf.setFakeParentId("0");
 			dlnaItems.append(uf.getDidlString(renderer));
 		}
@@ -276,11 +311,112 @@ public class SearchRequestHandler {
 	}
 
 	private static void addLimit(long startingIndex, long requestedCount, StringBuilder sb) {
-		long limit = requestedCount;
-		if (limit == 0) {
-			limit = 999; // performance issue: do only deliver top 999 items
+		sb.append(String.format(" LIMIT %d OFFSET %d ", getLimit(requestedCount), startingIndex));
+	}
+
+	private static long getLimit(long requestedCount) {
+		if (requestedCount == 0) {
+			return 999; // performance issue: do only deliver top 999 items
+		}
+		return requestedCount;
+	}
+
+	/**
+	 * Answers a search of files from the search index of the media library.
+	 *
+	 * @return the requested page, or {@code null} if the search must run on
+	 *         the database because the index is not ready or can't evaluate
+	 *         the criteria.
+	 */
+	private static MediaLibrarySearchIndex.Result searchIndex(
+		String searchCriteria,
+		List<MediaLibrarySearchIndex.SortKey> sortKeys,
+		long startingIndex,
+		long requestedCount,
+		DbIdMediaType requestType
+	) {
+		if (sortKeys == null) {
+			return null;
+		}
+		switch (requestType) {
+			case TYPE_AUDIO, TYPE_VIDEO, TYPE_IMAGE, TYPE_PLAYLIST -> {
+				MediaLibrarySearchIndex.Query query = IndexQueryParser.parse(searchCriteria, requestType);
+				if (query == null) {
+					return null;
+				}
+				// File names are only indexed for the files that are not audio
+				if (query.uses(MediaLibrarySearchIndex.Field.FILENAME) && !query.isRestrictedTo(getFileType(requestType))) {
+					return null;
+				}
+				return MediaLibrarySearchIndex.search(query, sortKeys, startingIndex, getLimit(requestedCount));
+			}
+			default -> {
+				// Albums and persons are values of the audio tracks, not files
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * @return the indexed field of a property, or {@code null} if it is not
+	 *         indexed for the request type.
+	 */
+	private static MediaLibrarySearchIndex.Field getIndexField(String property, DbIdMediaType requestType) {
+		if ("dc:title".equalsIgnoreCase(property)) {
+			return requestType == DbIdMediaType.TYPE_AUDIO ? MediaLibrarySearchIndex.Field.TITLE : MediaLibrarySearchIndex.Field.FILENAME;
+		}
+		if (requestType != DbIdMediaType.TYPE_AUDIO) {
+			return null;
+		} else if ("upnp:artist".equalsIgnoreCase(property)) {
+			return MediaLibrarySearchIndex.Field.ARTIST;
+		} else if ("upnp:genre".equalsIgnoreCase(property)) {
+			return MediaLibrarySearchIndex.Field.GENRE;
+		} else if ("dc:creator".equalsIgnoreCase(property)) {
+			return MediaLibrarySearchIndex.Field.ALBUMARTIST;
+		} else if ("upnp:album".equalsIgnoreCase(property)) {
+			return MediaLibrarySearchIndex.Field.ALBUM;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the sort keys of the sort criteria, or {@code null} if a
+	 *         property is not indexed.
+	 */
+	private static List<MediaLibrarySearchIndex.SortKey> getIndexSortKeys(SortCriterion[] orderBy, DbIdMediaType requestType) {
+		List<MediaLibrarySearchIndex.SortKey> sortKeys = new ArrayList<>();
+		if (orderBy != null) {
+			for (SortCriterion sort : orderBy) {
+				if (!StringUtils.isAllBlank(sort.getPropertyName())) {
+					MediaLibrarySearchIndex.Field field = getIndexField(sort.getPropertyName(), requestType);
+					if (field == null) {
+						return null;
+					}
+					sortKeys.add(new MediaLibrarySearchIndex.SortKey(field, sort.isAscending()));
+				}
+			}
+		}
+		return sortKeys;
+	}
+
+	/**
+	 * @return the sort keys of the sort criteria, or {@code null} if a
+	 *         property is not indexed.
+	 */
+	private static List<MediaLibrarySearchIndex.SortKey> getIndexSortKeys(String sortCriteria, DbIdMediaType requestType) {
+		List<MediaLibrarySearchIndex.SortKey> sortKeys = new ArrayList<>();
+		if (!StringUtils.isAllBlank(sortCriteria)) {
+			for (String sort : sortCriteria.split("[;, ]")) {
+				if (!StringUtils.isAllBlank(sort)) {
+					MediaLibrarySearchIndex.Field field = getIndexField(sort.substring(1), requestType);
+					if (field == null) {
+						return null;
+					}
+					sortKeys.add(new MediaLibrarySearchIndex.SortKey(field, !"-".equals(sort.substring(0, 1))));
+				}
+			}
 		}
-		sb.append(String.format(" LIMIT %d OFFSET %d ", limit, startingIndex));
+		return sortKeys;
 	}
 
 	private static String convertToCountSql(String upnpSearch, DbIdMediaType requestType) {
@@ -479,12 +615,10 @@ public class SearchRequestHandler {
 									}
 								}
 								case TYPE_PERSON -> filesList.add(new VirtualFolderDbId(filenameField, new DbIdTypeAndIdent(type, filenameField), ""));
-								case TYPE_PLAYLIST -> filesList.add(new VirtualFolderDbId(filenameField, new DbIdTypeAndIdent(type, resultSet.getString("FID")), ""));
 								default -> {
-									String realFileName = resultSet.getString("FILENAME");
-									if (realFileName != null) {
-										filesList.add(new RealFileDbId(new DbIdTypeAndIdent(type, resultSet.getString("FID")),
-											new File(realFileName)));
+									DLNAResource resource = getFileResource(type, resultSet.getString("FILENAME"), resultSet.getString("FID"));
+									if (resource != null) {
+										filesList.add(resource);
 									}
 								}
 							}
@@ -500,6 +634,60 @@ public class SearchRequestHandler {
 		return filesList;
 	}
 
+	/**
+	 * Gets the resources of the files found by the search index.
+	 *
+	 * @param fileIds the {@code FILES} row ids, in order.
+	 * @param type the request type.
+	 * @return the resources, in the same order.
+	 */
+	private static List<DLNAResource> getDLNAResourceFromIndex(List<Long> fileIds, DbIdMediaType type) {
+		List<DLNAResource> filesList = new ArrayList<>();
+		if (fileIds.isEmpty()) {
+			return filesList;
+		}
+		String query = addSqlSelectByType(type) + "F.ID = ANY(?)";
+		if (LOGGER.isTraceEnabled()) {
+			LOGGER.trace(String.format("SQL %s : %s %s", type.dbidPrefix, query, fileIds));
+		}
+		Map<String, DLNAResource> resources = new HashMap<>();
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection != null) {
+				try (QueryResult result = MediaLibraryQueries.executeQuery(connection, query, (Object) fileIds.toArray(Long[]::new))) {
+					while (result.next()) {
+						String fid = result.getString("FID");
+						if (!resources.containsKey(fid)) {
+							resources.put(fid, getFileResource(type, result.getString("FILENAME"), fid));
+						}
+					}
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.trace("getDLNAResourceFromIndex", e);
+		} finally {
+			MediaDatabase.close(connection);
+		}
+		for (Long fileId : fileIds) {
+			DLNAResource resource = resources.get(fileId.toString());
+			if (resource != null) {
+				filesList.add(resource);
+			}
+		}
+		return filesList;
+	}
+
+	private static DLNAResource getFileResource(DbIdMediaType type, String filename, String fid) {
+		if (type == DbIdMediaType.TYPE_PLAYLIST) {
+			return new VirtualFolderDbId(FilenameUtils.getBaseName(filename), new DbIdTypeAndIdent(type, fid), "");
+		}
+		if (filename != null) {
+			return new RealFileDbId(new DbIdTypeAndIdent(type, fid), new File(filename));
+		}
+		return null;
+	}
+
 	/**
 	 * Wraps the payload around soap Envelope / Body tags.
 	 *
@@ -537,4 +725,115 @@ public class SearchRequestHandler {
 		return response;
 	}
 
+	/**
+	 * Converts SearchCriteria to a search index query. Only criteria made of
+	 * the indexed properties, {@code upnp:class}, parentheses, {@code and}
+	 * and {@code or} are supported.
+	 */
+	private static class IndexQueryParser {
+		private static final Pattern SEPARATOR_PATTERN = Pattern.compile("\\s*(\\(|\\)|\\band\\b|\\bor\\b)?\\s*", Pattern.CASE_INSENSITIVE);
+		private final List<Object> tokens = new ArrayList<>();
+		private int position;
+
+		/**
+		 * @return the query, or {@code null} if the criteria are not
+		 *         supported.
+		 */
+		static MediaLibrarySearchIndex.Query parse(String searchCriteria, DbIdMediaType requestType) {
+			IndexQueryParser parser = new IndexQueryParser();
+			int lastIndex = 0;
+			Matcher matcher = TOKENIZER_PATTERN.matcher(searchCriteria);
+			while (matcher.find()) {
+				if (!parser.addSeparators(searchCriteria.substring(lastIndex, matcher.start()))) {
+					return null;
+				}
+				MediaLibrarySearchIndex.Query criterion = getCriterion(matcher.group("property"), matcher.group("op"), matcher.group("val"), requestType);
+				if (criterion == null) {
+					return null;
+				}
+				parser.tokens.add(criterion);
+				lastIndex = matcher.end();
+			}
+			if (!parser.addSeparators(searchCriteria.substring(lastIndex))) {
+				return null;
+			}
+			MediaLibrarySearchIndex.Query query = parser.parseOr();
+			return parser.position == parser.tokens.size() ? query : null;
+		}
+
+		private static MediaLibrarySearchIndex.Query getCriterion(String property, String op, String val, DbIdMediaType requestType) {
+			if ("upnp:class".equalsIgnoreCase(property)) {
+				if ("=".equals(op) || "derivedfrom".equalsIgnoreCase(op)) {
+					return MediaLibrarySearchIndex.formatType(getFileType(requestType));
+				}
+				return null;
+			}
+			MediaLibrarySearchIndex.Field field = getIndexField(property, requestType);
+			if (field == null) {
+				return null;
+			} else if ("=".equals(op)) {
+				return MediaLibrarySearchIndex.equalTo(field, val);
+			} else if ("contains".equals(op)) {
+				return MediaLibrarySearchIndex.contains(field, val.toLowerCase(Locale.ROOT));
+			}
+			return null;
+		}
+
+		private boolean addSeparators(String text) {
+			Matcher matcher = SEPARATOR_PATTERN.matcher(text);
+			int index = 0;
+			while (index < text.length()) {
+				if (!matcher.find(index) || matcher.start() != index || matcher.end() == index) {
+					return false;
+				}
+				if (matcher.group(1) != null) {
+					tokens.add(matcher.group(1).toLowerCase(Locale.ROOT));
+				}
+				index = matcher.end();
+			}
+			return true;
+		}
+
+		private MediaLibrarySearchIndex.Query parseOr() {
+			MediaLibrarySearchIndex.Query query = parseAnd();
+			while (query != null && isNext("or")) {
+				position++;
+				MediaLibrarySearchIndex.Query right = parseAnd();
+				query = right == null ? null : MediaLibrarySearchIndex.or(query, right);
+			}
+			return query;
+		}
+
+		private MediaLibrarySearchIndex.Query parseAnd() {
+			MediaLibrarySearchIndex.Query query = parsePrimary();
+			while (query != null && isNext("and")) {
+				position++;
+				MediaLibrarySearchIndex.Query right = parsePrimary();
+				query = right == null ? null : MediaLibrarySearchIndex.and(query, right);
+			}
+			return query;
+		}
+
+		private MediaLibrarySearchIndex.Query parsePrimary() {
+			if (position >= tokens.size()) {
+				return null;
+			}
+			Object token = tokens.get(position++);
+			if (token instanceof MediaLibrarySearchIndex.Query query) {
+				return query;
+			} else if ("(".equals(token)) {
+				MediaLibrarySearchIndex.Query query = parseOr();
+				if (query == null || !isNext(")")) {
+					return null;
+				}
+				position++;
+				return query;
+			}
+			return null;
+		}
+
+		private boolean isNext(String separator) {
+			return position < tokens.size() && separator.equals(tokens.get(position));
+		}
+	}
 }
@@ -35,6 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import net.pms.PMS;
 import net.pms.database.MediaDatabase;
+import net.pms.database.MediaLibraryJournal;
 import net.pms.database.MediaTableAudiotracks;
 import net.pms.database.MediaTableMusicBrainzReleaseLike;
 import net.pms.network.mediaserver.handlers.ApiResponseHandler;
@@ -67,6 +68,7 @@ public class LikeMusic implements ApiResponseHandler {
 					try (PreparedStatement ps = connection.prepareStatement(sql)) {
 						ps.setString(1, content);
 						ps.executeUpdate();
+						MediaLibraryJournal.recordChange(MediaTableAudiotracks.TABLE_NAME);
 					} catch (SQLException e) {
 						LOG.warn("error preparing statement", e);
 						return "ERROR:" + e.getMessage();
@@ -87,6 +89,7 @@ public class LikeMusic implements ApiResponseHandler {
 					try (PreparedStatement ps = connection.prepareStatement(sql)) {
 						ps.setString(1, content);
 						ps.executeUpdate();
+						MediaLibraryJournal.recordChange(MediaTableAudiotracks.TABLE_NAME);
 					} catch (SQLException e) {
 						LOG.warn("error preparing statement", e);
 						return "ERROR:" + e.getMessage();
@@ -27,6 +27,8 @@ import java.util.ArrayList;
 import java.util.List;
 import net.pms.PMS;
 import net.pms.database.MediaDatabase;
+import net.pms.database.MediaLibraryJournal;
+import net.pms.database.MediaTableAudiotracks;
 import net.pms.network.mediaserver.handlers.ApiResponseHandler;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
@@ -201,6 +203,7 @@ public class StarRating implements ApiResponseHandler {
 			ps.setString(2, musicBrainzTrackId);
 			ps.executeUpdate();
 			connection.commit();
+			MediaLibraryJournal.recordChange(MediaTableAudiotracks.TABLE_NAME);
 		}
 	}
 
@@ -216,6 +219,7 @@ public class StarRating implements ApiResponseHandler {
 			}
 			ps.executeUpdate();
 			connection.commit();
+			MediaLibraryJournal.recordChange(MediaTableAudiotracks.TABLE_NAME);
 		}
 	}
 
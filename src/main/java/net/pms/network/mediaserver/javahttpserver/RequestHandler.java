@@ -71,6 +71,7 @@ import net.pms.dlna.MediaType;
 import net.pms.dlna.PlaylistFolder;
 import net.pms.dlna.Range;
 import net.pms.dlna.RealFile;
+import net.pms.dlna.ThumbnailGenerator;
 import net.pms.dlna.TimeRange;
 import net.pms.dlna.protocolinfo.PanasonicDmpProfiles;
 import net.pms.dlna.virtual.MediaLibraryFolder;
@@ -80,9 +81,11 @@ import net.pms.formats.Format;
 import net.pms.formats.v2.SubtitleType;
 import net.pms.image.BufferedImageFilterChain;
 import net.pms.image.ImagesUtil;
+import net.pms.io.FileRangeInputStream;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.network.HTTPResource;
+import net.pms.network.mediaserver.DidlLiteResponse;
 import net.pms.network.mediaserver.HTTPXMLHelper;
 import net.pms.network.mediaserver.MediaServer;
 import net.pms.network.mediaserver.handlers.SearchRequestHandler;
@@ -119,6 +122,7 @@ public class RequestHandler implements HttpHandler {
 	private static final String CRLF = "\r\n";
 	private static final String CONTENT_TYPE_XML_UTF8 = "text/xml; charset=\"utf-8\"";
 	private static final int BUFFER_SIZE = 8 * 1024;
+	private static final int FILE_BUFFER_SIZE = 512 * 1024;
 	private static final Pattern DIDL_PATTERN = Pattern.compile("<Result>(&lt;DIDL-Lite.*?)</Result>");
 
 	private static final String HTTPSERVER_REQUEST_BEGIN =  "================================== HTTPSERVER REQUEST BEGIN =====================================";
@@ -210,9 +214,14 @@ public class RequestHandler implements HttpHandler {
 				} else if (soapaction != null && soapaction.contains("ContentDirectory:1#GetSearchCapabilities")) {
 					sendResponse(exchange, renderer, 200, getSearchCapabilitiesHandler(renderer), CONTENT_TYPE_XML_UTF8);
 				} else if (soapaction != null && soapaction.contains("ContentDirectory:1#Browse")) {
-					sendResponse(exchange, renderer, 200, browseHandler(requestBody, renderer), CONTENT_TYPE_XML_UTF8);
+					sendDidlResponse(exchange, renderer, 200, browseHandler(requestBody, renderer));
 				} else if (soapaction != null && soapaction.contains("ContentDirectory:1#Search")) {
-					sendResponse(exchange, renderer, 200, searchHandler(requestBody, renderer), CONTENT_TYPE_XML_UTF8);
+					String searchResponse = searchHandler(requestBody, renderer);
+					if (searchResponse != null) {
+						sendResponse(exchange, renderer, 200, searchResponse, CONTENT_TYPE_XML_UTF8);
+					} else {
+						sendDidlResponse(exchange, renderer, 200, browseHandler(requestBody, renderer));
+					}
 				} else {
 					LOGGER.debug("Unsupported action received: " + requestBody);
 					sendResponse(exchange, renderer, 200, notifyHandler(exchange), "text/xml");
@@ -263,6 +272,33 @@ public class RequestHandler implements HttpHandler {
 		}
 	}
 
+	private static void sendDidlResponse(final HttpExchange exchange, final Renderer renderer, int code, DidlLiteResponse didlResponse) throws IOException {
+		exchange.getResponseHeaders().set("Server", PMS.get().getServerName());
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_XML_UTF8);
+		if (!didlResponse.isStreamable() || !"HTTP/1.1".equals(exchange.getProtocol())) {
+			// Small responses are sent with a known length
+			byte[] responseData = didlResponse.toByteArray();
+			exchange.sendResponseHeaders(code, responseData.length);
+			if (!HEAD.equalsIgnoreCase(exchange.getRequestMethod())) {
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(responseData);
+				}
+			}
+		} else if (HEAD.equalsIgnoreCase(exchange.getRequestMethod())) {
+			exchange.sendResponseHeaders(code, -1);
+		} else {
+			// Generate and send the items as they are written, with chunked transfer encoding.
+			exchange.sendResponseHeaders(code, 0);
+			try (OutputStream os = exchange.getResponseBody()) {
+				didlResponse.writeTo(os);
+			}
+		}
+		exchange.close();
+		if (LOGGER.isTraceEnabled()) {
+			logMessageSent(exchange, null, null, renderer);
+		}
+	}
+
 	private static void sendResponse(final HttpExchange exchange, final Renderer renderer, int code, InputStream inputStream) throws IOException {
 		sendResponse(exchange, renderer, code, inputStream, -2, true);
 	}
@@ -308,15 +344,19 @@ public class RequestHandler implements HttpHandler {
 		}
 		// send only if no HEAD method is being used.
 		if (writeStream && !HEAD.equalsIgnoreCase(exchange.getRequestMethod())) {
-			// Send the response body to the client in chunks.
-			byte[] buf = new byte[BUFFER_SIZE];
+			// Send the response body to the client in chunks. Files are sent in
+			// large blocks, streams are flushed as soon as data is available.
+			boolean fileRange = inputStream instanceof FileRangeInputStream;
+			byte[] buf = new byte[fileRange ? FILE_BUFFER_SIZE : BUFFER_SIZE];
 			int length;
 			try (OutputStream outputStream = exchange.getResponseBody()) {
-				int lengthSent = 0;
+				long lengthSent = 0;
 				try {
 					while ((length = inputStream.read(buf)) > 0) {
 						outputStream.write(buf, 0, length);
-						outputStream.flush();
+						if (!fileRange) {
+							outputStream.flush();
+						}
 						lengthSent += length;
 					}
 				} catch (IOException ioe) {
@@ -449,7 +489,7 @@ public class RequestHandler implements HttpHandler {
 				if (!CONFIGURATION.isShowCodeThumbs() && !dlna.isCodeValid(dlna)) {
 					thumbInputStream = dlna.getGenericThumbnailInputStream(null);
 				} else {
-					dlna.checkThumbnail();
+					ThumbnailGenerator.runWithPriority(ThumbnailGenerator.Priority.VISIBLE, dlna::checkThumbnail);
 					thumbInputStream = dlna.fetchThumbnailInputStream();
 				}
 
@@ -952,18 +992,23 @@ public class RequestHandler implements HttpHandler {
 		}
 	}
 
-	private static String browseHandler(String requestBody, Renderer renderer) {
+	private static DidlLiteResponse browseHandler(String requestBody, Renderer renderer) {
 		BrowseRequest requestMessage = getPayload(BrowseRequest.class, requestBody);
-		return browseSearchHandler(requestMessage, requestBody, renderer).toString();
+		return browseSearchHandler(requestMessage, requestBody, renderer);
 	}
 
+	/**
+	 * @return The search response, or {@code null} if the search criteria
+	 *         could not be handled and content browsing should be used
+	 *         instead.
+	 */
 	private static String searchHandler(String requestBody, Renderer renderer) {
 		SearchRequest requestMessage = getPayload(SearchRequest.class, requestBody);
 		try {
 			return new SearchRequestHandler().createSearchResponse(requestMessage, renderer).toString();
 		} catch (Exception e) {
 			LOGGER.trace("error transforming searchCriteria to SQL. Fallback to content browsing ...", e);
-			return browseHandler(requestBody, renderer);
+			return null;
 		}
 	}
 
@@ -971,9 +1016,9 @@ public class RequestHandler implements HttpHandler {
 	 * Hybrid handler for Browse and Search requests.
 	 *
 	 * @param requestMessage parsed message
-	 * @return Soap response as a XML string
+	 * @return The SOAP response, generated as it is written
 	 */
-	private static StringBuilder browseSearchHandler(BrowseSearchRequest requestMessage, String requestBody, Renderer renderer) {
+	private static DidlLiteResponse browseSearchHandler(BrowseSearchRequest requestMessage, String requestBody, Renderer renderer) {
 		int startingIndex = 0;
 		int requestCount = 0;
 		boolean xbox360 = renderer.isXbox360();
@@ -1047,13 +1092,13 @@ public class RequestHandler implements HttpHandler {
 		}
 
 		int minus = 0;
-		StringBuilder filesData = new StringBuilder();
+		List<DLNAResource> items = new ArrayList<>();
 		if (files != null) {
 			for (DLNAResource uf : files) {
 				if (uf instanceof PlaylistFolder playlistFolder) {
 					File f = new File(uf.getFileName());
 					if (uf.getLastModified() < f.lastModified()) {
-						playlistFolder.resolve();
+						ThumbnailGenerator.runWithPriority(ThumbnailGenerator.Priority.VISIBLE, playlistFolder::resolve);
 					}
 				}
 
@@ -1066,36 +1111,18 @@ public class RequestHandler implements HttpHandler {
 						// do not check compatibility of the media for items in the FileTranscodeVirtualFolder because we need
 						// all possible combination not only those supported by renderer because the renderer setting could be wrong.
 						uf != null && files.get(0).isInsideTranscodeFolder()) {
-					filesData.append(uf.getDidlString(renderer));
+					items.add(uf);
 				} else {
 					minus++;
 				}
 			}
 		}
 
-		StringBuilder response = new StringBuilder();
-
-		if (requestMessage instanceof SearchRequest) {
-			response.append(HTTPXMLHelper.SEARCHRESPONSE_HEADER);
-		} else {
-			response.append(HTTPXMLHelper.BROWSERESPONSE_HEADER);
-		}
-
-		response.append(CRLF);
-		response.append(HTTPXMLHelper.RESULT_HEADER);
-		response.append(HTTPXMLHelper.DIDL_HEADER);
-		response.append(filesData);
-		response.append(HTTPXMLHelper.DIDL_FOOTER);
-		response.append(HTTPXMLHelper.RESULT_FOOTER);
-		response.append(CRLF);
-
 		int filessize = 0;
 		if (files != null) {
 			filessize = files.size();
 		}
 
-		response.append("<NumberReturned>").append(filessize - minus).append("</NumberReturned>");
-		response.append(CRLF);
 		DLNAResource parentFolder;
 
 		if (files != null && filessize > 0) {
@@ -1104,6 +1131,7 @@ public class RequestHandler implements HttpHandler {
 			parentFolder = PMS.get().getRootFolder(renderer).getDLNAResource(objectID, renderer);
 		}
 
+		int totalMatches;
 		if (browseDirectChildren && renderer.isUseMediaInfo() && renderer.isDLNATreeHack()) {
 			// with the new parser, files are parsed and analyzed *before*
 			// creating the DLNA tree, every 10 items (the ps3 asks 10 by 10),
@@ -1118,50 +1146,39 @@ public class RequestHandler implements HttpHandler {
 				totalCount = startingIndex;
 			}
 
-			response.append("<TotalMatches>").append(totalCount).append("</TotalMatches>");
+			totalMatches = totalCount;
 		} else if (browseDirectChildren) {
-			response.append("<TotalMatches>").append(((parentFolder != null) ? parentFolder.childrenNumber() : filessize) - minus).append("</TotalMatches>");
+			totalMatches = ((parentFolder != null) ? parentFolder.childrenNumber() : filessize) - minus;
 		} else {
 			// From upnp spec: If BrowseMetadata is specified in the BrowseFlags then TotalMatches = 1
-			response.append("<TotalMatches>1</TotalMatches>");
+			totalMatches = 1;
 		}
-		response.append(CRLF);
 
 		/**
-		 * From page 95, section 5.5.8.2 of
-		 * http://www.upnp.org/specs/av/UPnP-av-ContentDirectory-v4-Service.pdf
+		 * From section 2.7.4.2 of
+		 * http://www.upnp.org/specs/av/UPnP-av-ContentDirectory-v1-Service.pdf
 		 *
-		 * UpdateID: The value returned in the UpdateID argument shall be the
-		 * SystemUpdateID state variable value at the time the Browse() response
-		 * was generated. If a control point finds that the current
-		 * SystemUpdateID state variable value is not equal to the value
-		 * returned in the UpdateID argument, then a change within the
-		 * ContentDirectory service has occurred between the time the result was
-		 * generated and the time that the control point is processing the
-		 * result. The control point might therefore want to re-invoke the
-		 * Browse() action to ensure that it has the latest property values.
-		 * Note however that the change in the value of the SystemUpdateID state
-		 * variable could have been caused by a change that occurred in a
-		 * location in the ContentDirectory tree hierarchy that is not part of
-		 * the returned result. In this case, the re-invocation of the Browse()
-		 * action will return the exact same result. Note: This definition is
-		 * not backwards compatible with previous versions of this
-		 * specification. However, the previous definition did not indicate
-		 * changes to properties of child containers. Therefore the control
-		 * point would not have been aware that it had stale data.
+		 * UpdateID: The value returned in the UpdateID argument is the
+		 * ContainerUpdateID of the browsed container, so a control point can
+		 * tell from the evented ContainerUpdateIDs whether this result is
+		 * stale, without refreshing on every SystemUpdateID change. Items and
+		 * searches return the SystemUpdateID.
 		 */
-		response.append("<UpdateID>");
-		response.append(DLNAResource.getSystemUpdateId());
-		response.append("</UpdateID>");
-		response.append(CRLF);
-
+		DLNAResource browsed;
 		if (requestMessage instanceof SearchRequest) {
-			response.append(HTTPXMLHelper.SEARCHRESPONSE_FOOTER);
+			browsed = null;
+		} else if (browseDirectChildren || files == null || filessize == 0) {
+			browsed = parentFolder;
 		} else {
-			response.append(HTTPXMLHelper.BROWSERESPONSE_FOOTER);
+			browsed = files.get(0);
 		}
-
-		return createResponse(response.toString());
+		return new DidlLiteResponse(
+			requestMessage instanceof SearchRequest,
+			items,
+			renderer,
+			totalMatches,
+			DLNAResource.getBrowseUpdateId(browsed)
+		);
 	}
 
 	/**
@@ -1235,7 +1252,7 @@ public class RequestHandler implements HttpHandler {
 		StringBuilder response = new StringBuilder();
 		response.append(HTTPXMLHelper.eventHeader("urn:schemas-upnp-org:service:ContentDirectory:1"));
 		response.append(HTTPXMLHelper.eventProp("TransferIDs"));
-		response.append(HTTPXMLHelper.eventProp("ContainerUpdateIDs"));
+		response.append(HTTPXMLHelper.eventProp("ContainerUpdateIDs", DLNAResource.getContainerUpdateIds()));
 		response.append(HTTPXMLHelper.eventProp("SystemUpdateID", "" + DLNAResource.getSystemUpdateId()));
 		response.append(HTTPXMLHelper.EVENT_FOOTER);
 		return response.toString();
@@ -1252,7 +1269,7 @@ public class RequestHandler implements HttpHandler {
 		response.append("<TransferIDs></TransferIDs>");
 		response.append("</e:property>");
 		response.append("<e:property>");
-		response.append("<ContainerUpdateIDs></ContainerUpdateIDs>");
+		response.append("<ContainerUpdateIDs>").append(DLNAResource.getContainerUpdateIds()).append("</ContainerUpdateIDs>");
 		response.append("</e:property>");
 		response.append("<e:property>");
 		response.append("<SystemUpdateID>").append(DLNAResource.getSystemUpdateId()).append("</SystemUpdateID>");
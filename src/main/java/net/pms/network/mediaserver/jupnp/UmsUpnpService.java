@@ -65,6 +65,14 @@ public class UmsUpnpService extends UpnpServiceImpl {
 		return result;
 	}
 
+	@Override
+	public synchronized void shutdown() {
+		super.shutdown();
+		if (mediaServerDevice instanceof UmsLocalDevice umsLocalDevice) {
+			umsLocalDevice.stop();
+		}
+	}
+
 	public void sendAlive() {
 		getProtocolFactory().createSendingNotificationAlive(mediaServerDevice).run();
 	}
@@ -131,19 +131,19 @@ public class UmsLocalDevice extends LocalDevice {
 	 */
 	private static LocalService<UmsContentDirectoryService> createContentDirectoryService() {
 		LocalService<UmsContentDirectoryService> contentDirectoryService = new AnnotationLocalServiceBinder().read(UmsContentDirectoryService.class);
-		contentDirectoryService.setManager(new DefaultServiceManager<UmsContentDirectoryService>(contentDirectoryService, null) {
-
-			@Override
-			protected int getLockTimeoutMillis() {
-				return 1000;
-			}
+		contentDirectoryService.setManager(new ContentDirectoryServiceManager(contentDirectoryService));
+		return contentDirectoryService;
+	}
 
-			@Override
-			protected UmsContentDirectoryService createServiceInstance() throws Exception {
-				return new UmsContentDirectoryService();
+	/**
+	 * Stops the services, when the device is shut down.
+	 */
+	public void stop() {
+		for (LocalService<?> service : getServices()) {
+			if (service.getManager() instanceof ContentDirectoryServiceManager manager) {
+				manager.stop();
 			}
-		});
-		return contentDirectoryService;
+		}
 	}
 
 	/**
@@ -190,4 +190,34 @@ public class UmsLocalDevice extends LocalDevice {
 		return mediaReceiverRegistrarService;
 	}
 
+	/**
+	 * The manager of the ContentDirectoryService, which keeps the instance to
+	 * stop it.
+	 */
+	private static class ContentDirectoryServiceManager extends DefaultServiceManager<UmsContentDirectoryService> {
+		private volatile UmsContentDirectoryService instance;
+
+		public ContentDirectoryServiceManager(LocalService<UmsContentDirectoryService> service) {
+			super(service, null);
+		}
+
+		@Override
+		protected int getLockTimeoutMillis() {
+			return 1000;
+		}
+
+		@Override
+		protected UmsContentDirectoryService createServiceInstance() throws Exception {
+			instance = new UmsContentDirectoryService();
+			return instance;
+		}
+
+		private void stop() {
+			UmsContentDirectoryService current = instance;
+			if (current != null) {
+				current.stop();
+			}
+		}
+	}
+
 }
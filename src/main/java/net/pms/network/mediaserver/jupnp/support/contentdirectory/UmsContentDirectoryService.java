@@ -21,11 +21,13 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.util.List;
+import java.util.function.BiConsumer;
 import net.pms.PMS;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableFilesStatus;
 import net.pms.dlna.DLNAResource;
 import net.pms.dlna.PlaylistFolder;
+import net.pms.dlna.ThumbnailGenerator;
 import net.pms.network.mediaserver.HTTPXMLHelper;
 import net.pms.network.mediaserver.handlers.SearchRequestHandler;
 import net.pms.network.mediaserver.jupnp.model.meta.UmsRemoteClientInfo;
@@ -132,12 +134,31 @@ public class UmsContentDirectoryService {
 	)
 	private UnsignedIntegerFourBytes systemUpdateID = new UnsignedIntegerFourBytes(0);
 
+	@UpnpStateVariable(
+			sendEvents = true,
+			datatype = "string",
+			defaultValue = "",
+			eventMaximumRateMilliseconds = 200
+	)
+	private String containerUpdateIDs = "";
+
 	protected final PropertyChangeSupport propertyChangeSupport;
 
+	private final BiConsumer<Integer, String> updateIdListener = this::changeUpdateIDs;
+
 	public UmsContentDirectoryService() {
 		this.searchCapabilities.addAll(CAPS_SEARCH);
 		this.sortCapabilities.addAll(CAPS_SORT);
 		propertyChangeSupport = new PropertyChangeSupport(this);
+		DLNAResource.addUpdateIdListener(updateIdListener);
+	}
+
+	/**
+	 * Stops eventing the content directory changes, when the service is shut
+	 * down.
+	 */
+	public void stop() {
+		DLNAResource.removeUpdateIdListener(updateIdListener);
 	}
 
 	@UpnpAction(out = @UpnpOutputArgument(name = "SearchCaps"))
@@ -156,24 +177,41 @@ public class UmsContentDirectoryService {
 		return new UnsignedIntegerFourBytes(DLNAResource.getSystemUpdateId());
 	}
 
+	public synchronized String getContainerUpdateIDs() {
+		return containerUpdateIDs;
+	}
+
 	public PropertyChangeSupport getPropertyChangeSupport() {
 		return propertyChangeSupport;
 	}
 
 	/**
-	 * Call this method after making changes to your content directory.
+	 * Called after the content directory changed.
 	 * <p>
 	 * This will notify clients that their view of the content directory is
-	 * potentially outdated and has to be refreshed.
+	 * potentially outdated, and which containers have to be refreshed.
 	 * </p>
 	 */
-	protected synchronized void changeSystemUpdateID() {
-		Long oldUpdateID = getSystemUpdateID().getValue();
-		systemUpdateID.increment(true);
+	protected void changeUpdateIDs(int newSystemUpdateID, String newContainerUpdateIDs) {
+		String oldContainerUpdateIDs;
+		Long oldUpdateID;
+		synchronized (this) {
+			oldContainerUpdateIDs = containerUpdateIDs;
+			containerUpdateIDs = newContainerUpdateIDs;
+			oldUpdateID = systemUpdateID.getValue();
+			systemUpdateID = new UnsignedIntegerFourBytes(newSystemUpdateID);
+		}
+		if (!newContainerUpdateIDs.isEmpty()) {
+			getPropertyChangeSupport().firePropertyChange(
+					"ContainerUpdateIDs",
+					oldContainerUpdateIDs,
+					newContainerUpdateIDs
+			);
+		}
 		getPropertyChangeSupport().firePropertyChange(
 				"SystemUpdateID",
 				oldUpdateID,
-				getSystemUpdateID().getValue()
+				Long.valueOf(newSystemUpdateID)
 		);
 	}
 
@@ -342,7 +380,7 @@ public class UmsContentDirectoryService {
 				if (uf instanceof PlaylistFolder playlistFolder) {
 					File f = new File(uf.getFileName());
 					if (uf.getLastModified() < f.lastModified()) {
-						playlistFolder.resolve();
+						ThumbnailGenerator.runWithPriority(ThumbnailGenerator.Priority.VISIBLE, playlistFolder::resolve);
 					}
 				}
 
@@ -398,7 +436,13 @@ public class UmsContentDirectoryService {
 			totalMatches = 1;
 		}
 
-		long containerUpdateID = DLNAResource.getSystemUpdateId();
+		DLNAResource browsed;
+		if (files != null && filessize > 0) {
+			browsed = browseDirectChildren ? files.get(0).getParent() : files.get(0);
+		} else {
+			browsed = PMS.get().getRootFolder(renderer).getDLNAResource(objectID, renderer);
+		}
+		long containerUpdateID = DLNAResource.getBrowseUpdateId(browsed);
 		//jupnp will escape DIDL result itself
 		//this will not be necessary when UMS will build results from DIDL objects
 		String result = StringEscapeUtils.unescapeXml(filesData.toString());
@@ -505,7 +549,7 @@ public class UmsContentDirectoryService {
 				if (uf instanceof PlaylistFolder playlistFolder) {
 					File f = new File(uf.getFileName());
 					if (uf.getLastModified() < f.lastModified()) {
-						playlistFolder.resolve();
+						ThumbnailGenerator.runWithPriority(ThumbnailGenerator.Priority.VISIBLE, playlistFolder::resolve);
 					}
 				}
 
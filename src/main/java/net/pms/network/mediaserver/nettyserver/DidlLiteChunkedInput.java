@@ -0,0 +1,71 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network.mediaserver.nettyserver;
+
+import java.nio.ByteBuffer;
+import net.pms.network.mediaserver.DidlLiteResponse;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.stream.ChunkedInput;
+
+/**
+ * Writes a {@link DidlLiteResponse} as HTTP chunks.
+ * <p>
+ * Each chunk is generated when the
+ * {@link org.jboss.netty.handler.stream.ChunkedWriteHandler} asks for it, that
+ * is when the channel accepts more data, so only one chunk of the response is
+ * held in memory at a time.
+ */
+public class DidlLiteChunkedInput implements ChunkedInput {
+	private final DidlLiteResponse response;
+	private boolean endOfInput;
+
+	public DidlLiteChunkedInput(DidlLiteResponse response) {
+		this.response = response;
+	}
+
+	@Override
+	public boolean hasNextChunk() {
+		return !endOfInput;
+	}
+
+	@Override
+	public Object nextChunk() throws Exception {
+		if (endOfInput) {
+			return null;
+		}
+
+		ByteBuffer chunk = response.nextChunk();
+		if (chunk == null) {
+			endOfInput = true;
+			return HttpChunk.LAST_CHUNK;
+		}
+
+		return new DefaultHttpChunk(ChannelBuffers.wrappedBuffer(chunk));
+	}
+
+	@Override
+	public boolean isEndOfInput() {
+		return endOfInput;
+	}
+
+	@Override
+	public void close() {
+		endOfInput = true;
+	}
+}
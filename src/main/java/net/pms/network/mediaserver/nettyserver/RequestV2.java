@@ -63,6 +63,7 @@ import net.pms.dlna.MediaType;
 import net.pms.dlna.PlaylistFolder;
 import net.pms.dlna.Range;
 import net.pms.dlna.RealFile;
+import net.pms.dlna.ThumbnailGenerator;
 import net.pms.dlna.TimeRange;
 import net.pms.dlna.virtual.MediaLibraryFolder;
 import net.pms.encoders.HlsHelper;
@@ -71,9 +72,11 @@ import net.pms.formats.Format;
 import net.pms.formats.v2.SubtitleType;
 import net.pms.image.BufferedImageFilterChain;
 import net.pms.image.ImagesUtil;
+import net.pms.io.FileRangeInputStream;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.network.HTTPResource;
+import net.pms.network.mediaserver.DidlLiteResponse;
 import net.pms.network.mediaserver.HTTPXMLHelper;
 import net.pms.network.mediaserver.MediaServer;
 import net.pms.network.mediaserver.handlers.ApiHandler;
@@ -96,6 +99,7 @@ import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.DefaultFileRegion;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpMethod;
@@ -104,6 +108,7 @@ import static org.jboss.netty.handler.codec.http.HttpMethod.HEAD;
 import static org.jboss.netty.handler.codec.http.HttpMethod.POST;
 import org.jboss.netty.handler.codec.http.HttpResponse;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
 import org.jboss.netty.handler.stream.ChunkedStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -281,6 +286,7 @@ public class RequestV2 extends HTTPResource {
 		PMS.REALTIME_LOCK.lock();
 		long cLoverride = -2; // 0 and above are valid Content-Length values, -1 means omit
 		StringBuilder response = new StringBuilder();
+		DidlLiteResponse didlResponse = null;
 		DLNAResource dlna = null;
 		InputStream inputStream = null;
 		ChannelFuture future = null;
@@ -388,7 +394,7 @@ public class RequestV2 extends HTTPResource {
 						if (!configuration.isShowCodeThumbs() && !dlna.isCodeValid(dlna)) {
 							thumbInputStream = dlna.getGenericThumbnailInputStream(null);
 						} else {
-							dlna.checkThumbnail();
+							ThumbnailGenerator.runWithPriority(ThumbnailGenerator.Priority.VISIBLE, dlna::checkThumbnail);
 							thumbInputStream = dlna.fetchThumbnailInputStream();
 						}
 
@@ -716,9 +722,14 @@ public class RequestV2 extends HTTPResource {
 				} else if (soapaction != null && soapaction.contains("ContentDirectory:1#GetSearchCapabilities")) {
 					response.append(getSearchCapabilitiesHandler(mediaRenderer));
 				} else if (soapaction != null && soapaction.contains("ContentDirectory:1#Browse")) {
-					response.append(browseHandler());
+					didlResponse = browseHandler();
 				} else if (soapaction != null && soapaction.contains("ContentDirectory:1#Search")) {
-					response.append(searchHandler());
+					StringBuilder searchResponse = searchHandler();
+					if (searchResponse != null) {
+						response.append(searchResponse);
+					} else {
+						didlResponse = browseHandler();
+					}
 				} else {
 					LOGGER.debug("Unsupported action received: " + content);
 				}
@@ -731,7 +742,35 @@ public class RequestV2 extends HTTPResource {
 
 			output.headers().set(HttpHeaders.Names.SERVER, PMS.get().getServerName());
 
-			if (response.length() > 0) {
+			boolean streamDidl = didlResponse != null && didlResponse.isStreamable() && HttpVersion.HTTP_1_1.equals(output.getProtocolVersion());
+			if (streamDidl) {
+				// Generate the items as the channel accepts them, and send them with chunked transfer encoding.
+				output.setChunked(true);
+				output.headers().set(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+				future = event.getChannel().write(output);
+				if (!HEAD.equals(method)) {
+					future = event.getChannel().write(new DidlLiteChunkedInput(didlResponse));
+				}
+
+				if (close) {
+					// Close the channel after the response is sent.
+					future.addListener(ChannelFutureListener.CLOSE);
+				}
+			} else if (didlResponse != null) {
+				// Small responses are sent with a known length
+				byte[] responseData = didlResponse.toByteArray();
+				output.headers().set(HttpHeaders.Names.CONTENT_LENGTH, "" + responseData.length);
+				if (!HEAD.equals(method)) {
+					output.setContent(ChannelBuffers.wrappedBuffer(responseData));
+				}
+
+				future = event.getChannel().write(output);
+
+				if (close) {
+					// Close the channel after the response is sent.
+					future.addListener(ChannelFutureListener.CLOSE);
+				}
+			} else if (response.length() > 0) {
 				// A response message was constructed; convert it to data ready to be sent.
 				byte[] responseData = response.toString().getBytes(StandardCharsets.UTF_8);
 				output.headers().set(HttpHeaders.Names.CONTENT_LENGTH, "" + responseData.length);
@@ -780,8 +819,16 @@ public class RequestV2 extends HTTPResource {
 				future = event.getChannel().write(output);
 
 				if (lowRange != DLNAMediaInfo.ENDFILE_POS && !HEAD.equals(method)) {
-					// Send the response body to the client in chunks.
-					ChannelFuture chunkWriteFuture = event.getChannel().write(new ChunkedStream(inputStream, BUFFER_SIZE));
+					ChannelFuture chunkWriteFuture;
+					if (inputStream instanceof FileRangeInputStream fileRange) {
+						// Send the file range straight from the file system, without copying it through the heap.
+						chunkWriteFuture = event.getChannel().write(
+							new DefaultFileRegion(fileRange.getChannel(), fileRange.getPosition(), fileRange.getRemaining(), false)
+						);
+					} else {
+						// Send the response body to the client in chunks.
+						chunkWriteFuture = event.getChannel().write(new ChunkedStream(inputStream, BUFFER_SIZE));
+					}
 
 					// Add a listener to clean up after sending the entire response body.
 					final InputStream finalInputStream = inputStream;
@@ -1012,18 +1059,23 @@ public class RequestV2 extends HTTPResource {
 		return createResponse(response.toString());
 	}
 
-	private StringBuilder browseHandler() {
+	private DidlLiteResponse browseHandler() {
 		BrowseRequest requestMessage = getPayload(BrowseRequest.class);
 		return this.browseSearchHandler(requestMessage);
 	}
 
+	/**
+	 * @return The search response, or {@code null} if the search criteria
+	 *         could not be handled and content browsing should be used
+	 *         instead.
+	 */
 	private StringBuilder searchHandler() {
 		SearchRequest requestMessage = getPayload(SearchRequest.class);
 		try {
 			return searchRequestHandler.createSearchResponse(requestMessage, mediaRenderer);
 		} catch (Exception e) {
 			LOGGER.trace("error transforming searchCriteria to SQL. Fallback to content browsing ...", e);
-			return browseHandler();
+			return null;
 		}
 	}
 
@@ -1033,9 +1085,9 @@ public class RequestV2 extends HTTPResource {
 	 * New implementation use JUPnP, so forgot this
 	 *
 	 * @param requestMessage parsed message
-	 * @return Soap response as a XML string
+	 * @return The SOAP response, generated as it is written
 	 */
-	private StringBuilder browseSearchHandler(BrowseSearchRequest requestMessage) {
+	private DidlLiteResponse browseSearchHandler(BrowseSearchRequest requestMessage) {
 		boolean xbox360 = mediaRenderer.isXbox360();
 		String objectID = requestMessage.getObjectId();
 		String containerID = null;
@@ -1107,13 +1159,13 @@ public class RequestV2 extends HTTPResource {
 		}
 
 		int minus = 0;
-		StringBuilder filesData = new StringBuilder();
+		List<DLNAResource> items = new ArrayList<>();
 		if (files != null) {
 			for (DLNAResource uf : files) {
 				if (uf instanceof PlaylistFolder playlistFolder) {
 					File f = new File(uf.getFileName());
 					if (uf.getLastModified() < f.lastModified()) {
-						playlistFolder.resolve();
+						ThumbnailGenerator.runWithPriority(ThumbnailGenerator.Priority.VISIBLE, playlistFolder::resolve);
 					}
 				}
 
@@ -1129,36 +1181,18 @@ public class RequestV2 extends HTTPResource {
 					// all possible combination not only those supported by renderer because the renderer setting could be wrong.
 					files.get(0).isInsideTranscodeFolder())
 				) {
-					filesData.append(uf.getDidlString(mediaRenderer));
+					items.add(uf);
 				} else {
 					minus++;
 				}
 			}
 		}
 
-		StringBuilder response = new StringBuilder();
-
-		if (requestMessage instanceof SearchRequest) {
-			response.append(HTTPXMLHelper.SEARCHRESPONSE_HEADER);
-		} else {
-			response.append(HTTPXMLHelper.BROWSERESPONSE_HEADER);
-		}
-
-		response.append(CRLF);
-		response.append(HTTPXMLHelper.RESULT_HEADER);
-		response.append(HTTPXMLHelper.DIDL_HEADER);
-		response.append(filesData);
-		response.append(HTTPXMLHelper.DIDL_FOOTER);
-		response.append(HTTPXMLHelper.RESULT_FOOTER);
-		response.append(CRLF);
-
 		int filessize = 0;
 		if (files != null) {
 			filessize = files.size();
 		}
 
-		response.append("<NumberReturned>").append(filessize - minus).append("</NumberReturned>");
-		response.append(CRLF);
 		DLNAResource parentFolder;
 
 		if (files != null && filessize > 0) {
@@ -1167,6 +1201,7 @@ public class RequestV2 extends HTTPResource {
 			parentFolder = PMS.get().getRootFolder(mediaRenderer).getDLNAResource(objectID, mediaRenderer);
 		}
 
+		int totalMatches;
 		if (browseDirectChildren && mediaRenderer.isUseMediaInfo() && mediaRenderer.isDLNATreeHack()) {
 			// with the new parser, files are parsed and analyzed *before*
 			// creating the DLNA tree, every 10 items (the ps3 asks 10 by 10),
@@ -1181,46 +1216,39 @@ public class RequestV2 extends HTTPResource {
 				totalCount = startingIndex;
 			}
 
-			response.append("<TotalMatches>").append(totalCount).append("</TotalMatches>");
+			totalMatches = totalCount;
 		} else if (browseDirectChildren) {
-			response.append("<TotalMatches>").append(((parentFolder != null) ? parentFolder.childrenNumber() : filessize) - minus).append("</TotalMatches>");
+			totalMatches = ((parentFolder != null) ? parentFolder.childrenNumber() : filessize) - minus;
 		} else {
 			// From upnp spec: If BrowseMetadata is specified in the BrowseFlags then TotalMatches = 1
-			response.append("<TotalMatches>1</TotalMatches>");
+			totalMatches = 1;
 		}
-		response.append(CRLF);
 
 		/**
-		 * From page 95, section 5.5.8.2 of http://www.upnp.org/specs/av/UPnP-av-ContentDirectory-v4-Service.pdf
+		 * From section 2.7.4.2 of
+		 * http://www.upnp.org/specs/av/UPnP-av-ContentDirectory-v1-Service.pdf
 		 *
-		 * UpdateID: The value returned in the UpdateID argument shall be the SystemUpdateID
-		 * state variable value at the time the Browse() response was generated. If a control point
-		 * finds that the current SystemUpdateID state variable value is not equal to the value
-		 * returned in the UpdateID argument, then a change within the ContentDirectory service has
-		 * occurred between the time the result was generated and the time that the control point is
-		 * processing the result. The control point might therefore want to re-invoke the Browse()
-		 * action to ensure that it has the latest property values. Note however that the change in the
-		 * value of the SystemUpdateID state variable could have been caused by a change that
-		 * occurred in a location in the ContentDirectory tree hierarchy that is not part of the returned
-		 * result. In this case, the re-invocation of the Browse() action will return the exact same
-		 * result.
-		 * Note: This definition is not backwards compatible with previous versions of this
-		 * specification. However, the previous definition did not indicate changes to properties
-		 * of child containers. Therefore the control point would not have been aware that it had
-		 * stale data.
+		 * UpdateID: The value returned in the UpdateID argument is the
+		 * ContainerUpdateID of the browsed container, so a control point can
+		 * tell from the evented ContainerUpdateIDs whether this result is
+		 * stale, without refreshing on every SystemUpdateID change. Items and
+		 * searches return the SystemUpdateID.
 		 */
-		response.append("<UpdateID>");
-		response.append(DLNAResource.getSystemUpdateId());
-		response.append("</UpdateID>");
-		response.append(CRLF);
-
+		DLNAResource browsed;
 		if (requestMessage instanceof SearchRequest) {
-			response.append(HTTPXMLHelper.SEARCHRESPONSE_FOOTER);
+			browsed = null;
+		} else if (browseDirectChildren || files == null || filessize == 0) {
+			browsed = parentFolder;
 		} else {
-			response.append(HTTPXMLHelper.BROWSERESPONSE_FOOTER);
+			browsed = files.get(0);
 		}
-
-		return createResponse(response.toString());
+		return new DidlLiteResponse(
+			requestMessage instanceof SearchRequest,
+			items,
+			mediaRenderer,
+			totalMatches,
+			DLNAResource.getBrowseUpdateId(browsed)
+		);
 	}
 
 	/**
@@ -1346,7 +1374,7 @@ public class RequestV2 extends HTTPResource {
 		}
 		response.append(HTTPXMLHelper.eventHeader("urn:schemas-upnp-org:service:ContentDirectory:1"));
 		response.append(HTTPXMLHelper.eventProp("TransferIDs"));
-		response.append(HTTPXMLHelper.eventProp("ContainerUpdateIDs"));
+		response.append(HTTPXMLHelper.eventProp("ContainerUpdateIDs", DLNAResource.getContainerUpdateIds()));
 		response.append(HTTPXMLHelper.eventProp("SystemUpdateID", "" + DLNAResource.getSystemUpdateId()));
 		response.append(HTTPXMLHelper.EVENT_FOOTER);
 		return response.toString();
@@ -1365,7 +1393,7 @@ public class RequestV2 extends HTTPResource {
 		response.append("<TransferIDs></TransferIDs>");
 		response.append("</e:property>");
 		response.append("<e:property>");
-		response.append("<ContainerUpdateIDs></ContainerUpdateIDs>");
+		response.append("<ContainerUpdateIDs>").append(DLNAResource.getContainerUpdateIds()).append("</ContainerUpdateIDs>");
 		response.append("</e:property>");
 		response.append("<e:property>");
 		response.append("<SystemUpdateID>").append(DLNAResource.getSystemUpdateId()).append("</SystemUpdateID>");
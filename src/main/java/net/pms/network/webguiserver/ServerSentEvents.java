@@ -16,22 +16,79 @@
  */
 package net.pms.network.webguiserver;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.concurrent.GuardedBy;
 import javax.servlet.AsyncContext;
 import net.pms.network.IServerSentEvents;
+import net.pms.network.httpserverservletcontainer.AsyncExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A Server Sent Events stream.
+ * <p>
+ * The messages are queued, and a single broadcaster thread sends the queued
+ * messages of every stream in one write each {@link #BATCH_INTERVAL} ms, or
+ * pings the streams that were idle for {@link #PING_INTERVAL} ms. The writes
+ * run on the {@link AsyncExecutor}, one at a time per stream, so a slow
+ * client only holds its own messages back, and when the executor is
+ * saturated the messages stay queued until the next try. A stream holds at
+ * most {@link #MAX_PENDING_EVENTS} messages, beyond that the oldest are
+ * dropped, and a message sent with a key replaces the queued message with
+ * the same key, at the end of the queue.
+ */
 public class ServerSentEvents implements IServerSentEvents {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ServerSentEvents.class);
 
+	/**
+	 * How often the queued messages are sent, in milliseconds.
+	 */
+	private static final long BATCH_INTERVAL = 100;
+
+	/**
+	 * How long a stream stays idle before it is pinged, in milliseconds.
+	 */
+	private static final long PING_INTERVAL = 1000;
+
+	/**
+	 * The most messages queued for a stream.
+	 */
+	private static final int MAX_PENDING_EVENTS = 256;
+
+	private static final Set<ServerSentEvents> STREAMS = ConcurrentHashMap.newKeySet();
+	private static final LongAdder SENT_EVENTS = new LongAdder();
+	private static final LongAdder DROPPED_EVENTS = new LongAdder();
+	private static final Object BROADCASTER_LOCK = new Object();
+
+	@GuardedBy("BROADCASTER_LOCK")
+	private static ScheduledExecutorService broadcaster;
+
 	private final Object osLock = new Object();
 	private final AsyncContext context;
 	private final Runnable callback;
-	private OutputStream os;
-	private Thread pingThread;
+	private final AtomicBoolean writing = new AtomicBoolean();
+
+	/** The queued messages, by key or by a unique object */
+	@GuardedBy("pending")
+	private final Map<Object, String> pending = new LinkedHashMap<>();
+
+	private volatile OutputStream os;
+	private volatile long lastSent = System.currentTimeMillis();
 
 	public ServerSentEvents(AsyncContext context) {
 		this(context, null);
@@ -47,6 +104,17 @@ public class ServerSentEvents implements IServerSentEvents {
 		}
 	}
 
+	/**
+	 * Creates a stream writing to an output stream, without a request.
+	 *
+	 * @param os the output stream.
+	 */
+	ServerSentEvents(OutputStream os) {
+		this.context = null;
+		this.callback = null;
+		addEventStream(os);
+	}
+
 	@Override
 	public boolean isOpened() {
 		return this.os != null;
@@ -58,12 +126,38 @@ public class ServerSentEvents implements IServerSentEvents {
 	}
 
 	public boolean sendMessage(String message, boolean log) {
+		return sendMessage(message, log, null);
+	}
+
+	/**
+	 * Queues a message.
+	 *
+	 * @param message the message.
+	 * @param log whether to log the message.
+	 * @param key the key of the message, which replaces a queued message with
+	 *            the same key, or {@code null}.
+	 * @return {@code false} if the stream is closed.
+	 */
+	public boolean sendMessage(String message, boolean log, String key) {
+		if (!isOpened()) {
+			return false;
+		}
 		String response = "event: message\n";
 		response += "data: " + message + "\n\n";
 		if (log) {
 			LOGGER.trace("ServerSentEvents send message: {}", message);
 		}
-		return send(response);
+		synchronized (pending) {
+			// A replaced message moves to the end, after the messages sent before this one
+			if ((key == null || pending.remove(key) == null) && pending.size() >= MAX_PENDING_EVENTS) {
+				Iterator<Object> iterator = pending.keySet().iterator();
+				iterator.next();
+				iterator.remove();
+				DROPPED_EVENTS.increment();
+			}
+			pending.put(key != null ? key : new Object(), response);
+		}
+		return true;
 	}
 
 	@Override
@@ -79,11 +173,41 @@ public class ServerSentEvents implements IServerSentEvents {
 					context.complete();
 				}
 				os = null;
+				STREAMS.remove(this);
 				if (callback != null) {
-					new Thread(callback, "ServerSentEvents callback").start();
+					try {
+						AsyncExecutor.execute(callback);
+					} catch (RejectedExecutionException e) {
+						callback.run();
+					}
 				}
 			}
 		}
+		synchronized (pending) {
+			pending.clear();
+		}
+	}
+
+	/**
+	 * @return the number of opened streams.
+	 */
+	public static int getConnectedClients() {
+		return STREAMS.size();
+	}
+
+	/**
+	 * @return the number of messages sent since the start.
+	 */
+	public static long getSentEvents() {
+		return SENT_EVENTS.sum();
+	}
+
+	/**
+	 * @return the number of messages dropped since the start, because their
+	 *         stream was too slow.
+	 */
+	public static long getDroppedEvents() {
+		return DROPPED_EVENTS.sum();
 	}
 
 	private void addEventStream(OutputStream os) {
@@ -91,61 +215,105 @@ public class ServerSentEvents implements IServerSentEvents {
 			this.os = os;
 		}
 		LOGGER.debug("ServerSentEvents OutputStream was set");
-		startPing();
+		STREAMS.add(this);
+		startBroadcaster();
+	}
+
+	/**
+	 * Sends the queued messages, or a ping if the stream has been idle,
+	 * unless the previous write is still running.
+	 */
+	private void flush(long now) {
+		boolean empty;
+		synchronized (pending) {
+			empty = pending.isEmpty();
+		}
+		if ((empty && now - lastSent < PING_INTERVAL) || !writing.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			AsyncExecutor.execute(this::write);
+		} catch (RejectedExecutionException e) {
+			// The messages stay queued until the next broadcast
+			writing.set(false);
+		}
 	}
 
-	private boolean send(String response) {
-		return send(response.getBytes());
+	/**
+	 * Writes the messages queued by the time the write runs.
+	 */
+	private void write() {
+		try {
+			ByteArrayOutputStream batch = new ByteArrayOutputStream();
+			int count;
+			synchronized (pending) {
+				count = pending.size();
+				for (String response : pending.values()) {
+					batch.writeBytes(response.getBytes(StandardCharsets.UTF_8));
+				}
+				pending.clear();
+			}
+			long now = System.currentTimeMillis();
+			if (count == 0) {
+				String response = "event: ping\n";
+				response += "data: " + new Timestamp(now) + "\n\n";
+				batch.writeBytes(response.getBytes(StandardCharsets.UTF_8));
+			}
+			lastSent = now;
+			if (send(batch.toByteArray())) {
+				SENT_EVENTS.add(count);
+			}
+		} finally {
+			writing.set(false);
+		}
 	}
 
 	private boolean send(byte[] response) {
 		try {
-			if (isOpened()) {
-				synchronized (osLock) {
+			synchronized (osLock) {
+				if (os != null) {
 					os.write(response);
 					os.flush();
+					return true;
 				}
-				return true;
 			}
 		} catch (IOException ex) {
 			LOGGER.debug("ServerSentEvents OutputStream seems closed");
-			stopPing();
 			close();
 		}
 		return false;
 	}
 
-	private void startPing() {
-		if (pingThread != null && pingThread.isAlive()) {
-			LOGGER.trace("ServerSentEvents pingThread already running");
-			return;
-		}
-		Runnable rPing = () -> {
-			while (isOpened()) {
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-					close();
-					Thread.currentThread().interrupt();
-					return;
-				}
-				sendPing();
+	private static void startBroadcaster() {
+		synchronized (BROADCASTER_LOCK) {
+			if (broadcaster == null) {
+				broadcaster = Executors.newSingleThreadScheduledExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "ServerSentEvents broadcaster");
+					thread.setDaemon(true);
+					return thread;
+				});
+				broadcaster.scheduleWithFixedDelay(ServerSentEvents::broadcast, BATCH_INTERVAL, BATCH_INTERVAL, TimeUnit.MILLISECONDS);
 			}
-		};
-		pingThread = new Thread(rPing, "ServerSentEvents ping");
-		pingThread.start();
-	}
-
-	private void stopPing() {
-		if (pingThread != null) {
-			pingThread.interrupt();
 		}
 	}
 
-	private boolean sendPing() {
-		String response = "event: ping\n";
-		response += "data: " + new Timestamp(System.currentTimeMillis()) + "\n\n";
-		return send(response);
+	private static void broadcast() {
+		long now = System.currentTimeMillis();
+		for (ServerSentEvents stream : STREAMS) {
+			if (stream.isOpened()) {
+				stream.flush(now);
+			} else {
+				STREAMS.remove(stream);
+			}
+		}
+		if (STREAMS.isEmpty()) {
+			synchronized (BROADCASTER_LOCK) {
+				if (STREAMS.isEmpty() && broadcaster != null) {
+					broadcaster.shutdown();
+					broadcaster = null;
+				}
+			}
+		}
 	}
 
 }
@@ -0,0 +1,268 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network.webguiserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the files of the React web client in memory, with a gzipped copy of
+ * the text files and a strong ETag for each copy, so they are read and
+ * compressed once at startup instead of on every request.
+ * <p>
+ * Files bigger than {@link #MAX_ASSET_SIZE} are not cached, and caching stops
+ * at {@link #MAX_TOTAL_SIZE}; those files are streamed from the disk as
+ * before.
+ */
+public class StaticAssetCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(StaticAssetCache.class);
+
+	/**
+	 * The biggest file to cache, in bytes.
+	 */
+	private static final long MAX_ASSET_SIZE = 8 * 1024 * 1024;
+
+	/**
+	 * The most bytes to cache, counting the gzipped copies.
+	 */
+	private static final long MAX_TOTAL_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * The extensions of the files worth compressing.
+	 */
+	private static final List<String> COMPRESSIBLE_EXTENSIONS = List.of(
+		".css",
+		".html",
+		".ico",
+		".js",
+		".json",
+		".map",
+		".svg",
+		".txt",
+		".xml"
+	);
+
+	private static final Object LOCK = new Object();
+	private static final LongAdder HITS = new LongAdder();
+	private static final LongAdder GZIP_HITS = new LongAdder();
+	private static final LongAdder NOT_MODIFIED = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+
+	private static volatile Map<String, Asset> assets;
+	private static volatile long size;
+	private static volatile long gzipSize;
+
+	/**
+	 * A cached file.
+	 *
+	 * @param data the file content.
+	 * @param etag the strong ETag of the content, quoted.
+	 * @param gzipData the gzipped content, or {@code null} if it is not
+	 *            smaller.
+	 * @param gzipEtag the strong ETag of the gzipped content, quoted, or
+	 *            {@code null}.
+	 */
+	public record Asset(byte[] data, String etag, byte[] gzipData, String gzipEtag) {
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private StaticAssetCache() {
+	}
+
+	/**
+	 * Loads the files of the React web client, once.
+	 */
+	public static void init() {
+		synchronized (LOCK) {
+			if (assets == null) {
+				load(new File(WebGuiServletHelper.CONFIGURATION.getWebPath(), "react-client"));
+			}
+		}
+	}
+
+	/**
+	 * Replaces the cached files with the files of a folder.
+	 *
+	 * @param root the folder.
+	 */
+	public static void load(File root) {
+		long start = System.nanoTime();
+		Map<String, Asset> result = new HashMap<>();
+		long total = 0;
+		long totalGzip = 0;
+		Path rootPath = root.toPath();
+		if (root.isDirectory()) {
+			try (Stream<Path> files = Files.walk(rootPath)) {
+				for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+					if (Files.size(file) > MAX_ASSET_SIZE || total + totalGzip >= MAX_TOTAL_SIZE) {
+						continue;
+					}
+					String name = rootPath.relativize(file).toString().replace(File.separatorChar, '/');
+					Asset asset = createAsset(name, Files.readAllBytes(file));
+					result.put(name, asset);
+					total += asset.data().length;
+					if (asset.gzipData() != null) {
+						totalGzip += asset.gzipData().length;
+					}
+				}
+			} catch (IOException e) {
+				LOGGER.warn("Error while caching the web client files: {}", e.getMessage());
+				LOGGER.trace("", e);
+			}
+		}
+		synchronized (LOCK) {
+			assets = result;
+			size = total;
+			gzipSize = totalGzip;
+		}
+		LOGGER.debug(
+			"Cached {} web client files, {} bytes and {} gzipped bytes, in {} ms",
+			result.size(),
+			total,
+			totalGzip,
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+		);
+	}
+
+	/**
+	 * Gets a cached file.
+	 *
+	 * @param filename the path of the file in the web client folder.
+	 * @return The file, or {@code null} if it isn't cached.
+	 */
+	public static Asset get(String filename) {
+		Map<String, Asset> current = assets;
+		Asset asset = current != null ? current.get(filename) : null;
+		if (asset == null) {
+			MISSES.increment();
+		}
+		return asset;
+	}
+
+	/**
+	 * Counts a cached file sent.
+	 *
+	 * @param gzipped whether the gzipped copy was sent.
+	 */
+	static void countHit(boolean gzipped) {
+		HITS.increment();
+		if (gzipped) {
+			GZIP_HITS.increment();
+		}
+	}
+
+	/**
+	 * Counts a cached file answered with a 304.
+	 */
+	static void countNotModified() {
+		NOT_MODIFIED.increment();
+	}
+
+	/**
+	 * @return the number of cached files.
+	 */
+	public static int getAssetCount() {
+		Map<String, Asset> current = assets;
+		return current != null ? current.size() : 0;
+	}
+
+	/**
+	 * @return the size of the cached files in bytes.
+	 */
+	public static long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the size of the gzipped copies in bytes.
+	 */
+	public static long getGzipSize() {
+		return gzipSize;
+	}
+
+	/**
+	 * @return the number of cached files sent since the start.
+	 */
+	public static long getHits() {
+		return HITS.sum();
+	}
+
+	/**
+	 * @return the number of gzipped copies sent since the start.
+	 */
+	public static long getGzipHits() {
+		return GZIP_HITS.sum();
+	}
+
+	/**
+	 * @return the number of 304 responses since the start.
+	 */
+	public static long getNotModified() {
+		return NOT_MODIFIED.sum();
+	}
+
+	/**
+	 * @return the number of requested files that weren't cached since the
+	 *         start.
+	 */
+	public static long getMisses() {
+		return MISSES.sum();
+	}
+
+	private static Asset createAsset(String name, byte[] data) throws IOException {
+		String etag = getEtag(data);
+		String lowerName = name.toLowerCase();
+		if (COMPRESSIBLE_EXTENSIONS.stream().anyMatch(lowerName::endsWith)) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+			try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+				gzip.write(data);
+			}
+			byte[] gzipData = out.toByteArray();
+			if (gzipData.length < data.length) {
+				return new Asset(data, etag, gzipData, etag.substring(0, etag.length() - 1) + "-gz\"");
+			}
+		}
+		return new Asset(data, etag, null, null);
+	}
+
+	private static String getEtag(byte[] data) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+			return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java runtime has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
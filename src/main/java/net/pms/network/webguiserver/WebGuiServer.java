@@ -94,6 +94,11 @@ public abstract class WebGuiServer implements IGui {
 		SseApiServlet.setScanLibraryStatus(enabled, running);
 	}
 
+	@Override
+	public void setScanLibraryProgress(long folders, long files, long filesPerSecond) {
+		SseApiServlet.setScanLibraryProgress(folders, files, filesPerSecond);
+	}
+
 	@Override
 	public void enableWebUiButton() {
 	}
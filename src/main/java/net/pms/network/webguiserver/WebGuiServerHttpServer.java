@@ -79,6 +79,7 @@ public class WebGuiServerHttpServer extends WebGuiServer {
 			} catch (ServletException ex) {
 				LOGGER.error(ex.getMessage());
 			}
+			StaticAssetCache.init();
 			server.setExecutor(Executors.newFixedThreadPool(threads));
 			server.start();
 		}
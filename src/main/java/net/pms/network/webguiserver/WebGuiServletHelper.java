@@ -35,6 +35,7 @@ import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
 import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
 import javax.servlet.AsyncContext;
 import javax.servlet.ServletRequest;
 import javax.servlet.http.Cookie;
@@ -42,6 +43,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import net.pms.PMS;
 import net.pms.configuration.UmsConfiguration;
+import net.pms.network.httpserverservletcontainer.AsyncExecutor;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -221,6 +223,146 @@ public class WebGuiServletHelper {
 		return false;
 	}
 
+	/**
+	 * Write the given web client file as an HttpServletResponse body, from
+	 * the {@link StaticAssetCache} when it holds the file.
+	 * <p>
+	 * The gzipped copy is sent to the clients that accept it, a request
+	 * whose If-None-Match matches the ETag is answered with a 304, and a
+	 * single byte range is answered with a 206.
+	 * @param req
+	 * @param resp
+	 * @param filename
+	 * @return
+	 * @throws java.io.IOException
+	*/
+	public static boolean writeAsset(HttpServletRequest req, HttpServletResponse resp, String filename) throws IOException {
+		StaticAssetCache.Asset asset = StaticAssetCache.get(filename);
+		if (asset == null) {
+			return writeAsync(req, resp, filename);
+		}
+		if (resp.getContentType() == null) {
+			String mime = getMimeType(filename);
+			if (mime != null) {
+				resp.setContentType(mime);
+			}
+		}
+		String range = req.getHeader("Range");
+		boolean gzip = asset.gzipData() != null && range == null && acceptsGzip(req.getHeader("Accept-Encoding"));
+		String etag = gzip ? asset.gzipEtag() : asset.etag();
+		byte[] data = gzip ? asset.gzipData() : asset.data();
+		resp.setHeader("ETag", etag);
+		resp.setHeader("Accept-Ranges", "bytes");
+		if (asset.gzipData() != null) {
+			resp.setHeader("Vary", "Accept-Encoding");
+		}
+		if (matchesEtag(req.getHeader("If-None-Match"), etag)) {
+			StaticAssetCache.countNotModified();
+			resp.setContentType(null);
+			if (LOGGER.isTraceEnabled()) {
+				logHttpServletResponse(req, resp, null, null);
+			}
+			resp.sendError(HttpServletResponse.SC_NOT_MODIFIED);
+			return true;
+		}
+
+		int offset = 0;
+		int length = data.length;
+		int status = HttpServletResponse.SC_OK;
+		String ifRange = req.getHeader("If-Range");
+		if (range != null && (ifRange == null || ifRange.equals(etag))) {
+			long[] bounds = getRange(range, data.length);
+			if (bounds == null) {
+				resp.setHeader("Content-Range", "bytes */" + data.length);
+				resp.setContentType(null);
+				resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return true;
+			}
+			offset = (int) bounds[0];
+			length = (int) (bounds[1] - bounds[0] + 1);
+			status = HttpServletResponse.SC_PARTIAL_CONTENT;
+			resp.setHeader("Content-Range", "bytes " + bounds[0] + "-" + bounds[1] + "/" + data.length);
+		}
+		if (gzip) {
+			resp.setHeader("Content-Encoding", "gzip");
+		}
+		StaticAssetCache.countHit(gzip);
+		resp.setContentLength(length);
+		resp.setStatus(status);
+		if (LOGGER.isTraceEnabled()) {
+			logHttpServletResponse(req, resp, null, null);
+		}
+		try (OutputStream os = resp.getOutputStream()) {
+			os.write(data, offset, length);
+		} catch (IOException e) {
+			LOGGER.debug("Error sending response: " + e);
+		}
+		return true;
+	}
+
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String coding : acceptEncoding.split(",")) {
+			String[] params = coding.trim().split(";");
+			if (params[0].trim().equalsIgnoreCase("gzip")) {
+				for (int i = 1; i < params.length; i++) {
+					String param = params[i].trim().replace(" ", "");
+					if (param.matches("q=0(\\.0*)?")) {
+						return false;
+					}
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean matchesEtag(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals("*") || tag.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Parses a single byte range.
+	 *
+	 * @return The first and last byte, or {@code null} if the range can't be
+	 *         satisfied.
+	 */
+	private static long[] getRange(String range, long length) {
+		if (!range.startsWith("bytes=") || range.contains(",") || length == 0) {
+			return null;
+		}
+		String[] bounds = range.substring(6).trim().split("-", 2);
+		try {
+			long first;
+			long last;
+			if (bounds[0].isEmpty()) {
+				// A suffix range: the last bytes
+				first = Math.max(0, length - Long.parseLong(bounds[1].trim()));
+				last = length - 1;
+			} else {
+				first = Long.parseLong(bounds[0].trim());
+				last = bounds.length < 2 || bounds[1].isBlank() ? length - 1 : Math.min(Long.parseLong(bounds[1].trim()), length - 1);
+			}
+			return first <= last && first < length ? new long[] {first, last} : null;
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			return null;
+		}
+	}
+
 	public static void copyStream(final InputStream in, final OutputStream os) {
 		byte[] buffer = new byte[32 * 1024];
 		int bytes;
@@ -248,12 +390,26 @@ public class WebGuiServletHelper {
 		}
 	}
 
+	/**
+	 * Copies a stream on its own thread, off the pool of the short
+	 * asynchronous tasks, then completes the request.
+	 */
 	public static void copyStreamAsync(final InputStream in, final OutputStream os, final AsyncContext context) {
 		Runnable r = () -> {
 			copyStream(in, os);
 			context.complete();
 		};
-		context.start(r);
+		try {
+			AsyncExecutor.executeStream(r);
+		} catch (RejectedExecutionException e) {
+			LOGGER.debug("Too many streams, closing the stream");
+			try {
+				in.close();
+				os.close();
+			} catch (IOException ioe) {
+			}
+			context.complete();
+		}
 	}
 
 	public static void respond(HttpServletRequest req, HttpServletResponse resp, String response, int status, String mime) {
@@ -49,6 +49,7 @@ import net.pms.dlna.DVDISOTitle;
 import net.pms.dlna.DbIdMediaType;
 import net.pms.dlna.DbIdResourceLocator;
 import net.pms.dlna.RealFile;
+import net.pms.dlna.ThumbnailGenerator;
 import net.pms.dlna.virtual.MediaLibraryFolder;
 import net.pms.dlna.virtual.VirtualVideoAction;
 import net.pms.encoders.Engine;
@@ -750,7 +751,7 @@ public class PlayerApiServlet extends GuiHttpServlet {
 			return null;
 		}
 		DLNAThumbnailInputStream in;
-		resource.checkThumbnail();
+		ThumbnailGenerator.runWithPriority(ThumbnailGenerator.Priority.VISIBLE, resource::checkThumbnail);
 		try {
 			in = resource.fetchThumbnailInputStream();
 			if (in == null) {
@@ -136,13 +136,23 @@ public class SseApiServlet extends GuiHttpServlet {
 	 * @param message
 	 */
 	public static void broadcastSettingsMessage(String message) {
+		broadcastSettingsMessage(message, null);
+	}
+
+	/**
+	 * Broadcast a message to settings page Server Sent Events Streams, replacing
+	 * the message with the same key that was not sent yet.
+	 * @param message
+	 * @param key
+	 */
+	public static void broadcastSettingsMessage(String message, String key) {
 		synchronized (SSE_INSTANCES) {
 			for (Iterator<ServerSentEvents> sseIterator = SSE_SETTINGS_INSTANCES.iterator(); sseIterator.hasNext();) {
 				ServerSentEvents sse = sseIterator.next();
 				if (!sse.isOpened()) {
 					sseIterator.remove();
 				} else {
-					sse.sendMessage(message);
+					sse.sendMessage(message, true, key);
 				}
 			}
 		}
@@ -170,13 +180,23 @@ public class SseApiServlet extends GuiHttpServlet {
 	 * @param message
 	 */
 	public static void broadcastAboutMessage(String message) {
+		broadcastAboutMessage(message, null);
+	}
+
+	/**
+	 * Broadcast a message to about page Server Sent Events Streams, replacing
+	 * the message with the same key that was not sent yet.
+	 * @param message
+	 * @param key
+	 */
+	public static void broadcastAboutMessage(String message, String key) {
 		synchronized (SSE_INSTANCES) {
 			for (Iterator<ServerSentEvents> sseIterator = SSE_ABOUT_INSTANCES.iterator(); sseIterator.hasNext();) {
 				ServerSentEvents sse = sseIterator.next();
 				if (!sse.isOpened()) {
 					sseIterator.remove();
 				} else {
-					sse.sendMessage(message);
+					sse.sendMessage(message, true, key);
 				}
 			}
 		}
@@ -337,7 +357,7 @@ public class SseApiServlet extends GuiHttpServlet {
 
 	public static void setMemoryUsage(int maxMemory, int usedMemory, int bufferMemory) {
 		String json = "{\"action\":\"update_memory\",\"max\":" + maxMemory + ",\"used\":" + usedMemory + ",\"buffer\":" + bufferMemory + "}";
-		broadcastAboutMessage(json);
+		broadcastAboutMessage(json, "update_memory");
 	}
 
 	public static void appendLog(String msg) {
@@ -350,6 +370,10 @@ public class SseApiServlet extends GuiHttpServlet {
 	}
 
 	public static void setScanLibraryStatus(boolean enabled, boolean running) {
-		broadcastSettingsMessage("{\"action\":\"set_scanlibrary_status\",\"enabled\":" + (enabled ? "true" : "false") + ",\"running\":" + (running ? "true" : "false") + "}");
+		broadcastSettingsMessage("{\"action\":\"set_scanlibrary_status\",\"enabled\":" + (enabled ? "true" : "false") + ",\"running\":" + (running ? "true" : "false") + "}", "set_scanlibrary_status");
+	}
+
+	public static void setScanLibraryProgress(long folders, long files, long filesPerSecond) {
+		broadcastSettingsMessage("{\"action\":\"set_scanlibrary_progress\",\"folders\":" + folders + ",\"files\":" + files + ",\"rate\":" + filesPerSecond + "}", "set_scanlibrary_progress");
 	}
 }
@@ -29,6 +29,7 @@ import net.pms.dlna.DbIdMediaType;
 import net.pms.dlna.DbIdResourceLocator;
 import net.pms.dlna.RealFile;
 import net.pms.dlna.RootFolder;
+import net.pms.dlna.ThumbnailGenerator;
 import net.pms.dlna.virtual.MediaLibraryFolder;
 import net.pms.image.BufferedImageFilterChain;
 import net.pms.image.ImageFormat;
@@ -95,7 +96,7 @@ public class ThumbHandler implements HttpHandler {
 				// unless the code is entered
 				in = r.getGenericThumbnailInputStream(null);
 			} else {
-				r.checkThumbnail();
+				ThumbnailGenerator.runWithPriority(ThumbnailGenerator.Priority.VISIBLE, r::checkThumbnail);
 				in = r.fetchThumbnailInputStream();
 				if (in == null) {
 					// if r is null for some reason, default to generic thumb
@@ -36,6 +36,7 @@ import javax.net.ssl.TrustManagerFactory;
 import javax.servlet.ServletException;
 import net.pms.network.httpserverservletcontainer.HttpServerServletContainer;
 import net.pms.network.mediaserver.MediaServer;
+import net.pms.network.webguiserver.StaticAssetCache;
 import net.pms.network.webguiserver.servlets.AboutApiServlet;
 import net.pms.network.webguiserver.servlets.I18nApiServlet;
 import net.pms.network.webguiserver.servlets.PlayerApiServlet;
@@ -99,6 +100,7 @@ public class WebPlayerServerHttpServer extends WebPlayerServer {
 				LOGGER.error(ex.getMessage());
 			}
 			OldPlayerServer.plug(server);
+			StaticAssetCache.init();
 			server.setExecutor(Executors.newFixedThreadPool(threads));
 			server.start();
 		}
@@ -49,7 +49,7 @@ public class WebPlayerServlet extends GuiHttpServlet {
 			if (uri.startsWith("/static/")) {
 				resp.setHeader("Cache-Control", "public, max-age=604800");
 			}
-			if (!WebGuiServletHelper.writeAsync(req, resp, uri.substring(1))) {
+			if (!WebGuiServletHelper.writeAsset(req, resp, uri.substring(1))) {
 				// The resource manager can't found or send the file, we need to send a response.
 				LOGGER.trace("WebPlayerServlet request not available : {}", req.getRequestURI());
 				WebGuiServletHelper.respond(req, resp, "<html><body>404 - File Not Found: " + req.getRequestURI() + "</body></html>", 404, "text/html");
@@ -748,6 +748,11 @@ public class LooksFrame extends JFrame implements IGui, Observer {
 		SharedContentTab.setScanLibraryEnabled(enabled, running);
 	}
 
+	@Override
+	public void setScanLibraryProgress(long folders, long files, long filesPerSecond) {
+		setSecondaryStatusLine(String.format(Messages.getString("ScanLibraryProgress"), folders, files, filesPerSecond));
+	}
+
 	/**
 	 * Show error message with swing
 	 * @param message the message to display
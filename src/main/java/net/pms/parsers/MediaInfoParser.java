@@ -26,10 +26,22 @@ import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
+import net.pms.PMS;
 import net.pms.configuration.FormatConfiguration;
+import net.pms.configuration.UmsConfiguration;
 import net.pms.dlna.DLNAMediaAudio;
 import net.pms.dlna.DLNAMediaChapter;
 import net.pms.dlna.DLNAMediaInfo;
@@ -75,39 +87,42 @@ public class MediaInfoParser {
 	// Pattern to parse the year from a string
 	private static final Pattern YEAR_PATTERN = Pattern.compile(YEAR_REGEX);
 
-	private static final MediaInfo MI;
+	/**
+	 * The {@link MediaInfo} handles borrowed by {@link #parse}. Handles are
+	 * created lazily, up to {@link UmsConfiguration#getMediaInfoHandles()}.
+	 */
+	private static final HandlePool<MediaInfo> HANDLES = new HandlePool<>(
+		MediaInfoParser::createHandle,
+		MediaInfo::isValid,
+		MediaInfo::close,
+		() -> {
+			UmsConfiguration configuration = PMS.getConfiguration();
+			return configuration != null ? configuration.getMediaInfoHandles() : 1;
+		}
+	);
+	private static final LongAdder PARSE_COUNT = new LongAdder();
+	private static final LongAdder PARSE_TIME = new LongAdder();
+	private static final LongAdder WAIT_TIME = new LongAdder();
+	private static final AtomicLong MAX_PARSE_TIME = new AtomicLong();
+	private static final AtomicLong MAX_WAIT_TIME = new AtomicLong();
+	private static final boolean VALID;
 	private static final Version VERSION;
 
 	static {
-		MI = new MediaInfo();
-
-		if (MI.isValid()) {
-			MI.option("Internet", "No"); // avoid MediaInfoLib to try to connect to an Internet server for availability of newer software, anonymous statistics and retrieving information about a file
-			MI.option("Complete", "1");
-			MI.option("Language", "en");
-			MI.option("File_TestContinuousFileNames", "0");
-			Matcher matcher = Pattern.compile("MediaInfoLib - v(\\S+)", Pattern.CASE_INSENSITIVE).matcher(MI.option("Info_Version"));
+		MediaInfo mi = new MediaInfo();
+		VALID = mi.isValid();
+
+		if (VALID) {
+			Matcher matcher = Pattern.compile("MediaInfoLib - v(\\S+)", Pattern.CASE_INSENSITIVE).matcher(mi.option("Info_Version"));
 			if (matcher.find() && isNotBlank(matcher.group(1))) {
 				VERSION = new Version(matcher.group(1));
 			} else {
 				VERSION = null;
 			}
+			setOptions(mi);
+			HANDLES.add(mi);
 
-			if (VERSION != null)  {
-				if (VERSION.isGreaterThan(new Version("18.03"))) {
-					MI.option("Language", "raw");
-					MI.option("Cover_Data", "base64");
-				}
-
-				if (VERSION.isGreaterThan(new Version("18.5"))) {
-					MI.option("LegacyStreamDisplay", "1");
-					MI.option("File_HighestFormat", "0");
-					MI.option("File_ChannelLayout", "1");
-					MI.option("Legacy", "1");
-				}
-			}
-
-//			LOGGER.debug(MI.Option("Info_Parameters_CSV")); // It can be used to export all current MediaInfo parameters
+//			LOGGER.debug(mi.Option("Info_Parameters_CSV")); // It can be used to export all current MediaInfo parameters
 		} else {
 			VERSION = null;
 		}
@@ -119,15 +134,243 @@ public class MediaInfoParser {
 	private MediaInfoParser() {
 	}
 
+	/**
+	 * Creates a {@link MediaInfo} handle with the options shared by all
+	 * handles.
+	 *
+	 * @return The new {@link MediaInfo} handle.
+	 */
+	private static MediaInfo createHandle() {
+		MediaInfo mi = new MediaInfo();
+		if (mi.isValid()) {
+			setOptions(mi);
+		}
+		return mi;
+	}
+
+	/**
+	 * Applies the options shared by all {@link MediaInfo} handles.
+	 *
+	 * @param mi the {@link MediaInfo} handle to configure.
+	 */
+	private static void setOptions(MediaInfo mi) {
+		mi.option("Internet", "No"); // avoid MediaInfoLib to try to connect to an Internet server for availability of newer software, anonymous statistics and retrieving information about a file
+		mi.option("Complete", "1");
+		mi.option("Language", "en");
+		mi.option("File_TestContinuousFileNames", "0");
+
+		if (VERSION != null)  {
+			if (VERSION.isGreaterThan(new Version("18.03"))) {
+				mi.option("Language", "raw");
+				mi.option("Cover_Data", "base64");
+			}
+
+			if (VERSION.isGreaterThan(new Version("18.5"))) {
+				mi.option("LegacyStreamDisplay", "1");
+				mi.option("File_HighestFormat", "0");
+				mi.option("File_ChannelLayout", "1");
+				mi.option("Legacy", "1");
+			}
+		}
+	}
+
 	public static boolean isValid() {
-		return MI.isValid();
+		return VALID;
 	}
 
 	public static void close() {
-		try {
-			MI.close();
-		} catch (Throwable e) {
-			LOGGER.debug("Caught exception", e);
+		if (PARSE_COUNT.sum() > 0) {
+			LOGGER.debug(
+				"MediaInfo parsed {} files using {} handles, average parse time {} ms (max {} ms), average wait for a handle {} ms (max {} ms)",
+				PARSE_COUNT.sum(),
+				HANDLES.getCreated(),
+				getAverageParseTime(),
+				MAX_PARSE_TIME.get(),
+				getAverageWaitTime(),
+				MAX_WAIT_TIME.get()
+			);
+		}
+		HANDLES.close();
+	}
+
+	/**
+	 * @return the number of files parsed by MediaInfo so far.
+	 */
+	public static long getParseCount() {
+		return PARSE_COUNT.sum();
+	}
+
+	/**
+	 * @return the average time in milliseconds MediaInfo took to parse a
+	 *         file.
+	 */
+	public static long getAverageParseTime() {
+		long count = PARSE_COUNT.sum();
+		return count > 0 ? PARSE_TIME.sum() / count : 0;
+	}
+
+	/**
+	 * @return the average time in milliseconds a parse waited for a free
+	 *         {@link MediaInfo} handle.
+	 */
+	public static long getAverageWaitTime() {
+		long count = PARSE_COUNT.sum();
+		return count > 0 ? WAIT_TIME.sum() / count : 0;
+	}
+
+	private static void updateMax(AtomicLong max, long value) {
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// retry
+		}
+	}
+
+	/**
+	 * A bounded pool of native handles. Handles are created lazily, up to a
+	 * maximum read when a handle is missing, and closed when the pool is
+	 * closed, or when they are released after it.
+	 *
+	 * @param <T> the type of the handles.
+	 */
+	static class HandlePool<T> {
+		private final Supplier<T> factory;
+		private final Predicate<T> validator;
+		private final Consumer<T> closer;
+		private final IntSupplier maxHandles;
+		private final BlockingQueue<T> idle = new LinkedBlockingQueue<>();
+		private final AtomicInteger created = new AtomicInteger();
+		private final AtomicInteger borrowed = new AtomicInteger();
+		private final LongAdder invalid = new LongAdder();
+		private volatile boolean closed;
+
+		HandlePool(Supplier<T> factory, Predicate<T> validator, Consumer<T> closer, IntSupplier maxHandles) {
+			this.factory = factory;
+			this.validator = validator;
+			this.closer = closer;
+			this.maxHandles = maxHandles;
+		}
+
+		/**
+		 * Adds a handle created outside the pool.
+		 *
+		 * @param handle the valid handle.
+		 */
+		void add(T handle) {
+			created.incrementAndGet();
+			idle.add(handle);
+		}
+
+		/**
+		 * Takes an idle handle, creating a new one if the maximum isn't
+		 * reached yet, or waits for one to be released.
+		 *
+		 * @return The handle or {@code null} if the pool is closed, or if no
+		 *         handle could be created and none exists.
+		 * @throws InterruptedException If interrupted while waiting.
+		 */
+		@Nullable
+		T borrow() throws InterruptedException {
+			while (!closed) {
+				T handle = idle.poll();
+				if (handle == null) {
+					handle = create();
+				}
+				if (handle == null) {
+					if (created.get() == 0) {
+						return null;
+					}
+					handle = idle.poll(1, TimeUnit.SECONDS);
+				}
+				if (handle != null) {
+					borrowed.incrementAndGet();
+					if (closed) {
+						release(handle);
+						return null;
+					}
+					return handle;
+				}
+			}
+			return null;
+		}
+
+		@Nullable
+		private T create() {
+			synchronized (this) {
+				int max = maxHandles.getAsInt();
+				if (created.get() >= max) {
+					return null;
+				}
+				T handle = factory.get();
+				if (!validator.test(handle)) {
+					invalid.increment();
+					LOGGER.debug("Created an invalid MediaInfo handle");
+					close(handle);
+					return null;
+				}
+				created.incrementAndGet();
+				LOGGER.trace("Created MediaInfo handle {} of {}", created.get(), max);
+				return handle;
+			}
+		}
+
+		/**
+		 * Returns a borrowed handle to the pool, or closes it if the pool is
+		 * closed.
+		 *
+		 * @param handle the borrowed handle.
+		 */
+		void release(T handle) {
+			borrowed.decrementAndGet();
+			if (closed) {
+				close(handle);
+				return;
+			}
+			idle.add(handle);
+			if (closed && idle.remove(handle)) {
+				close(handle);
+			}
+		}
+
+		/**
+		 * Closes the idle handles, and the borrowed ones when they are
+		 * released.
+		 */
+		void close() {
+			closed = true;
+			T handle;
+			while ((handle = idle.poll()) != null) {
+				close(handle);
+			}
+		}
+
+		private void close(T handle) {
+			try {
+				closer.accept(handle);
+			} catch (Throwable e) {
+				LOGGER.debug("Caught exception", e);
+			}
+		}
+
+		/**
+		 * @return the number of valid handles created.
+		 */
+		int getCreated() {
+			return created.get();
+		}
+
+		/**
+		 * @return the number of handles borrowed and not released yet.
+		 */
+		int getBorrowed() {
+			return borrowed.get();
+		}
+
+		/**
+		 * @return the number of created handles that were invalid, and
+		 *         closed.
+		 */
+		long getInvalid() {
+			return invalid.sum();
 		}
 	}
 
@@ -142,11 +385,51 @@ public class MediaInfoParser {
 
 	/**
 	 * Parse media via MediaInfo.
+	 * <p>
+	 * Parses run concurrently, each with its own {@link MediaInfo} handle
+	 * borrowed from a bounded pool.
 	 */
-	public static synchronized void parse(DLNAMediaInfo media, InputFile inputFile, int type, Renderer renderer) {
+	public static void parse(DLNAMediaInfo media, InputFile inputFile, int type, Renderer renderer) {
+		File file = inputFile.getFile();
+		if (media.isMediaparsed() || file == null || !VALID) {
+			return;
+		}
+
+		long waitStart = System.currentTimeMillis();
+		MediaInfo mi;
+		try {
+			mi = HANDLES.borrow();
+		} catch (InterruptedException e) {
+			LOGGER.debug("Interrupted while waiting for a MediaInfo handle to parse \"{}\"", file.getAbsolutePath());
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (mi == null) {
+			LOGGER.debug("No MediaInfo handle available to parse \"{}\"", file.getAbsolutePath());
+			return;
+		}
+		long parseStart = System.currentTimeMillis();
+		try {
+			parse(mi, media, inputFile, type, renderer);
+		} catch (RuntimeException | Error e) {
+			mi.closeFile();
+			throw e;
+		} finally {
+			HANDLES.release(mi);
+			long parseEnd = System.currentTimeMillis();
+			PARSE_COUNT.increment();
+			WAIT_TIME.add(parseStart - waitStart);
+			PARSE_TIME.add(parseEnd - parseStart);
+			updateMax(MAX_WAIT_TIME, parseStart - waitStart);
+			updateMax(MAX_PARSE_TIME, parseEnd - parseStart);
+			LOGGER.trace("MediaInfo parsed \"{}\" in {} ms after waiting {} ms for a handle", file.getName(), parseEnd - parseStart, parseStart - waitStart);
+		}
+	}
+
+	private static void parse(MediaInfo mi, DLNAMediaInfo media, InputFile inputFile, int type, Renderer renderer) {
 		File file = inputFile.getFile();
-		ParseLogger parseLogger = LOGGER.isTraceEnabled() ? new ParseLogger() : null;
-		if (!media.isMediaparsed() && file != null && MI.isValid() && MI.openFile(file.getAbsolutePath()) > 0) {
+		ParseLogger parseLogger = LOGGER.isTraceEnabled() ? new ParseLogger(mi) : null;
+		if (mi.openFile(file.getAbsolutePath()) > 0) {
 			StreamKind general = StreamKind.GENERAL;
 			StreamKind video = StreamKind.VIDEO;
 			StreamKind audio = StreamKind.AUDIO;
@@ -158,22 +441,22 @@ public class MediaInfoParser {
 			String value;
 
 			// set General
-			setFormat(general, media, currentAudioTrack, MI.get(general, 0, "Format"), file);
-			setFormat(general, media, currentAudioTrack, MI.get(general, 0, "CodecID").trim(), file);
-			media.setDuration(parseDuration(MI.get(general, 0, "Duration")));
-			media.setBitrate(getBitrate(MI.get(general, 0, "OverallBitRate")));
-			media.setStereoscopy(MI.get(general, 0, "StereoscopicLayout"));
+			setFormat(general, media, currentAudioTrack, mi.get(general, 0, "Format"), file);
+			setFormat(general, media, currentAudioTrack, mi.get(general, 0, "CodecID").trim(), file);
+			media.setDuration(parseDuration(mi.get(general, 0, "Duration")));
+			media.setBitrate(getBitrate(mi.get(general, 0, "OverallBitRate")));
+			media.setStereoscopy(mi.get(general, 0, "StereoscopicLayout"));
 			// set Chapters
-			if (MI.countGet(StreamKind.MENU, 0) > 0) {
-				String chaptersPosBeginStr = MI.get(StreamKind.MENU, 0, "Chapters_Pos_Begin", InfoKind.TEXT);
-				String chaptersPosEndStr = MI.get(StreamKind.MENU, 0, "Chapters_Pos_End", InfoKind.TEXT);
+			if (mi.countGet(StreamKind.MENU, 0) > 0) {
+				String chaptersPosBeginStr = mi.get(StreamKind.MENU, 0, "Chapters_Pos_Begin", InfoKind.TEXT);
+				String chaptersPosEndStr = mi.get(StreamKind.MENU, 0, "Chapters_Pos_End", InfoKind.TEXT);
 				if (!chaptersPosBeginStr.isEmpty() && !chaptersPosEndStr.isEmpty()) {
 					int chaptersPosBegin = Integer.parseInt(chaptersPosBeginStr);
 					int chaptersPosEnd = Integer.parseInt(chaptersPosEndStr);
 					List<DLNAMediaChapter> chapters = new ArrayList<>();
 					for (int i = chaptersPosBegin; i <= chaptersPosEnd; i++) {
-						String chapterName = MI.get(StreamKind.MENU, 0, i, InfoKind.NAME);
-						String chapterTitle = MI.get(StreamKind.MENU, 0, i, InfoKind.TEXT);
+						String chapterName = mi.get(StreamKind.MENU, 0, i, InfoKind.NAME);
+						String chapterTitle = mi.get(StreamKind.MENU, 0, i, InfoKind.TEXT);
 						if (!chapterName.isEmpty()) {
 							DLNAMediaChapter chapter = new DLNAMediaChapter();
 							LocalTime lt;
@@ -214,7 +497,7 @@ public class MediaInfoParser {
 					media.setChapters(chapters);
 				}
 			}
-			value = MI.get(general, 0, "Cover_Data");
+			value = mi.get(general, 0, "Cover_Data");
 			if (!value.isEmpty()) {
 				try {
 					media.setThumb(DLNAThumbnail.toThumbnail(
@@ -238,7 +521,7 @@ public class MediaInfoParser {
 				}
 			}
 
-			value = MI.get(general, 0, "Title");
+			value = mi.get(general, 0, "Title");
 			if (!value.isEmpty()) {
 				media.setFileTitleFromMetadata(value);
 			}
@@ -249,7 +532,7 @@ public class MediaInfoParser {
 
 			// set Video
 			int videoTrackCount = 0;
-			value = MI.get(video, 0, "StreamCount");
+			value = mi.get(video, 0, "StreamCount");
 			if (!value.isEmpty()) {
 				videoTrackCount = Integer.parseInt(value);
 			}
@@ -258,59 +541,59 @@ public class MediaInfoParser {
 			if (videoTrackCount > 0) {
 				for (int i = 0; i < videoTrackCount; i++) {
 					// check for DXSA and DXSB subtitles (subs in video format)
-					if (MI.get(video, i, "Title").startsWith("Subtitle")) {
+					if (mi.get(video, i, "Title").startsWith("Subtitle")) {
 						currentSubTrack = new DLNAMediaSubtitle();
 						// First attempt to detect subtitle track format
-						currentSubTrack.setType(SubtitleType.valueOfMediaInfoValue(MI.get(video, i, "Format")));
+						currentSubTrack.setType(SubtitleType.valueOfMediaInfoValue(mi.get(video, i, "Format")));
 						// Second attempt to detect subtitle track format (CodecID usually is more accurate)
-						currentSubTrack.setType(SubtitleType.valueOfMediaInfoValue(MI.get(video, i, "CodecID"),
+						currentSubTrack.setType(SubtitleType.valueOfMediaInfoValue(mi.get(video, i, "CodecID"),
 							currentSubTrack.getType()
 						));
 						currentSubTrack.setId(media.getSubtitlesTracks().size());
 						addSub(currentSubTrack, media);
 					} else {
-						setFormat(video, media, currentAudioTrack, MI.get(video, i, "Format"), file);
-						setFormat(video, media, currentAudioTrack, MI.get(video, i, "Format_Version"), file);
-						setFormat(video, media, currentAudioTrack, MI.get(video, i, "CodecID"), file);
-						media.setWidth(getPixelValue(MI.get(video, i, "Width")));
-						media.setHeight(getPixelValue(MI.get(video, i, "Height")));
-						media.setMatrixCoefficients(MI.get(video, i, "matrix_coefficients"));
+						setFormat(video, media, currentAudioTrack, mi.get(video, i, "Format"), file);
+						setFormat(video, media, currentAudioTrack, mi.get(video, i, "Format_Version"), file);
+						setFormat(video, media, currentAudioTrack, mi.get(video, i, "CodecID"), file);
+						media.setWidth(getPixelValue(mi.get(video, i, "Width")));
+						media.setHeight(getPixelValue(mi.get(video, i, "Height")));
+						media.setMatrixCoefficients(mi.get(video, i, "matrix_coefficients"));
 						if (!media.is3d()) {
-							media.setStereoscopy(MI.get(video, i, "MultiView_Layout"));
+							media.setStereoscopy(mi.get(video, i, "MultiView_Layout"));
 						}
 
-						media.setPixelAspectRatio(MI.get(video, i, "PixelAspectRatio"));
-						media.setScanType(MI.get(video, i, "ScanType"));
-						media.setScanOrder(MI.get(video, i, "ScanOrder"));
-						media.setAspectRatioContainer(MI.get(video, i, "DisplayAspectRatio/String"));
-						media.setAspectRatioVideoTrack(MI.get(video, i, "DisplayAspectRatio_Original/String"));
-						media.setFrameRate(getFPSValue(MI.get(video, i, "FrameRate")));
-						media.setFrameRateOriginal(MI.get(video, i, "FrameRate_Original"));
-						media.setFrameRateMode(getFrameRateModeValue(MI.get(video, i, "FrameRate_Mode")));
-						media.setFrameRateModeRaw(MI.get(video, i, "FrameRate_Mode"));
-						media.setReferenceFrameCount(getReferenceFrameCount(MI.get(video, i, "Format_Settings_RefFrames/String")));
-						media.setVideoTrackTitleFromMetadata(MI.get(video, i, "Title"));
-						value = MI.get(video, i, "Format_Settings_QPel");
+						media.setPixelAspectRatio(mi.get(video, i, "PixelAspectRatio"));
+						media.setScanType(mi.get(video, i, "ScanType"));
+						media.setScanOrder(mi.get(video, i, "ScanOrder"));
+						media.setAspectRatioContainer(mi.get(video, i, "DisplayAspectRatio/String"));
+						media.setAspectRatioVideoTrack(mi.get(video, i, "DisplayAspectRatio_Original/String"));
+						media.setFrameRate(getFPSValue(mi.get(video, i, "FrameRate")));
+						media.setFrameRateOriginal(mi.get(video, i, "FrameRate_Original"));
+						media.setFrameRateMode(getFrameRateModeValue(mi.get(video, i, "FrameRate_Mode")));
+						media.setFrameRateModeRaw(mi.get(video, i, "FrameRate_Mode"));
+						media.setReferenceFrameCount(getReferenceFrameCount(mi.get(video, i, "Format_Settings_RefFrames/String")));
+						media.setVideoTrackTitleFromMetadata(mi.get(video, i, "Title"));
+						value = mi.get(video, i, "Format_Settings_QPel");
 						if (!value.isEmpty()) {
 							media.putExtra(FormatConfiguration.MI_QPEL, value);
 						}
 
-						value = MI.get(video, i, "Format_Settings_GMC");
+						value = mi.get(video, i, "Format_Settings_GMC");
 						if (!value.isEmpty()) {
 							media.putExtra(FormatConfiguration.MI_GMC, value);
 						}
 
-						value = MI.get(video, i, "Format_Settings_GOP");
+						value = mi.get(video, i, "Format_Settings_GOP");
 						if (!value.isEmpty()) {
 							media.putExtra(FormatConfiguration.MI_GOP, value);
 						}
 
-						media.setMuxingMode(MI.get(video, i, "MuxingMode"));
+						media.setMuxingMode(mi.get(video, i, "MuxingMode"));
 						if (!media.isEncrypted()) {
-							media.setEncrypted("encrypted".equals(MI.get(video, i, "Encryption")));
+							media.setEncrypted("encrypted".equals(mi.get(video, i, "Encryption")));
 						}
 
-						value = MI.get(video, i, "BitDepth");
+						value = mi.get(video, i, "BitDepth");
 						if (!value.isEmpty()) {
 							try {
 								media.setVideoBitDepth(Integer.parseInt(value));
@@ -319,7 +602,7 @@ public class MediaInfoParser {
 							}
 						}
 
-						value = MI.get(video, i, "Format_Profile");
+						value = mi.get(video, i, "Format_Profile");
 						if (!value.isEmpty() && media.getCodecV() != null && media.getCodecV().equals(FormatConfiguration.H264)) {
 							media.setAvcLevel(getAvcLevel(value));
 							media.setH264Profile(getAvcProfile(value));
@@ -334,7 +617,7 @@ public class MediaInfoParser {
 
 			// set Audio
 			int audioTracks = 0;
-			value = MI.get(audio, 0, "StreamCount");
+			value = mi.get(audio, 0, "StreamCount");
 			if (!value.isEmpty()) {
 				audioTracks = Integer.parseInt(value);
 			}
@@ -342,16 +625,16 @@ public class MediaInfoParser {
 			if (audioTracks > 0) {
 				for (int i = 0; i < audioTracks; i++) {
 					currentAudioTrack = new DLNAMediaAudio();
-					setFormat(audio, media, currentAudioTrack, MI.get(audio, i, "Format/String"), file);
-					setFormat(audio, media, currentAudioTrack, MI.get(audio, i, "Format_Version"), file);
-					setFormat(audio, media, currentAudioTrack, MI.get(audio, i, "Format_Profile"), file);
-					setFormat(audio, media, currentAudioTrack, MI.get(audio, i, "CodecID"), file);
-					value = MI.get(audio, i, "CodecID_Description");
+					setFormat(audio, media, currentAudioTrack, mi.get(audio, i, "Format/String"), file);
+					setFormat(audio, media, currentAudioTrack, mi.get(audio, i, "Format_Version"), file);
+					setFormat(audio, media, currentAudioTrack, mi.get(audio, i, "Format_Profile"), file);
+					setFormat(audio, media, currentAudioTrack, mi.get(audio, i, "CodecID"), file);
+					value = mi.get(audio, i, "CodecID_Description");
 					if (isNotBlank(value) && value.startsWith("Windows Media Audio 10")) {
 						currentAudioTrack.setCodecA(FormatConfiguration.WMA10);
 					}
 
-					value = MI.get(audio, i, "Language/String");
+					value = mi.get(audio, i, "Language/String");
 					String languageCode = null;
 					if (isNotBlank(value)) {
 						languageCode = Iso639.getISO639_2Code(value);
@@ -360,7 +643,7 @@ public class MediaInfoParser {
 						}
 					}
 
-					value = MI.get(audio, i, "Title").trim();
+					value = mi.get(audio, i, "Title").trim();
 					currentAudioTrack.setAudioTrackTitleFromMetadata(value);
 					// if language code is null try to recognize the language from Title
 					if (languageCode == null && isNotBlank(value)) {
@@ -372,15 +655,15 @@ public class MediaInfoParser {
 						currentAudioTrack.setLang(languageCode);
 					}
 
-					currentAudioTrack.getAudioProperties().setNumberOfChannels(MI.get(audio, i, "Channel(s)"));
-					currentAudioTrack.setSampleFrequency(getSampleFrequency(MI.get(audio, i, "SamplingRate")));
-					currentAudioTrack.setBitRate(getBitrate(MI.get(audio, i, "BitRate")));
+					currentAudioTrack.getAudioProperties().setNumberOfChannels(mi.get(audio, i, "Channel(s)"));
+					currentAudioTrack.setSampleFrequency(getSampleFrequency(mi.get(audio, i, "SamplingRate")));
+					currentAudioTrack.setBitRate(getBitrate(mi.get(audio, i, "BitRate")));
 
-					currentAudioTrack.setSongname(MI.get(general, 0, "Track"));
-					currentAudioTrack.setAlbum(MI.get(general, 0, "Album"));
-					currentAudioTrack.setAlbumArtist(MI.get(general, 0, "Album/Performer"));
-					currentAudioTrack.setArtist(MI.get(general, 0, "Performer"));
-					currentAudioTrack.setGenre(MI.get(general, 0, "Genre"));
+					currentAudioTrack.setSongname(mi.get(general, 0, "Track"));
+					currentAudioTrack.setAlbum(mi.get(general, 0, "Album"));
+					currentAudioTrack.setAlbumArtist(mi.get(general, 0, "Album/Performer"));
+					currentAudioTrack.setArtist(mi.get(general, 0, "Performer"));
+					currentAudioTrack.setGenre(mi.get(general, 0, "Genre"));
 					if (videoTrackCount == 0) {
 						try {
 							AudioFile af;
@@ -396,7 +679,7 @@ public class MediaInfoParser {
 						}
 					}
 
-					value = MI.get(general, 0, "Track/Position");
+					value = mi.get(general, 0, "Track/Position");
 					if (!value.isEmpty()) {
 						try {
 							currentAudioTrack.setTrack(Integer.parseInt(value));
@@ -405,7 +688,7 @@ public class MediaInfoParser {
 						}
 					}
 
-					value = MI.get(general, 0, "Part");
+					value = mi.get(general, 0, "Part");
 					if (!value.isEmpty()) {
 						try {
 							currentAudioTrack.setDisc(Integer.parseInt(value));
@@ -415,7 +698,7 @@ public class MediaInfoParser {
 					}
 
 					// Try to parse the year from the stored date
-					String recordedDate = MI.get(general, 0, "Recorded_Date");
+					String recordedDate = mi.get(general, 0, "Recorded_Date");
 					Matcher matcher = YEAR_PATTERN.matcher(recordedDate);
 					if (matcher.matches()) {
 						try {
@@ -426,7 +709,7 @@ public class MediaInfoParser {
 					}
 
 					// Special check for OGM: MediaInfo reports specific Audio/Subs IDs (0xn) while MEncoder does not
-					value = MI.get(audio, i, "ID/String");
+					value = mi.get(audio, i, "ID/String");
 					if (!value.isEmpty()) {
 						if (value.contains("(0x") && !FormatConfiguration.OGG.equals(media.getContainer())) {
 							currentAudioTrack.setId(getSpecificID(value));
@@ -435,7 +718,7 @@ public class MediaInfoParser {
 						}
 					}
 
-					value = MI.get(audio, i, "BitDepth");
+					value = mi.get(audio, i, "BitDepth");
 					if (!value.isEmpty()) {
 						try {
 							currentAudioTrack.setBitsperSample(Integer.parseInt(value));
@@ -453,7 +736,7 @@ public class MediaInfoParser {
 
 			// set Image
 			int imageCount = 0;
-			value = MI.get(image, 0, "StreamCount");
+			value = mi.get(image, 0, "StreamCount");
 			if (!value.isEmpty()) {
 				imageCount = Integer.parseInt(value);
 			}
@@ -465,7 +748,7 @@ public class MediaInfoParser {
 				try {
 					ImagesUtil.parseImage(file, media);
 					// This is a little hack. MediaInfo only recognizes a few image formats
-					// so that MI.Count_Get(image) might return 0 even if there is an image.
+					// so that mi.Count_Get(image) might return 0 even if there is an image.
 					if (media.getImageCount() == 0) {
 						media.setImageCount(1);
 					}
@@ -482,9 +765,9 @@ public class MediaInfoParser {
 				}
 
 				if (parseByMediainfo) {
-					setFormat(image, media, currentAudioTrack, MI.get(image, 0, "Format"), file);
-					media.setWidth(getPixelValue(MI.get(image, 0, "Width")));
-					media.setHeight(getPixelValue(MI.get(image, 0, "Height")));
+					setFormat(image, media, currentAudioTrack, mi.get(image, 0, "Format"), file);
+					media.setWidth(getPixelValue(mi.get(image, 0, "Width")));
+					media.setHeight(getPixelValue(mi.get(image, 0, "Height")));
 				}
 
 				if (parseLogger != null) {
@@ -494,7 +777,7 @@ public class MediaInfoParser {
 
 			// set Subs in text format
 			int subTracks = 0;
-			value = MI.get(text, 0, "StreamCount");
+			value = mi.get(text, 0, "StreamCount");
 			if (!value.isEmpty()) {
 				subTracks = Integer.parseInt(value);
 			}
@@ -502,11 +785,11 @@ public class MediaInfoParser {
 			if (subTracks > 0) {
 				for (int i = 0; i < subTracks; i++) {
 					currentSubTrack = new DLNAMediaSubtitle();
-					currentSubTrack.setType(SubtitleType.valueOfMediaInfoValue(MI.get(text, i, "CodecID"),
-						SubtitleType.valueOfMediaInfoValue(MI.get(text, i, "Format"))
+					currentSubTrack.setType(SubtitleType.valueOfMediaInfoValue(mi.get(text, i, "CodecID"),
+						SubtitleType.valueOfMediaInfoValue(mi.get(text, i, "Format"))
 					));
 
-					value = MI.get(text, i, "Language/String");
+					value = mi.get(text, i, "Language/String");
 					String languageCode = null;
 					if (isNotBlank(value)) {
 						languageCode = Iso639.getISO639_2Code(value.toLowerCase(Locale.ROOT));
@@ -515,7 +798,7 @@ public class MediaInfoParser {
 						}
 					}
 
-					value = MI.get(text, i, "Title").trim();
+					value = mi.get(text, i, "Title").trim();
 					currentSubTrack.setSubtitlesTrackTitleFromMetadata(value);
 					// if language code is null try to recognize the language from Title
 					if (languageCode == null && isNotBlank(value)) {
@@ -528,7 +811,7 @@ public class MediaInfoParser {
 					}
 
 					// Special check for OGM: MediaInfo reports specific Audio/Subs IDs (0xn) while mencoder/FFmpeg does not
-					value = MI.get(text, i, "ID/String");
+					value = mi.get(text, i, "ID/String");
 					if (isNotBlank(value)) {
 						if (value.contains("(0x") && !FormatConfiguration.OGG.equals(media.getContainer())) {
 							currentSubTrack.setId(getSpecificID(value));
@@ -641,7 +924,7 @@ public class MediaInfoParser {
 				LOGGER.trace("{}", parseLogger);
 			}
 
-			MI.closeFile();
+			mi.closeFile();
 			if (media.getContainer() == null) {
 				media.setContainer(DLNAMediaLang.UND);
 			}
@@ -1265,10 +1548,15 @@ public class MediaInfoParser {
 
 	protected static class ParseLogger {
 
+		private final MediaInfo mi;
 		private final StringBuilder sb = new StringBuilder();
 		private final Columns generalColumns = new Columns(false, 2, 32, 62, 92);
 		private final Columns streamColumns = new Columns(false, 4, 34, 64, 94);
 
+		public ParseLogger(MediaInfo mi) {
+			this.mi = mi;
+		}
+
 		/**
 		 * Appends a label and value to the internal {@link StringBuilder} at
 		 * the next column using the specified parameters.
@@ -1445,36 +1733,36 @@ public class MediaInfoParser {
 			} else {
 				sb.append("MediaInfo parsing results for \"").append(file.getAbsolutePath()).append("\":\n");
 			}
-			if (MI == null) {
+			if (mi == null) {
 				sb.append("ERROR: LibMediaInfo instance is null");
 				return;
 			}
-			if (!MI.isValid()) {
+			if (!mi.isValid()) {
 				sb.append("ERROR: LibMediaInfo instance not valid");
 				return;
 			}
 			sb.append("  ");
 			boolean first = true;
-			first &= !appendString("Title", MI.get(StreamKind.GENERAL, 0, "Title"), first, true, true);
-			first &= !appendString("Format", MI.get(StreamKind.GENERAL, 0, "Format"), first, true, false);
-			first &= !appendString("CodecID", MI.get(StreamKind.GENERAL, 0, "CodecID"), first, true, true);
-			Double durationSec = parseDuration(MI.get(StreamKind.GENERAL, 0, "Duration"));
+			first &= !appendString("Title", mi.get(StreamKind.GENERAL, 0, "Title"), first, true, true);
+			first &= !appendString("Format", mi.get(StreamKind.GENERAL, 0, "Format"), first, true, false);
+			first &= !appendString("CodecID", mi.get(StreamKind.GENERAL, 0, "CodecID"), first, true, true);
+			Double durationSec = parseDuration(mi.get(StreamKind.GENERAL, 0, "Duration"));
 			if (durationSec != null) {
 				first &= !appendString("Duration", StringUtil.formatDLNADuration(durationSec), first, false, true);
 			}
-			first &= !appendString("Overall Bitrate Mode", MI.get(StreamKind.GENERAL, 0, "OverallBitRate_Mode"), first, false, true);
-			first &= !appendString("Overall Bitrate", MI.get(StreamKind.GENERAL, 0, "OverallBitRate"), first, false, true);
-			first &= !appendString("Overall Bitrate Nom.", MI.get(StreamKind.GENERAL, 0, "OverallBitRate_Nominal"), first, false, true);
-			first &= !appendString("Overall Bitrate Max.", MI.get(StreamKind.GENERAL, 0, "OverallBitRate_Maximum"), first, false, true);
-			first &= !appendString("Stereoscopic", MI.get(StreamKind.GENERAL, 0, "StereoscopicLayout"), first, true, true);
-			appendExists("Cover", MI.get(StreamKind.GENERAL, 0, "Cover_Data"), first, false);
+			first &= !appendString("Overall Bitrate Mode", mi.get(StreamKind.GENERAL, 0, "OverallBitRate_Mode"), first, false, true);
+			first &= !appendString("Overall Bitrate", mi.get(StreamKind.GENERAL, 0, "OverallBitRate"), first, false, true);
+			first &= !appendString("Overall Bitrate Nom.", mi.get(StreamKind.GENERAL, 0, "OverallBitRate_Nominal"), first, false, true);
+			first &= !appendString("Overall Bitrate Max.", mi.get(StreamKind.GENERAL, 0, "OverallBitRate_Maximum"), first, false, true);
+			first &= !appendString("Stereoscopic", mi.get(StreamKind.GENERAL, 0, "StereoscopicLayout"), first, true, true);
+			appendExists("Cover", mi.get(StreamKind.GENERAL, 0, "Cover_Data"), first, false);
 			first = false;
-			appendString("FPS", MI.get(StreamKind.GENERAL, 0, "FrameRate"), first, false, true);
-			appendString("Track", MI.get(StreamKind.GENERAL, 0, "Track"), first, true, true);
-			appendString("Album", MI.get(StreamKind.GENERAL, 0, "Album"), first, true, true);
-			appendString("Performer", MI.get(StreamKind.GENERAL, 0, "Performer"), first, true, true);
-			appendString("Genre", MI.get(StreamKind.GENERAL, 0, "Genre"), first, true, true);
-			appendString("Rec Date", MI.get(StreamKind.GENERAL, 0, "Recorded_Date"), first, true, true);
+			appendString("FPS", mi.get(StreamKind.GENERAL, 0, "FrameRate"), first, false, true);
+			appendString("Track", mi.get(StreamKind.GENERAL, 0, "Track"), first, true, true);
+			appendString("Album", mi.get(StreamKind.GENERAL, 0, "Album"), first, true, true);
+			appendString("Performer", mi.get(StreamKind.GENERAL, 0, "Performer"), first, true, true);
+			appendString("Genre", mi.get(StreamKind.GENERAL, 0, "Genre"), first, true, true);
+			appendString("Rec Date", mi.get(StreamKind.GENERAL, 0, "Recorded_Date"), first, true, true);
 		}
 
 		public void logGeneralColumns(File file) {
@@ -1483,280 +1771,280 @@ public class MediaInfoParser {
 			} else {
 				sb.append("MediaInfo parsing results for \"").append(file.getAbsolutePath()).append("\":\n");
 			}
-			if (MI == null) {
+			if (mi == null) {
 				sb.append("ERROR: LibMediaInfo instance is null");
 				return;
 			}
-			if (!MI.isValid()) {
+			if (!mi.isValid()) {
 				sb.append("ERROR: LibMediaInfo instance not valid");
 				return;
 			}
 			generalColumns.reset();
-			appendStringNextColumn(generalColumns, "Title", MI.get(StreamKind.GENERAL, 0, "Title"), true, true);
-			appendStringNextColumn(generalColumns, "Format", MI.get(StreamKind.GENERAL, 0, "Format"), true, false);
-			appendStringNextColumn(generalColumns, "CodecID", MI.get(StreamKind.GENERAL, 0, "CodecID"), true, true);
-			Double durationSec = parseDuration(MI.get(StreamKind.GENERAL, 0, "Duration"));
+			appendStringNextColumn(generalColumns, "Title", mi.get(StreamKind.GENERAL, 0, "Title"), true, true);
+			appendStringNextColumn(generalColumns, "Format", mi.get(StreamKind.GENERAL, 0, "Format"), true, false);
+			appendStringNextColumn(generalColumns, "CodecID", mi.get(StreamKind.GENERAL, 0, "CodecID"), true, true);
+			Double durationSec = parseDuration(mi.get(StreamKind.GENERAL, 0, "Duration"));
 			if (durationSec != null) {
 				appendStringNextColumn(generalColumns, "Duration", StringUtil.formatDLNADuration(durationSec), false, true);
 			}
-			appendStringNextColumn(generalColumns, "Overall Bitrate Mode", MI.get(StreamKind.GENERAL, 0, "OverallBitRate_Mode"), false, true);
-			appendStringNextColumn(generalColumns, "Overall Bitrate", MI.get(StreamKind.GENERAL, 0, "OverallBitRate"), false, true);
-			appendStringNextColumn(generalColumns, "Overall Bitrate Nom.", MI.get(StreamKind.GENERAL, 0, "OverallBitRate_Nominal"), false, true);
-			appendStringNextColumn(generalColumns, "Overall Bitrate Max.", MI.get(StreamKind.GENERAL, 0, "OverallBitRate_Maximum"), false, true);
-			appendStringNextColumn(generalColumns, "Stereoscopic", MI.get(StreamKind.GENERAL, 0, "StereoscopicLayout"), true, true);
-			appendExistsNextColumn(generalColumns, "Cover", MI.get(StreamKind.GENERAL, 0, "Cover_Data"), false);
-			appendStringNextColumn(generalColumns, "FPS", MI.get(StreamKind.GENERAL, 0, "FrameRate"), false, true);
-			appendStringNextColumn(generalColumns, "Track", MI.get(StreamKind.GENERAL, 0, "Track"), true, true);
-			appendStringNextColumn(generalColumns, "Album", MI.get(StreamKind.GENERAL, 0, "Album"), true, true);
-			appendStringNextColumn(generalColumns, "Performer", MI.get(StreamKind.GENERAL, 0, "Performer"), true, true);
-			appendStringNextColumn(generalColumns, "Genre", MI.get(StreamKind.GENERAL, 0, "Genre"), true, true);
-			appendStringNextColumn(generalColumns, "Rec Date", MI.get(StreamKind.GENERAL, 0, "Recorded_Date"), true, true);
+			appendStringNextColumn(generalColumns, "Overall Bitrate Mode", mi.get(StreamKind.GENERAL, 0, "OverallBitRate_Mode"), false, true);
+			appendStringNextColumn(generalColumns, "Overall Bitrate", mi.get(StreamKind.GENERAL, 0, "OverallBitRate"), false, true);
+			appendStringNextColumn(generalColumns, "Overall Bitrate Nom.", mi.get(StreamKind.GENERAL, 0, "OverallBitRate_Nominal"), false, true);
+			appendStringNextColumn(generalColumns, "Overall Bitrate Max.", mi.get(StreamKind.GENERAL, 0, "OverallBitRate_Maximum"), false, true);
+			appendStringNextColumn(generalColumns, "Stereoscopic", mi.get(StreamKind.GENERAL, 0, "StereoscopicLayout"), true, true);
+			appendExistsNextColumn(generalColumns, "Cover", mi.get(StreamKind.GENERAL, 0, "Cover_Data"), false);
+			appendStringNextColumn(generalColumns, "FPS", mi.get(StreamKind.GENERAL, 0, "FrameRate"), false, true);
+			appendStringNextColumn(generalColumns, "Track", mi.get(StreamKind.GENERAL, 0, "Track"), true, true);
+			appendStringNextColumn(generalColumns, "Album", mi.get(StreamKind.GENERAL, 0, "Album"), true, true);
+			appendStringNextColumn(generalColumns, "Performer", mi.get(StreamKind.GENERAL, 0, "Performer"), true, true);
+			appendStringNextColumn(generalColumns, "Genre", mi.get(StreamKind.GENERAL, 0, "Genre"), true, true);
+			appendStringNextColumn(generalColumns, "Rec Date", mi.get(StreamKind.GENERAL, 0, "Recorded_Date"), true, true);
 		}
 
 		public void logVideoTrack(int idx) {
-			if (MI == null || !MI.isValid()) {
+			if (mi == null || !mi.isValid()) {
 				return;
 			}
 
 			sb.append("\n    - Video - ");
 			boolean first = true;
-			first &= !appendString("Format", MI.get(StreamKind.VIDEO, idx, "Format"), first, true, true);
-			first &= !appendString("Version", MI.get(StreamKind.VIDEO, idx, "Format_Version"), first, true, true);
-			first &= !appendString("Profile", MI.get(StreamKind.VIDEO, idx, "Format_Profile"), first, true, true);
-			first &= !appendString("ID", MI.get(StreamKind.VIDEO, idx, "ID"), first, false, true);
-			first &= !appendString("CodecID", MI.get(StreamKind.VIDEO, idx, "CodecID"), first, true, true);
-			Double durationSec = parseDuration(MI.get(StreamKind.VIDEO, 0, "Duration"));
+			first &= !appendString("Format", mi.get(StreamKind.VIDEO, idx, "Format"), first, true, true);
+			first &= !appendString("Version", mi.get(StreamKind.VIDEO, idx, "Format_Version"), first, true, true);
+			first &= !appendString("Profile", mi.get(StreamKind.VIDEO, idx, "Format_Profile"), first, true, true);
+			first &= !appendString("ID", mi.get(StreamKind.VIDEO, idx, "ID"), first, false, true);
+			first &= !appendString("CodecID", mi.get(StreamKind.VIDEO, idx, "CodecID"), first, true, true);
+			Double durationSec = parseDuration(mi.get(StreamKind.VIDEO, 0, "Duration"));
 			if (durationSec != null) {
 				first &= !appendString("Duration", StringUtil.formatDLNADuration(durationSec), first, false, true);
 			}
-			first &= !appendString("BitRate Mode", MI.get(StreamKind.VIDEO, idx, "BitRate_Mode"), first, false, true);
-			first &= !appendString("Bitrate", MI.get(StreamKind.VIDEO, idx, "BitRate"), first, false, true);
-			first &= !appendString("Bitrate Nominal", MI.get(StreamKind.VIDEO, idx, "BitRate_Nominal"), first, false, true);
-			first &= !appendString("BitRate Maximum", MI.get(StreamKind.VIDEO, idx, "BitRate_Maximum"), first, false, true);
-			first &= !appendString("Bitrate Encoded", MI.get(StreamKind.VIDEO, idx, "BitRate_Encoded"), first, false, true);
-			first &= !appendString("Width", MI.get(StreamKind.VIDEO, idx, "Width"), first, false, true);
-			first &= !appendString("Height", MI.get(StreamKind.VIDEO, idx, "Height"), first, false, true);
-			first &= !appendString("Colorimetry", MI.get(StreamKind.VIDEO, idx, "Colorimetry"), first, false, true);
-			first &= !appendString("Chroma", MI.get(StreamKind.VIDEO, idx, "ChromaSubsampling"), first, false, true);
-			first &= !appendString("Matrix Co", MI.get(StreamKind.VIDEO, idx, "matrix_coefficients"), first, false, true);
-			first &= !appendString("MultiView Layout", MI.get(StreamKind.VIDEO, idx, "MultiView_Layout"), first, true, true);
-			first &= !appendString("PAR", MI.get(StreamKind.VIDEO, idx, "PixelAspectRatio"), first, false, true);
-			first &= !appendString("DAR", MI.get(StreamKind.VIDEO, idx, "DisplayAspectRatio/String"), first, false, true);
-			first &= !appendString("DAR Orig", MI.get(StreamKind.VIDEO, idx, "DisplayAspectRatio_Original/String"), first, false, true);
-			first &= !appendString("Scan Type", MI.get(StreamKind.VIDEO, idx, "ScanType"), first, false, true);
-			first &= !appendString("Scan Order", MI.get(StreamKind.VIDEO, idx, "ScanOrder"), first, false, true);
-			first &= !appendString("FPS", MI.get(StreamKind.VIDEO, idx, "FrameRate"), first, false, true);
-			first &= !appendString("FPS Orig", MI.get(StreamKind.VIDEO, idx, "FrameRate_Original"), first, false, true);
-			first &= !appendString("Framerate Mode", MI.get(StreamKind.VIDEO, idx, "FrameRate_Mode"), first, false, true);
-			first &= !appendString("RefFrames", MI.get(StreamKind.VIDEO, idx, "Format_Settings_RefFrames"), first, false, true);
-			first &= !appendString("QPel", MI.get(StreamKind.VIDEO, idx, "Format_Settings_QPel"), first, true, true);
-			first &= !appendString("GMC", MI.get(StreamKind.VIDEO, idx, "Format_Settings_GMC"), first, true, true);
-			first &= !appendString("GOP", MI.get(StreamKind.VIDEO, idx, "Format_Settings_GOP"), first, true, true);
-			first &= !appendString("Muxing Mode", MI.get(StreamKind.VIDEO, idx, "MuxingMode"), first, true, true);
-			first &= !appendString("Encrypt", MI.get(StreamKind.VIDEO, idx, "Encryption"), first, true, true);
-			first &= !appendString("Bit Depth", MI.get(StreamKind.VIDEO, idx, "BitDepth"), first, false, true);
-			first &= !appendString("Delay", MI.get(StreamKind.VIDEO, idx, "Delay"), first, false, true);
-			first &= !appendString("Delay Source", MI.get(StreamKind.VIDEO, idx, "Delay_Source"), first, false, true);
-			first &= !appendString("Delay Original", MI.get(StreamKind.VIDEO, idx, "Delay_Original"), first, false, true);
-			first &= !appendString("Delay O. Source", MI.get(StreamKind.VIDEO, idx, "Delay_Original_Source"), first, false, true);
-			first &= !appendString("TimeStamp_FirstFrame", MI.get(StreamKind.VIDEO, idx, "TimeStamp_FirstFrame"), first, false, true);
+			first &= !appendString("BitRate Mode", mi.get(StreamKind.VIDEO, idx, "BitRate_Mode"), first, false, true);
+			first &= !appendString("Bitrate", mi.get(StreamKind.VIDEO, idx, "BitRate"), first, false, true);
+			first &= !appendString("Bitrate Nominal", mi.get(StreamKind.VIDEO, idx, "BitRate_Nominal"), first, false, true);
+			first &= !appendString("BitRate Maximum", mi.get(StreamKind.VIDEO, idx, "BitRate_Maximum"), first, false, true);
+			first &= !appendString("Bitrate Encoded", mi.get(StreamKind.VIDEO, idx, "BitRate_Encoded"), first, false, true);
+			first &= !appendString("Width", mi.get(StreamKind.VIDEO, idx, "Width"), first, false, true);
+			first &= !appendString("Height", mi.get(StreamKind.VIDEO, idx, "Height"), first, false, true);
+			first &= !appendString("Colorimetry", mi.get(StreamKind.VIDEO, idx, "Colorimetry"), first, false, true);
+			first &= !appendString("Chroma", mi.get(StreamKind.VIDEO, idx, "ChromaSubsampling"), first, false, true);
+			first &= !appendString("Matrix Co", mi.get(StreamKind.VIDEO, idx, "matrix_coefficients"), first, false, true);
+			first &= !appendString("MultiView Layout", mi.get(StreamKind.VIDEO, idx, "MultiView_Layout"), first, true, true);
+			first &= !appendString("PAR", mi.get(StreamKind.VIDEO, idx, "PixelAspectRatio"), first, false, true);
+			first &= !appendString("DAR", mi.get(StreamKind.VIDEO, idx, "DisplayAspectRatio/String"), first, false, true);
+			first &= !appendString("DAR Orig", mi.get(StreamKind.VIDEO, idx, "DisplayAspectRatio_Original/String"), first, false, true);
+			first &= !appendString("Scan Type", mi.get(StreamKind.VIDEO, idx, "ScanType"), first, false, true);
+			first &= !appendString("Scan Order", mi.get(StreamKind.VIDEO, idx, "ScanOrder"), first, false, true);
+			first &= !appendString("FPS", mi.get(StreamKind.VIDEO, idx, "FrameRate"), first, false, true);
+			first &= !appendString("FPS Orig", mi.get(StreamKind.VIDEO, idx, "FrameRate_Original"), first, false, true);
+			first &= !appendString("Framerate Mode", mi.get(StreamKind.VIDEO, idx, "FrameRate_Mode"), first, false, true);
+			first &= !appendString("RefFrames", mi.get(StreamKind.VIDEO, idx, "Format_Settings_RefFrames"), first, false, true);
+			first &= !appendString("QPel", mi.get(StreamKind.VIDEO, idx, "Format_Settings_QPel"), first, true, true);
+			first &= !appendString("GMC", mi.get(StreamKind.VIDEO, idx, "Format_Settings_GMC"), first, true, true);
+			first &= !appendString("GOP", mi.get(StreamKind.VIDEO, idx, "Format_Settings_GOP"), first, true, true);
+			first &= !appendString("Muxing Mode", mi.get(StreamKind.VIDEO, idx, "MuxingMode"), first, true, true);
+			first &= !appendString("Encrypt", mi.get(StreamKind.VIDEO, idx, "Encryption"), first, true, true);
+			first &= !appendString("Bit Depth", mi.get(StreamKind.VIDEO, idx, "BitDepth"), first, false, true);
+			first &= !appendString("Delay", mi.get(StreamKind.VIDEO, idx, "Delay"), first, false, true);
+			first &= !appendString("Delay Source", mi.get(StreamKind.VIDEO, idx, "Delay_Source"), first, false, true);
+			first &= !appendString("Delay Original", mi.get(StreamKind.VIDEO, idx, "Delay_Original"), first, false, true);
+			first &= !appendString("Delay O. Source", mi.get(StreamKind.VIDEO, idx, "Delay_Original_Source"), first, false, true);
+			first &= !appendString("TimeStamp_FirstFrame", mi.get(StreamKind.VIDEO, idx, "TimeStamp_FirstFrame"), first, false, true);
 		}
 
 		public void logVideoTrackColumns(int idx) {
-			if (MI == null || !MI.isValid()) {
+			if (mi == null || !mi.isValid()) {
 				return;
 			}
 
 			sb.append("\n  - Video track ");
-			appendString("ID", MI.get(StreamKind.VIDEO, idx, "ID"), true, false, false);
+			appendString("ID", mi.get(StreamKind.VIDEO, idx, "ID"), true, false, false);
 			streamColumns.reset();
 			sb.append("\n");
-			appendStringNextColumn(streamColumns, "Format", MI.get(StreamKind.VIDEO, idx, "Format"), true, true);
-			appendStringNextColumn(streamColumns, "Version", MI.get(StreamKind.VIDEO, idx, "Format_Version"), true, true);
-			appendStringNextColumn(streamColumns, "Profile", MI.get(StreamKind.VIDEO, idx, "Format_Profile"), true, true);
-			appendStringNextColumn(streamColumns, "CodecID", MI.get(StreamKind.VIDEO, idx, "CodecID"), true, true);
-			Double durationSec = parseDuration(MI.get(StreamKind.VIDEO, 0, "Duration"));
+			appendStringNextColumn(streamColumns, "Format", mi.get(StreamKind.VIDEO, idx, "Format"), true, true);
+			appendStringNextColumn(streamColumns, "Version", mi.get(StreamKind.VIDEO, idx, "Format_Version"), true, true);
+			appendStringNextColumn(streamColumns, "Profile", mi.get(StreamKind.VIDEO, idx, "Format_Profile"), true, true);
+			appendStringNextColumn(streamColumns, "CodecID", mi.get(StreamKind.VIDEO, idx, "CodecID"), true, true);
+			Double durationSec = parseDuration(mi.get(StreamKind.VIDEO, 0, "Duration"));
 			if (durationSec != null) {
 				appendStringNextColumn(streamColumns, "Duration", StringUtil.formatDLNADuration(durationSec), false, true);
 			}
-			appendStringNextColumn(streamColumns, "BitRate Mode", MI.get(StreamKind.VIDEO, idx, "BitRate_Mode"), false, true);
-			appendStringNextColumn(streamColumns, "Bitrate", MI.get(StreamKind.VIDEO, idx, "BitRate"), false, true);
-			appendStringNextColumn(streamColumns, "Bitrate Nominal", MI.get(StreamKind.VIDEO, idx, "BitRate_Nominal"), false, true);
-			appendStringNextColumn(streamColumns, "BitRate Maximum", MI.get(StreamKind.VIDEO, idx, "BitRate_Maximum"), false, true);
-			appendStringNextColumn(streamColumns, "Bitrate Encoded", MI.get(StreamKind.VIDEO, idx, "BitRate_Encoded"), false, true);
-			appendStringNextColumn(streamColumns, "Width", MI.get(StreamKind.VIDEO, idx, "Width"), false, true);
-			appendStringNextColumn(streamColumns, "Height", MI.get(StreamKind.VIDEO, idx, "Height"), false, true);
-			appendStringNextColumn(streamColumns, "Colorimetry", MI.get(StreamKind.VIDEO, idx, "Colorimetry"), false, true);
-			appendStringNextColumn(streamColumns, "Chroma", MI.get(StreamKind.VIDEO, idx, "ChromaSubsampling"), false, true);
-			appendStringNextColumn(streamColumns, "Matrix Co", MI.get(StreamKind.VIDEO, idx, "matrix_coefficients"), false, true);
-			appendStringNextColumn(streamColumns, "MultiView Layout", MI.get(StreamKind.VIDEO, idx, "MultiView_Layout"), true, true);
-			appendStringNextColumn(streamColumns, "PAR", MI.get(StreamKind.VIDEO, idx, "PixelAspectRatio"), false, true);
-			appendStringNextColumn(streamColumns, "DAR", MI.get(StreamKind.VIDEO, idx, "DisplayAspectRatio/String"), false, true);
-			appendStringNextColumn(streamColumns, "DAR Orig", MI.get(StreamKind.VIDEO, idx, "DisplayAspectRatio_Original/String"), false, true);
-			appendStringNextColumn(streamColumns, "Scan Type", MI.get(StreamKind.VIDEO, idx, "ScanType"), false, true);
-			appendStringNextColumn(streamColumns, "Scan Order", MI.get(StreamKind.VIDEO, idx, "ScanOrder"), false, true);
-			appendStringNextColumn(streamColumns, "FPS", MI.get(StreamKind.VIDEO, idx, "FrameRate"), false, true);
-			appendStringNextColumn(streamColumns, "FPS Orig", MI.get(StreamKind.VIDEO, idx, "FrameRate_Original"), false, true);
-			appendStringNextColumn(streamColumns, "Framerate Mode", MI.get(StreamKind.VIDEO, idx, "FrameRate_Mode"), false, true);
-			appendStringNextColumn(streamColumns, "RefFrames", MI.get(StreamKind.VIDEO, idx, "Format_Settings_RefFrames"), false, true);
-			appendStringNextColumn(streamColumns, "QPel", MI.get(StreamKind.VIDEO, idx, "Format_Settings_QPel"), true, true);
-			appendStringNextColumn(streamColumns, "GMC", MI.get(StreamKind.VIDEO, idx, "Format_Settings_GMC"), true, true);
-			appendStringNextColumn(streamColumns, "GOP", MI.get(StreamKind.VIDEO, idx, "Format_Settings_GOP"), true, true);
-			appendStringNextColumn(streamColumns, "Muxing Mode", MI.get(StreamKind.VIDEO, idx, "MuxingMode"), true, true);
-			appendStringNextColumn(streamColumns, "Encrypt", MI.get(StreamKind.VIDEO, idx, "Encryption"), true, true);
-			appendStringNextColumn(streamColumns, "Bit Depth", MI.get(StreamKind.VIDEO, idx, "BitDepth"), false, true);
-			appendStringNextColumn(streamColumns, "Delay", MI.get(StreamKind.VIDEO, idx, "Delay"), false, true);
-			appendStringNextColumn(streamColumns, "Delay Source", MI.get(StreamKind.VIDEO, idx, "Delay_Source"), false, true);
-			appendStringNextColumn(streamColumns, "Delay Original", MI.get(StreamKind.VIDEO, idx, "Delay_Original"), false, true);
-			appendStringNextColumn(streamColumns, "Delay O. Source", MI.get(StreamKind.VIDEO, idx, "Delay_Original_Source"), false, true);
-			appendStringNextColumn(streamColumns, "TimeStamp_FirstFrame", MI.get(StreamKind.VIDEO, idx, "TimeStamp_FirstFrame"), false, true);
+			appendStringNextColumn(streamColumns, "BitRate Mode", mi.get(StreamKind.VIDEO, idx, "BitRate_Mode"), false, true);
+			appendStringNextColumn(streamColumns, "Bitrate", mi.get(StreamKind.VIDEO, idx, "BitRate"), false, true);
+			appendStringNextColumn(streamColumns, "Bitrate Nominal", mi.get(StreamKind.VIDEO, idx, "BitRate_Nominal"), false, true);
+			appendStringNextColumn(streamColumns, "BitRate Maximum", mi.get(StreamKind.VIDEO, idx, "BitRate_Maximum"), false, true);
+			appendStringNextColumn(streamColumns, "Bitrate Encoded", mi.get(StreamKind.VIDEO, idx, "BitRate_Encoded"), false, true);
+			appendStringNextColumn(streamColumns, "Width", mi.get(StreamKind.VIDEO, idx, "Width"), false, true);
+			appendStringNextColumn(streamColumns, "Height", mi.get(StreamKind.VIDEO, idx, "Height"), false, true);
+			appendStringNextColumn(streamColumns, "Colorimetry", mi.get(StreamKind.VIDEO, idx, "Colorimetry"), false, true);
+			appendStringNextColumn(streamColumns, "Chroma", mi.get(StreamKind.VIDEO, idx, "ChromaSubsampling"), false, true);
+			appendStringNextColumn(streamColumns, "Matrix Co", mi.get(StreamKind.VIDEO, idx, "matrix_coefficients"), false, true);
+			appendStringNextColumn(streamColumns, "MultiView Layout", mi.get(StreamKind.VIDEO, idx, "MultiView_Layout"), true, true);
+			appendStringNextColumn(streamColumns, "PAR", mi.get(StreamKind.VIDEO, idx, "PixelAspectRatio"), false, true);
+			appendStringNextColumn(streamColumns, "DAR", mi.get(StreamKind.VIDEO, idx, "DisplayAspectRatio/String"), false, true);
+			appendStringNextColumn(streamColumns, "DAR Orig", mi.get(StreamKind.VIDEO, idx, "DisplayAspectRatio_Original/String"), false, true);
+			appendStringNextColumn(streamColumns, "Scan Type", mi.get(StreamKind.VIDEO, idx, "ScanType"), false, true);
+			appendStringNextColumn(streamColumns, "Scan Order", mi.get(StreamKind.VIDEO, idx, "ScanOrder"), false, true);
+			appendStringNextColumn(streamColumns, "FPS", mi.get(StreamKind.VIDEO, idx, "FrameRate"), false, true);
+			appendStringNextColumn(streamColumns, "FPS Orig", mi.get(StreamKind.VIDEO, idx, "FrameRate_Original"), false, true);
+			appendStringNextColumn(streamColumns, "Framerate Mode", mi.get(StreamKind.VIDEO, idx, "FrameRate_Mode"), false, true);
+			appendStringNextColumn(streamColumns, "RefFrames", mi.get(StreamKind.VIDEO, idx, "Format_Settings_RefFrames"), false, true);
+			appendStringNextColumn(streamColumns, "QPel", mi.get(StreamKind.VIDEO, idx, "Format_Settings_QPel"), true, true);
+			appendStringNextColumn(streamColumns, "GMC", mi.get(StreamKind.VIDEO, idx, "Format_Settings_GMC"), true, true);
+			appendStringNextColumn(streamColumns, "GOP", mi.get(StreamKind.VIDEO, idx, "Format_Settings_GOP"), true, true);
+			appendStringNextColumn(streamColumns, "Muxing Mode", mi.get(StreamKind.VIDEO, idx, "MuxingMode"), true, true);
+			appendStringNextColumn(streamColumns, "Encrypt", mi.get(StreamKind.VIDEO, idx, "Encryption"), true, true);
+			appendStringNextColumn(streamColumns, "Bit Depth", mi.get(StreamKind.VIDEO, idx, "BitDepth"), false, true);
+			appendStringNextColumn(streamColumns, "Delay", mi.get(StreamKind.VIDEO, idx, "Delay"), false, true);
+			appendStringNextColumn(streamColumns, "Delay Source", mi.get(StreamKind.VIDEO, idx, "Delay_Source"), false, true);
+			appendStringNextColumn(streamColumns, "Delay Original", mi.get(StreamKind.VIDEO, idx, "Delay_Original"), false, true);
+			appendStringNextColumn(streamColumns, "Delay O. Source", mi.get(StreamKind.VIDEO, idx, "Delay_Original_Source"), false, true);
+			appendStringNextColumn(streamColumns, "TimeStamp_FirstFrame", mi.get(StreamKind.VIDEO, idx, "TimeStamp_FirstFrame"), false, true);
 		}
 
 		public void logAudioTrack(int idx) {
-			if (MI == null || !MI.isValid()) {
+			if (mi == null || !mi.isValid()) {
 				return;
 			}
 
 			sb.append("\n    - Audio - ");
 			boolean first = true;
-			first &= !appendString("Title", MI.get(StreamKind.AUDIO, idx, "Title"), first, true, true);
-			first &= !appendString("Format", MI.get(StreamKind.AUDIO, idx, "Format"), first, true, true);
-			first &= !appendString("Version", MI.get(StreamKind.AUDIO, idx, "Format_Version"), first, true, true);
-			first &= !appendString("Profile", MI.get(StreamKind.AUDIO, idx, "Format_Profile"), first, true, true);
-			first &= !appendString("ID", MI.get(StreamKind.AUDIO, idx, "ID"), first, false, true);
-			first &= !appendString("CodecID", MI.get(StreamKind.AUDIO, idx, "CodecID"), first, true, true);
-			first &= !appendString("CodecID Desc", MI.get(StreamKind.AUDIO, idx, "CodecID_Description"), first, true, true);
-			Double durationSec = parseDuration(MI.get(StreamKind.AUDIO, 0, "Duration"));
+			first &= !appendString("Title", mi.get(StreamKind.AUDIO, idx, "Title"), first, true, true);
+			first &= !appendString("Format", mi.get(StreamKind.AUDIO, idx, "Format"), first, true, true);
+			first &= !appendString("Version", mi.get(StreamKind.AUDIO, idx, "Format_Version"), first, true, true);
+			first &= !appendString("Profile", mi.get(StreamKind.AUDIO, idx, "Format_Profile"), first, true, true);
+			first &= !appendString("ID", mi.get(StreamKind.AUDIO, idx, "ID"), first, false, true);
+			first &= !appendString("CodecID", mi.get(StreamKind.AUDIO, idx, "CodecID"), first, true, true);
+			first &= !appendString("CodecID Desc", mi.get(StreamKind.AUDIO, idx, "CodecID_Description"), first, true, true);
+			Double durationSec = parseDuration(mi.get(StreamKind.AUDIO, 0, "Duration"));
 			if (durationSec != null) {
 				first &= !appendString("Duration", StringUtil.formatDLNADuration(durationSec), first, false, true);
 			}
-			first &= !appendString("BitRate Mode", MI.get(StreamKind.AUDIO, idx, "BitRate_Mode"), first, false, true);
-			first &= !appendString("Bitrate", MI.get(StreamKind.AUDIO, idx, "BitRate"), first, false, true);
-			first &= !appendString("Bitrate Nominal", MI.get(StreamKind.AUDIO, idx, "BitRate_Nominal"), first, false, true);
-			first &= !appendString("BitRate Maximum", MI.get(StreamKind.AUDIO, idx, "BitRate_Maximum"), first, false, true);
-			first &= !appendString("Bitrate Encoded", MI.get(StreamKind.AUDIO, idx, "BitRate_Encoded"), first, false, true);
-			first &= !appendString("Language", MI.get(StreamKind.AUDIO, idx, "Language"), first, true, true);
-			first &= !appendString("Channel(s)", MI.get(StreamKind.AUDIO, idx, "Channel(s)_Original"), first, false, true);
-			first &= !appendString("Samplerate", MI.get(StreamKind.AUDIO, idx, "SamplingRate"), first, false, true);
-			first &= !appendString("Track", MI.get(StreamKind.GENERAL, idx, "Track/Position"), first, false, true);
-			first &= !appendString("Bit Depth", MI.get(StreamKind.AUDIO, idx, "BitDepth"), first, false, true);
-			first &= !appendString("Delay", MI.get(StreamKind.AUDIO, idx, "Delay"), first, false, true);
-			first &= !appendString("Delay Source", MI.get(StreamKind.AUDIO, idx, "Delay_Source"), first, false, true);
-			first &= !appendString("Delay Original", MI.get(StreamKind.AUDIO, idx, "Delay_Original"), first, false, true);
-			first &= !appendString("Delay O. Source", MI.get(StreamKind.AUDIO, idx, "Delay_Original_Source"), first, false, true);
+			first &= !appendString("BitRate Mode", mi.get(StreamKind.AUDIO, idx, "BitRate_Mode"), first, false, true);
+			first &= !appendString("Bitrate", mi.get(StreamKind.AUDIO, idx, "BitRate"), first, false, true);
+			first &= !appendString("Bitrate Nominal", mi.get(StreamKind.AUDIO, idx, "BitRate_Nominal"), first, false, true);
+			first &= !appendString("BitRate Maximum", mi.get(StreamKind.AUDIO, idx, "BitRate_Maximum"), first, false, true);
+			first &= !appendString("Bitrate Encoded", mi.get(StreamKind.AUDIO, idx, "BitRate_Encoded"), first, false, true);
+			first &= !appendString("Language", mi.get(StreamKind.AUDIO, idx, "Language"), first, true, true);
+			first &= !appendString("Channel(s)", mi.get(StreamKind.AUDIO, idx, "Channel(s)_Original"), first, false, true);
+			first &= !appendString("Samplerate", mi.get(StreamKind.AUDIO, idx, "SamplingRate"), first, false, true);
+			first &= !appendString("Track", mi.get(StreamKind.GENERAL, idx, "Track/Position"), first, false, true);
+			first &= !appendString("Bit Depth", mi.get(StreamKind.AUDIO, idx, "BitDepth"), first, false, true);
+			first &= !appendString("Delay", mi.get(StreamKind.AUDIO, idx, "Delay"), first, false, true);
+			first &= !appendString("Delay Source", mi.get(StreamKind.AUDIO, idx, "Delay_Source"), first, false, true);
+			first &= !appendString("Delay Original", mi.get(StreamKind.AUDIO, idx, "Delay_Original"), first, false, true);
+			first &= !appendString("Delay O. Source", mi.get(StreamKind.AUDIO, idx, "Delay_Original_Source"), first, false, true);
 		}
 
 		public void logAudioTrackColumns(int idx) {
-			if (MI == null || !MI.isValid()) {
+			if (mi == null || !mi.isValid()) {
 				return;
 			}
 
 			sb.append("\n  - Audio track ");
-			appendString("ID", MI.get(StreamKind.AUDIO, idx, "ID"), true, false, false);
-			appendString("Title", MI.get(StreamKind.AUDIO, idx, "Title"), false, true, true);
+			appendString("ID", mi.get(StreamKind.AUDIO, idx, "ID"), true, false, false);
+			appendString("Title", mi.get(StreamKind.AUDIO, idx, "Title"), false, true, true);
 			streamColumns.reset();
 			sb.append("\n");
-			appendStringNextColumn(streamColumns, "Format", MI.get(StreamKind.AUDIO, idx, "Format/String"), true, true);
-			appendStringNextColumn(streamColumns, "Version", MI.get(StreamKind.AUDIO, idx, "Format_Version"), true, true);
-			appendStringNextColumn(streamColumns, "Profile", MI.get(StreamKind.AUDIO, idx, "Format_Profile"), true, true);
-			appendStringNextColumn(streamColumns, "CodecID", MI.get(StreamKind.AUDIO, idx, "CodecID"), true, true);
-			appendStringNextColumn(streamColumns, "CodecID Desc", MI.get(StreamKind.AUDIO, idx, "CodecID_Description"), true, true);
-			Double durationSec = parseDuration(MI.get(StreamKind.AUDIO, 0, "Duration"));
+			appendStringNextColumn(streamColumns, "Format", mi.get(StreamKind.AUDIO, idx, "Format/String"), true, true);
+			appendStringNextColumn(streamColumns, "Version", mi.get(StreamKind.AUDIO, idx, "Format_Version"), true, true);
+			appendStringNextColumn(streamColumns, "Profile", mi.get(StreamKind.AUDIO, idx, "Format_Profile"), true, true);
+			appendStringNextColumn(streamColumns, "CodecID", mi.get(StreamKind.AUDIO, idx, "CodecID"), true, true);
+			appendStringNextColumn(streamColumns, "CodecID Desc", mi.get(StreamKind.AUDIO, idx, "CodecID_Description"), true, true);
+			Double durationSec = parseDuration(mi.get(StreamKind.AUDIO, 0, "Duration"));
 			if (durationSec != null) {
 				appendStringNextColumn(streamColumns, "Duration", StringUtil.formatDLNADuration(durationSec), false, true);
 			}
-			appendStringNextColumn(streamColumns, "BitRate Mode", MI.get(StreamKind.AUDIO, idx, "BitRate_Mode"), false, true);
-			appendStringNextColumn(streamColumns, "Bitrate", MI.get(StreamKind.AUDIO, idx, "BitRate"), false, true);
-			appendStringNextColumn(streamColumns, "Bitrate Nominal", MI.get(StreamKind.AUDIO, idx, "BitRate_Nominal"), false, true);
-			appendStringNextColumn(streamColumns, "BitRate Maximum", MI.get(StreamKind.AUDIO, idx, "BitRate_Maximum"), false, true);
-			appendStringNextColumn(streamColumns, "Bitrate Encoded", MI.get(StreamKind.AUDIO, idx, "BitRate_Encoded"), false, true);
-			appendStringNextColumn(streamColumns, "Language", MI.get(StreamKind.AUDIO, idx, "Language"), true, true);
-			appendStringNextColumn(streamColumns, "Channel(s)", MI.get(StreamKind.AUDIO, idx, "Channel(s)"), false, true);
-			appendStringNextColumn(streamColumns, "Samplerate", MI.get(StreamKind.AUDIO, idx, "SamplingRate"), false, true);
-			appendStringNextColumn(streamColumns, "Track", MI.get(StreamKind.GENERAL, idx, "Track/Position"), false, true);
-			appendStringNextColumn(streamColumns, "Bit Depth", MI.get(StreamKind.AUDIO, idx, "BitDepth"), false, true);
-			appendStringNextColumn(streamColumns, "Delay", MI.get(StreamKind.AUDIO, idx, "Delay"), false, true);
-			appendStringNextColumn(streamColumns, "Delay Source", MI.get(StreamKind.AUDIO, idx, "Delay_Source"), false, true);
-			appendStringNextColumn(streamColumns, "Delay Original", MI.get(StreamKind.AUDIO, idx, "Delay_Original"), false, true);
-			appendStringNextColumn(streamColumns, "Delay O. Source", MI.get(StreamKind.AUDIO, idx, "Delay_Original_Source"), false, true);
+			appendStringNextColumn(streamColumns, "BitRate Mode", mi.get(StreamKind.AUDIO, idx, "BitRate_Mode"), false, true);
+			appendStringNextColumn(streamColumns, "Bitrate", mi.get(StreamKind.AUDIO, idx, "BitRate"), false, true);
+			appendStringNextColumn(streamColumns, "Bitrate Nominal", mi.get(StreamKind.AUDIO, idx, "BitRate_Nominal"), false, true);
+			appendStringNextColumn(streamColumns, "BitRate Maximum", mi.get(StreamKind.AUDIO, idx, "BitRate_Maximum"), false, true);
+			appendStringNextColumn(streamColumns, "Bitrate Encoded", mi.get(StreamKind.AUDIO, idx, "BitRate_Encoded"), false, true);
+			appendStringNextColumn(streamColumns, "Language", mi.get(StreamKind.AUDIO, idx, "Language"), true, true);
+			appendStringNextColumn(streamColumns, "Channel(s)", mi.get(StreamKind.AUDIO, idx, "Channel(s)"), false, true);
+			appendStringNextColumn(streamColumns, "Samplerate", mi.get(StreamKind.AUDIO, idx, "SamplingRate"), false, true);
+			appendStringNextColumn(streamColumns, "Track", mi.get(StreamKind.GENERAL, idx, "Track/Position"), false, true);
+			appendStringNextColumn(streamColumns, "Bit Depth", mi.get(StreamKind.AUDIO, idx, "BitDepth"), false, true);
+			appendStringNextColumn(streamColumns, "Delay", mi.get(StreamKind.AUDIO, idx, "Delay"), false, true);
+			appendStringNextColumn(streamColumns, "Delay Source", mi.get(StreamKind.AUDIO, idx, "Delay_Source"), false, true);
+			appendStringNextColumn(streamColumns, "Delay Original", mi.get(StreamKind.AUDIO, idx, "Delay_Original"), false, true);
+			appendStringNextColumn(streamColumns, "Delay O. Source", mi.get(StreamKind.AUDIO, idx, "Delay_Original_Source"), false, true);
 		}
 
 		public void logImage(int idx) {
-			if (MI == null || !MI.isValid()) {
+			if (mi == null || !mi.isValid()) {
 				return;
 			}
 
 			sb.append("\n    - Image - ");
 			boolean first = true;
-			first &= !appendString("Format", MI.get(StreamKind.IMAGE, idx, "Format"), first, true, true);
-			first &= !appendString("Version", MI.get(StreamKind.IMAGE, idx, "Format_Version"), first, true, true);
-			first &= !appendString("Profile", MI.get(StreamKind.IMAGE, idx, "Format_Profile"), first, true, true);
-			first &= !appendString("ID", MI.get(StreamKind.IMAGE, idx, "ID"), first, false, true);
-			first &= !appendString("Width", MI.get(StreamKind.IMAGE, idx, "Width"), first, false, true);
-			first &= !appendString("Height", MI.get(StreamKind.IMAGE, idx, "Height"), first, false, true);
+			first &= !appendString("Format", mi.get(StreamKind.IMAGE, idx, "Format"), first, true, true);
+			first &= !appendString("Version", mi.get(StreamKind.IMAGE, idx, "Format_Version"), first, true, true);
+			first &= !appendString("Profile", mi.get(StreamKind.IMAGE, idx, "Format_Profile"), first, true, true);
+			first &= !appendString("ID", mi.get(StreamKind.IMAGE, idx, "ID"), first, false, true);
+			first &= !appendString("Width", mi.get(StreamKind.IMAGE, idx, "Width"), first, false, true);
+			first &= !appendString("Height", mi.get(StreamKind.IMAGE, idx, "Height"), first, false, true);
 		}
 
 		public void logImageColumns(int idx) {
-			if (MI == null || !MI.isValid()) {
+			if (mi == null || !mi.isValid()) {
 				return;
 			}
 
 			sb.append("\n  - Image ");
-			appendString("ID", MI.get(StreamKind.IMAGE, idx, "ID"), true, false, false);
+			appendString("ID", mi.get(StreamKind.IMAGE, idx, "ID"), true, false, false);
 			streamColumns.reset();
 			sb.append("\n");
-			appendStringNextColumn(streamColumns, "Format", MI.get(StreamKind.IMAGE, idx, "Format"), true, true);
-			appendStringNextColumn(streamColumns, "Version", MI.get(StreamKind.IMAGE, idx, "Format_Version"), true, true);
-			appendStringNextColumn(streamColumns, "Profile", MI.get(StreamKind.IMAGE, idx, "Format_Profile"), true, true);
-			appendStringNextColumn(streamColumns, "Width", MI.get(StreamKind.IMAGE, idx, "Width"), false, true);
-			appendStringNextColumn(streamColumns, "Height", MI.get(StreamKind.IMAGE, idx, "Height"), false, true);
+			appendStringNextColumn(streamColumns, "Format", mi.get(StreamKind.IMAGE, idx, "Format"), true, true);
+			appendStringNextColumn(streamColumns, "Version", mi.get(StreamKind.IMAGE, idx, "Format_Version"), true, true);
+			appendStringNextColumn(streamColumns, "Profile", mi.get(StreamKind.IMAGE, idx, "Format_Profile"), true, true);
+			appendStringNextColumn(streamColumns, "Width", mi.get(StreamKind.IMAGE, idx, "Width"), false, true);
+			appendStringNextColumn(streamColumns, "Height", mi.get(StreamKind.IMAGE, idx, "Height"), false, true);
 		}
 
 		public void logSubtitleTrack(int idx, boolean videoSubtitle) {
-			if (MI == null || !MI.isValid()) {
+			if (mi == null || !mi.isValid()) {
 				return;
 			}
 
 			sb.append("\n    - Sub - ");
 			boolean first = true;
 			if (videoSubtitle) {
-				first &= !appendString("Title", MI.get(StreamKind.VIDEO, idx, "Title"), first, true, true);
-				first &= !appendString("Format", MI.get(StreamKind.VIDEO, idx, "Format"), first, true, true);
-				first &= !appendString("Version", MI.get(StreamKind.VIDEO, idx, "Format_Version"), first, true, true);
-				first &= !appendString("Profile", MI.get(StreamKind.VIDEO, idx, "Format_Profile"), first, true, true);
-				first &= !appendString("ID", MI.get(StreamKind.VIDEO, idx, "ID"), first, false, true);
+				first &= !appendString("Title", mi.get(StreamKind.VIDEO, idx, "Title"), first, true, true);
+				first &= !appendString("Format", mi.get(StreamKind.VIDEO, idx, "Format"), first, true, true);
+				first &= !appendString("Version", mi.get(StreamKind.VIDEO, idx, "Format_Version"), first, true, true);
+				first &= !appendString("Profile", mi.get(StreamKind.VIDEO, idx, "Format_Profile"), first, true, true);
+				first &= !appendString("ID", mi.get(StreamKind.VIDEO, idx, "ID"), first, false, true);
 			} else {
-				first &= !appendString("Title", MI.get(StreamKind.TEXT, idx, "Title"), first, true, true);
-				first &= !appendString("Format", MI.get(StreamKind.TEXT, idx, "Format"), first, true, true);
-				first &= !appendString("Version", MI.get(StreamKind.TEXT, idx, "Format_Version"), first, true, true);
-				first &= !appendString("Profile", MI.get(StreamKind.TEXT, idx, "Format_Profile"), first, true, true);
-				first &= !appendString("ID", MI.get(StreamKind.TEXT, idx, "ID"), first, false, true);
-				first &= !appendString("Language", MI.get(StreamKind.TEXT, idx, "Language"), first, true, true);
+				first &= !appendString("Title", mi.get(StreamKind.TEXT, idx, "Title"), first, true, true);
+				first &= !appendString("Format", mi.get(StreamKind.TEXT, idx, "Format"), first, true, true);
+				first &= !appendString("Version", mi.get(StreamKind.TEXT, idx, "Format_Version"), first, true, true);
+				first &= !appendString("Profile", mi.get(StreamKind.TEXT, idx, "Format_Profile"), first, true, true);
+				first &= !appendString("ID", mi.get(StreamKind.TEXT, idx, "ID"), first, false, true);
+				first &= !appendString("Language", mi.get(StreamKind.TEXT, idx, "Language"), first, true, true);
 			}
 		}
 
 		public void logSubtitleTrackColumns(int idx, boolean videoSubtitle) {
-			if (MI == null || !MI.isValid()) {
+			if (mi == null || !mi.isValid()) {
 				return;
 			}
 
 			sb.append("\n  - Subtitle ");
 			streamColumns.reset();
 			if (videoSubtitle) {
-				appendString("ID", MI.get(StreamKind.VIDEO, idx, "ID"), true, false, false);
-				appendString("Title", MI.get(StreamKind.VIDEO, idx, "Title"), false, true, true);
+				appendString("ID", mi.get(StreamKind.VIDEO, idx, "ID"), true, false, false);
+				appendString("Title", mi.get(StreamKind.VIDEO, idx, "Title"), false, true, true);
 				sb.append("\n");
-				appendStringNextColumn(streamColumns, "Format", MI.get(StreamKind.VIDEO, idx, "Format"), true, true);
-				appendStringNextColumn(streamColumns, "Version", MI.get(StreamKind.VIDEO, idx, "Format_Version"), true, true);
-				appendStringNextColumn(streamColumns, "Profile", MI.get(StreamKind.VIDEO, idx, "Format_Profile"), true, true);
+				appendStringNextColumn(streamColumns, "Format", mi.get(StreamKind.VIDEO, idx, "Format"), true, true);
+				appendStringNextColumn(streamColumns, "Version", mi.get(StreamKind.VIDEO, idx, "Format_Version"), true, true);
+				appendStringNextColumn(streamColumns, "Profile", mi.get(StreamKind.VIDEO, idx, "Format_Profile"), true, true);
 			} else {
-				appendString("ID", MI.get(StreamKind.TEXT, idx, "ID"), true, false, false);
-				appendString("Title", MI.get(StreamKind.TEXT, idx, "Title"), false, true, true);
+				appendString("ID", mi.get(StreamKind.TEXT, idx, "ID"), true, false, false);
+				appendString("Title", mi.get(StreamKind.TEXT, idx, "Title"), false, true, true);
 				sb.append("\n");
-				appendStringNextColumn(streamColumns, "Format", MI.get(StreamKind.TEXT, idx, "Format"), true, true);
-				appendStringNextColumn(streamColumns, "Version", MI.get(StreamKind.TEXT, idx, "Format_Version"), true, true);
-				appendStringNextColumn(streamColumns, "Profile", MI.get(StreamKind.TEXT, idx, "Format_Profile"), true, true);
-				appendStringNextColumn(streamColumns, "Language", MI.get(StreamKind.TEXT, idx, "Language"), true, true);
+				appendStringNextColumn(streamColumns, "Format", mi.get(StreamKind.TEXT, idx, "Format"), true, true);
+				appendStringNextColumn(streamColumns, "Version", mi.get(StreamKind.TEXT, idx, "Format_Version"), true, true);
+				appendStringNextColumn(streamColumns, "Profile", mi.get(StreamKind.TEXT, idx, "Format_Profile"), true, true);
+				appendStringNextColumn(streamColumns, "Language", mi.get(StreamKind.TEXT, idx, "Language"), true, true);
 			}
 		}
 
@@ -35,8 +35,10 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -503,10 +505,10 @@ public class FileUtil {
 		String edition = null;
 		Matcher m = COMMON_FILE_EDITIONS_PATTERN.matcher(formattedName);
 		if (m.find()) {
-			edition = m.group().replaceAll("\\.", " ");
+			edition = m.group().replace('.', ' ');
 			edition = "(" + WordUtils.capitalizeFully(edition) + ")";
-			formattedName = formattedName.replaceAll(" - " + COMMON_FILE_EDITIONS, "");
-			formattedName = formattedName.replaceAll(COMMON_FILE_EDITIONS, "");
+			formattedName = COMMON_FILE_EDITIONS_AFTER_DASH_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = COMMON_FILE_EDITIONS_PATTERN.matcher(formattedName).replaceAll("");
 		}
 
 		return new FormattedNameAndEdition(formattedName, edition);
@@ -550,13 +552,11 @@ public class FileUtil {
 	 */
 	private static String removeGroupNameFromBeginning(String formattedName) {
 		if (!"".equals(formattedName) && (formattedName.startsWith("[") || formattedName.startsWith("("))) {
-			Pattern pattern = Pattern.compile("^[\\[\\(][^\\]]{0,25}[\\]\\)][^\\w]*(\\w.*?)\\s*$");
-			Matcher matcher = pattern.matcher(formattedName);
+			Matcher matcher = GROUP_NAME_AT_BEGINNING_PATTERN.matcher(formattedName);
 			if (matcher.find()) {
 				formattedName = matcher.group(1);
 			} else if (formattedName.endsWith("]")) {
-				pattern = Pattern.compile("^\\[([^\\[\\]]+)\\]\\s*$");
-				matcher = pattern.matcher(formattedName);
+				matcher = GROUP_NAME_ONLY_PATTERN.matcher(formattedName);
 				if (matcher.find()) {
 					formattedName = matcher.group(1);
 				}
@@ -571,8 +571,8 @@ public class FileUtil {
 	 * source, etc.
 	 */
 	private static String removeFilenameEndMetadata(String formattedName) {
-		formattedName = formattedName.replaceAll(COMMON_FILE_ENDS_CASE_SENSITIVE, "");
-		formattedName = formattedName.replaceAll("(?i)" + COMMON_FILE_ENDS, "");
+		formattedName = COMMON_FILE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll("");
+		formattedName = COMMON_FILE_ENDS_IGNORE_CASE_PATTERN.matcher(formattedName).replaceAll("");
 		return formattedName;
 	}
 
@@ -583,23 +583,70 @@ public class FileUtil {
 	 */
 	private static final String COMMON_FILE_ENDS = "\\s\\[BD.*|[\\s\\(]DUBBED.*|[\\s\\(]AC3.*|[\\s\\(]NTSC.*|[\\s\\(]TVNZ\\s.*|[\\s\\(]FP\\s.*|[\\s\\(]AAC.*|[\\s\\(]REPACK.*|[\\s\\(]480p.*|[\\s\\(]720p.*|[\\s\\(]m-720p.*|[\\s\\(]900p.*|[\\s\\(]1080i.*|[\\s\\(]1080p.*|[\\s\\(]2160p.*|[\\s\\(]WEB-DL.*|[\\s\\(]HDTV.*|[\\s\\(]DSR.*|[\\s\\(]PDTV.*|[\\s\\(]WS.*|[\\s\\(]HQ.*|[\\s\\(]DVDRip.*|[\\s\\(]TVRiP.*|[\\s\\(]BDRip.*|[\\s\\(]BRRip.*|[\\s\\(]WEBRip.*|[\\s\\(]BluRay.*|[\\s\\(]Blu-ray.*|[\\s\\(]SUBBED.*|[\\s\\(]x264.*|[\\s\\(]x265.*|[\\s\\(]XviD.*|[\\s\\(]Dual\\sAudio.*|[\\s\\(]HSBS.*|[\\s\\(]H-SBS.*|[\\s\\(]RERiP.*|[\\s\\(]DIRFIX.*|[\\s\\(]READNFO.*|[\\s\\(]60FPS.*";
 	private static final String COMMON_FILE_ENDS_MATCH = ".*\\s\\[BD.*|.*[\\s\\(]DUBBED.*|.*[\\s\\(]AC3.*|.*[\\s\\(]NTSC.*|.*[\\s\\(]TVNZ.*|.*[\\s\\(]FP.*|.*[\\s\\(]AAC.*|.*[\\s\\(]REPACK.*|.*[\\s\\(]480p.*|.*[\\s\\(]720p.*|.*[\\s\\(]m-720p.*|.*[\\s\\(]900p.*|.*[\\s\\(]1080i.*|.*[\\s\\(]1080p.*|.*[\\s\\(]2160p.*|.*[\\s\\(]WEB-DL.*|.*[\\s\\(]HDTV.*|.*[\\s\\(]DSR.*|.*[\\s\\(]PDTV.*|.*[\\s\\(]WS.*|.*[\\s\\(]HQ.*|.*[\\s\\(]DVDRip.*|.*[\\s\\(]TVRiP.*|.*[\\s\\(]BDRip.*|.*[\\s\\(]BRRip.*|.*[\\s\\(]WEBRip.*|.*[\\s\\(]BluRay.*|.*[\\s\\(]Blu-ray.*|.*[\\s\\(]SUBBED.*|.*[\\s\\(]x264.*|.*[\\s\\(]x265.*|.*[\\s\\(]XviD.*|.*[\\s\\(]Dual\\sAudio.*|.*[\\s\\(]HSBS.*|.*[\\s\\(]H-SBS.*|.*[\\s\\(]RERiP.*|.*[\\s\\(]DIRFIX.*|.*[\\s\\(]READNFO.*|.*[\\s\\(]60FPS.*";
+	private static final Pattern COMMON_FILE_ENDS_PATTERN = Pattern.compile(COMMON_FILE_ENDS);
+	private static final Pattern COMMON_FILE_ENDS_IGNORE_CASE_PATTERN = Pattern.compile("(?i)" + COMMON_FILE_ENDS);
+	private static final Pattern COMMON_FILE_ENDS_MATCH_PATTERN = Pattern.compile(COMMON_FILE_ENDS_MATCH);
 
 	private static final String COMMON_ANIME_FILE_ENDS = "(?i)\\s\\(1280x720.*|\\s\\(1920x1080.*|\\s\\(720x400.*|\\s[\\[\\(]\\d{3,4}p.*|\\s\\(BD.*|\\s\\[Blu-Ray.*|\\s\\[DVD.*|\\.DVD.*|\\[[0-9a-zA-Z]{8}\\]$|\\[h264.*|R1DVD.*|\\[BD.*|[\\s_]\\(Dual\\sAudio.*|\\s\\[VOSTFR\\].*|\\s\\[HD_\\d{3,4}x\\d{3,4}\\].*";
 	private static final String COMMON_ANIME_FILE_ENDS_MATCH = ".*\\s\\(1280x720.*|.*\\s\\(1920x1080.*|.*\\s\\(720x400.*|.*\\s[\\[\\(]\\d{3,4}p.*|.*\\s\\(BD.*|.*\\s\\[Blu-Ray.*|.*\\s\\[DVD.*|\\.DVD.*|.*\\s\\[[0-9a-zA-Z]{8}\\]$|.*\\s\\[h264.*|.*\\sR1DVD.*|.*\\s\\[BD.*|.*[\\s_]\\(Dual\\sAudio.*|.*\\s\\[VOSTFR\\].*|.*\\s\\[HD_\\d{3,4}x\\d{3,4}\\].*|.*\\s\\(\\d{1,2}bit.*";
+	private static final Pattern COMMON_ANIME_FILE_ENDS_PATTERN = Pattern.compile(COMMON_ANIME_FILE_ENDS);
+	private static final Pattern COMMON_ANIME_FILE_ENDS_MATCH_PATTERN = Pattern.compile(COMMON_ANIME_FILE_ENDS_MATCH);
+	private static final Pattern ANIME_HASH_END_MATCH_PATTERN = Pattern.compile(".*\\[[0-9a-zA-Z]{8}\\]$");
+	private static final Pattern ANIME_EPISODE_NUMBER_END_MATCH_PATTERN = Pattern.compile(".*\\s-\\s\\d{1,3}$");
 
 	private static final String SCENE_P2P_EPISODE_REGEX = "[sS](\\d{1,2})(?:\\s|)[eE](\\d{1,}\\w{1}|\\d{1,})";
 	private static final String SCENE_P2P_EPISODE_SPECIAL_REGEX = "[sS](\\d{2})\\s(\\w{3,})";
+	private static final Pattern SCENE_P2P_EPISODE_PATTERN = Pattern.compile(SCENE_P2P_EPISODE_REGEX);
+	private static final Pattern SCENE_P2P_EPISODE_MATCH_PATTERN = Pattern.compile(".*" + SCENE_P2P_EPISODE_REGEX + ".*");
+	private static final Pattern SCENE_P2P_EPISODE_WITH_NAME_PATTERN = Pattern.compile("(?i)\\s" + SCENE_P2P_EPISODE_REGEX + "\\s");
+	private static final Pattern SCENE_P2P_EPISODE_WITHOUT_NAME_PATTERN = Pattern.compile("(?i)\\s" + SCENE_P2P_EPISODE_REGEX);
+	private static final Pattern SCENE_P2P_EPISODE_SPECIAL_PATTERN = Pattern.compile(SCENE_P2P_EPISODE_SPECIAL_REGEX);
+	private static final Pattern SCENE_P2P_EPISODE_SPECIAL_MATCH_PATTERN = Pattern.compile(".*" + SCENE_P2P_EPISODE_SPECIAL_REGEX + ".*");
+	private static final Pattern SCENE_P2P_EPISODE_SPECIAL_WITH_NAME_PATTERN = Pattern.compile("(?i)\\s" + SCENE_P2P_EPISODE_SPECIAL_REGEX);
+
+	private static final Pattern SEASON_X_EPISODE_PATTERN = Pattern.compile("[\\s-\\.](\\d{1,2})[xX](\\d\\d)");
+	private static final Pattern SEASON_X_EPISODE_MATCH_PATTERN = Pattern.compile(".*[\\s-\\.](\\d{1,2})[xX]\\d\\d.*");
+	private static final Pattern SEASON_X_EPISODE_WITH_NAME_PATTERN = Pattern.compile("(?i)[\\s-\\.](\\d{1,2})[xX](\\d{1,})[\\s-\\.]");
+	private static final Pattern SEASON_X_EPISODE_WITHOUT_NAME_PATTERN = Pattern.compile("(?i)[\\s-\\.](\\d{1,2})[xX](\\d{1,})");
+	private static final Pattern SEASON_X_EPISODE_CASE_SENSITIVE_PATTERN = Pattern.compile("[\\s-\\.](\\d{1,2})[xX](\\d{1,})");
+
+	private static final Pattern SEASON_AND_EPISODE_NUMBER_PATTERN = Pattern.compile("\\s-\\s(\\d{3})\\s-\\s");
+	private static final Pattern SEASON_AND_EPISODE_NUMBER_MATCH_PATTERN = Pattern.compile(".*\\s-\\s(\\d{3})\\s-\\s.*");
+	private static final Pattern SEASON_AND_EPISODE_NUMBER_WITH_NAME_PATTERN = Pattern.compile("(?i)\\s-\\s(\\d{3})\\s-\\s");
+	private static final Pattern SEASON_AND_EPISODE_NUMBER_WITHOUT_NAME_PATTERN = Pattern.compile("(?i)\\s(\\d{3})");
+	private static final Pattern SEASON_AND_EPISODE_NUMBER_CASE_SENSITIVE_PATTERN = Pattern.compile("\\s(\\d{3})");
+
+	private static final Pattern DAILY_EPISODE_PATTERN = Pattern.compile("\\s((?:19|20)\\d{2})\\s([0-1]\\d)\\s([0-3]\\d)\\s");
+	private static final Pattern DAILY_EPISODE_MATCH_PATTERN = Pattern.compile(".*\\s(19|20)\\d{2}\\s[0-1]\\d\\s[0-3]\\d\\s.*");
+	private static final Pattern DAILY_EPISODE_WITH_NAME_PATTERN = Pattern.compile("(?i)\\s(19|20)(\\d{2})\\s([0-1]\\d)\\s([0-3]\\d)\\s");
+	private static final Pattern DAILY_EPISODE_WITHOUT_NAME_PATTERN = Pattern.compile("(?i)\\s(19|20)(\\d{2})\\s([0-1]\\d)\\s([0-3]\\d)");
+	private static final Pattern DAILY_EPISODE_CASE_SENSITIVE_PATTERN = Pattern.compile("\\s(19|20)(\\d{2})\\s([0-1]\\d)\\s([0-3]\\d)");
+
+	private static final Pattern MOVIE_YEAR_PATTERN = Pattern.compile("\\s(19|20)(\\d{2})");
+	private static final Pattern MOVIE_YEAR_MATCH_PATTERN = Pattern.compile("^(?!.*\\d{1,3}[\\s:][\\s-]).*\\s(?:19|20)\\d{2}.*");
+	private static final Pattern MOVIE_YEAR_IN_BRACKETS_PATTERN = Pattern.compile("(?i)\\[(19|20)(\\d{2})\\].*");
+	private static final Pattern MOVIE_YEAR_IN_BRACKETS_MATCH_PATTERN = Pattern.compile(".*\\[(19|20)\\d{2}\\].*");
+	private static final Pattern MOVIE_YEAR_IN_PARENTHESES_MATCH_PATTERN = Pattern.compile(".*\\((19|20)\\d{2}\\).*");
+	private static final Pattern MOVIE_YEAR_IN_NAME_PATTERN = Pattern.compile("\\s\\((?:19|20)\\d{2}\\)");
+	private static final Pattern YEAR_IN_SHOW_NAME_PATTERN = Pattern.compile("(?:\\(|\\s)(?:19|20)\\d{2}");
+	private static final Pattern YEAR_PATTERN = Pattern.compile("(19|20)\\d{2}");
+
 	private static final String MIXED_EPISODE_CONVENTION = "\\s(?:Ep|e)(?:\\s{1,2}|)(\\d{1,4})(?:\\s|$)";
 	private static final String MIXED_EPISODE_CONVENTION_MATCH = ".*" + MIXED_EPISODE_CONVENTION + ".*";
 	private static final Pattern MIXED_EPISODE_CONVENTION_PATTERN = Pattern.compile(MIXED_EPISODE_CONVENTION);
+	private static final Pattern MIXED_EPISODE_CONVENTION_MATCH_PATTERN = Pattern.compile(MIXED_EPISODE_CONVENTION_MATCH);
 
 	private static final String MINISERIES_CONVENTION = "\\s(\\d{1,2})of\\d{1,2}\\s";
 	private static final String MINISERIES_CONVENTION_MATCH = ".*" + MINISERIES_CONVENTION + ".*";
 	private static final Pattern MINISERIES_CONVENTION_PATTERN = Pattern.compile(MINISERIES_CONVENTION);
+	private static final Pattern MINISERIES_CONVENTION_MATCH_PATTERN = Pattern.compile(MINISERIES_CONVENTION_MATCH);
 
 	private static final String SCENE_MULTI_EPISODE_CONVENTION = "[sS](\\d{1,2})[eE](\\d{1,})([eE]|-[eE])(\\d{1,})";
 	private static final String SCENE_MULTI_EPISODE_CONVENTION_MATCH = ".*" + SCENE_MULTI_EPISODE_CONVENTION + ".*";
 	private static final Pattern SCENE_MULTI_EPISODE_CONVENTION_PATTERN = Pattern.compile(SCENE_MULTI_EPISODE_CONVENTION);
+	private static final Pattern SCENE_MULTI_EPISODE_CONVENTION_MATCH_PATTERN = Pattern.compile(SCENE_MULTI_EPISODE_CONVENTION_MATCH);
+	private static final Pattern SCENE_MULTI_EPISODE_CONVENTION_WITH_NAME_PATTERN = Pattern.compile("\\s" + SCENE_MULTI_EPISODE_CONVENTION + "\\s");
+	private static final Pattern SCENE_MULTI_EPISODE_CONVENTION_WITHOUT_NAME_PATTERN = Pattern.compile("\\s" + SCENE_MULTI_EPISODE_CONVENTION);
 
 	private static final String SHOW_NAME_INDEX_MATCHER = "(?i) (S\\d{2}E\\d{2}\\w{1}|S\\d{2}E\\d{2}|S\\d{2}|S\\d{2}E\\d{2}-\\d{2}|\\d{4}/\\d{2}/\\d{2})";
 	private static final Pattern SHOW_NAME_INDEX_PATTERN = Pattern.compile(SHOW_NAME_INDEX_MATCHER + " - (.*)");
@@ -610,12 +657,14 @@ public class FileUtil {
 	 * false-positive by being case-sensitive.
 	 */
 	private static final String COMMON_FILE_ENDS_CASE_SENSITIVE = "\\sPROPER\\s.*|\\siNTERNAL\\s.*|\\sLIMITED\\s.*|\\sLiMiTED\\s.*|\\sFESTiVAL\\s.*|\\sNORDIC\\s.*|\\sREAL\\s.*|\\sSUBBED\\s.*|\\sDUBBED\\s.*|\\sRETAIL\\s.*|\\sEXTENDED\\s.*|\\sNEWEDIT\\s.*|\\sWEB\\s.*";
+	private static final Pattern COMMON_FILE_ENDS_CASE_SENSITIVE_PATTERN = Pattern.compile(COMMON_FILE_ENDS_CASE_SENSITIVE);
 
 	/**
 	 * Editions to be added to the end of the prettified name
 	 */
 	private static final String COMMON_FILE_EDITIONS = "(?i)(?!\\()(Special\\sEdition|Unrated|Final\\sCut|Remastered|Extended\\sCut|IMAX\\sEdition|Uncensored|Directors\\sCut|Uncut)(?!\\))";
 	private static final Pattern COMMON_FILE_EDITIONS_PATTERN = Pattern.compile(COMMON_FILE_EDITIONS);
+	private static final Pattern COMMON_FILE_EDITIONS_AFTER_DASH_PATTERN = Pattern.compile(" - " + COMMON_FILE_EDITIONS);
 
 	private static final String COMMON_ANIME_EPISODE_NUMBERS = "(?:[\\s']|S\\d{1,2}\\sE|\\s-\\s)(?:[eE]|)(?:[pP]|)(\\d{1,4}\\s\\d{1}|\\d{1,4})(?:\\s|'|v\\d|)?";
 	private static final Pattern COMMON_ANIME_EPISODE_NUMBERS_PATTERN = Pattern.compile(COMMON_ANIME_EPISODE_NUMBERS);
@@ -625,6 +674,32 @@ public class FileUtil {
 	private static final String COMMON_ANIME_MULTIPLE_EPISODES_NUMBERS = "(?:[\\s']|S\\d{1,2}\\sE)(?:[pP]|)(\\d{1,4}-\\d{1,4})(?:[\\s']|v\\d)";
 	private static final Pattern COMMON_ANIME_MULTIPLE_EPISODES_NUMBERS_PATTERN = Pattern.compile(COMMON_ANIME_MULTIPLE_EPISODES_NUMBERS);
 
+	private static final Pattern GROUP_NAME_AT_BEGINNING_PATTERN = Pattern.compile("^[\\[\\(][^\\]]{0,25}[\\]\\)][^\\w]*(\\w.*?)\\s*$");
+	private static final Pattern GROUP_NAME_ONLY_PATTERN = Pattern.compile("^\\[([^\\[\\]]+)\\]\\s*$");
+	private static final Pattern DIGIT_PATTERN = Pattern.compile("\\d");
+	private static final Pattern WHITESPACES_PATTERN = Pattern.compile("\\s+");
+	private static final Pattern MULTIPLE_WHITESPACES_PATTERN = Pattern.compile("\\s{2,}");
+	private static final Pattern LEADING_ARTICLE_PATTERN = Pattern.compile("^(?i)A[ .]|The[ .]");
+
+	/** The maximum number of filenames whose metadata is cached */
+	private static final int FILE_NAME_METADATA_CACHE_SIZE = 4096;
+
+	/**
+	 * The results of {@link #getFileNameMetadata}, which only depend on the
+	 * filename and path, by least recent use.
+	 */
+	private static final Map<FileNameMetadataKey, String[]> FILE_NAME_METADATA_CACHE = new LinkedHashMap<>(256, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<FileNameMetadataKey, String[]> eldest) {
+			return size() > FILE_NAME_METADATA_CACHE_SIZE;
+		}
+	};
+
+	private record FileNameMetadataKey(String filename, String absolutePath) {
+	}
+
 	/**
 	 * Attempts to resolve short filenames by using their parent directory.
 	 * For example, it can be common for files to have a filename like:
@@ -671,7 +746,7 @@ public class FileUtil {
 
 		if (!groupNameFromFilename.equals(lowerCase(groupNameFromDirectory))) {
 			// We didn't match the group name exactly, but let's try a partial match
-			String groupNameFromDirectoryWithoutNumbers = lowerCase(groupNameFromDirectory).replaceAll("\\d", "");
+			String groupNameFromDirectoryWithoutNumbers = DIGIT_PATTERN.matcher(lowerCase(groupNameFromDirectory)).replaceAll("");
 
 			/*
 			 * Sometimes the release group will have a number in it, and that will
@@ -679,8 +754,7 @@ public class FileUtil {
 			 * that's how it is. Here we remove that character from both strings
 			 * before attempting to match.
 			 */
-			Pattern pattern = Pattern.compile("\\d");
-			Matcher matcher = pattern.matcher(groupNameFromDirectory);
+			Matcher matcher = DIGIT_PATTERN.matcher(groupNameFromDirectory);
 			if (matcher.find()) {
 				Integer numberIndex = matcher.start();
 				groupNameFromFilename = new StringBuilder(groupNameFromFilename).deleteCharAt(numberIndex).toString();
@@ -779,7 +853,7 @@ public class FileUtil {
 		if (isTVEpisode) {
 			tvSeasonPadded = tvSeason;
 			boolean isEpisodeWithDate = false;
-			if (tvSeason.matches("(19|20)\\d{2}")) {
+			if (YEAR_PATTERN.matcher(tvSeason).matches()) {
 				// If the season is a year, anticipate a "/" for a date
 				tvSeasonPadded += "/";
 				isEpisodeWithDate = true;
@@ -870,6 +944,22 @@ public class FileUtil {
 			return new String[] {null, null, null, null, null, null};
 		}
 
+		FileNameMetadataKey key = new FileNameMetadataKey(filename, absolutePath);
+		String[] metadata;
+		synchronized (FILE_NAME_METADATA_CACHE) {
+			metadata = FILE_NAME_METADATA_CACHE.get(key);
+		}
+		if (metadata == null) {
+			metadata = extractFileNameMetadata(filename, absolutePath);
+			synchronized (FILE_NAME_METADATA_CACHE) {
+				FILE_NAME_METADATA_CACHE.put(key, metadata);
+			}
+		}
+		// Callers may change the array
+		return metadata.clone();
+	}
+
+	private static String[] extractFileNameMetadata(String filename, String absolutePath) {
 		String formattedName;
 
 		// These are false unless we recognize that we could use some info on the video from IMDb
@@ -886,7 +976,6 @@ public class FileUtil {
 		// This can contain editions and "Sample" for now
 		String extraInformation;
 
-		Pattern pattern;
 		Matcher matcher;
 
 		filename = replaceShortFilenameWithParentDirectoryName(filename, absolutePath);
@@ -897,7 +986,7 @@ public class FileUtil {
 			isSample = true;
 		}
 
-		if (formattedName.matches(SCENE_MULTI_EPISODE_CONVENTION_MATCH)) {
+		if (SCENE_MULTI_EPISODE_CONVENTION_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This matches scene and most p2p TV episodes that are more than one episode
 			matcher = SCENE_MULTI_EPISODE_CONVENTION_PATTERN.matcher(formattedName);
 
@@ -911,10 +1000,10 @@ public class FileUtil {
 			}
 
 			// Then strip the end of the episode if it does not have the episode name in the title
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", "");
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS + ")", "");
-			formattedName = formattedName.replaceAll("\\s" + SCENE_MULTI_EPISODE_CONVENTION + "\\s", " S" + tvSeason + "E$2-$3 - ");
-			formattedName = formattedName.replaceAll("\\s" + SCENE_MULTI_EPISODE_CONVENTION, " S" + tvSeason + "E$2-$3");
+			formattedName = COMMON_FILE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = COMMON_FILE_ENDS_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = SCENE_MULTI_EPISODE_CONVENTION_WITH_NAME_PATTERN.matcher(formattedName).replaceAll(" S" + tvSeason + "E$2-$3 - ");
+			formattedName = SCENE_MULTI_EPISODE_CONVENTION_WITHOUT_NAME_PATTERN.matcher(formattedName).replaceAll(" S" + tvSeason + "E$2-$3");
 			FormattedNameAndEdition result = removeAndSaveEditionToBeAddedLater(formattedName);
 			formattedName = result.getFormattedName();
 			if (result.getEdition() != null) {
@@ -924,10 +1013,9 @@ public class FileUtil {
 			formattedName = removeFilenameEndMetadata(formattedName);
 
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches(".*" + SCENE_P2P_EPISODE_REGEX + ".*")) {
+		} else if (SCENE_P2P_EPISODE_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This matches scene and most p2p TV episodes
-			pattern = Pattern.compile(SCENE_P2P_EPISODE_REGEX);
-			matcher = pattern.matcher(formattedName);
+			matcher = SCENE_P2P_EPISODE_PATTERN.matcher(formattedName);
 			if (matcher.find()) {
 				tvSeason = matcher.group(1);
 				if (tvSeason.length() == 1) {
@@ -943,17 +1031,16 @@ public class FileUtil {
 			}
 
 			// Then strip the end of the episode if it does not have the episode name in the title
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", "");
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS + ")", "");
-			formattedName = formattedName.replaceAll("(?i)\\s" + SCENE_P2P_EPISODE_REGEX + "\\s", " S" + tvSeason + "E$2 - ");
-			formattedName = formattedName.replaceAll("(?i)\\s" + SCENE_P2P_EPISODE_REGEX, " S" + tvSeason + "E$2");
-			formattedName = formattedName.replaceAll(SCENE_P2P_EPISODE_REGEX, " S" + tvSeason + "E$2");
+			formattedName = COMMON_FILE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = COMMON_FILE_ENDS_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = SCENE_P2P_EPISODE_WITH_NAME_PATTERN.matcher(formattedName).replaceAll(" S" + tvSeason + "E$2 - ");
+			formattedName = SCENE_P2P_EPISODE_WITHOUT_NAME_PATTERN.matcher(formattedName).replaceAll(" S" + tvSeason + "E$2");
+			formattedName = SCENE_P2P_EPISODE_PATTERN.matcher(formattedName).replaceAll(" S" + tvSeason + "E$2");
 			formattedName = removeFilenameEndMetadata(formattedName);
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches(".*" + SCENE_P2P_EPISODE_SPECIAL_REGEX + ".*")) {
+		} else if (SCENE_P2P_EPISODE_SPECIAL_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This matches scene and most p2p TV special episodes, e.g. episodes that have no episode number in the filename
-			pattern = Pattern.compile(SCENE_P2P_EPISODE_SPECIAL_REGEX);
-			matcher = pattern.matcher(formattedName);
+			matcher = SCENE_P2P_EPISODE_SPECIAL_PATTERN.matcher(formattedName);
 			if (matcher.find()) {
 				tvSeason = matcher.group(1);
 				if (tvSeason.length() == 1) {
@@ -968,16 +1055,15 @@ public class FileUtil {
 			}
 
 			// Then strip the end of the episode if it does not have the episode name in the title
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", "");
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS + ")", "");
-			formattedName = formattedName.replaceAll("(?i)\\s" + SCENE_P2P_EPISODE_SPECIAL_REGEX, " S" + tvSeason + " - $2");
+			formattedName = COMMON_FILE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = COMMON_FILE_ENDS_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = SCENE_P2P_EPISODE_SPECIAL_WITH_NAME_PATTERN.matcher(formattedName).replaceAll(" S" + tvSeason + " - $2");
 			formattedName = removeFilenameEndMetadata(formattedName);
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches(".*[\\s-\\.](\\d{1,2})[xX]\\d\\d.*")) {
+		} else if (SEASON_X_EPISODE_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This matches older scene (like .avi releases) and some p2p TV episodes
 			// e.g. Universal Media Server - 1x02 - Mysterious Wordplay.mkv
-			pattern = Pattern.compile("[\\s-\\.](\\d{1,2})[xX](\\d\\d)");
-			matcher = pattern.matcher(formattedName);
+			matcher = SEASON_X_EPISODE_PATTERN.matcher(formattedName);
 			if (matcher.find()) {
 				tvSeason = matcher.group(1);
 				if (tvSeason.length() == 1) {
@@ -993,18 +1079,17 @@ public class FileUtil {
 			}
 
 			// Then strip the end of the episode if it does not have the episode name in the title
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", "");
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS + ")", "");
-			formattedName = formattedName.replaceAll("(?i)[\\s-\\.](\\d{1,2})[xX](\\d{1,})[\\s-\\.]", " S" + tvSeason + "E$2 - ");
-			formattedName = formattedName.replaceAll("(?i)[\\s-\\.](\\d{1,2})[xX](\\d{1,})", " S" + tvSeason + "E$2");
-			formattedName = formattedName.replaceAll("[\\s-\\.](\\d{1,2})[xX](\\d{1,})", " S" + tvSeason + "E$2");
+			formattedName = COMMON_FILE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = COMMON_FILE_ENDS_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = SEASON_X_EPISODE_WITH_NAME_PATTERN.matcher(formattedName).replaceAll(" S" + tvSeason + "E$2 - ");
+			formattedName = SEASON_X_EPISODE_WITHOUT_NAME_PATTERN.matcher(formattedName).replaceAll(" S" + tvSeason + "E$2");
+			formattedName = SEASON_X_EPISODE_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll(" S" + tvSeason + "E$2");
 			formattedName = removeFilenameEndMetadata(formattedName);
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches(".*\\s-\\s(\\d{3})\\s-\\s.*")) {
+		} else if (SEASON_AND_EPISODE_NUMBER_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This matches other older scene (like .avi releases) and some p2p TV episodes
 			// e.g. Universal Media Server - 102 - Mysterious Wordplay.mkv
-			pattern = Pattern.compile("\\s-\\s(\\d{3})\\s-\\s");
-			matcher = pattern.matcher(formattedName);
+			matcher = SEASON_AND_EPISODE_NUMBER_PATTERN.matcher(formattedName);
 			if (matcher.find()) {
 				String tvSeasonAndEpisode = matcher.group(1);
 				tvSeason = "0" + tvSeasonAndEpisode.substring(0, 1);
@@ -1018,14 +1103,14 @@ public class FileUtil {
 			}
 
 			// Then strip the end of the episode if it does not have the episode name in the title
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", "");
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS + ")", "");
-			formattedName = formattedName.replaceAll("(?i)\\s-\\s(\\d{3})\\s-\\s", " S" + tvSeason + "E" + tvEpisodeNumber + " - ");
-			formattedName = formattedName.replaceAll("(?i)\\s(\\d{3})", " S" + tvSeason + "E" + tvEpisodeNumber);
-			formattedName = formattedName.replaceAll("\\s(\\d{3})", " S" + tvSeason + "E" + tvEpisodeNumber);
+			formattedName = COMMON_FILE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = COMMON_FILE_ENDS_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = SEASON_AND_EPISODE_NUMBER_WITH_NAME_PATTERN.matcher(formattedName).replaceAll(" S" + tvSeason + "E" + tvEpisodeNumber + " - ");
+			formattedName = SEASON_AND_EPISODE_NUMBER_WITHOUT_NAME_PATTERN.matcher(formattedName).replaceAll(" S" + tvSeason + "E" + tvEpisodeNumber);
+			formattedName = SEASON_AND_EPISODE_NUMBER_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll(" S" + tvSeason + "E" + tvEpisodeNumber);
 			formattedName = removeFilenameEndMetadata(formattedName);
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches(MINISERIES_CONVENTION_MATCH)) {
+		} else if (MINISERIES_CONVENTION_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This matches some episodes in miniseries, like:
 			// e.g. Universal.Media.Server.2of6.Mysterious.Wordplay.HDTV.1080i.groupname.mkv[website].mkv
 			matcher = MINISERIES_CONVENTION_PATTERN.matcher(formattedName);
@@ -1044,8 +1129,8 @@ public class FileUtil {
 			}
 
 			// Then strip the end of the episode if it does not have the episode name in the title
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", "");
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS + ")", "");
+			formattedName = COMMON_FILE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = COMMON_FILE_ENDS_PATTERN.matcher(formattedName).replaceAll("");
 
 			// Here we match existing case, otherwise we risk breaking the Title Case conversion later
 			String seasonLetterReplace = "S";
@@ -1054,10 +1139,10 @@ public class FileUtil {
 				seasonLetterReplace = "s";
 				episodeLetterReplace = "e";
 			}
-			formattedName = formattedName.replaceAll(MINISERIES_CONVENTION, " " + seasonLetterReplace + tvSeason + episodeLetterReplace + tvEpisodeNumber + " - ");
+			formattedName = MINISERIES_CONVENTION_PATTERN.matcher(formattedName).replaceAll(" " + seasonLetterReplace + tvSeason + episodeLetterReplace + tvEpisodeNumber + " - ");
 			formattedName = removeFilenameEndMetadata(formattedName);
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches(MIXED_EPISODE_CONVENTION_MATCH)) {
+		} else if (MIXED_EPISODE_CONVENTION_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This matches another mixed convention, like:
 			// e.g. Universal Media Server - Ep. 02 - Mysterious Wordplay.mp4
 			matcher = MIXED_EPISODE_CONVENTION_PATTERN.matcher(formattedName);
@@ -1073,8 +1158,8 @@ public class FileUtil {
 			}
 
 			// Then strip the end of the episode if it does not have the episode name in the title
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", "");
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS + ")", "");
+			formattedName = COMMON_FILE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = COMMON_FILE_ENDS_PATTERN.matcher(formattedName).replaceAll("");
 
 			// Here we match existing case, otherwise we risk breaking the Title Case conversion later
 			String seasonLetterReplace = "S";
@@ -1083,13 +1168,12 @@ public class FileUtil {
 				seasonLetterReplace = "s";
 				episodeLetterReplace = "e";
 			}
-			formattedName = formattedName.replaceAll(MIXED_EPISODE_CONVENTION, " " + seasonLetterReplace + tvSeason + episodeLetterReplace + tvEpisodeNumber + " - ");
+			formattedName = MIXED_EPISODE_CONVENTION_PATTERN.matcher(formattedName).replaceAll(" " + seasonLetterReplace + tvSeason + episodeLetterReplace + tvEpisodeNumber + " - ");
 			formattedName = removeFilenameEndMetadata(formattedName);
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches(".*\\s(19|20)\\d{2}\\s[0-1]\\d\\s[0-3]\\d\\s.*")) {
+		} else if (DAILY_EPISODE_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This matches scene and most p2p TV episodes that release several times per week
-			pattern = Pattern.compile("\\s((?:19|20)\\d{2})\\s([0-1]\\d)\\s([0-3]\\d)\\s");
-			matcher = pattern.matcher(formattedName);
+			matcher = DAILY_EPISODE_PATTERN.matcher(formattedName);
 			if (matcher.find()) {
 				tvSeason = matcher.group(1);
 				tvEpisodeNumber = matcher.group(2);
@@ -1097,11 +1181,11 @@ public class FileUtil {
 			}
 
 			// Rename the date. For example, "2013.03.18" changes to "2013/03/18"
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS_CASE_SENSITIVE + ")", "");
-			formattedName = formattedName.replaceAll("(" + COMMON_FILE_ENDS + ")", "");
-			formattedName = formattedName.replaceAll("(?i)\\s(19|20)(\\d{2})\\s([0-1]\\d)\\s([0-3]\\d)\\s", " $1$2/$3/$4 - ");
-			formattedName = formattedName.replaceAll("(?i)\\s(19|20)(\\d{2})\\s([0-1]\\d)\\s([0-3]\\d)", " $1$2/$3/$4");
-			formattedName = formattedName.replaceAll("\\s(19|20)(\\d{2})\\s([0-1]\\d)\\s([0-3]\\d)", " $1$2/$3/$4");
+			formattedName = COMMON_FILE_ENDS_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = COMMON_FILE_ENDS_PATTERN.matcher(formattedName).replaceAll("");
+			formattedName = DAILY_EPISODE_WITH_NAME_PATTERN.matcher(formattedName).replaceAll(" $1$2/$3/$4 - ");
+			formattedName = DAILY_EPISODE_WITHOUT_NAME_PATTERN.matcher(formattedName).replaceAll(" $1$2/$3/$4");
+			formattedName = DAILY_EPISODE_CASE_SENSITIVE_PATTERN.matcher(formattedName).replaceAll(" $1$2/$3/$4");
 			FormattedNameAndEdition result = removeAndSaveEditionToBeAddedLater(formattedName);
 			formattedName = result.getFormattedName();
 			if (result.getEdition() != null) {
@@ -1110,11 +1194,11 @@ public class FileUtil {
 
 			formattedName = removeFilenameEndMetadata(formattedName);
 			formattedName = convertFormattedNameToTitleCaseParts(formattedName);
-		} else if (formattedName.matches("^(?!.*\\d{1,3}[\\s:][\\s-]).*\\s(?:19|20)\\d{2}.*")) {
+		} else if (MOVIE_YEAR_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This matches scene and most p2p movies
 
 			// Rename the year. For example, "2013" changes to " (2013)"
-			formattedName = formattedName.replaceAll("\\s(19|20)(\\d{2})", " ($1$2)");
+			formattedName = MOVIE_YEAR_PATTERN.matcher(formattedName).replaceAll(" ($1$2)");
 			formattedName = removeFilenameEndMetadata(formattedName);
 			FormattedNameAndEdition result = removeAndSaveEditionToBeAddedLater(formattedName);
 			formattedName = result.getFormattedName();
@@ -1123,27 +1207,27 @@ public class FileUtil {
 			}
 
 			formattedName = convertFormattedNameToTitleCase(formattedName);
-		} else if (formattedName.matches(".*\\[(19|20)\\d{2}\\].*")) {
+		} else if (MOVIE_YEAR_IN_BRACKETS_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This matches rarer types of movies
 
 			// Rename the year. For example, "2013" changes to " (2013)"
-			formattedName = formattedName.replaceAll("(?i)\\[(19|20)(\\d{2})\\].*", " ($1$2)");
+			formattedName = MOVIE_YEAR_IN_BRACKETS_PATTERN.matcher(formattedName).replaceAll(" ($1$2)");
 			formattedName = removeFilenameEndMetadata(formattedName);
 
 			formattedName = convertFormattedNameToTitleCase(formattedName);
-		} else if (formattedName.matches(".*\\((19|20)\\d{2}\\).*")) {
+		} else if (MOVIE_YEAR_IN_PARENTHESES_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This matches rarer types of movies
 			formattedName = removeFilenameEndMetadata(formattedName);
 
 			formattedName = convertFormattedNameToTitleCase(formattedName);
-		} else if (formattedName.matches(".*\\[[0-9a-zA-Z]{8}\\]$") || formattedName.matches(".*\\s-\\s\\d{1,3}$") || formattedName.matches(COMMON_ANIME_FILE_ENDS_MATCH)) {
+		} else if (ANIME_HASH_END_MATCH_PATTERN.matcher(formattedName).matches() || ANIME_EPISODE_NUMBER_END_MATCH_PATTERN.matcher(formattedName).matches() || COMMON_ANIME_FILE_ENDS_MATCH_PATTERN.matcher(formattedName).matches()) {
 			/*
 			 * This matches anime episodes that end with a hash or an episode number, or no quality/resolution.
 			 * It is quite messy because there is so much variation out there.
 			 */
 
 			// Remove stuff at the end of the filename like hash, quality, source, etc.
-			formattedName = formattedName.replaceAll(COMMON_ANIME_FILE_ENDS, "");
+			formattedName = COMMON_ANIME_FILE_ENDS_PATTERN.matcher(formattedName).replaceAll("");
 
 			matcher = COMMON_ANIME_EPISODE_NUMBERS_PATTERN.matcher(formattedName);
 			if (matcher.find()) {
@@ -1189,7 +1273,7 @@ public class FileUtil {
 			}
 
 			formattedName = convertFormattedNameToTitleCase(formattedName);
-		} else if (formattedName.matches(COMMON_FILE_ENDS_MATCH)) {
+		} else if (COMMON_FILE_ENDS_MATCH_PATTERN.matcher(formattedName).matches()) {
 			// This is probably a movie that doesn't specify a year
 			isMovieWithoutYear = true;
 			formattedName = removeFilenameEndMetadata(formattedName);
@@ -1203,7 +1287,7 @@ public class FileUtil {
 		}
 
 		// Remove extra spaces
-		formattedName = formattedName.replaceAll("\\s+", " ");
+		formattedName = WHITESPACES_PATTERN.matcher(formattedName).replaceAll(" ");
 		formattedName = formattedName.trim();
 		if (movieOrShowName != null) {
 			movieOrShowName = movieOrShowName.trim();
@@ -1248,7 +1332,7 @@ public class FileUtil {
 			if (movieOrShowName != null) {
 				movieOrShowName = movieOrShowName.trim();
 			}
-			int yearIndex = indexOf(Pattern.compile("(?:\\(|\\s)(?:19|20)\\d{2}"), movieOrShowName);
+			int yearIndex = indexOf(YEAR_IN_SHOW_NAME_PATTERN, movieOrShowName);
 			if (yearIndex > -1) {
 				year = formattedName.substring(yearIndex + 1, yearIndex + 5);
 				movieOrShowName = formattedName.substring(0, yearIndex);
@@ -1259,7 +1343,7 @@ public class FileUtil {
 			if (isMovieWithoutYear) {
 				movieOrShowName = formattedName;
 			} else {
-				int yearIndex = indexOf(Pattern.compile("\\s\\((?:19|20)\\d{2}\\)"), formattedName);
+				int yearIndex = indexOf(MOVIE_YEAR_IN_NAME_PATTERN, formattedName);
 				if (yearIndex > -1) {
 					movieOrShowName = formattedName.substring(0, yearIndex);
 					year = formattedName.substring(yearIndex + 2, yearIndex + 6);
@@ -2102,7 +2186,7 @@ public class FileUtil {
 		filename = removeGroupNameFromBeginning(filename);
 
 		// Replace periods and underscores with spaces
-		return  filename.replaceAll("\\.|_", " ");
+		return filename.replace('.', ' ').replace('_', ' ');
 	}
 
 	public static String renameForSorting(String filename) {
@@ -2116,10 +2200,10 @@ public class FileUtil {
 
 		if (PMS.getConfiguration().isIgnoreTheWordAandThe()) {
 			// Remove "a" and "the" from filename
-			filename = filename.replaceAll("^(?i)A[ .]|The[ .]", "");
+			filename = LEADING_ARTICLE_PATTERN.matcher(filename).replaceAll("");
 
 			// Replace multiple whitespaces with space
-			filename = filename.replaceAll("\\s{2,}", " ");
+			filename = MULTIPLE_WHITESPACES_PATTERN.matcher(filename).replaceAll(" ");
 		}
 
 		return filename;
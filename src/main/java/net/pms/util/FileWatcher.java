@@ -29,6 +29,8 @@ import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -49,6 +51,9 @@ public class FileWatcher {
 	private static WatchService watchService = null;
 	private static boolean running = false;
 
+	/** The delay in milliseconds during which events for the same file are merged */
+	private static final long COALESCE_DELAY_MS = 100;
+
 	/**
 	 * This class should not be instantiated.
 	 */
@@ -166,6 +171,14 @@ public class FileWatcher {
 		return keys.remove(w);
 	}
 
+	/**
+	 * @return the number of file event notices waiting to be sent to the
+	 *         listeners.
+	 */
+	public static int getPendingNotices() {
+		return notifier.getPendingNotices();
+	}
+
 	private static void start(Path dir) {
 		// Start the service
 		try {
@@ -195,20 +208,15 @@ public class FileWatcher {
 					// take() will block until events occur in our subscribed
 					// directories
 					WatchKey key = watchService.take();
-					try {
-						// Wait a bit in case there are a few repeats
-						Thread.sleep(100);
-					} catch (InterruptedException e) {
-						LOGGER.debug("Sleep interrupted {}", e);
-						Thread.currentThread().interrupt();
-					}
+					Path path = (Path) key.watchable();
 					// Filter the received directory event(s)
 					for (WatchEvent<?> e : key.pollEvents()) {
 						final WatchEvent.Kind<?> kind = e.kind();
-						if (kind != OVERFLOW) {
+						if (kind == OVERFLOW) {
+							recover(key, path);
+						} else {
 							WatchEvent<Path> event = (WatchEvent<Path>) e;
 							// Determine the actual file
-							Path path = (Path) key.watchable();
 							final Path filename = path.resolve(event.context());
 							final boolean isDir;
 							if (!Files.exists(filename)) {
@@ -231,13 +239,12 @@ public class FileWatcher {
 									if (isDir && kind == ENTRY_CREATE && Watch.isRecursive(w)) {
 										// Traverse subdirs within new directory in a recursive scope
 										addRecursive(w, filename);
-									} else {
-										// It's a regular event, schedule a notice
-										notifier.schedule(
-											new Notice(filename.toString(), kind.toString(), w, isDir),
-											kind == ENTRY_MODIFY ? 500 : 0
-										);
 									}
+									// Schedule a notice, merged with the pending one for the same file
+									notifier.schedule(
+										new Notice(filename.toString(), kind.toString(), w, isDir),
+										kind == ENTRY_MODIFY ? 500 : COALESCE_DELAY_MS
+									);
 								}
 							}
 						}
@@ -256,12 +263,52 @@ public class FileWatcher {
 		}, "File watcher").start();
 	}
 
+	/**
+	 * Recovers from lost events in a watched directory. Recursive watches
+	 * get an {@code OVERFLOW} notice for the directory, so they can rescan
+	 * it, and the other watches get an {@code ENTRY_MODIFY} notice for every
+	 * file of the directory they match.
+	 *
+	 * @param key the watch key that overflowed
+	 * @param dir the watched directory
+	 */
+	private static void recover(WatchKey key, Path dir) {
+		LOGGER.debug("File events were lost in {}", dir);
+		List<Path> files = null;
+		for (Iterator<Watch> iterator = keys.get(key).iterator(); iterator.hasNext();) {
+			final Watch w = iterator.next();
+			if (!Watch.isValid(w)) {
+				iterator.remove();
+			} else if (Watch.isRecursive(w)) {
+				notifier.schedule(new Notice(dir.toString(), OVERFLOW.toString(), w, true), COALESCE_DELAY_MS);
+			} else {
+				if (files == null) {
+					files = new ArrayList<>();
+					try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+						for (Path file : stream) {
+							files.add(file);
+						}
+					} catch (IOException | DirectoryIteratorException e) {
+						LOGGER.debug("Error while listing {} after lost file events: {}", dir, e.getMessage());
+					}
+				}
+				for (Path file : files) {
+					if (w.matcher.matches(file)) {
+						notifier.schedule(new Notice(file.toString(), ENTRY_MODIFY.toString(), w, Files.isDirectory(file)), COALESCE_DELAY_MS);
+					}
+				}
+			}
+		}
+	}
+
 	public static interface Listener {
 		/**
 		 * A user-defined callback for receiving file change notifications.
 		 *
 		 * @param filename The changed filepath, relative or absolute depending on the original filespec.
-		 * @param event The change itself: 'ENTRY_CREATE' 'ENTRY_MODIFY' or 'ENTRY_DELETE'.
+		 * @param event The change itself: 'ENTRY_CREATE' 'ENTRY_MODIFY' or 'ENTRY_DELETE', or
+		 *              'OVERFLOW' when events were lost in the {@code filename} directory of
+		 *              a recursive watch.
 		 * @param watch The original user-supplied watch object that triggered the match.
 		 * @param isDir Whether the changed file is a directory.
 		 */
@@ -398,14 +445,16 @@ public class FileWatcher {
 	}
 
 	/**
-	 * A runnable self-removing file event notice.
+	 * A runnable self-removing file event notice. Notices are equal when they
+	 * are for the same file and watch, whatever the event.
 	 */
 	static class Notice implements Runnable {
 		String filename;
 		String kind;
 		Watch watch;
 		boolean isDir;
-		HashMap notifierQueue = null;
+		Map<Notice, Notice> notifierQueue = null;
+		ScheduledFuture<?> future = null;
 
 		public Notice(String filename, String kind, Watch watch, boolean isDir) {
 			this.filename = filename;
@@ -416,21 +465,45 @@ public class FileWatcher {
 
 		@Override
 		public void run() {
-			watch.listener.get().notify(filename, kind, watch, isDir);
-			notifierQueue.remove(this);
+			synchronized (notifierQueue) {
+				if (notifierQueue.get(this) == this) {
+					notifierQueue.remove(this);
+				}
+			}
+			Listener listener = watch.listener.get();
+			if (listener != null) {
+				listener.notify(filename, kind, watch, isDir);
+			}
+		}
+
+		/**
+		 * Merges the event of a superseded notice for the same file into this
+		 * one.
+		 *
+		 * @param previous the superseded notice.
+		 */
+		void merge(Notice previous) {
+			if (
+				OVERFLOW.toString().equals(previous.kind) ||
+				(ENTRY_CREATE.toString().equals(previous.kind) && ENTRY_MODIFY.toString().equals(kind))
+			) {
+				// A rescan covers any event, and a new file is still new when modified
+				kind = previous.kind;
+				isDir = previous.isDir;
+			}
 		}
 
 		@Override
 		public boolean equals(Object o) {
 			if (o instanceof Notice other) {
-				return filename.equals(other.filename) && kind.equals(other.kind) && watch.equals(other.watch);
+				return filename.equals(other.filename) && watch.equals(other.watch);
 			}
 			return false;
 		}
 
 		@Override
 		public int hashCode() {
-			return (filename + kind).hashCode();
+			return filename.hashCode();
 		}
 	}
 
@@ -438,7 +511,7 @@ public class FileWatcher {
 	 * A delayed file event notice scheduler.
 	 */
 	static class Notifier extends ScheduledThreadPoolExecutor {
-		HashMap<Notice, ScheduledFuture<?>> queue = new HashMap<>();
+		final Map<Notice, Notice> queue = new HashMap<>();
 
 		public Notifier(final String name) {
 			super(5, (Runnable r) -> new Thread(r, name));
@@ -449,17 +522,31 @@ public class FileWatcher {
 		 * Notices can be delayed slightly to allow ongoing file events to catch-up and cancel
 		 * earlier in-progress notifications until the event is completed. This prevents
 		 * sending 1000s of ENTRY_MODIFY notices during a file copy in linux, for instance.
+		 * A burst of events for the same file becomes a single notice, its event merged
+		 * from the superseded ones.
 		 *
 		 * @param notice The notice.
 		 * @param delay The delay in milliseconds.
 		 */
 		public void schedule(Notice notice, long delay) {
-			// Put the notice in the queue
 			notice.notifierQueue = queue;
-			ScheduledFuture<?> superceded = queue.put(notice, schedule(notice, delay, TimeUnit.MILLISECONDS));
-			// And cancel its previous instance, if any
-			if (superceded != null) {
-				superceded.cancel(false);
+			synchronized (queue) {
+				// Cancel the previous instance, if any, unless it is already running
+				Notice superseded = queue.get(notice);
+				if (superseded != null && superseded.future.cancel(false)) {
+					notice.merge(superseded);
+				}
+				queue.put(notice, notice);
+				notice.future = schedule(notice, delay, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		/**
+		 * @return the number of notices waiting to be sent.
+		 */
+		public int getPendingNotices() {
+			synchronized (queue) {
+				return queue.size();
 			}
 		}
 	}
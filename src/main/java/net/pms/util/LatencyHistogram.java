@@ -0,0 +1,135 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of latencies in milliseconds, with fixed buckets
+ * from 50 ms to 10 seconds.
+ */
+public class LatencyHistogram {
+	/**
+	 * The upper bounds of the buckets in milliseconds, the last bucket holds
+	 * everything above the last bound.
+	 */
+	private static final long[] BOUNDS = {50, 100, 250, 500, 1000, 2000, 5000, 10000};
+
+	private final LongAdder[] counts = new LongAdder[BOUNDS.length + 1];
+	private final LongAdder total = new LongAdder();
+
+	public LatencyHistogram() {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param millis the latency in milliseconds.
+	 */
+	public void record(long millis) {
+		int i = 0;
+		while (i < BOUNDS.length && millis > BOUNDS[i]) {
+			i++;
+		}
+		counts[i].increment();
+		total.add(millis);
+	}
+
+	/**
+	 * @return the upper bounds of the buckets in milliseconds, the last
+	 *         bucket of {@link #getCounts()} holds everything above the last
+	 *         bound.
+	 */
+	public static long[] getBounds() {
+		return BOUNDS.clone();
+	}
+
+	/**
+	 * @return the number of latencies recorded in each bucket.
+	 */
+	public long[] getCounts() {
+		long[] result = new long[counts.length];
+		for (int i = 0; i < counts.length; i++) {
+			result[i] = counts[i].sum();
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of latencies recorded.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (LongAdder bucket : counts) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	/**
+	 * @return the average latency in milliseconds, or 0 if none was
+	 *         recorded.
+	 */
+	public long getAverage() {
+		long count = getCount();
+		return count == 0 ? 0 : total.sum() / count;
+	}
+
+	/**
+	 * Gets the upper bound of the bucket that holds the given percentile.
+	 *
+	 * @param percentile the percentile, between 0 and 100.
+	 * @return The upper bound in milliseconds, {@link Long#MAX_VALUE} if the
+	 *         percentile is above the last bound, or 0 if nothing was
+	 *         recorded.
+	 */
+	public long getPercentile(double percentile) {
+		long[] values = getCounts();
+		long count = 0;
+		for (long value : values) {
+			count += value;
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BOUNDS.length; i++) {
+			seen += values[i];
+			if (seen >= rank) {
+				return BOUNDS[i];
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public String toString() {
+		long[] values = getCounts();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(i < BOUNDS.length ? "<=" + BOUNDS[i] : ">" + BOUNDS[BOUNDS.length - 1]).append(" ms: ").append(values[i]);
+		}
+		return sb.toString();
+	}
+}
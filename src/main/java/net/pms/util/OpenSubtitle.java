@@ -36,6 +36,9 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -65,6 +68,8 @@ import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathExpressionException;
 import net.pms.PMS;
+import net.pms.database.MediaDatabase;
+import net.pms.database.MediaTableFileFingerprints;
 import net.pms.dlna.DLNAMediaInfo;
 import net.pms.dlna.DLNAMediaLang;
 import net.pms.dlna.DLNAResource;
@@ -146,6 +151,10 @@ public class OpenSubtitle {
 	 * >OpenSubtitles hash</a> for the specified {@link Path} by first trying to
 	 * extract it from the filename and if that doesn't work calculate it with
 	 * {@link #computeHash(Path)}.
+	 * <p>
+	 * When the cache is enabled, the calculated hash is stored in the media
+	 * database with the size and modified time of the file, and reused until
+	 * the file changes.
 	 *
 	 * @param file the {@link Path} for which to get the hash.
 	 * @return The OpenSubtitles hash or {@code null}.
@@ -154,12 +163,57 @@ public class OpenSubtitle {
 	public static String getHash(Path file) throws IOException {
 		String hash = ImdbUtil.extractOSHash(file);
 		if (isBlank(hash)) {
-			hash = computeHash(file);
+			hash = getFingerprintHash(file);
 		}
 		LOGGER.debug("OpenSubtitles hash for \"{}\" is {}", file.getFileName(), hash);
 		return hash;
 	}
 
+	/**
+	 * Gets the OpenSubtitles hash for the specified {@link Path} from the
+	 * {@link MediaTableFileFingerprints} table, or calculates and stores it if
+	 * the file is new or has changed.
+	 *
+	 * @param file the {@link Path} for which to get the hash.
+	 * @return The OpenSubtitles hash or {@code null}.
+	 * @throws IOException If an I/O error occurs during the operation.
+	 */
+	private static String getFingerprintHash(Path file) throws IOException {
+		if (!PMS.getConfiguration().getUseCache() || !Files.isRegularFile(file)) {
+			return computeHash(file);
+		}
+		BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		String filename = file.toAbsolutePath().toString();
+		long modified = attributes.lastModifiedTime().toMillis();
+		long size = attributes.size();
+		try (Connection connection = MediaDatabase.getConnectionIfAvailable()) {
+			if (connection != null) {
+				String hash = MediaTableFileFingerprints.getOsdbHash(connection, filename, modified, size);
+				if (hash != null) {
+					LOGGER.trace("Using the stored OpenSubtitles hash for \"{}\"", file.getFileName());
+					return hash;
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.debug("Error while closing the database connection: {}", e.getMessage());
+			LOGGER.trace("", e);
+		}
+
+		// The connection isn't held while the file is read
+		String hash = computeHash(file);
+		if (hash != null) {
+			try (Connection connection = MediaDatabase.getConnectionIfAvailable()) {
+				if (connection != null) {
+					MediaTableFileFingerprints.set(connection, filename, modified, size, hash);
+				}
+			} catch (SQLException e) {
+				LOGGER.debug("Error while closing the database connection: {}", e.getMessage());
+				LOGGER.trace("", e);
+			}
+		}
+		return hash;
+	}
+
 	/**
 	 * Calculates the <a href=
 	 * "http://trac.opensubtitles.org/projects/opensubtitles/wiki/HashSourceCodes"
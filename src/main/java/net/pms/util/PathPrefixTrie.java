@@ -0,0 +1,111 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A trie of folder paths, split by path component, that tells whether a
+ * path is one of the folders or inside one of them in a single walk of the
+ * path, whatever the number of folders.
+ * <p>
+ * Both {@code '/'} and {@link File#separatorChar} separate components, and
+ * empty components are ignored. The comparison is case sensitive.
+ */
+@NotThreadSafe
+public class PathPrefixTrie {
+	private final Node root = new Node();
+
+	/**
+	 * Creates an empty {@link PathPrefixTrie}.
+	 */
+	public PathPrefixTrie() {
+	}
+
+	/**
+	 * Creates a {@link PathPrefixTrie} containing the absolute paths of the
+	 * given folders.
+	 *
+	 * @param folders the folders to add.
+	 */
+	public PathPrefixTrie(Collection<File> folders) {
+		for (File folder : folders) {
+			add(folder.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Adds a folder path.
+	 *
+	 * @param path the path to add.
+	 */
+	public void add(String path) {
+		Node node = root;
+		int start = 0;
+		while (start < path.length()) {
+			int end = getComponentEnd(path, start);
+			if (end > start) {
+				node = node.children.computeIfAbsent(path.substring(start, end), component -> new Node());
+			}
+			start = end + 1;
+		}
+		node.terminal = true;
+	}
+
+	/**
+	 * Checks whether the given path is one of the added paths, or is inside
+	 * one of them.
+	 *
+	 * @param path the path to check.
+	 * @return {@code true} if an added path is a prefix of {@code path}.
+	 */
+	public boolean containsPrefixOf(String path) {
+		Node node = root;
+		int start = 0;
+		while (!node.terminal) {
+			if (start >= path.length()) {
+				return false;
+			}
+			int end = getComponentEnd(path, start);
+			if (end > start) {
+				node = node.children.get(path.substring(start, end));
+				if (node == null) {
+					return false;
+				}
+			}
+			start = end + 1;
+		}
+		return true;
+	}
+
+	private static int getComponentEnd(String path, int start) {
+		int end = start;
+		while (end < path.length() && path.charAt(end) != '/' && path.charAt(end) != File.separatorChar) {
+			end++;
+		}
+		return end;
+	}
+
+	private static class Node {
+		private final Map<String, Node> children = new HashMap<>();
+		private boolean terminal;
+	}
+}
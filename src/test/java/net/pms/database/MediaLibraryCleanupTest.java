@@ -0,0 +1,167 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.List;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.configuration.sharedcontent.FolderContent;
+import net.pms.configuration.sharedcontent.SharedContentArray;
+import net.pms.configuration.sharedcontent.SharedContentConfiguration;
+import net.pms.formats.Format;
+import org.apache.commons.io.FileUtils;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class MediaLibraryCleanupTest {
+	private Path sharedFolder;
+	private Path otherFolder;
+
+	@BeforeEach
+	public final void setUp() throws Exception {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+		sharedFolder = Files.createTempDirectory("shared");
+		otherFolder = Files.createTempDirectory("other");
+		SharedContentArray sharedContent = new SharedContentArray();
+		sharedContent.add(new FolderContent(sharedFolder.toFile()));
+		SharedContentConfiguration.updateSharedContent(sharedContent, false);
+		MediaDatabase.init();
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			MediaDatabase.dropAllTables(connection);
+		}
+		MediaDatabase.get().checkTables(true);
+	}
+
+	@AfterEach
+	public final void tearDown() throws Exception {
+		SharedContentConfiguration.updateSharedContent(new SharedContentArray(), false);
+		FileUtils.deleteDirectory(sharedFolder.toFile());
+		FileUtils.deleteDirectory(otherFolder.toFile());
+	}
+
+	private static File addFile(Connection connection, Path folder, String name, boolean create, long modified) throws Exception {
+		File file = folder.resolve(name).toFile();
+		if (create) {
+			Files.createFile(file.toPath());
+			assertTrue(file.setLastModified(modified));
+			modified = file.lastModified();
+		}
+		MediaTableFiles.insertOrUpdateData(connection, file.getAbsolutePath(), modified, Format.VIDEO, null);
+		return file;
+	}
+
+	@Test
+	public void testCleanup() throws Exception {
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			File kept = addFile(connection, sharedFolder, "kept.mkv", true, 1000000L);
+			File missing = addFile(connection, sharedFolder, "missing.mkv", false, 1000000L);
+			File changed = addFile(connection, sharedFolder, "changed.mkv", true, 1000000L);
+			assertTrue(changed.setLastModified(2000000L));
+			File unshared = addFile(connection, otherFolder, "unshared.mkv", true, 1000000L);
+
+			MediaLibraryCleanup.run(connection);
+
+			assertNotNull(MediaTableFiles.getFileId(connection, kept.getAbsolutePath()));
+			assertNull(MediaTableFiles.getFileId(connection, missing.getAbsolutePath()));
+			assertNull(MediaTableFiles.getFileId(connection, changed.getAbsolutePath()));
+			assertNull(MediaTableFiles.getFileId(connection, unshared.getAbsolutePath()));
+			assertFalse(MediaLibraryCleanup.isRunning());
+		}
+	}
+
+	@Test
+	public void testCleanupFolder() throws Exception {
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			Path folder = Files.createDirectory(sharedFolder.resolve("folder"));
+			File kept = addFile(connection, folder, "kept.mkv", true, 1000000L);
+			File missing = addFile(connection, folder, "missing.mkv", false, 1000000L);
+			File changed = addFile(connection, folder, "changed.mkv", true, 1000000L);
+			assertTrue(changed.setLastModified(2000000L));
+			File outside = addFile(connection, sharedFolder, "outside.mkv", false, 1000000L);
+
+			assertEquals(1, MediaLibraryCleanup.cleanupFolder(connection, folder.toString()));
+
+			// Only the missing files of the folder are removed
+			assertNotNull(MediaTableFiles.getFileId(connection, kept.getAbsolutePath()));
+			assertNull(MediaTableFiles.getFileId(connection, missing.getAbsolutePath()));
+			assertNotNull(MediaTableFiles.getFileId(connection, changed.getAbsolutePath()));
+			assertNotNull(MediaTableFiles.getFileId(connection, outside.getAbsolutePath()));
+		}
+	}
+
+	@Test
+	public void testResume() throws Exception {
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			File before = addFile(connection, sharedFolder, "before.mkv", false, 1000000L);
+			File after = addFile(connection, sharedFolder, "after.mkv", false, 1000000L);
+			Long lastId = MediaTableFiles.getFileId(connection, before.getAbsolutePath());
+			MediaTableMetadata.setOrUpdateMetadataValue(connection, "CLEANUP_LAST_FILE_ID", lastId.toString());
+
+			// Only the rows after the last checked one are checked
+			MediaLibraryCleanup.run(connection);
+			assertNotNull(MediaTableFiles.getFileId(connection, before.getAbsolutePath()));
+			assertNull(MediaTableFiles.getFileId(connection, after.getAbsolutePath()));
+
+			// The next run starts over
+			MediaLibraryCleanup.run(connection);
+			assertNull(MediaTableFiles.getFileId(connection, before.getAbsolutePath()));
+		}
+	}
+
+	@Test
+	public void testUpdatedRowIsKept() throws Exception {
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			File file = addFile(connection, sharedFolder, "updated.mkv", false, 1000000L);
+			long id = MediaTableFiles.getFileId(connection, file.getAbsolutePath());
+			MediaLibraryCleanup.Row checked = new MediaLibraryCleanup.Row(id, file.getAbsolutePath(), 1000000L);
+
+			// A scan updated the row after it was checked
+			addFile(connection, sharedFolder, "updated.mkv", false, 2000000L);
+			assertEquals(0, MediaLibraryCleanup.delete(connection, List.of(checked)));
+			assertNotNull(MediaTableFiles.getFileId(connection, file.getAbsolutePath()));
+
+			checked = new MediaLibraryCleanup.Row(id, file.getAbsolutePath(), 2000000L);
+			assertEquals(1, MediaLibraryCleanup.delete(connection, List.of(checked)));
+			assertNull(MediaTableFiles.getFileId(connection, file.getAbsolutePath()));
+		}
+	}
+
+	@Test
+	public void testStop() throws Exception {
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			for (int i = 0; i < 100; i++) {
+				addFile(connection, sharedFolder, i + ".mkv", false, 1000000L);
+			}
+		}
+		MediaLibraryCleanup.start();
+		MediaLibraryCleanup.stop();
+		assertFalse(MediaLibraryCleanup.isRunning());
+	}
+}
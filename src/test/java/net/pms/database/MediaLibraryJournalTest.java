@@ -0,0 +1,105 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import net.pms.formats.Format;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class MediaLibraryJournalTest {
+	private static final String AUDIO_SQL = "SELECT DISTINCT A.ALBUM FROM FILES LEFT JOIN AUDIOTRACKS A ON FILES.ID = A.FILEID " +
+		"WHERE FILES.FORMAT_TYPE = 1 AND (A.ALBUM IS NOT NULL OR A.ARTIST IS NOT NULL) ORDER BY A.ALBUM ASC";
+
+	@Test
+	public void testUnjournaledQueries() {
+		assertNull(MediaLibraryJournal.snapshot(null));
+		assertNull(MediaLibraryJournal.snapshot("FILES.FORMAT_TYPE = 1"));
+		assertNull(MediaLibraryJournal.snapshot("SELECT * FROM FILES LEFT JOIN THUMBNAILS ON FILES.THUMBID = THUMBNAILS.ID"));
+		assertNull(MediaLibraryJournal.snapshot("SELECT * FROM FILES F, THUMBNAILS T WHERE F.THUMBID = T.ID"));
+	}
+
+	@Test
+	public void testCommaJoin() {
+		MediaLibraryJournal.Snapshot snapshot = MediaLibraryJournal.snapshot(
+			"SELECT A.ALBUM FROM FILES, AUDIOTRACKS A WHERE FILES.ID = A.FILEID"
+		);
+		assertNotNull(snapshot);
+		MediaLibraryJournal.recordChange(MediaTableAudiotracks.TABLE_NAME);
+		assertTrue(snapshot.isChanged());
+	}
+
+	@Test
+	public void testSubqueryMediaType() {
+		// The media type of a subquery doesn't apply to the query
+		MediaLibraryJournal.Snapshot snapshot = MediaLibraryJournal.snapshot(
+			"SELECT FILENAME FROM FILES WHERE FORMAT_TYPE = 1 AND NOT EXISTS (SELECT ID FROM FILES F WHERE F.FORMAT_TYPE = 4)"
+		);
+		MediaLibraryJournal.recordFilesChange(Format.VIDEO);
+		assertTrue(snapshot.isChanged());
+
+		snapshot = MediaLibraryJournal.snapshot(
+			"SELECT ALBUM FROM AUDIOTRACKS WHERE FILEID IN (SELECT ID FROM FILES WHERE FORMAT_TYPE = 1)"
+		);
+		MediaLibraryJournal.recordFilesChange(Format.VIDEO);
+		assertTrue(snapshot.isChanged());
+
+		// A subquery on another table keeps the media type of the query
+		snapshot = MediaLibraryJournal.snapshot(
+			"SELECT FILENAME FROM FILES WHERE FORMAT_TYPE = 1 AND ID IN (SELECT FILEID FROM AUDIOTRACKS WHERE ALBUM = 'A')"
+		);
+		MediaLibraryJournal.recordFilesChange(Format.VIDEO);
+		assertFalse(snapshot.isChanged());
+	}
+
+	@Test
+	public void testMediaTypeChanges() {
+		MediaLibraryJournal.Snapshot snapshot = MediaLibraryJournal.snapshot(AUDIO_SQL);
+		assertNotNull(snapshot);
+		assertFalse(snapshot.isChanged());
+
+		// Other media types and unrelated tables don't matter
+		MediaLibraryJournal.recordFilesChange(Format.VIDEO);
+		MediaLibraryJournal.recordChange(MediaTableTVSeries.TABLE_NAME);
+		assertFalse(snapshot.isChanged());
+
+		MediaLibraryJournal.recordFilesChange(Format.AUDIO);
+		assertTrue(snapshot.isChanged());
+	}
+
+	@Test
+	public void testTableChanges() {
+		MediaLibraryJournal.Snapshot snapshot = MediaLibraryJournal.snapshot(AUDIO_SQL);
+		MediaLibraryJournal.recordChange(MediaTableAudiotracks.TABLE_NAME);
+		assertTrue(snapshot.isChanged());
+
+		snapshot = MediaLibraryJournal.snapshot(AUDIO_SQL);
+		MediaLibraryJournal.recordChange(MediaTableFiles.TABLE_NAME);
+		assertTrue(snapshot.isChanged());
+
+		snapshot = MediaLibraryJournal.snapshot(AUDIO_SQL);
+		MediaLibraryJournal.recordChangeToAll();
+		assertTrue(snapshot.isChanged());
+	}
+
+	@Test
+	public void testTopLevelOr() {
+		String sql = "SELECT FILENAME FROM FILES WHERE FILES.FORMAT_TYPE = 1 AND DURATION > 60 OR FILES.FORMAT_TYPE = 4";
+		MediaLibraryJournal.Snapshot snapshot = MediaLibraryJournal.snapshot(sql);
+		MediaLibraryJournal.recordFilesChange(Format.IMAGE);
+		assertTrue(snapshot.isChanged());
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class MediaLibraryQueriesTest {
+
+	@Test
+	public void testCompile() {
+		MediaLibraryQueries.Template template = MediaLibraryQueries.compile(
+			"SELECT FILENAME FROM FILES WHERE A = '${0}' AND B != '${2}' AND C = 'x'"
+		);
+		assertEquals("SELECT FILENAME FROM FILES WHERE A = ? AND B != ? AND C = 'x'", template.sql());
+		assertArrayEquals(new int[]{0, 2}, template.parameters());
+		assertSame(template, MediaLibraryQueries.compile("SELECT FILENAME FROM FILES WHERE A = '${0}' AND B != '${2}' AND C = 'x'"));
+
+		// Queries without placeholders are not kept
+		MediaLibraryQueries.Template query = MediaLibraryQueries.compile("SELECT FILENAME FROM FILES WHERE A = 'It''s'");
+		assertEquals("SELECT FILENAME FROM FILES WHERE A = 'It''s'", query.sql());
+		assertEquals(0, query.parameters().length);
+		assertNotSame(query, MediaLibraryQueries.compile("SELECT FILENAME FROM FILES WHERE A = 'It''s'"));
+
+		// Missing names are kept as written
+		assertArrayEquals(new Object[]{"It's", "${2}"}, template.bind(List.of("It's", "Albums")));
+	}
+
+	@Test
+	public void testGetStrings() throws SQLException {
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:MediaLibraryQueriesTest")) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("CREATE TABLE FILES (FILENAME VARCHAR(255), ALBUM VARCHAR(255))");
+				statement.execute("INSERT INTO FILES VALUES ('a.mp3', 'It''s'), ('b.mp3', 'It''s'), ('c.mp3', 'Other'), ('d.mp3', '')");
+			}
+			String template = "SELECT FILENAME FROM FILES WHERE ALBUM = '${0}'";
+			assertEquals(List.of("a.mp3", "b.mp3"), MediaLibraryQueries.getStrings(connection, template, List.of("It's")).stream().sorted().toList());
+			assertEquals(List.of("c.mp3"), MediaLibraryQueries.getStrings(connection, template, List.of("Other")));
+			assertEquals(List.of(MediaTableFiles.NONAME), MediaLibraryQueries.getStrings(connection, "SELECT ALBUM FROM FILES WHERE FILENAME = 'd.mp3'", List.of()));
+
+			MediaLibraryQueries.QueryStatistics statistics = MediaLibraryQueries.getStatistics().get("SELECT FILENAME FROM FILES WHERE ALBUM = ?");
+			assertNotNull(statistics);
+			assertEquals(2, statistics.getCount());
+			assertEquals(3, statistics.getRows());
+		} finally {
+			MediaLibraryQueries.clear();
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import net.pms.database.MediaLibrarySearchIndex.Field;
+import net.pms.database.MediaLibrarySearchIndex.Result;
+import net.pms.database.MediaLibrarySearchIndex.SortKey;
+import net.pms.formats.Format;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MediaLibrarySearchIndexTest {
+	private Connection connection;
+
+	@BeforeEach
+	public void setUp() throws SQLException {
+		connection = DriverManager.getConnection("jdbc:h2:mem:MediaLibrarySearchIndexTest");
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE FILES (ID BIGINT PRIMARY KEY, FILENAME VARCHAR(1024), FORMAT_TYPE INTEGER)");
+			statement.execute("CREATE TABLE AUDIOTRACKS (FILEID BIGINT, SONGNAME VARCHAR(255), ARTIST VARCHAR(255), ALBUMARTIST VARCHAR(255), ALBUM VARCHAR(255), GENRE VARCHAR(64))");
+			statement.execute("INSERT INTO FILES VALUES " +
+				"(1, '/music/1.mp3', 1), (2, '/music/2.mp3', 1), (3, '/music/3.mp3', 1), (4, '/music/4.mp3', 1), " +
+				"(5, '/videos/Help.mkv', 4), (6, '/music/6.mp3', 1)");
+			statement.execute("INSERT INTO AUDIOTRACKS VALUES " +
+				"(1, 'Whelp', 'Kennel Club', '', 'Dogs', 'Rock'), " +
+				"(2, 'The Help', 'The Beatles', 'The Beatles', 'Help!', 'Rock'), " +
+				"(3, 'Helping Hand', 'Someone', '', 'Hands', 'Pop'), " +
+				"(4, 'Help', 'The Beatles', 'The Beatles', 'Help!', 'Rock'), " +
+				"(5, '', '', '', '', '')");
+		}
+	}
+
+	@AfterEach
+	public void tearDown() throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+		}
+		connection.close();
+	}
+
+	@Test
+	public void testRanking() throws SQLException {
+		MediaLibrarySearchIndex.Index index = MediaLibrarySearchIndex.Index.load(connection);
+		assertEquals(6, index.size());
+
+		MediaLibrarySearchIndex.Query query = MediaLibrarySearchIndex.and(
+			MediaLibrarySearchIndex.formatType(Format.AUDIO),
+			MediaLibrarySearchIndex.contains(Field.TITLE, "help")
+		);
+		Result result = index.search(query, List.of(), 0, 10);
+		assertEquals(4, result.totalMatches());
+		assertEquals(List.of(4L, 3L, 2L, 1L), result.fileIds());
+
+		// Paging keeps the ranking
+		result = index.search(query, List.of(), 1, 2);
+		assertEquals(4, result.totalMatches());
+		assertEquals(List.of(3L, 2L), result.fileIds());
+	}
+
+	@Test
+	public void testConditions() throws SQLException {
+		MediaLibrarySearchIndex.Index index = MediaLibrarySearchIndex.Index.load(connection);
+		List<SortKey> byTitle = List.of(new SortKey(Field.TITLE, true));
+
+		// Text shorter than a trigram
+		Result result = index.search(MediaLibrarySearchIndex.contains(Field.ARTIST, "e"), byTitle, 0, 10);
+		assertEquals(List.of(4L, 3L, 2L, 1L), result.fileIds());
+
+		result = index.search(MediaLibrarySearchIndex.or(
+			MediaLibrarySearchIndex.equalTo(Field.GENRE, "Pop"),
+			MediaLibrarySearchIndex.contains(Field.ALBUM, "dog")
+		), byTitle, 0, 10);
+		assertEquals(List.of(3L, 1L), result.fileIds());
+
+		// Equality is case sensitive
+		assertEquals(0, index.search(MediaLibrarySearchIndex.equalTo(Field.GENRE, "pop"), byTitle, 0, 10).totalMatches());
+
+		// File names are only indexed for the files that are not audio
+		result = index.search(MediaLibrarySearchIndex.contains(Field.FILENAME, "help"), List.of(), 0, 10);
+		assertEquals(List.of(5L), result.fileIds());
+		assertEquals(0, index.search(MediaLibrarySearchIndex.contains(Field.FILENAME, "music"), List.of(), 0, 10).totalMatches());
+
+		// Files without audio tracks come first
+		result = index.search(MediaLibrarySearchIndex.formatType(Format.AUDIO), List.of(new SortKey(Field.ARTIST, true)), 0, 10);
+		assertEquals(List.of(6L, 1L, 3L, 2L, 4L), result.fileIds());
+	}
+
+	@Test
+	public void testUpdate() throws SQLException {
+		MediaLibrarySearchIndex.Index index = MediaLibrarySearchIndex.Index.load(connection);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("UPDATE AUDIOTRACKS SET SONGNAME = 'Yesterday' WHERE FILEID = 4");
+			statement.execute("DELETE FROM AUDIOTRACKS WHERE FILEID = 3");
+			statement.execute("DELETE FROM FILES WHERE ID = 3");
+			statement.execute("INSERT INTO FILES VALUES (7, '/music/7.mp3', 1)");
+			statement.execute("INSERT INTO AUDIOTRACKS VALUES (7, 'Help Yourself', 'Tom Jones', '', 'Help Yourself', 'Pop')");
+		}
+		index.update(connection, List.of(3L, 4L, 7L));
+		assertEquals(6, index.size());
+
+		Result result = index.search(MediaLibrarySearchIndex.contains(Field.TITLE, "help"), List.of(), 0, 10);
+		assertEquals(List.of(7L, 2L, 1L), result.fileIds());
+		result = index.search(MediaLibrarySearchIndex.contains(Field.TITLE, "yesterday"), List.of(), 0, 10);
+		assertEquals(List.of(4L), result.fileIds());
+
+		// Updating again replaces the updated document
+		index.update(connection, List.of(7L));
+		assertEquals(1, index.search(MediaLibrarySearchIndex.contains(Field.ALBUM, "yourself"), List.of(), 0, 10).totalMatches());
+	}
+
+	@Test
+	public void testMaxFiles() throws SQLException {
+		assertNull(MediaLibrarySearchIndex.Index.load(connection, 5));
+		assertEquals(6, MediaLibrarySearchIndex.Index.load(connection, 6).size());
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import java.sql.Connection;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.dlna.DLNAMediaInfo;
+import net.pms.formats.Format;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class MediaLibraryWriterTest {
+	@BeforeEach
+	public final void setUp() throws Exception {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+		PMS.getConfiguration().setDatabaseMediaWriteBatchSize(100);
+		MediaDatabase.init();
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			MediaDatabase.dropAllTables(connection);
+		}
+		MediaDatabase.get().checkTables(true);
+	}
+
+	private static DLNAMediaInfo getMedia(int width) {
+		DLNAMediaInfo media = new DLNAMediaInfo();
+		media.setWidth(width);
+		media.setHeight(width / 2);
+		media.setContainer("mkv");
+		media.setMediaparsed(true);
+		return media;
+	}
+
+	/**
+	 * Queued files are written in a batch as soon as they are read.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testReadYourWrites() throws Exception {
+		assertTrue(MediaLibraryWriter.isEnabled());
+		long written = MediaLibraryWriter.getWrittenFiles();
+		for (int i = 0; i < 10; i++) {
+			MediaLibraryWriter.add("/media/" + i + ".mkv", 1000L, Format.VIDEO, getMedia(1920));
+		}
+
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			assertNotNull(MediaTableFiles.getFileId(connection, "/media/3.mkv", 1000L));
+			assertEquals(written + 10, MediaLibraryWriter.getWrittenFiles());
+			DLNAMediaInfo media = MediaTableFiles.getData(connection, "/media/9.mkv", 1000L);
+			assertNotNull(media);
+			assertEquals(1920, media.getWidth());
+			assertEquals("mkv", media.getContainer());
+
+			// Updates keep the file id
+			Long id = MediaTableFiles.getFileId(connection, "/media/5.mkv");
+			MediaLibraryWriter.add("/media/5.mkv", 2000L, Format.VIDEO, getMedia(1280));
+			assertEquals(id, MediaTableFiles.getFileId(connection, "/media/5.mkv", 2000L));
+			assertEquals(1280, MediaTableFiles.getData(connection, "/media/5.mkv", 2000L).getWidth());
+			assertNull(MediaTableFiles.getFileId(connection, "/media/5.mkv", 1000L));
+		}
+	}
+
+	/**
+	 * The queue keeps a copy of the media, so later changes are not written.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testQueuedCopy() throws Exception {
+		DLNAMediaInfo media = getMedia(1920);
+		MediaLibraryWriter.add("/media/copy.mkv", 1000L, Format.VIDEO, media);
+		media.setWidth(320);
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			assertEquals(1920, MediaTableFiles.getData(connection, "/media/copy.mkv", 1000L).getWidth());
+		}
+	}
+
+	/**
+	 * Files written directly replace the queued ones.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testDirectWrite() throws Exception {
+		MediaLibraryWriter.add("/media/direct.mkv", 1000L, Format.VIDEO, getMedia(1920));
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			MediaTableFiles.insertOrUpdateData(connection, "/media/direct.mkv", 1000L, Format.VIDEO, getMedia(640));
+			MediaLibraryWriter.flush();
+			assertEquals(640, MediaTableFiles.getData(connection, "/media/direct.mkv", 1000L).getWidth());
+
+			// Without media, only the date and type change
+			MediaTableFiles.insertOrUpdateData(connection, "/media/direct.mkv", 3000L, Format.AUDIO, null);
+			assertEquals(640, MediaTableFiles.getData(connection, "/media/direct.mkv", 3000L).getWidth());
+			MediaTableFiles.insertOrUpdateData(connection, "/media/new.mkv", 3000L, Format.VIDEO, null);
+			assertTrue(MediaTableFiles.isDataExists(connection, "/media/new.mkv", 3000L));
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import java.sql.Connection;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TableFileFingerprintsTest {
+	@BeforeEach
+	public final void setUp() throws Exception {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+		MediaDatabase.init();
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			MediaDatabase.dropAllTables(connection);
+		}
+		MediaDatabase.get().checkTables(true);
+	}
+
+	@Test
+	public void testOsdbHash() throws Exception {
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			MediaTableFileFingerprints.set(connection, "/media/a.mkv", 1000000L, 1234L, "8e245d9679d31e12");
+			assertEquals("8e245d9679d31e12", MediaTableFileFingerprints.getOsdbHash(connection, "/media/a.mkv", 1000000L, 1234L));
+
+			// A changed file must be hashed again
+			assertNull(MediaTableFileFingerprints.getOsdbHash(connection, "/media/a.mkv", 2000000L, 1234L));
+			assertNull(MediaTableFileFingerprints.getOsdbHash(connection, "/media/a.mkv", 1000000L, 4321L));
+			assertNull(MediaTableFileFingerprints.getOsdbHash(connection, "/media/b.mkv", 1000000L, 1234L));
+
+			MediaTableFileFingerprints.set(connection, "/media/a.mkv", 2000000L, 1234L, "1a2b3c4d5e6f7a8b");
+			assertNull(MediaTableFileFingerprints.getOsdbHash(connection, "/media/a.mkv", 1000000L, 1234L));
+			assertEquals("1a2b3c4d5e6f7a8b", MediaTableFileFingerprints.getOsdbHash(connection, "/media/a.mkv", 2000000L, 1234L));
+		}
+	}
+
+	@Test
+	public void testLongFilename() throws Exception {
+		String prefix = "/media/" + "a".repeat(1100);
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			// Paths sharing a long prefix must not share a fingerprint
+			MediaTableFileFingerprints.set(connection, prefix + "/1.mkv", 1000000L, 1234L, "8e245d9679d31e12");
+			assertNull(MediaTableFileFingerprints.getOsdbHash(connection, prefix + "/1.mkv", 1000000L, 1234L));
+			assertNull(MediaTableFileFingerprints.getOsdbHash(connection, prefix + "/2.mkv", 1000000L, 1234L));
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.configuration.sharedcontent.SharedContentArray;
+import net.pms.configuration.sharedcontent.SharedContentConfiguration;
+import net.pms.dlna.virtual.VirtualFolder;
+import net.pms.service.Services;
+import org.apache.commons.io.FileUtils;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+public class ContainerUpdateIdTest {
+	private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+	private final BiConsumer<Integer, String> listener = (systemUpdateId, containerUpdateIds) -> events.add(systemUpdateId + ":" + containerUpdateIds);
+	private DLNAResource parent;
+
+	@BeforeAll
+	public static void setUpClass() throws InterruptedException {
+		// Silence all log messages from the UMS code that is being tested
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		PMS.forceHeadless();
+		try {
+			PMS.setConfiguration(new UmsConfiguration(false));
+		} catch (Exception ex) {
+			throw new AssertionError(ex);
+		}
+		PMS.getConfiguration().setAutomaticMaximumBitrate(false); // do not test the network speed.
+		SharedContentConfiguration.updateSharedContent(new SharedContentArray(), false);
+		PMS.getConfiguration().setScanSharedFoldersOnStartup(false);
+		PMS.getConfiguration().setUseCache(false);
+		Services.destroy();
+
+		// Create a new PMS instance
+		PMS.getNewInstance();
+	}
+
+	@BeforeEach
+	public void setUp() {
+		parent = new VirtualFolder("parent", null);
+		PMS.getGlobalRepo().add(parent);
+		DLNAResource.addUpdateIdListener(listener);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		DLNAResource.removeUpdateIdListener(listener);
+	}
+
+	/**
+	 * Waits for the event listing the given container.
+	 */
+	private String waitForEvent(String resourceId) throws InterruptedException {
+		String event;
+		while ((event = events.poll(5, TimeUnit.SECONDS)) != null) {
+			for (String id : event.substring(event.indexOf(':') + 1).split(",")) {
+				if (id.equals(resourceId)) {
+					return event;
+				}
+			}
+		}
+		return fail("No ContainerUpdateIDs event for " + resourceId);
+	}
+
+	@Test
+	public void testContainerUpdateIds() throws InterruptedException {
+		DLNAResource folder = new VirtualFolder("folder", null);
+		DLNAResource other = new VirtualFolder("other", null);
+		parent.addChild(folder);
+		parent.addChild(other);
+		int otherUpdateId = other.getUpdateId();
+
+		folder.bumpUpdateId();
+		String event = waitForEvent(folder.getResourceId());
+		int systemUpdateId = Integer.parseInt(event.substring(0, event.indexOf(':')));
+		assertTrue(event.contains(folder.getResourceId() + "," + systemUpdateId));
+		assertEquals(systemUpdateId, folder.getUpdateId());
+
+		// Browse returns the container update id for containers
+		assertEquals(systemUpdateId, DLNAResource.getBrowseUpdateId(folder));
+		assertEquals(otherUpdateId, DLNAResource.getBrowseUpdateId(other));
+		assertTrue(otherUpdateId < systemUpdateId);
+
+		// and the SystemUpdateID for searches
+		assertEquals(DLNAResource.getSystemUpdateId(), DLNAResource.getBrowseUpdateId(null));
+	}
+
+	@Test
+	public void testAddedChildBumpsParent() throws InterruptedException {
+		parent.addChild(new VirtualFolder("child", null));
+		String event = waitForEvent(parent.getResourceId());
+		int systemUpdateId = Integer.parseInt(event.substring(0, event.indexOf(':')));
+		assertEquals(systemUpdateId, parent.getUpdateId());
+	}
+
+	@Test
+	public void testTooManyContainers() throws InterruptedException {
+		List<DLNAResource> folders = new ArrayList<>();
+		for (int i = 0; i < 101; i++) {
+			DLNAResource folder = new VirtualFolder("folder" + i, null);
+			parent.addChild(folder);
+			folders.add(folder);
+		}
+		// Let the additions be evented first
+		waitForEvent(parent.getResourceId());
+		events.clear();
+
+		for (DLNAResource folder : folders) {
+			folder.bumpUpdateId();
+		}
+		String event = events.poll(5, TimeUnit.SECONDS);
+		assertNotNull(event);
+		int systemUpdateId = Integer.parseInt(event.substring(0, event.indexOf(':')));
+		assertEquals(systemUpdateId + ":", event);
+		for (DLNAResource folder : folders) {
+			assertEquals(systemUpdateId, folder.getUpdateId());
+		}
+	}
+
+	@Test
+	public void testChangedFileBumpsFolders() throws InterruptedException, IOException {
+		Path directory = Files.createTempDirectory("updateid");
+		try {
+			RealFile folder = new RealFile(directory.toFile());
+			parent.addChildInternal(folder);
+			folder.discoverChildren();
+			folder.setDiscovered(true);
+			assertTrue(VirtualFile.getDiscoveredFolders(directory.toFile()).contains(folder));
+			events.clear();
+
+			// A file changed in the directory bumps the folders showing it
+			RootFolder.bumpUpdateIds(new File(directory.toFile(), "new.mkv"));
+			String event = waitForEvent(folder.getResourceId());
+			int systemUpdateId = Integer.parseInt(event.substring(0, event.indexOf(':')));
+			assertEquals(systemUpdateId, folder.getUpdateId());
+		} finally {
+			FileUtils.deleteQuietly(directory.toFile());
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.pms.dlna.virtual.VirtualFolder;
+import org.junit.jupiter.api.Test;
+
+public class DLNAResourceResolverTest {
+
+	/**
+	 * A resource that counts its resolves, and can be held until released.
+	 */
+	private static class CountingResource extends VirtualFolder {
+		private final AtomicInteger resolves = new AtomicInteger();
+		private final CountDownLatch released;
+
+		CountingResource(String name, CountDownLatch released) {
+			super(name, null);
+			this.released = released;
+		}
+
+		@Override
+		public void run() {
+			resolves.incrementAndGet();
+			try {
+				released.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static List<CountingResource> createResources(String prefix, int count, CountDownLatch released) {
+		List<CountingResource> resources = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			resources.add(new CountingResource(prefix + i, released));
+		}
+		return resources;
+	}
+
+	@Test
+	public void testResolve() {
+		List<CountingResource> resources = createResources("visible ", 20, new CountDownLatch(0));
+		DLNAResourceResolver.resolve(new ArrayList<>(resources), List.of(), false);
+		for (CountingResource resource : resources) {
+			assertEquals(1, resource.resolves.get());
+		}
+	}
+
+	@Test
+	public void testDeduplication() {
+		CountingResource resource = new CountingResource("twice", new CountDownLatch(0));
+		long deduplicated = DLNAResourceResolver.getDeduplicatedCount();
+		DLNAResourceResolver.resolve(List.of(resource, resource), List.of(), false);
+		assertEquals(1, resource.resolves.get());
+		assertEquals(deduplicated + 1, DLNAResourceResolver.getDeduplicatedCount());
+	}
+
+	@Test
+	public void testBoundedQueue() {
+		DLNAResourceResolver.BoundedPriorityQueue<Integer> queue = new DLNAResourceResolver.BoundedPriorityQueue<>(2);
+		assertTrue(queue.offer(3));
+		assertTrue(queue.offer(1));
+		assertFalse(queue.offer(2));
+		assertEquals(0, queue.remainingCapacity());
+		assertEquals(1, queue.poll());
+		assertTrue(queue.offer(2));
+		assertEquals(2, queue.poll());
+		assertEquals(3, queue.poll());
+	}
+
+	@Test
+	public void testSaturated() throws Exception {
+		// Holds every resolver thread and fills the queue
+		CountDownLatch released = new CountDownLatch(1);
+		long dropped = DLNAResourceResolver.getDroppedCount();
+		List<CountingResource> prefetch = createResources("prefetch ", 1000, released);
+		try {
+			DLNAResourceResolver.resolve(List.of(), new ArrayList<>(prefetch), false);
+			assertTrue(DLNAResourceResolver.getQueueSize() <= 256);
+			assertTrue(DLNAResourceResolver.getDroppedCount() > dropped);
+
+			// The requested page is still resolved, by the browsing thread
+			List<CountingResource> visible = createResources("visible ", 5, new CountDownLatch(0));
+			DLNAResourceResolver.resolve(new ArrayList<>(visible), List.of(), false);
+			for (CountingResource resource : visible) {
+				assertEquals(1, resource.resolves.get());
+			}
+		} finally {
+			released.countDown();
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (DLNAResourceResolver.getQueueSize() > 0) {
+			assertTrue(System.nanoTime() < deadline, "Timed out");
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.image.BufferedImageFilterChain;
+import net.pms.util.FullyPlayed;
+import org.apache.commons.io.FileUtils;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+public class DLNAThumbnailCacheTest {
+	private Path folder;
+
+	@BeforeAll
+	public static void setUpClass() throws Exception {
+		// Silence all log messages from the UMS code that is being tested
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		PMS.forceHeadless();
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	@AfterAll
+	public static void tearDownClass() {
+		DLNAThumbnailCache.setMaxSizes(
+			PMS.getConfiguration().getThumbnailCacheMemorySize() * 1024L * 1024L,
+			PMS.getConfiguration().getThumbnailCacheDiskSize() * 1024L * 1024L
+		);
+		DLNAThumbnailCache.setFolder(Path.of(PMS.getConfiguration().getDataFile("thumbnails")));
+	}
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		folder = Files.createTempDirectory("thumbnails");
+		DLNAThumbnailCache.setFolder(folder);
+		DLNAThumbnailCache.setMaxSizes(1024 * 1024, 1024 * 1024);
+		DLNAThumbnailCache.clear();
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		DLNAThumbnailCache.clear();
+		FileUtils.deleteDirectory(folder.toFile());
+	}
+
+	private static DLNAThumbnailInputStream createThumbnail(Color color) throws IOException {
+		BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(color);
+		graphics.fillRect(0, 0, 320, 240);
+		graphics.dispose();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", bytes);
+		return DLNAThumbnailInputStream.toThumbnailInputStream(bytes.toByteArray());
+	}
+
+	@Test
+	public void testMemoryAndDisk() throws IOException {
+		DLNAThumbnailInputStream source = createThumbnail(Color.RED);
+		long memoryHits = DLNAThumbnailCache.getMemoryHits();
+		long diskHits = DLNAThumbnailCache.getDiskHits();
+		long misses = DLNAThumbnailCache.getMisses();
+
+		DLNAThumbnailInputStream transcoded = source.transcode(DLNAImageProfile.JPEG_TN, false, null);
+		assertNotNull(transcoded);
+		assertEquals(misses + 1, DLNAThumbnailCache.getMisses());
+
+		DLNAThumbnailInputStream cached = source.transcode(DLNAImageProfile.JPEG_TN, false, null);
+		assertArrayEquals(transcoded.getBytes(false), cached.getBytes(false));
+		assertEquals(memoryHits + 1, DLNAThumbnailCache.getMemoryHits());
+
+		// The disk keeps the thumbnails evicted from memory
+		DLNAThumbnailCache.clear();
+		cached = source.transcode(DLNAImageProfile.JPEG_TN, false, null);
+		assertArrayEquals(transcoded.getBytes(false), cached.getBytes(false));
+		assertEquals(transcoded.getDLNAImageProfile(), cached.getDLNAImageProfile());
+		assertEquals(diskHits + 1, DLNAThumbnailCache.getDiskHits());
+		assertEquals(misses + 1, DLNAThumbnailCache.getMisses());
+		assertTrue(DLNAThumbnailCache.getBytesSaved() >= 2L * transcoded.getSize());
+	}
+
+	@Test
+	public void testVariants() throws IOException {
+		DLNAThumbnailInputStream red = createThumbnail(Color.RED);
+		DLNAThumbnailInputStream blue = createThumbnail(Color.BLUE);
+		long misses = DLNAThumbnailCache.getMisses();
+
+		red.transcode(DLNAImageProfile.JPEG_TN, false, null);
+		red.transcode(DLNAImageProfile.PNG_TN, false, null);
+		red.transcode(DLNAImageProfile.JPEG_TN, true, null);
+		red.transcode(DLNAImageProfile.JPEG_TN, false, new BufferedImageFilterChain(FullyPlayed.getOverlayFilter()));
+		blue.transcode(DLNAImageProfile.JPEG_TN, false, null);
+		assertEquals(misses + 5, DLNAThumbnailCache.getMisses());
+
+		red.transcode(DLNAImageProfile.JPEG_TN, false, new BufferedImageFilterChain(FullyPlayed.getOverlayFilter()));
+		assertEquals(misses + 5, DLNAThumbnailCache.getMisses());
+	}
+
+	@Test
+	public void testDisabled() throws IOException {
+		DLNAThumbnailCache.setMaxSizes(0, 0);
+		DLNAThumbnailInputStream source = createThumbnail(Color.GREEN);
+		long misses = DLNAThumbnailCache.getMisses();
+		assertNotNull(source.transcode(DLNAImageProfile.JPEG_TN, false, null));
+		assertNotNull(source.transcode(DLNAImageProfile.JPEG_TN, false, null));
+		assertEquals(misses, DLNAThumbnailCache.getMisses());
+		try (var files = Files.list(folder)) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test
+	public void testDiskBudget() throws IOException {
+		DLNAThumbnailCache.setMaxSizes(1024 * 1024, 1000 * 1024);
+		DLNAThumbnailCache.measure();
+		assertFalse(DLNAThumbnailCache.isDiskBudgetReached());
+
+		// The warmer stops at the size the cache is trimmed to
+		Files.write(folder.resolve("large.thumb"), new byte[950 * 1024]);
+		DLNAThumbnailCache.setFolder(folder);
+		assertTrue(DLNAThumbnailCache.isDiskBudgetReached());
+		DLNAThumbnailCache.measure();
+		assertTrue(DLNAThumbnailCache.isDiskBudgetReached());
+		assertTrue(Files.exists(folder.resolve("large.thumb")));
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import net.pms.PMS;
+import net.pms.configuration.RendererConfigurations;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.configuration.sharedcontent.SharedContentArray;
+import net.pms.configuration.sharedcontent.SharedContentConfiguration;
+import net.pms.dlna.virtual.VirtualFolder;
+import net.pms.renderers.Renderer;
+import net.pms.service.Services;
+import org.apache.commons.configuration.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+public class DidlFragmentCacheTest {
+	private Renderer renderer;
+	private DLNAResource parent;
+	private DLNAResource folder;
+
+	@BeforeAll
+	public static void setUpClass() throws ConfigurationException, InterruptedException {
+		// Silence all log messages from the UMS code that is being tested
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		PMS.forceHeadless();
+		try {
+			PMS.setConfiguration(new UmsConfiguration(false));
+		} catch (Exception ex) {
+			throw new AssertionError(ex);
+		}
+		PMS.getConfiguration().setAutomaticMaximumBitrate(false); // do not test the network speed.
+		SharedContentConfiguration.updateSharedContent(new SharedContentArray(), false);
+		PMS.getConfiguration().setScanSharedFoldersOnStartup(false);
+		PMS.getConfiguration().setUseCache(false);
+		Services.destroy();
+
+		// Create a new PMS instance
+		PMS.getNewInstance();
+	}
+
+	@AfterAll
+	public static void tearDownClass() {
+		DidlFragmentCache.setMaxSize(PMS.getConfiguration().getDidlCacheSize());
+	}
+
+	@BeforeEach
+	public void setUp() {
+		DidlFragmentCache.setMaxSize(100);
+		DidlFragmentCache.clear();
+		renderer = RendererConfigurations.getDefaultRenderer();
+		parent = new VirtualFolder("parent", null);
+		parent.setDefaultRenderer(renderer);
+		PMS.getGlobalRepo().add(parent);
+		folder = new VirtualFolder("folder", null);
+		parent.addChild(folder);
+	}
+
+	@Test
+	public void testHit() {
+		long hits = DidlFragmentCache.getHits();
+		long misses = DidlFragmentCache.getMisses();
+		String didl = folder.getDidlString(renderer);
+		assertEquals(misses + 1, DidlFragmentCache.getMisses());
+		assertSame(didl, folder.getDidlString(renderer));
+		assertEquals(hits + 1, DidlFragmentCache.getHits());
+		assertEquals(1, DidlFragmentCache.size());
+	}
+
+	@Test
+	public void testStateChange() {
+		String didl = folder.getDidlString(renderer);
+		folder.addChild(new VirtualFolder("child1", null));
+		folder.addChild(new VirtualFolder("child2", null));
+		String updated = folder.getDidlString(renderer);
+		assertNotEquals(didl, updated);
+		assertTrue(updated.contains("childCount=\"2\""), updated);
+	}
+
+	@Test
+	public void testInvalidate() {
+		String didl = folder.getDidlString(renderer);
+		DidlFragmentCache.invalidate(folder.getResourceId());
+		assertEquals(0, DidlFragmentCache.size());
+		String rendered = folder.getDidlString(renderer);
+		assertNotSame(didl, rendered);
+		assertEquals(didl, rendered);
+
+		// A replaced resource reuses the id but must not get the old fragment
+		DLNAResource replacement = new VirtualFolder("folder", null);
+		parent.updateChild(replacement);
+		assertEquals(folder.getResourceId(), replacement.getResourceId());
+		assertNotSame(rendered, replacement.getDidlString(renderer));
+	}
+
+	private static void bumpAndWait(DLNAResource container) throws InterruptedException {
+		int updateId = container.getUpdateId();
+		container.bumpUpdateId();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (container.getUpdateId() == updateId) {
+			assertTrue(System.currentTimeMillis() < deadline, "The update id was not bumped");
+			Thread.sleep(50);
+		}
+	}
+
+	@Test
+	public void testContainerUpdate() throws InterruptedException {
+		DLNAResource child = new VirtualFolder("child", null);
+		folder.addChild(child);
+		bumpAndWait(folder);
+		String didl = child.getDidlString(renderer);
+		assertSame(didl, child.getDidlString(renderer));
+
+		// Bumping another container, and so the SystemUpdateID, keeps the fragment
+		bumpAndWait(parent);
+		assertSame(didl, child.getDidlString(renderer));
+
+		// Bumping its container doesn't
+		bumpAndWait(folder);
+		String rendered = child.getDidlString(renderer);
+		assertNotSame(didl, rendered);
+		assertEquals(didl, rendered);
+
+		// The fragment of the previous update id was dropped
+		int size = DidlFragmentCache.size();
+		DidlFragmentCache.invalidate(child.getResourceId());
+		assertEquals(size - 1, DidlFragmentCache.size());
+	}
+
+	@Test
+	public void testDisabled() {
+		DidlFragmentCache.setMaxSize(0);
+		folder.getDidlString(renderer);
+		assertEquals(0, DidlFragmentCache.size());
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import net.pms.dlna.virtual.VirtualFolder;
+import org.junit.jupiter.api.Test;
+
+public class GlobalIdRepoTest {
+
+	@Test
+	public void testAddAndGet() {
+		GlobalIdRepo repo = new GlobalIdRepo();
+		List<DLNAResource> resources = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			DLNAResource resource = new VirtualFolder("folder " + i, null);
+			repo.add(resource);
+			resources.add(resource);
+		}
+		assertEquals(10000, repo.getLiveIdsCount());
+		assertEquals(3, repo.getSegmentsCount());
+		for (DLNAResource resource : resources) {
+			assertSame(resource, repo.get(resource.getId()));
+			assertSame(resource, repo.get(resource.getId() + "$Temp"));
+		}
+		assertNull(repo.get("0"));
+		assertNull(repo.get("10001"));
+		assertNull(repo.get("foo"));
+		assertNull(repo.get((String) null));
+	}
+
+	@Test
+	public void testAddTwice() {
+		GlobalIdRepo repo = new GlobalIdRepo();
+		DLNAResource resource = new VirtualFolder("folder", null);
+		repo.add(resource);
+		String id = resource.getId();
+		repo.add(resource);
+		assertEquals(id, resource.getId());
+		assertEquals(1, repo.getLiveIdsCount());
+	}
+
+	@Test
+	public void testConcurrentAdd() throws Exception {
+		GlobalIdRepo repo = new GlobalIdRepo();
+		List<DLNAResource> resources = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			resources.add(new VirtualFolder("folder " + i, null));
+		}
+		CyclicBarrier barrier = new CyclicBarrier(8);
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Thread thread = new Thread(() -> {
+				try {
+					barrier.await();
+				} catch (Exception e) {
+					throw new AssertionError(e);
+				}
+				for (DLNAResource resource : resources) {
+					repo.add(resource);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// Every resource got a single id
+		assertEquals(1000, repo.getLiveIdsCount());
+		for (DLNAResource resource : resources) {
+			assertSame(resource, repo.get(resource.getId()));
+		}
+	}
+
+	@Test
+	public void testScopeAndReplace() {
+		GlobalIdRepo repo = new GlobalIdRepo();
+		DLNAResource a = new VirtualFolder("a", null);
+		DLNAResource b = new VirtualFolder("b", null);
+		repo.add(a);
+		String id = a.getId();
+
+		repo.setScope(a, false);
+		assertNull(repo.get(id));
+		assertFalse(repo.exists(id));
+		repo.setScope(a, true);
+		assertSame(a, repo.get(id));
+
+		repo.replace(a, b);
+		assertEquals(id, b.getId());
+		assertSame(b, repo.get(id));
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.pms.PMS;
+import net.pms.dlna.virtual.VirtualFolder;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+public class ParallelFolderScannerTest {
+
+	/**
+	 * Records the discoveries of the folders of a tree.
+	 */
+	private static class Probe {
+		private final AtomicInteger discoveries = new AtomicInteger();
+		private final AtomicInteger active = new AtomicInteger();
+		private final AtomicInteger maxActive = new AtomicInteger();
+		private final long delay;
+
+		Probe(long delay) {
+			this.delay = delay;
+		}
+
+		void discover() {
+			discoveries.incrementAndGet();
+			maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				active.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * A folder with {@code width} subfolders, down to {@code depth} levels.
+	 */
+	private static class TestFolder extends VirtualFolder {
+		private final int depth;
+		private final int width;
+		private final Probe probe;
+
+		TestFolder(String name, int depth, int width, Probe probe) {
+			super(name, null);
+			this.depth = depth;
+			this.width = width;
+			this.probe = probe;
+		}
+
+		@Override
+		public boolean allowScan() {
+			return true;
+		}
+
+		@Override
+		public void discoverChildren() {
+			probe.discover();
+			if (depth > 0) {
+				for (int i = 0; i < width; i++) {
+					addChildInternal(new TestFolder(getName() + "/" + i, depth - 1, width, probe), false);
+				}
+			}
+		}
+	}
+
+	@BeforeEach
+	public void setUp() {
+		// Silence all log messages from the UMS code that is being tested
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+	}
+
+	@Test
+	public void testScan() {
+		Probe probe = new Probe(0);
+		TestFolder root = new TestFolder("root", 3, 3, probe);
+		root.discoverChildren();
+		ParallelFolderScanner scanner = new ParallelFolderScanner(4, 4, () -> true);
+		scanner.scan(root);
+
+		// The 3 children of the root, and their 9 and 27 descendants
+		assertEquals(40, probe.discoveries.get());
+		assertEquals(39, scanner.getFoldersScanned());
+		for (DLNAResource child : root.getChildren()) {
+			assertTrue(child.isDiscovered());
+			assertTrue(child.getChildren().isEmpty());
+		}
+	}
+
+	@Test
+	public void testThreadsPerDevice() {
+		Probe probe = new Probe(20);
+		TestFolder root = new TestFolder("root", 2, 4, probe);
+		root.discoverChildren();
+		new ParallelFolderScanner(4, 2, () -> true).scan(root);
+		assertEquals(21, probe.discoveries.get());
+		assertTrue(probe.maxActive.get() <= 2);
+	}
+
+	@Test
+	public void testStopped() {
+		Probe probe = new Probe(0);
+		TestFolder root = new TestFolder("root", 2, 3, probe);
+		root.discoverChildren();
+		ParallelFolderScanner scanner = new ParallelFolderScanner(4, 4, () -> false);
+		scanner.scan(root);
+		assertEquals(1, probe.discoveries.get());
+		assertEquals(0, scanner.getFoldersScanned());
+	}
+
+	@Test
+	public void testRealtimeLock() throws Exception {
+		Probe probe = new Probe(0);
+		TestFolder root = new TestFolder("root", 1, 3, probe);
+		root.discoverChildren();
+		CompletableFuture<Void> scan;
+		PMS.REALTIME_LOCK.lock();
+		try {
+			scan = CompletableFuture.runAsync(() -> new ParallelFolderScanner(2, 2, () -> true).scan(root));
+			Thread.sleep(200);
+
+			// The scan waits while a renderer request holds the lock
+			assertFalse(scan.isDone());
+			assertEquals(1, probe.discoveries.get());
+		} finally {
+			PMS.REALTIME_LOCK.unlock();
+		}
+		scan.get(10, TimeUnit.SECONDS);
+		assertEquals(4, probe.discoveries.get());
+	}
+}
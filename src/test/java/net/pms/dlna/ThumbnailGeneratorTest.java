@@ -0,0 +1,128 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+public class ThumbnailGeneratorTest {
+	@BeforeAll
+	public static void setUpClass() throws Exception {
+		// Silence all log messages from the UMS code that is being tested
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		PMS.forceHeadless();
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	private static Thread start(Runnable runnable) {
+		Thread thread = new Thread(runnable);
+		thread.start();
+		return thread;
+	}
+
+	private static void waitForActive(int count) throws InterruptedException {
+		for (int i = 0; i < 250 && ThumbnailGenerator.getActiveCount() < count; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(count, ThumbnailGenerator.getActiveCount());
+	}
+
+	@Test
+	public void testDeduplication() throws InterruptedException {
+		AtomicInteger generations = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		long deduplicated = ThumbnailGenerator.getDeduplicatedCount();
+
+		Thread first = start(() -> ThumbnailGenerator.generate("/media/a.mkv@4.0", () -> {
+			generations.incrementAndGet();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		}));
+		waitForActive(1);
+		Thread second = start(() -> ThumbnailGenerator.generate("/media/a.mkv@4.0", () -> {
+			generations.incrementAndGet();
+			return null;
+		}));
+		for (int i = 0; i < 250 && ThumbnailGenerator.getDeduplicatedCount() == deduplicated; i++) {
+			Thread.sleep(20);
+		}
+		release.countDown();
+		first.join(5000);
+		second.join(5000);
+
+		assertEquals(1, generations.get());
+		assertEquals(deduplicated + 1, ThumbnailGenerator.getDeduplicatedCount());
+	}
+
+	@Test
+	public void testAbandoned() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger generations = new AtomicInteger();
+		long cancelled = ThumbnailGenerator.getCancelledCount();
+
+		// Keep all the threads busy
+		List<Thread> busy = new ArrayList<>();
+		for (int i = 0; i < ThumbnailGenerator.getThreads(); i++) {
+			String key = "/media/busy" + i + ".mkv@4.0";
+			busy.add(start(() -> ThumbnailGenerator.generate(key, () -> {
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			})));
+		}
+		waitForActive(ThumbnailGenerator.getThreads());
+
+		Thread abandoned = start(() -> ThumbnailGenerator.generate("/media/b.mkv@4.0", () -> {
+			generations.incrementAndGet();
+			return null;
+		}));
+		for (int i = 0; i < 250 && ThumbnailGenerator.getQueueSize() == 0; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(1, ThumbnailGenerator.getQueueSize());
+		abandoned.interrupt();
+		abandoned.join(5000);
+
+		assertEquals(0, ThumbnailGenerator.getQueueSize());
+		assertEquals(cancelled + 1, ThumbnailGenerator.getCancelledCount());
+		release.countDown();
+		for (Thread thread : busy) {
+			thread.join(5000);
+		}
+		assertEquals(0, generations.get());
+	}
+}
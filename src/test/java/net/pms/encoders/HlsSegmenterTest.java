@@ -0,0 +1,141 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.encoders;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+public class HlsSegmenterTest {
+	private Path folder;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		// Silence all log messages from the UMS code that is being tested
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		folder = Files.createTempDirectory("hls");
+	}
+
+	@AfterEach
+	public void tearDown() {
+		HlsSegmenter.removeIdle(Long.MAX_VALUE);
+		FileUtils.deleteQuietly(folder.toFile());
+	}
+
+	private File createSegment(String name, int size) throws IOException {
+		Path file = folder.resolve(name);
+		Files.write(file, new byte[size]);
+		return file.toFile();
+	}
+
+	@Test
+	public void testSegmentList() {
+		assertEquals(3, HlsSegmenter.parseSegmentListEntry("3.ts,30.000000,36.000000"));
+		assertEquals(12, HlsSegmenter.parseSegmentListEntry(" 12.ts,72,78\r"));
+		assertEquals(-1, HlsSegmenter.parseSegmentListEntry("#EXTM3U"));
+		assertEquals(-1, HlsSegmenter.parseSegmentListEntry("3.ts"));
+		assertEquals(-1, HlsSegmenter.parseSegmentListEntry("frame=  100 fps=25"));
+		assertEquals(-1, HlsSegmenter.parseSegmentListEntry("99999999999.ts,0,6"));
+	}
+
+	@Test
+	public void testSeek() {
+		// The run is transcoding segments 5 to 24
+		assertFalse(HlsSegmenter.isSeek(5, 25, 5));
+		assertFalse(HlsSegmenter.isSeek(5, 25, 8));
+		assertTrue(HlsSegmenter.isSeek(5, 25, 9));
+		assertTrue(HlsSegmenter.isSeek(5, 25, 4));
+		assertTrue(HlsSegmenter.isSeek(23, 25, 25));
+	}
+
+	@Test
+	public void testLookAhead() {
+		Set<Integer> cached = Set.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+		assertEquals(10, HlsSegmenter.getLookAheadStart(0, 100, cached::contains));
+		assertEquals(10, HlsSegmenter.getLookAheadStart(5, 100, cached::contains));
+
+		// More than half a window is still transcoded
+		cached = Set.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15);
+		assertEquals(-1, HlsSegmenter.getLookAheadStart(0, 100, cached::contains));
+		assertEquals(16, HlsSegmenter.getLookAheadStart(6, 100, cached::contains));
+
+		// The end of the media
+		assertEquals(-1, HlsSegmenter.getLookAheadStart(8, 10, cached::contains));
+		assertEquals(-1, HlsSegmenter.getLookAheadStart(9, 10, Set.of()::contains));
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		long cachedBytes = HlsSegmenter.getCachedBytes();
+		HlsSegmenter first = new HlsSegmenter("first", null, null, null, 10);
+		HlsSegmenter second = new HlsSegmenter("second", null, null, null, 10);
+		HlsSegmenter.register(first);
+		HlsSegmenter.register(second);
+		File oldest = createSegment("1-0.ts", 100);
+		first.add(0, oldest);
+		second.add(0, createSegment("2-0.ts", 100));
+		first.add(1, createSegment("1-1.ts", 100));
+		assertEquals(cachedBytes + 300, HlsSegmenter.getCachedBytes());
+
+		// The least recently added segment is deleted first
+		HlsSegmenter.evict(cachedBytes + 250);
+		assertFalse(first.isCached(0));
+		assertFalse(oldest.exists());
+		assertTrue(first.isCached(1));
+		assertTrue(second.isCached(0));
+		assertEquals(cachedBytes + 200, HlsSegmenter.getCachedBytes());
+
+		HlsSegmenter.evict(cachedBytes);
+		assertFalse(first.isCached(1));
+		assertFalse(second.isCached(0));
+		assertEquals(cachedBytes, HlsSegmenter.getCachedBytes());
+	}
+
+	@Test
+	public void testRemoveIdle() throws IOException {
+		long cachedBytes = HlsSegmenter.getCachedBytes();
+		int segmenters = HlsSegmenter.getSegmenters();
+		HlsSegmenter segmenter = new HlsSegmenter("idle", null, null, null, 10);
+		HlsSegmenter.register(segmenter);
+		File segment = createSegment("0.ts", 100);
+		segmenter.add(0, segment);
+		assertEquals(segmenters + 1, HlsSegmenter.getSegmenters());
+
+		// A segmenter that was just requested is kept
+		HlsSegmenter.removeIdle(System.currentTimeMillis());
+		assertEquals(segmenters + 1, HlsSegmenter.getSegmenters());
+		assertTrue(segment.exists());
+
+		HlsSegmenter.removeIdle(Long.MAX_VALUE);
+		assertEquals(segmenters, HlsSegmenter.getSegmenters());
+		assertFalse(segmenter.isCached(0));
+		assertFalse(segment.exists());
+		assertEquals(cachedBytes, HlsSegmenter.getCachedBytes());
+	}
+}
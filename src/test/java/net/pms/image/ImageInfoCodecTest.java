@@ -0,0 +1,116 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.image;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import net.pms.dlna.DLNAThumbnail;
+import org.junit.jupiter.api.Test;
+
+public class ImageInfoCodecTest {
+	private static final String[] IMAGES = {
+		"/resources/images/icon-128.jpg",
+		"/resources/images/button-add-folder.png"
+	};
+
+	private static DLNAThumbnail getThumbnail(String resource) throws IOException {
+		try (InputStream is = ImageInfoCodecTest.class.getResourceAsStream(resource)) {
+			assertNotNull(is, "Missing test image " + resource);
+			DLNAThumbnail thumbnail = DLNAThumbnail.toThumbnail(is);
+			assertNotNull(thumbnail, "Unable to create a thumbnail from " + resource);
+			return thumbnail;
+		}
+	}
+
+	private static byte[] serialize(Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+	}
+
+	@Test
+	public void testImageInfoRoundTrip() throws IOException {
+		for (String image : IMAGES) {
+			ImageInfo imageInfo = getThumbnail(image).getImageInfo();
+			byte[] encoded = ImageInfoCodec.encode(imageInfo);
+			assertTrue(ImageInfoCodec.isEncoded(encoded));
+			ImageInfo decoded = ImageInfoCodec.decode(encoded);
+			assertEquals(imageInfo.getClass(), decoded.getClass());
+			assertEquals(imageInfo.toString(), decoded.toString());
+		}
+		assertNull(ImageInfoCodec.encode(null));
+		assertNull(ImageInfoCodec.decode(null));
+	}
+
+	@Test
+	public void testThumbnailRoundTrip() throws IOException {
+		for (String image : IMAGES) {
+			DLNAThumbnail thumbnail = getThumbnail(image);
+			byte[] encoded = thumbnail.encode();
+			assertTrue(DLNAThumbnail.isEncoded(encoded));
+			DLNAThumbnail decoded = DLNAThumbnail.decode(encoded);
+			assertArrayEquals(thumbnail.getBytes(false), decoded.getBytes(false));
+			assertEquals(thumbnail.getDLNAImageProfile(), decoded.getDLNAImageProfile());
+			assertEquals(thumbnail.getImageInfo().toString(), decoded.getImageInfo().toString());
+		}
+	}
+
+	@Test
+	public void testInvalidData() {
+		assertThrows(IOException.class, () -> ImageInfoCodec.decode(new byte[] {ImageInfoCodec.MAGIC, 99}));
+		assertThrows(IOException.class, () -> DLNAThumbnail.decode(new byte[] {DLNAThumbnail.ENCODING_MAGIC, 99}));
+		assertThrows(IOException.class, () -> ImageInfoCodec.decode(new byte[] {(byte) 0xAC, (byte) 0xED}));
+	}
+
+	/**
+	 * Checks that the compact encoding is smaller than Java serialization,
+	 * and that both decode to the same thumbnail.
+	 */
+	@Test
+	public void testCompareWithSerialization() throws IOException, ClassNotFoundException {
+		for (String image : IMAGES) {
+			DLNAThumbnail thumbnail = getThumbnail(image);
+			ImageInfo imageInfo = thumbnail.getImageInfo();
+			byte[] serializedInfo = serialize(imageInfo);
+			byte[] encodedInfo = ImageInfoCodec.encode(imageInfo);
+			byte[] serializedThumbnail = serialize(thumbnail);
+			byte[] encodedThumbnail = thumbnail.encode();
+			assertTrue(encodedInfo.length < serializedInfo.length);
+			assertTrue(encodedThumbnail.length < serializedThumbnail.length);
+
+			assertEquals(deserialize(serializedInfo).toString(), ImageInfoCodec.decode(encodedInfo).toString());
+			DLNAThumbnail deserialized = (DLNAThumbnail) deserialize(serializedThumbnail);
+			DLNAThumbnail decoded = DLNAThumbnail.decode(encodedThumbnail);
+			assertArrayEquals(deserialized.getBytes(false), decoded.getBytes(false));
+			assertEquals(deserialized.getDLNAImageProfile(), decoded.getDLNAImageProfile());
+			assertEquals(deserialized.getImageInfo().toString(), decoded.getImageInfo().toString());
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import java.io.IOException;
+import java.io.InputStream;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+public class BufferedOutputFileImplTest {
+	private static final int DATA_SIZE = 2 * 1048576;
+
+	private UmsConfiguration configuration;
+
+	@BeforeEach
+	public void setUp() {
+		// Silence all log messages from the UMS code that is being tested
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		try {
+			configuration = new UmsConfiguration(false);
+			PMS.setConfiguration(configuration);
+		} catch (Exception ex) {
+			throw new AssertionError(ex);
+		}
+	}
+
+	private static OutputParams createParams(UmsConfiguration configuration) {
+		OutputParams params = new OutputParams(configuration);
+		params.setMinBufferSize(0);
+		params.setMaxBufferSize(4);
+		params.setSecondReadMinSize(0);
+		params.setHideBuffer(true);
+		params.setCleanup(false);
+		return params;
+	}
+
+	private static void writeData(BufferedOutputFileImpl buffer) throws IOException {
+		writeData(buffer, DATA_SIZE, 65536);
+	}
+
+	private static void writeData(BufferedOutputFileImpl buffer, int size, int chunkSize) throws IOException {
+		byte[] chunk = new byte[chunkSize];
+		for (int written = 0; written < size; written += chunk.length) {
+			int length = Math.min(chunk.length, size - written);
+			for (int i = 0; i < length; i++) {
+				chunk[i] = (byte) ((written + i) % 251);
+			}
+			buffer.write(chunk, 0, length);
+		}
+		buffer.close();
+	}
+
+	private static void assertData(InputStream input, long position) throws IOException {
+		byte[] chunk = new byte[50000];
+		int read;
+		while ((read = input.read(chunk)) != -1) {
+			for (int i = 0; i < read; i++) {
+				assertEquals((byte) ((position + i) % 251), chunk[i], "Byte at position " + (position + i));
+			}
+			position += read;
+		}
+		assertEquals(DATA_SIZE, position);
+	}
+
+	@Test
+	public void testSpillToDisk() throws IOException {
+		configuration.setTranscodeBufferSpillToDisk(true);
+		long heapMemoryUsed = BufferedOutputFileImpl.getHeapMemoryUsed();
+		int mappedBuffers = BufferedOutputFileImpl.getMappedBuffersCount();
+
+		BufferedOutputFileImpl buffer = new BufferedOutputFileImpl(createParams(configuration));
+		assertEquals(mappedBuffers + 1, BufferedOutputFileImpl.getMappedBuffersCount());
+		assertEquals(heapMemoryUsed, BufferedOutputFileImpl.getHeapMemoryUsed());
+
+		writeData(buffer);
+		assertData(buffer.getInputStream(0), 0);
+
+		// Seek backwards
+		assertData(buffer.getInputStream(123456), 123456);
+
+		buffer.reset();
+		assertEquals(mappedBuffers, BufferedOutputFileImpl.getMappedBuffersCount());
+	}
+
+	@Test
+	public void testMemoryLimit() throws IOException {
+		configuration.setTranscodeBufferMemoryLimit(1);
+		int mappedBuffers = BufferedOutputFileImpl.getMappedBuffersCount();
+
+		// The buffer does not fit in the limit and is mapped
+		BufferedOutputFileImpl buffer = new BufferedOutputFileImpl(createParams(configuration));
+		assertEquals(mappedBuffers + 1, BufferedOutputFileImpl.getMappedBuffersCount());
+		buffer.reset();
+		assertEquals(mappedBuffers, BufferedOutputFileImpl.getMappedBuffersCount());
+
+		configuration.setTranscodeBufferMemoryLimit(1024);
+		long heapMemoryUsed = BufferedOutputFileImpl.getHeapMemoryUsed();
+		buffer = new BufferedOutputFileImpl(createParams(configuration));
+		assertEquals(mappedBuffers, BufferedOutputFileImpl.getMappedBuffersCount());
+		assertEquals(heapMemoryUsed + 4 * 1048576, BufferedOutputFileImpl.getHeapMemoryUsed());
+
+		writeData(buffer);
+		assertData(buffer.getInputStream(0), 0);
+
+		buffer.reset();
+		assertEquals(heapMemoryUsed, BufferedOutputFileImpl.getHeapMemoryUsed());
+	}
+
+	@Test
+	public void testWaitForFirstBytes() throws Exception {
+		BufferedOutputFileImpl buffer = new BufferedOutputFileImpl(createParams(configuration));
+		assertFalse(buffer.waitForFirstBytes(50));
+
+		Thread writer = new Thread(() -> {
+			try {
+				Thread.sleep(100);
+				buffer.write(new byte[] {1, 2, 3}, 0, 3);
+			} catch (InterruptedException | IOException e) {
+				throw new AssertionError(e);
+			}
+		});
+		writer.start();
+		long start = System.nanoTime();
+		assertTrue(buffer.waitForFirstBytes(10000));
+		assertTrue(System.nanoTime() - start < 5000000000L);
+		writer.join();
+		buffer.reset();
+
+		// The end of the stream stops the wait
+		BufferedOutputFileImpl empty = new BufferedOutputFileImpl(createParams(configuration));
+		empty.close();
+		start = System.nanoTime();
+		assertFalse(empty.waitForFirstBytes(10000));
+		assertTrue(System.nanoTime() - start < 5000000000L);
+		empty.reset();
+	}
+
+	/**
+	 * Writes three times the size of the buffer, in chunks that don't divide
+	 * it, so that some writes are split around the end of the buffer.
+	 */
+	@Test
+	public void testWrapAround() throws Exception {
+		int size = 3 * 4 * 1048576;
+		BufferedOutputFileImpl buffer = new BufferedOutputFileImpl(createParams(configuration));
+		InputStream input = buffer.getInputStream(0);
+		Thread writer = new Thread(() -> {
+			try {
+				writeData(buffer, size, 100000);
+			} catch (IOException e) {
+				throw new AssertionError(e);
+			}
+		});
+		writer.start();
+
+		// Only read the bytes already written, the buffer doesn't wait for a full read
+		byte[] chunk = new byte[50000];
+		long position = 0;
+		while (position < size) {
+			long deadline = System.nanoTime() + 10000000000L;
+			while (buffer.getWriteCount() - position < Math.min(chunk.length, size - position)) {
+				assertTrue(System.nanoTime() < deadline, "The writer is stuck at " + buffer.getWriteCount());
+				Thread.sleep(5);
+			}
+			int read = input.read(chunk);
+			assertTrue(read > 0);
+			for (int i = 0; i < read; i++) {
+				assertEquals((byte) ((position + i) % 251), chunk[i], "Byte at position " + (position + i));
+			}
+			position += read;
+		}
+		writer.join();
+		assertEquals(-1, input.read(chunk));
+		buffer.reset();
+	}
+
+	/**
+	 * A buffer dropped without being reset releases its accounting once it
+	 * is garbage collected.
+	 */
+	@Test
+	public void testGarbageCollected() throws Exception {
+		configuration.setTranscodeBufferMemoryLimit(1024);
+		long heapMemoryUsed = BufferedOutputFileImpl.getHeapMemoryUsed();
+		BufferedOutputFileImpl buffer = new BufferedOutputFileImpl(createParams(configuration));
+		assertEquals(heapMemoryUsed + 4 * 1048576, BufferedOutputFileImpl.getHeapMemoryUsed());
+		buffer = null;
+
+		long deadline = System.nanoTime() + 10000000000L;
+		while (BufferedOutputFileImpl.getHeapMemoryUsed() != heapMemoryUsed && System.nanoTime() < deadline) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		assertEquals(heapMemoryUsed, BufferedOutputFileImpl.getHeapMemoryUsed());
+	}
+}
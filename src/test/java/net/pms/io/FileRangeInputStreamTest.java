@@ -0,0 +1,134 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileRangeInputStreamTest {
+	private static final int TRANSFER_SIZE = 1024 * 1024 + 17;
+
+	@TempDir
+	File tempDir;
+
+	private File createFile(int size) throws IOException {
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++) {
+			data[i] = (byte) (i % 251);
+		}
+		File file = new File(tempDir, "range-" + size + ".bin");
+		Files.write(file.toPath(), data);
+		return file;
+	}
+
+	@Test
+	public void testRange() throws IOException {
+		File file = createFile(100000);
+		try (FileRangeInputStream input = new FileRangeInputStream(file)) {
+			assertEquals(100000, input.available());
+			assertEquals(1000, input.skip(1000));
+			input.limit(5000);
+			assertEquals(1000, input.getPosition());
+			assertEquals(5000, input.getRemaining());
+
+			input.mark(0);
+			assertEquals(1000 % 251, input.read());
+			input.reset();
+
+			byte[] buf = new byte[8192];
+			assertEquals(5000, input.read(buf));
+			for (int i = 0; i < 5000; i++) {
+				assertEquals((byte) ((1000 + i) % 251), buf[i]);
+			}
+			assertEquals(-1, input.read(buf));
+			assertEquals(0, input.skip(10));
+			assertEquals(0, input.available());
+		}
+
+		try (FileRangeInputStream input = new FileRangeInputStream(file)) {
+			assertEquals(100000, input.skip(200000));
+			assertEquals(-1, input.read());
+		}
+	}
+
+	/**
+	 * Sends a file to a socket by copying it in 8 KB chunks, like streams are
+	 * sent, and by transferring it from the file channel, and checks that
+	 * both deliver the same bytes.
+	 */
+	@Test
+	public void testSendToSocket() throws Exception {
+		File file = createFile(TRANSFER_SIZE);
+		byte[] expected = Files.readAllBytes(file.toPath());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+
+			Future<byte[]> received = executor.submit(() -> drain(server));
+			try (
+				Socket socket = new Socket(address.getAddress(), address.getPort());
+				InputStream input = new FileRangeInputStream(file)
+			) {
+				OutputStream output = socket.getOutputStream();
+				byte[] buf = new byte[8192];
+				int length;
+				while ((length = input.read(buf)) > 0) {
+					output.write(buf, 0, length);
+					output.flush();
+				}
+			}
+			assertArrayEquals(expected, received.get());
+
+			received = executor.submit(() -> drain(server));
+			try (
+				SocketChannel socket = SocketChannel.open(address);
+				FileRangeInputStream input = new FileRangeInputStream(file)
+			) {
+				long position = input.getPosition();
+				long remaining = input.getRemaining();
+				while (remaining > 0) {
+					long sent = input.getChannel().transferTo(position, remaining, socket);
+					position += sent;
+					remaining -= sent;
+				}
+			}
+			assertArrayEquals(expected, received.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static byte[] drain(ServerSocket server) throws IOException {
+		try (Socket socket = server.accept(); InputStream input = socket.getInputStream()) {
+			return input.readAllBytes();
+		}
+	}
+}
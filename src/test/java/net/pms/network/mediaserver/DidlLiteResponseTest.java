@@ -0,0 +1,150 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network.mediaserver;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilder;
+import net.pms.PMS;
+import net.pms.configuration.RendererConfigurations;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.configuration.sharedcontent.SharedContentArray;
+import net.pms.configuration.sharedcontent.SharedContentConfiguration;
+import net.pms.dlna.DLNAResource;
+import net.pms.dlna.virtual.VirtualFolder;
+import net.pms.renderers.Renderer;
+import net.pms.service.Services;
+import net.pms.util.XmlUtils;
+import org.apache.commons.configuration.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+public class DidlLiteResponseTest {
+	private static final int ITEMS = 1000;
+
+	@BeforeAll
+	public static void setUp() throws ConfigurationException, InterruptedException {
+		// Silence all log messages from the UMS code that is being tested
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		PMS.forceHeadless();
+		try {
+			PMS.setConfiguration(new UmsConfiguration(false));
+		} catch (Exception ex) {
+			throw new AssertionError(ex);
+		}
+		PMS.getConfiguration().setAutomaticMaximumBitrate(false); // do not test the network speed.
+		SharedContentConfiguration.updateSharedContent(new SharedContentArray(), false);
+		PMS.getConfiguration().setScanSharedFoldersOnStartup(false);
+		PMS.getConfiguration().setUseCache(false);
+		Services.destroy();
+
+		// Create a new PMS instance
+		PMS.getNewInstance();
+	}
+
+	private static List<DLNAResource> createItems(Renderer renderer) {
+		DLNAResource parent = new VirtualFolder("parent", null);
+		parent.setDefaultRenderer(renderer);
+		PMS.getGlobalRepo().add(parent);
+		List<DLNAResource> items = new ArrayList<>();
+		for (int i = 0; i < ITEMS; i++) {
+			DLNAResource item = new VirtualFolder("Folder <" + i + "> & more", null);
+			parent.addChild(item);
+			items.add(item);
+		}
+		return items;
+	}
+
+	@Test
+	public void testChunks() throws Exception {
+		Renderer renderer = RendererConfigurations.getDefaultRenderer();
+		List<DLNAResource> items = createItems(renderer);
+
+		StringBuilder expected = new StringBuilder();
+		for (DLNAResource item : items) {
+			expected.append(item.getDidlString(renderer));
+		}
+
+		DidlLiteResponse response = new DidlLiteResponse(false, items, renderer, 1234, 42);
+		assertTrue(response.isStreamable());
+		assertEquals(ITEMS, response.getNumberReturned());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int chunks = 0;
+		ByteBuffer chunk;
+		while ((chunk = response.nextChunk()) != null) {
+			out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+			chunks++;
+		}
+		assertTrue(chunks > 1);
+		assertNull(response.nextChunk());
+
+		String xml = out.toString(StandardCharsets.UTF_8);
+		assertTrue(xml.contains(HTTPXMLHelper.DIDL_HEADER + expected + HTTPXMLHelper.DIDL_FOOTER));
+
+		DocumentBuilder builder = XmlUtils.xxeDisabledDocumentBuilderFactory().newDocumentBuilder();
+		Document document = builder.parse(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(Integer.toString(ITEMS), document.getElementsByTagName("NumberReturned").item(0).getTextContent());
+		assertEquals("1234", document.getElementsByTagName("TotalMatches").item(0).getTextContent());
+		assertEquals("42", document.getElementsByTagName("UpdateID").item(0).getTextContent());
+
+		String result = document.getElementsByTagName("Result").item(0).getTextContent();
+		Document didl = builder.parse(new ByteArrayInputStream(result.getBytes(StandardCharsets.UTF_8)));
+		assertEquals(ITEMS, didl.getElementsByTagName("container").getLength());
+		assertEquals("Folder <7> & more", didl.getElementsByTagName("dc:title").item(7).getTextContent());
+	}
+
+	@Test
+	public void testChunks() throws Exception {
+		Renderer renderer = RendererConfigurations.getDefaultRenderer();
+		List<DLNAResource> items = createItems(renderer);
+		byte[] expected = new DidlLiteResponse(false, items, renderer, 1234, 42).toByteArray();
+
+		DidlLiteResponse response = new DidlLiteResponse(false, items, renderer, 1234, 42);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int chunks = 0;
+		ByteBuffer chunk;
+		while ((chunk = response.nextChunk()) != null) {
+			out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+			chunks++;
+		}
+		assertTrue(chunks > 1);
+		assertArrayEquals(expected, out.toByteArray());
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		DidlLiteResponse response = new DidlLiteResponse(true, new ArrayList<>(), RendererConfigurations.getDefaultRenderer(), 0, 1);
+		assertFalse(response.isStreamable());
+		String xml = new String(response.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(xml.startsWith(HTTPXMLHelper.XML_HEADER));
+		assertTrue(xml.contains(HTTPXMLHelper.SEARCHRESPONSE_HEADER));
+		assertTrue(xml.contains("<NumberReturned>0</NumberReturned>"));
+		assertTrue(xml.trim().endsWith(HTTPXMLHelper.SOAP_ENCODING_FOOTER));
+	}
+}
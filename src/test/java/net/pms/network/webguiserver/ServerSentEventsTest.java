@@ -0,0 +1,186 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network.webguiserver;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+public class ServerSentEventsTest {
+	/**
+	 * The most messages queued for a stream.
+	 */
+	private static final int MAX_PENDING_EVENTS = 256;
+
+	@BeforeEach
+	public void setUp() {
+		// Silence all log messages from the UMS code that is being tested
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+	}
+
+	/**
+	 * An output stream whose writes can be held until released.
+	 */
+	private static class HeldOutputStream extends OutputStream {
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		private final CountDownLatch written = new CountDownLatch(1);
+		private final CountDownLatch released;
+
+		HeldOutputStream(boolean held) {
+			released = new CountDownLatch(held ? 1 : 0);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			written.countDown();
+			try {
+				released.await();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+			synchronized (out) {
+				out.write(b, off, len);
+			}
+		}
+
+		void awaitWrite() throws InterruptedException {
+			assertTrue(written.await(10, TimeUnit.SECONDS));
+		}
+
+		void release() {
+			released.countDown();
+		}
+
+		String getContent() {
+			synchronized (out) {
+				return out.toString(StandardCharsets.UTF_8);
+			}
+		}
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Timed out");
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * The broadcaster sends the queued messages, and pings idle streams.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testBroadcast() throws Exception {
+		HeldOutputStream out = new HeldOutputStream(false);
+		ServerSentEvents stream = new ServerSentEvents(out);
+		assertTrue(stream.isOpened());
+		assertTrue(ServerSentEvents.getConnectedClients() > 0);
+
+		long sent = ServerSentEvents.getSentEvents();
+		assertTrue(stream.sendMessage("hello", false));
+		waitFor(() -> out.getContent().contains("event: message\ndata: hello\n\n"));
+		assertTrue(ServerSentEvents.getSentEvents() > sent);
+
+		waitFor(() -> out.getContent().contains("event: ping\n"));
+
+		stream.close();
+		assertFalse(stream.isOpened());
+		assertFalse(stream.sendMessage("closed", false));
+	}
+
+	/**
+	 * A keyed message replaces the queued one, and moves to the end of the
+	 * queue.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testCoalescing() throws Exception {
+		HeldOutputStream out = new HeldOutputStream(true);
+		ServerSentEvents stream = new ServerSentEvents(out);
+		stream.sendMessage("first", false);
+		out.awaitWrite();
+
+		// The write of the first message is held, so the next ones are queued
+		stream.sendMessage("a", false, "key");
+		stream.sendMessage("b", false);
+		stream.sendMessage("c", false, "key");
+		out.release();
+
+		waitFor(() -> out.getContent().contains("data: c\n"));
+		String content = out.getContent();
+		assertFalse(content.contains("data: a\n"));
+		assertTrue(content.indexOf("data: first\n") < content.indexOf("data: b\n"));
+		assertTrue(content.indexOf("data: b\n") < content.indexOf("data: c\n"));
+		stream.close();
+	}
+
+	/**
+	 * The oldest messages of a slow stream are dropped and counted.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testDroppedEvents() throws Exception {
+		HeldOutputStream out = new HeldOutputStream(true);
+		ServerSentEvents stream = new ServerSentEvents(out);
+		stream.sendMessage("first", false);
+		out.awaitWrite();
+
+		long dropped = ServerSentEvents.getDroppedEvents();
+		for (int i = 0; i < MAX_PENDING_EVENTS + 10; i++) {
+			stream.sendMessage("m" + i, false);
+		}
+		assertEquals(dropped + 10, ServerSentEvents.getDroppedEvents());
+
+		stream.sendMessage("keyed", false, "key");
+		assertEquals(dropped + 11, ServerSentEvents.getDroppedEvents());
+
+		// Replacing a queued message drops nothing
+		stream.sendMessage("replaced", false, "key");
+		assertEquals(dropped + 11, ServerSentEvents.getDroppedEvents());
+		out.release();
+
+		waitFor(() -> out.getContent().contains("data: replaced\n"));
+		String content = out.getContent();
+		assertFalse(content.contains("data: keyed\n"));
+		assertFalse(content.contains("data: m0\n"));
+		assertFalse(content.contains("data: m10\n"));
+		assertTrue(content.contains("data: m11\n"));
+		stream.close();
+	}
+}
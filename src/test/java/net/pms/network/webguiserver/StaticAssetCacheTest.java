@@ -0,0 +1,70 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network.webguiserver;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StaticAssetCacheTest {
+	@TempDir
+	File folder;
+
+	@Test
+	public void testLoad() throws IOException {
+		String script = "console.log('Universal Media Server');\n".repeat(100);
+		File staticFolder = new File(folder, "static");
+		assertTrue(staticFolder.mkdir());
+		Files.writeString(new File(staticFolder, "main.js").toPath(), script);
+		Files.write(new File(folder, "logo.png").toPath(), new byte[] {1, 2, 3});
+		StaticAssetCache.load(folder);
+
+		assertEquals(2, StaticAssetCache.getAssetCount());
+		StaticAssetCache.Asset asset = StaticAssetCache.get("static/main.js");
+		assertNotNull(asset);
+		assertEquals(script, new String(asset.data(), StandardCharsets.UTF_8));
+		assertNotNull(asset.gzipData());
+		assertTrue(asset.gzipData().length < asset.data().length);
+		assertNotEquals(asset.etag(), asset.gzipEtag());
+		try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(asset.gzipData()))) {
+			assertEquals(script, new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+		}
+
+		asset = StaticAssetCache.get("logo.png");
+		assertNotNull(asset);
+		assertNull(asset.gzipData());
+		assertTrue(asset.etag().startsWith("\"") && asset.etag().endsWith("\""));
+
+		long misses = StaticAssetCache.getMisses();
+		assertNull(StaticAssetCache.get("missing.js"));
+		assertEquals(misses + 1, StaticAssetCache.getMisses());
+	}
+
+	@Test
+	public void testSameContentSameEtag() throws IOException {
+		Files.writeString(new File(folder, "a.txt").toPath(), "content");
+		Files.writeString(new File(folder, "b.txt").toPath(), "content");
+		StaticAssetCache.load(folder);
+		assertEquals(StaticAssetCache.get("a.txt").etag(), StaticAssetCache.get("b.txt").etag());
+	}
+}
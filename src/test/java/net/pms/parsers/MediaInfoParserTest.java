@@ -16,6 +16,9 @@
  */
 package net.pms.parsers;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import net.pms.PMS;
 import net.pms.configuration.FormatConfiguration;
 import net.pms.dlna.DLNAMediaAudio;
@@ -26,6 +29,27 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 public class MediaInfoParserTest {
+	/**
+	 * A handle that records whether it was closed.
+	 */
+	private static class Handle {
+		private final boolean valid;
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		Handle(boolean valid) {
+			this.valid = valid;
+		}
+	}
+
+	private static MediaInfoParser.HandlePool<Handle> createPool(int maxHandles) {
+		return new MediaInfoParser.HandlePool<>(
+			() -> new Handle(true),
+			handle -> handle.valid,
+			handle -> handle.closed.set(true),
+			() -> maxHandles
+		);
+	}
+
 	@BeforeAll
 	public static void SetUPClass() {
 		PMS.configureJNA();
@@ -129,4 +153,63 @@ public class MediaInfoParserTest {
 		assertEquals(FormatConfiguration.DIVX, media.getCodecV());
 		// TODO this can continue with other container, video and audio formats
 	}
+
+	@Test
+	public void testHandlePoolBounded() throws Exception {
+		MediaInfoParser.HandlePool<Handle> pool = createPool(2);
+		Handle first = pool.borrow();
+		Handle second = pool.borrow();
+		assertNotSame(first, second);
+		assertEquals(2, pool.getCreated());
+		assertEquals(2, pool.getBorrowed());
+
+		// The pool is full, so the next borrow waits for a release
+		CompletableFuture<Handle> third = CompletableFuture.supplyAsync(() -> {
+			try {
+				return pool.borrow();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		Thread.sleep(100);
+		assertFalse(third.isDone());
+		pool.release(first);
+		assertSame(first, third.get(10, TimeUnit.SECONDS));
+		assertEquals(2, pool.getCreated());
+		pool.release(first);
+		pool.release(second);
+		assertEquals(0, pool.getBorrowed());
+	}
+
+	@Test
+	public void testHandlePoolInvalid() throws Exception {
+		Handle invalid = new Handle(false);
+		MediaInfoParser.HandlePool<Handle> pool = new MediaInfoParser.HandlePool<>(
+			() -> invalid,
+			handle -> handle.valid,
+			handle -> handle.closed.set(true),
+			() -> 2
+		);
+		assertNull(pool.borrow());
+		assertTrue(invalid.closed.get());
+		assertEquals(0, pool.getCreated());
+		assertEquals(1, pool.getInvalid());
+		assertEquals(0, pool.getBorrowed());
+	}
+
+	@Test
+	public void testHandlePoolClose() throws Exception {
+		MediaInfoParser.HandlePool<Handle> pool = createPool(2);
+		Handle idle = pool.borrow();
+		Handle borrowed = pool.borrow();
+		pool.release(idle);
+		pool.close();
+		assertTrue(idle.closed.get());
+		assertFalse(borrowed.closed.get());
+
+		// A handle borrowed during the shutdown is closed when released
+		pool.release(borrowed);
+		assertTrue(borrowed.closed.get());
+		assertNull(pool.borrow());
+	}
 }
@@ -379,6 +379,17 @@ public class FileUtilTest {
 		}
 	}
 
+	@Test
+	public void testGetFileNameMetadataCache() {
+		String[] expected = {"Universal Media Server", null, null, "1", "02", "Mysterious Wordplay"};
+		String[] metadata = FileUtil.getFileNameMetadata("Universal.Media.Server.S01E02.Mysterious.Wordplay.720p.HDTV.x264-GROUP.mkv", null);
+		assertArrayEquals(expected, metadata);
+
+		// The cached metadata is not changed through a returned array
+		metadata[0] = "Changed";
+		assertArrayEquals(expected, FileUtil.getFileNameMetadata("Universal.Media.Server.S01E02.Mysterious.Wordplay.720p.HDTV.x264-GROUP.mkv", null));
+	}
+
 	@Test
 	public void testGetFileCharset_WINDOWS_1251() throws Exception {
 		File file = FileUtils.toFile(CLASS.getResource("russian-cp1251.srt"));
@@ -0,0 +1,82 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FileWatcherTest {
+	private final List<String> events = new CopyOnWriteArrayList<>();
+	private final FileWatcher.Listener listener = (String filename, String event, FileWatcher.Watch watch, boolean isDir) -> events.add(event + " " + filename);
+	private FileWatcher.Notifier notifier;
+	private FileWatcher.Watch watch;
+
+	@BeforeEach
+	public void setUp() {
+		notifier = new FileWatcher.Notifier("File event test");
+		watch = new FileWatcher.Watch("/media/**", listener);
+	}
+
+	@AfterEach
+	public void tearDown() throws InterruptedException {
+		notifier.shutdown();
+		assertTrue(notifier.awaitTermination(5, TimeUnit.SECONDS));
+	}
+
+	private void send(String filename, String kind) {
+		notifier.schedule(new FileWatcher.Notice(filename, kind, watch, false), 200);
+	}
+
+	private void waitForNotices() throws InterruptedException {
+		for (int i = 0; i < 100 && notifier.getPendingNotices() > 0; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(0, notifier.getPendingNotices());
+		notifier.shutdown();
+		assertTrue(notifier.awaitTermination(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testCoalesce() throws InterruptedException {
+		send("/media/a.mkv", "ENTRY_CREATE");
+		send("/media/a.mkv", "ENTRY_MODIFY");
+		send("/media/a.mkv", "ENTRY_MODIFY");
+		send("/media/b.mkv", "ENTRY_MODIFY");
+		send("/media/c.mkv", "ENTRY_CREATE");
+		send("/media/c.mkv", "ENTRY_DELETE");
+		waitForNotices();
+
+		assertEquals(3, events.size());
+		assertTrue(events.contains("ENTRY_CREATE /media/a.mkv"));
+		assertTrue(events.contains("ENTRY_MODIFY /media/b.mkv"));
+		assertTrue(events.contains("ENTRY_DELETE /media/c.mkv"));
+	}
+
+	@Test
+	public void testOverflow() throws InterruptedException {
+		send("/media", "OVERFLOW");
+		send("/media", "ENTRY_MODIFY");
+		waitForNotices();
+
+		assertEquals(List.of("OVERFLOW /media"), events);
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+	@Test
+	public void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getAverage());
+		assertEquals(0, histogram.getPercentile(50));
+	}
+
+	@Test
+	public void testRecord() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10);
+		histogram.record(50);
+		histogram.record(300);
+		histogram.record(20000);
+
+		long[] counts = histogram.getCounts();
+		assertEquals(LatencyHistogram.getBounds().length + 1, counts.length);
+		assertEquals(2, counts[0]);
+		assertEquals(1, counts[3]);
+		assertEquals(1, counts[counts.length - 1]);
+		assertEquals(4, histogram.getCount());
+		assertEquals(5090, histogram.getAverage());
+		assertEquals(50, histogram.getPercentile(50));
+		assertEquals(500, histogram.getPercentile(75));
+		assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+	}
+}
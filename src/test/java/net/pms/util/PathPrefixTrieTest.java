@@ -0,0 +1,56 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.io.File;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class PathPrefixTrieTest {
+
+	@Test
+	public void testContainsPrefixOf() {
+		PathPrefixTrie trie = new PathPrefixTrie();
+		trie.add("/media/music");
+		trie.add("/media/videos/");
+		trie.add("/home/user//pictures");
+
+		assertTrue(trie.containsPrefixOf("/media/music"));
+		assertTrue(trie.containsPrefixOf("/media/music/album/song.mp3"));
+		assertTrue(trie.containsPrefixOf("/media/videos/movie.mkv"));
+		assertTrue(trie.containsPrefixOf("/home/user/pictures/image.jpg"));
+
+		// Only whole components match
+		assertFalse(trie.containsPrefixOf("/media/musical/song.mp3"));
+		assertFalse(trie.containsPrefixOf("/media"));
+		assertFalse(trie.containsPrefixOf("/media/"));
+		assertFalse(trie.containsPrefixOf("/other/media/music/song.mp3"));
+		assertFalse(trie.containsPrefixOf(""));
+
+		trie.add("/");
+		assertTrue(trie.containsPrefixOf("/other/media/music/song.mp3"));
+	}
+
+	@Test
+	public void testFolders() {
+		File folder = new File("shared").getAbsoluteFile();
+		PathPrefixTrie trie = new PathPrefixTrie(List.of(folder));
+		assertTrue(trie.containsPrefixOf(new File(folder, "file.mp3").getAbsolutePath()));
+		assertFalse(trie.containsPrefixOf(folder.getParentFile().getAbsolutePath()));
+	}
+}